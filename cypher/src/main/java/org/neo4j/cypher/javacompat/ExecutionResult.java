@@ -19,11 +19,14 @@
  */
 package org.neo4j.cypher.javacompat;
 
+import java.io.Closeable;
 import java.io.PrintWriter;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import org.neo4j.cypher.PlanDescription;
+
 /**
  * Holds Cypher query result sets, in tabular form. Each row of the result is a map
  * of column name to result object. Each column name correlates directly
@@ -37,7 +40,7 @@ import java.util.Map;
  * cast to a type.
  *
  */
-public class ExecutionResult implements Iterable<Map<String,Object>>
+public class ExecutionResult implements Iterable<Map<String,Object>>, Closeable
 {
     private org.neo4j.cypher.ExecutionResult inner;
 
@@ -84,6 +87,18 @@ public class ExecutionResult implements Iterable<Map<String,Object>>
         return inner.javaIterator();
     }
 
+    /**
+     * Iterates over the rows of the result without keeping them, for results
+     * that are too big to hold in memory. Once this has been used the result
+     * can not be iterated over, printed or described again.
+     *
+     * @return an iterator over the rows that have not been read yet
+     */
+    public Iterator<Map<String, Object>> streamingIterator()
+    {
+        return inner.javaStreamingIterator();
+    }
+
     @Override
     public String toString()
     {
@@ -95,4 +110,30 @@ public class ExecutionResult implements Iterable<Map<String,Object>>
         inner.dumpToString( writer );
     }
 
+    /**
+     * Describes how a profiled query was executed, with the rows, db hits and
+     * time spent in every step of the plan. The rest of the result is read
+     * before the plan is described, it can still be iterated over afterwards.
+     *
+     * @return the root of the plan, the step producing the result rows
+     * @throws org.neo4j.cypher.QueryNotProfiledException if the query was not
+     * executed with {@link ExecutionEngine#profile(String)}
+     */
+    public PlanDescription executionPlanDescription()
+    {
+        return inner.executionPlanDescription();
+    }
+
+    /**
+     * Lets go of what the query holds on to, like the temporary files of big
+     * sorts and aggregations, without reading the rest of the rows. This is
+     * done by itself once the last row has been read, so it's only needed
+     * when giving up on a result before that.
+     */
+    @Override
+    public void close()
+    {
+        inner.close();
+    }
+
 }
@@ -50,4 +50,6 @@ class InternalException(message:String, inner:Exception=null) extends CypherExce
 
 class MissingIndexException(indexName:String) extends CypherException("Index `" + indexName + "` does not exist")
 
-class NodeStillHasRelationshipsException(val nodeId:Long, cause:Throwable) extends CypherException("Node with id " + nodeId + " still has relationships, and can not be deleted.")
\ No newline at end of file
+class NodeStillHasRelationshipsException(val nodeId:Long, cause:Throwable) extends CypherException("Node with id " + nodeId + " still has relationships, and can not be deleted.")
+
+class QueryNotProfiledException extends CypherException("This query was not profiled. Use ExecutionEngine.profile to get a description of how it was executed.")
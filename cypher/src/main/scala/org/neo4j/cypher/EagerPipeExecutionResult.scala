@@ -25,12 +25,13 @@ import org.neo4j.graphdb.GraphDatabaseService
 import org.neo4j.kernel.GraphDatabaseAPI
 import collection.Map
 
-class EagerPipeExecutionResult(r: => Traversable[Map[String, Any]],
+class EagerPipeExecutionResult(r: => Iterator[Map[String, Any]],
                                symbols: SymbolTable,
                                columns: List[String],
                                state: QueryState,
-                               db: GraphDatabaseService)
-  extends PipeExecutionResult(r, symbols, columns) {
+                               db: GraphDatabaseService,
+                               planDescription: Option[() => PlanDescription] = None)
+  extends PipeExecutionResult(r, symbols, columns, state, planDescription) {
 
   override lazy val queryStatistics = QueryStatistics(
     nodesCreated = state.createdNodes.count,
@@ -21,13 +21,14 @@ package org.neo4j.cypher
 
 import internal.commands._
 import internal.executionplan.ExecutionPlanImpl
-import internal.LRUCache
+import internal.{ParameterizedExecutionPlan, LiteralParameterizer, QueryCacheStatistics, LRUCache}
 import scala.collection.JavaConverters._
 import java.lang.Error
 import java.util.{Map => JavaMap}
 import scala.deprecated
 import org.neo4j.kernel.AbstractGraphDatabase
 import org.neo4j.graphdb.GraphDatabaseService
+import org.neo4j.graphdb.factory.GraphDatabaseSettings
 
 class ExecutionEngine(graph: GraphDatabaseService) {
   checkScalaVersion()
@@ -57,8 +58,62 @@ class ExecutionEngine(graph: GraphDatabaseService) {
   @throws(classOf[SyntaxException])
   def execute(query: String, params: JavaMap[String, Any]): ExecutionResult = execute(query, params.asScala.toMap)
 
+  /**
+   * Executes the query and keeps track of the rows, db hits and time spent in every step
+   * of its plan, see ExecutionResult.executionPlanDescription. Profiled plans are not cached.
+   */
   @throws(classOf[SyntaxException])
-  def prepare(query: String): ExecutionPlan = executionPlanCache.getOrElseUpdate(query, new ExecutionPlanImpl(parser.parse(query), graph))
+  def profile(query: String): ExecutionResult = profile(query, Map[String, Any]())
+
+  @throws(classOf[SyntaxException])
+  def profile(query: String, params: Map[String, Any]): ExecutionResult =
+    new ExecutionPlanImpl(parser.parse(query), graph, profile = true).execute(params)
+
+  @throws(classOf[SyntaxException])
+  def profile(query: String, params: JavaMap[String, Any]): ExecutionResult = profile(query, params.asScala.toMap)
+
+  @throws(classOf[SyntaxException])
+  def prepare(query: String): ExecutionPlan = {
+    if (parameterizeLiterals) {
+      val (parameterizedQuery, literals) = LiteralParameterizer(query)
+      if (literals.nonEmpty && failedRewrites.get(parameterizedQuery) == null) {
+        val plan = try {
+          cachedPlan(parameterizedQuery)
+        } catch {
+          // Let the query as it was written decide what the error is, and don't parse this rewrite again
+          case e: SyntaxException =>
+            failedRewrites.put(parameterizedQuery, true)
+            return cachedPlan(query)
+        }
+        return new ParameterizedExecutionPlan(plan, literals)
+      }
+    }
+
+    cachedPlan(query)
+  }
+
+  private def cachedPlan(query: String): ExecutionPlan = {
+    var created = false
+    val plan = executionPlanCache.getOrElseUpdate(query, {
+      created = true
+      createPlan(query)
+    })
+    if (!created) {
+      statistics.hit()
+    }
+    plan
+  }
+
+  private def createPlan(query: String): ExecutionPlan = {
+    statistics.miss()
+    val start = System.nanoTime()
+    val parsedQuery = parser.parse(query)
+    val parsed = System.nanoTime()
+    statistics.parsed(parsed - start)
+    val plan = new ExecutionPlanImpl(parsedQuery, graph)
+    statistics.planned(System.nanoTime() - parsed)
+    plan
+  }
 
   @throws(classOf[SyntaxException])
   @deprecated(message = "You should not parse queries manually any more. Use the execute(String) instead")
@@ -79,7 +134,19 @@ class ExecutionEngine(graph: GraphDatabaseService) {
     }
   }
 
-  private val cacheSize: Int = 100
-  private val executionPlanCache = new LRUCache[String, ExecutionPlan](cacheSize) {}
+  private def setting[T](default: T)(f: AbstractGraphDatabase => T): T = graph match {
+    case db: AbstractGraphDatabase => f(db)
+    case _ => default
+  }
+
+  private val cacheSize: Int = setting(100)(_.getConfig.get(GraphDatabaseSettings.query_cache_size))
+  private val parameterizeLiterals: Boolean = setting(true)(_.getConfig.get(GraphDatabaseSettings.query_cache_parameterize_literals))
+  private val statistics = QueryCacheStatistics.forDatabase(graph)
+  private val executionPlanCache = new LRUCache[String, ExecutionPlan](cacheSize) {
+    override protected def evicted(key: String, value: ExecutionPlan) {
+      statistics.evicted()
+    }
+  }
+  private val failedRewrites = new LRUCache[String, java.lang.Boolean](cacheSize)
 }
 
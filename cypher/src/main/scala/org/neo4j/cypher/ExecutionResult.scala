@@ -31,9 +31,24 @@ trait ExecutionResult extends Iterator[Map[String, Any]] {
   def javaColumnAs[T](column: String): java.util.Iterator[T]
   def columnAs[T](column: String): Iterator[T]
   def javaIterator: java.util.Iterator[java.util.Map[String, Any]]
+  def javaStreamingIterator: java.util.Iterator[java.util.Map[String, Any]]
   def dumpToString(writer: PrintWriter)
   def dumpToString(): String
   def queryStatistics():QueryStatistics
+
+  /**
+   * Describes how the query was executed, with the rows, db hits and time spent in
+   * every step of the plan. Only available for profiled queries, see ExecutionEngine.profile.
+   * The rest of the result is read before the plan is described, the rows stay available.
+   */
+  def executionPlanDescription(): PlanDescription
+
+  /**
+   * Lets go of what the query holds on to, like the temporary files of big sorts and
+   * aggregations, without reading the rest of the rows. This is done by itself once
+   * the last row has been read, so it's only needed when giving up on a result early.
+   */
+  def close()
 }
 
 
@@ -26,15 +26,30 @@ import org.neo4j.graphdb.{PropertyContainer, Relationship, Node}
 import java.io.{StringWriter, PrintWriter}
 import java.lang.String
 import internal.symbols.SymbolTable
+import internal.pipes.QueryState
 import collection.Map
 import collection.immutable.{Map => ImmutableMap}
 
-class PipeExecutionResult(r: => Traversable[Map[String, Any]], val symbols: SymbolTable, val columns: List[String])
+class PipeExecutionResult(r: => Iterator[Map[String, Any]],
+                          val symbols: SymbolTable,
+                          val columns: List[String],
+                          state: QueryState,
+                          planDescription: Option[() => PlanDescription] = None)
   extends ExecutionResult
   with StringExtras
   with IterableSupport {
 
-  lazy val immutableResult = r.map(m => m.toMap)
+  /*
+  Rows are only pulled from the pipes as they are asked for. They are kept once pulled,
+  so the result can still be dumped to a string after it has been iterated over.
+  */
+  lazy val immutableResult = {
+    keepingRows = true
+    rows.map(m => m.toMap).toStream
+  }
+
+  private lazy val rows = closingWhenRead(r)
+  @volatile private var keepingRows = false
 
   def javaColumns: java.util.List[String] = columns.asJava
 
@@ -56,6 +71,15 @@ class PipeExecutionResult(r: => Traversable[Map[String, Any]], val symbols: Symb
     m.map(kv => kv._1 -> makeValueJavaCompatible(kv._2)).asJava
   }).toIterator.asJava
 
+  /*
+  Pulls the rows from the pipes without keeping them, so a big result doesn't have to fit in memory.
+  Once this has been used the result can't be iterated over, dumped or described again.
+  */
+  def javaStreamingIterator: java.util.Iterator[java.util.Map[String, Any]] = {
+    val source = if (keepingRows) immutableResult.iterator else rows
+    source.map(m => m.map(kv => kv._1 -> makeValueJavaCompatible(kv._2)).asJava).asJava
+  }
+
   private def calculateColumnSizes(result: Seq[Map[String, Any]]): Map[String, Int] = {
     val columnSizes = new scala.collection.mutable.HashMap[String, Int] ++ columns.map(name => name -> name.size)
 
@@ -150,12 +174,41 @@ class PipeExecutionResult(r: => Traversable[Map[String, Any]], val symbols: Symb
     }).mkString("| ", " | ", " |")
   }
 
-  lazy val iterator = immutableResult.toIterator
+  lazy val iterator = immutableResult.iterator
+
+  def close() {
+    state.close()
+  }
+
+  // The query is closed as soon as its last row has been read, or it fails
+  private def closingWhenRead(inner: Iterator[Map[String, Any]]): Iterator[Map[String, Any]] = new Iterator[Map[String, Any]] {
+    def hasNext = closingOnError(inner.hasNext) || {
+      close()
+      false
+    }
+
+    def next() = closingOnError(inner.next())
+  }
+
+  private def closingOnError[T](f: => T): T = try {
+    f
+  } catch {
+    case e =>
+      close()
+      throw e
+  }
 
   def hasNext: Boolean = iterator.hasNext
 
   def next(): ImmutableMap[String, Any] = iterator.next()
 
   lazy val queryStatistics = QueryStatistics.empty
+
+  def executionPlanDescription(): PlanDescription = planDescription match {
+    case None => throw new QueryNotProfiledException
+    case Some(describe) =>
+      createTimedResults
+      describe()
+  }
 }
 
@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher
+
+import scala.collection.JavaConverters._
+
+/**
+ * Describes one step of a profiled execution plan, and what it cost to run it.
+ * The children are the steps that feed this one with rows.
+ *
+ * The db hits and the time are what was spent in this step alone, not counting
+ * what was spent in the steps feeding it.
+ */
+case class PlanDescription(name: String,
+                           rowsIn: Long,
+                           rows: Long,
+                           dbHits: Long,
+                           timeNanos: Long,
+                           children: Seq[PlanDescription]) {
+
+  def timeMillis: Double = timeNanos / 1000000.0
+
+  def javaChildren: java.util.List[PlanDescription] = children.asJava
+
+  def asJava: java.util.Map[String, Any] = Map[String, Any](
+    "name" -> name,
+    "rowsIn" -> rowsIn,
+    "rows" -> rows,
+    "dbHits" -> dbHits,
+    "timeMillis" -> timeMillis,
+    "children" -> children.map(_.asJava).asJava
+  ).asJava
+
+  override def toString = render("")
+
+  private def render(indent: String): String = {
+    val line = "%s%s rowsIn=%d, rows=%d, dbHits=%d, time=%.3fms".format(indent, name, rowsIn, rows, dbHits, timeMillis)
+    (line +: children.map(_.render(indent + "  "))).mkString("\n")
+  }
+}
@@ -19,19 +19,56 @@
  */
 package org.neo4j.cypher.internal
 
-import java.util.LinkedHashMap
-import scala.math._
-import java.util.Map.Entry
+import java.util.{Map => JavaMap, LinkedHashMap}
+import math.ceil
 
-class LRUCache[K, V](cacheSize: Int) extends LinkedHashMap[K, V](ceil(cacheSize / 0.75f).asInstanceOf[Int] + 1, 0.75f, true) {
-  def getOrElseUpdate(key: K, f: => V) = if (containsKey(key)) {
-    get(key)
+/**
+ * A cache that keeps the most recently used entries, and is safe to use from many threads at
+ * once. Only the map itself is guarded, so values for missing keys are created outside of the
+ * lock, and two threads missing on the same key at once might both create a value - the first
+ * one to get back wins.
+ */
+class LRUCache[K, V](cacheSize: Int) {
+  private val entries = new LinkedHashMap[K, V](ceil(cacheSize / 0.75f).asInstanceOf[Int] + 1, 0.75f, true) {
+    override def removeEldestEntry(eldest: JavaMap.Entry[K, V]): Boolean = {
+      val evict = size > cacheSize
+      if (evict) {
+        evicted(eldest.getKey, eldest.getValue)
+      }
+      evict
+    }
+  }
+
+  def getOrElseUpdate(key: K, f: => V): V = {
+    val existing = get(key)
+    if (existing != null) {
+      existing
+    } else {
+      val value = f
+      entries.synchronized {
+        val raced = entries.get(key)
+        if (raced != null) {
+          raced
+        } else {
+          entries.put(key, value)
+          value
+        }
+      }
+    }
   }
-  else {
-    val value = f
-    put(key, value)
-    value
+
+  def get(key: K): V = entries.synchronized { entries.get(key) }
+
+  def put(key: K, value: V) {
+    entries.synchronized { entries.put(key, value) }
   }
 
-  override def removeEldestEntry(p1: Entry[K, V]): Boolean = size > cacheSize
-}
\ No newline at end of file
+  def containsKey(key: K): Boolean = entries.synchronized { entries.containsKey(key) }
+
+  def size: Int = entries.synchronized { entries.size }
+
+  /**
+   * Called for every entry that is evicted to make room for new ones.
+   */
+  protected def evicted(key: K, value: V) {}
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal
+
+import org.neo4j.cypher.{ExecutionResult, ExecutionPlan}
+import collection.mutable.ListBuffer
+
+/**
+ * Replaces the string and number literals of the top level WHERE clauses of a
+ * query with parameters, so that queries that only differ in those literals
+ * share one execution plan. Literals anywhere else are left alone, since they
+ * either name result columns or are places where parameters aren't allowed.
+ * Nothing after the first WITH is replaced either, since parameters don't make
+ * it past a WITH. Regular expressions are left alone too, so that matching
+ * against something that isn't a string is still reported when planning.
+ */
+object LiteralParameterizer {
+  val ParameterPrefix = "__literal_"
+
+  private val clauseKeywords = Set("start", "match", "where", "return", "with", "order", "skip", "limit",
+    "create", "set", "delete", "foreach", "relate")
+
+  private val operatorCharacters = "=~<>!*.+-/%^:|&"
+
+  private val parameterPattern = """\{\s*\w+\s*\}""".r
+
+  def apply(query: String): (String, Map[String, Any]) = {
+    val result = new StringBuilder
+    val literals = new ListBuffer[(String, Any)]
+    var i = 0
+    var depth = 0
+    var inWhere = false
+    var afterWith = false
+    var lastToken = ""
+
+    def parameter(value: Any): String = {
+      val name = ParameterPrefix + literals.size
+      literals += name -> value
+      "{" + name + "}"
+    }
+
+    while (i < query.length) {
+      val c = query.charAt(i)
+      val start = i
+
+      if (Character.isWhitespace(c)) {
+        i += 1
+      } else if (Character.isJavaIdentifierStart(c)) {
+        while (i < query.length && Character.isJavaIdentifierPart(query.charAt(i))) i += 1
+        val word = query.substring(start, i).toLowerCase
+        if (depth == 0 && clauseKeywords.contains(word)) inWhere = word == "where"
+        if (depth == 0 && word == "with") afterWith = true
+      } else if (c == '"' || c == '\'' || c == '`' || (c == '/' && lastToken == "=~")) {
+        i = endOfQuoted(query, i)
+        if (i < 0) {
+          return (query, Map())
+        }
+      } else if (Character.isDigit(c)) {
+        while (i < query.length && Character.isDigit(query.charAt(i))) i += 1
+        if (i + 1 < query.length && query.charAt(i) == '.' && Character.isDigit(query.charAt(i + 1))) {
+          i += 1
+          while (i < query.length && Character.isDigit(query.charAt(i))) i += 1
+        }
+      } else if (c == '{') {
+        parameterPattern.findPrefixOf(query.substring(i)) match {
+          case Some(param) => i += param.length
+          case None => i += 1; depth += 1
+        }
+      } else if (c == '(' || c == '[') {
+        i += 1
+        depth += 1
+      } else if (c == ')' || c == ']' || c == '}') {
+        i += 1
+        depth -= 1
+      } else if (operatorCharacters.indexOf(c) >= 0) {
+        while (i < query.length && operatorCharacters.indexOf(query.charAt(i)) >= 0) i += 1
+        if (depth == 0 && query.substring(start, i).startsWith("===")) afterWith = true
+      } else {
+        i += 1
+      }
+
+      val token = query.substring(start, i)
+      val replacement = if (!inWhere || afterWith || lastToken == "=~") {
+        token
+      } else if (c == '"' || c == '\'') {
+        parameter(token.substring(1, token.length - 1))
+      } else if (Character.isDigit(c) && token.length < 19 && !endsWithAny(lastToken, "*.-") && !(i < query.length && query.charAt(i) == '.')) {
+        parameter(if (token.contains(".")) token.toDouble else token.toLong)
+      } else {
+        token
+      }
+
+      result.append(replacement)
+      if (!Character.isWhitespace(c)) {
+        lastToken = token
+      }
+    }
+
+    (result.toString(), literals.toMap)
+  }
+
+  private def endsWithAny(token: String, characters: String) = token.nonEmpty && characters.indexOf(token.last) >= 0
+
+  /*
+  Returns the index after the closing quote, or -1 if there is none.
+  */
+  private def endOfQuoted(query: String, start: Int): Int = {
+    val quote = query.charAt(start)
+    var i = start + 1
+    while (i < query.length) {
+      val c = query.charAt(i)
+      if (c == '\\' && quote != '`') {
+        i += 2
+      } else if (c == quote) {
+        return i + 1
+      } else {
+        i += 1
+      }
+    }
+    -1
+  }
+}
+
+/**
+ * Executes a plan that was built for a query with its literals replaced by
+ * parameters, supplying the values of those literals.
+ */
+class ParameterizedExecutionPlan(inner: ExecutionPlan, literals: Map[String, Any]) extends ExecutionPlan {
+  def execute(params: Map[String, Any]): ExecutionResult = inner.execute(params ++ literals)
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal
+
+import java.lang.management.ManagementFactory
+import java.util.{Hashtable, WeakHashMap}
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+import javax.management.ObjectName
+import org.neo4j.graphdb.GraphDatabaseService
+import org.neo4j.graphdb.event.{ErrorState, KernelEventHandler}
+import org.neo4j.graphdb.event.KernelEventHandler.ExecutionOrder
+import org.neo4j.kernel.AbstractGraphDatabase
+
+/**
+ * Management interface of the execution plan caches of the Cypher execution
+ * engines working against one database.
+ */
+trait QueryCacheMXBean {
+  def getHits: Long
+
+  def getMisses: Long
+
+  def getEvictions: Long
+
+  def getParseTimeMillis: Long
+
+  def getPlanTimeMillis: Long
+}
+
+class QueryCacheStatistics extends QueryCacheMXBean {
+  private val hits = new AtomicLong()
+  private val misses = new AtomicLong()
+  private val evictions = new AtomicLong()
+  private val parseTime = new AtomicLong()
+  private val planTime = new AtomicLong()
+
+  def hit() {
+    hits.incrementAndGet()
+  }
+
+  def miss() {
+    misses.incrementAndGet()
+  }
+
+  def evicted() {
+    evictions.incrementAndGet()
+  }
+
+  def parsed(nanos: Long) {
+    parseTime.addAndGet(nanos)
+  }
+
+  def planned(nanos: Long) {
+    planTime.addAndGet(nanos)
+  }
+
+  def getHits = hits.get()
+
+  def getMisses = misses.get()
+
+  def getEvictions = evictions.get()
+
+  def getParseTimeMillis = TimeUnit.NANOSECONDS.toMillis(parseTime.get())
+
+  def getPlanTimeMillis = TimeUnit.NANOSECONDS.toMillis(planTime.get())
+}
+
+object QueryCacheStatistics {
+  val BeanName = "Cypher query cache"
+
+  private val statistics = new WeakHashMap[GraphDatabaseService, QueryCacheStatistics]()
+
+  /**
+   * All execution engines of a database share statistics. For embedded
+   * databases they are published over JMX next to the other beans of the
+   * database, until it is shut down.
+   */
+  def forDatabase(graph: GraphDatabaseService): QueryCacheStatistics = statistics.synchronized {
+    val existing = statistics.get(graph)
+    if (existing != null) {
+      existing
+    } else {
+      val created = new QueryCacheStatistics
+      statistics.put(graph, created)
+      graph match {
+        case db: AbstractGraphDatabase => register(db, created)
+        case _ =>
+      }
+      created
+    }
+  }
+
+  private def register(db: AbstractGraphDatabase, bean: QueryCacheStatistics) {
+    try {
+      val properties = new Hashtable[String, String]()
+      properties.put("instance", "kernel#" + db.getKernelData.instanceId())
+      properties.put("name", BeanName)
+      val name = new ObjectName("org.neo4j", properties)
+      val server = ManagementFactory.getPlatformMBeanServer
+      server.registerMBean(bean, name)
+
+      db.registerKernelEventHandler(new KernelEventHandler {
+        def beforeShutdown() {
+          statistics.synchronized {
+            statistics.remove(db)
+          }
+          if (server.isRegistered(name)) server.unregisterMBean(name)
+        }
+
+        def kernelPanic(error: ErrorState) {}
+
+        def getResource: AnyRef = null
+
+        def orderComparedTo(other: KernelEventHandler) = ExecutionOrder.DOESNT_MATTER
+      })
+    } catch {
+      case e: Exception => // Not being able to publish the statistics doesn't stop anything from working
+    }
+  }
+}
@@ -37,6 +37,12 @@ abstract class AggregationExpression extends Expression {
   def typ: AnyType
 
   def createAggregationFunction: AggregationFunction
+
+  /**
+   * Creates a function for aggregating part of the rows, that can later be
+   * combined with the functions that aggregated the other parts.
+   */
+  def createPartialAggregationFunction: AggregationFunction = createAggregationFunction
 }
 
 case class CountStar() extends AggregationExpression {
@@ -84,6 +90,9 @@ case class Distinct(innerAggregator: AggregationExpression, expression: Expressi
 
   def createAggregationFunction = new DistinctFunction(expression, innerAggregator.createAggregationFunction)
 
+  override def createPartialAggregationFunction =
+    new DistinctFunction(expression, innerAggregator.createPartialAggregationFunction, keepRows = true)
+
   override def declareDependencies(extectedType: AnyType): Seq[Identifier] = innerAggregator.dependencies(extectedType) ++ expression.dependencies(AnyType())
 
   def rewrite(f: (Expression) => Expression) = innerAggregator.rewrite(f) match {
@@ -0,0 +1,269 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.commands
+
+import org.neo4j.cypher.internal.symbols.{AnyType, Identifier, SymbolTable}
+import org.neo4j.cypher.internal.pipes.{Slots, ExecutionContext}
+import org.neo4j.graphdb.{NotFoundException, PropertyContainer}
+import scala.util.control.ControlThrowable
+import org.neo4j.cypher.EntityNotFoundException
+import collection.Map
+
+/*
+Turns predicates and expressions into plain functions once, when the plan is built, instead of walking the
+case classes for every row. The compiled functions:
+
+ * look values up by slot instead of by name, see ExecutionContext.getAt
+ * only look for a precomputed value of a sub expression when the symbol table says there can be one
+ * do nested arithmetic on unboxed doubles, with the literals unboxed up front
+
+Anything the compiler doesn't know about, and anything unexpected found at runtime, is handed to the interpreter,
+so errors and corner cases stay the same.
+*/
+object ExpressionCompiler {
+  def compile(predicate: Predicate, symbols: SymbolTable): Predicate = predicate match {
+    case p: CompiledPredicate => p
+    case p => new CompiledPredicate(p, new ExpressionCompiler(symbols).predicate(p))
+  }
+
+  def compile(expression: Expression, symbols: SymbolTable): Expression = expression match {
+    case e: CompiledExpression => e
+    case e => new CompiledExpression(e, new ExpressionCompiler(symbols).expression(e))
+  }
+}
+
+class ExpressionCompiler(symbols: SymbolTable) {
+  type Row = Map[String, Any]
+
+  private val names = symbols.identifiers.map(_.name).toSet
+
+  def predicate(p: Predicate): Row => Boolean = p match {
+    case True()                  => _ => true
+    case And(a, b)               => and(predicate(a), predicate(b))
+    case Or(a, b)                => or(predicate(a), predicate(b))
+    case Not(a)                  => not(predicate(a))
+    case Equals(a, b)            => equals(expression(a), expression(b))
+    case IsNull(e)               => isNull(expression(e))
+    case c@LessThan(a, b)        => comparison(c, a, b)
+    case c@GreaterThan(a, b)     => comparison(c, a, b)
+    case c@LessThanOrEqual(a, b) => comparison(c, a, b)
+    case c@GreaterThanOrEqual(a, b) => comparison(c, a, b)
+    case h@Has(Property(entity, property)) => has(h, new SlotLookup(entity), property)
+    case NullablePredicate(inner, exp) => nullable(predicate(inner), exp.map { case (e, result) => (expression(e), result) })
+    case other                   => other.isMatch _
+  }
+
+  def expression(e: Expression): Row => Any = e match {
+    case Literal(v)                   => _ => v
+    case Null()                       => _ => null
+    case p: ParameterExpression       => parameter(p)
+    case c: CachedExpression          => cached(c)
+    case x if names(x.identifier.name) => precomputed(x)
+    case Nullable(inner)              => nullable(expression(inner))
+    case p: Property                  => property(p)
+    case x: Entity                    => precomputed(x)
+    case Collection(expressions@_*)   => collection(expressions.map(expression))
+    case Add(a, b) if nonNumeric(a) || nonNumeric(b) => e
+    case _: Add | _: Arithmetics      => arithmetic(e)
+    case other                        => other
+  }
+
+  // Adding strings and collections is left to the interpreter
+  private def nonNumeric(e: Expression) = e match {
+    case Literal(_: Number) => false
+    case Literal(_)         => true
+    case _                  => false
+  }
+
+  /*
+  An arithmetic expression is computed on doubles all the way down. The first value that isn't a number aborts this,
+  and the interpreter takes over, which gives the same string concatenation or error as before.
+  */
+  private def arithmetic(e: Expression): Row => Any = {
+    val f = number(e)
+    m => try {
+      f(m)
+    } catch {
+      case NotANumber => e(m)
+    }
+  }
+
+  private def number(e: Expression): Row => Double = e match {
+    case Literal(n: Number) =>
+      val d = n.doubleValue()
+      _ => d
+    case Literal(_)                            => _ => throw NotANumber
+    case x if names(x.identifier.name)         => toDouble(expression(x))
+    case Add(a, b)                             => plus(number(a), number(b))
+    case Subtract(a, b)                        => minus(number(a), number(b))
+    case Multiply(a, b)                        => times(number(a), number(b))
+    case Divide(a, b)                          => divide(number(a), number(b))
+    case Modulo(a, b)                          => modulo(number(a), number(b))
+    case Pow(a, b)                             => pow(number(a), number(b))
+    case other                                 => toDouble(expression(other))
+  }
+
+  private def toDouble(f: Row => Any): Row => Double = m => f(m) match {
+    case n: Number => n.doubleValue()
+    case _         => throw NotANumber
+  }
+
+  private def plus(a: Row => Double, b: Row => Double): Row => Double = m => a(m) + b(m)
+
+  private def minus(a: Row => Double, b: Row => Double): Row => Double = m => a(m) - b(m)
+
+  private def times(a: Row => Double, b: Row => Double): Row => Double = m => a(m) * b(m)
+
+  private def divide(a: Row => Double, b: Row => Double): Row => Double = m => a(m) / b(m)
+
+  private def modulo(a: Row => Double, b: Row => Double): Row => Double = m => a(m) % b(m)
+
+  private def pow(a: Row => Double, b: Row => Double): Row => Double = m => math.pow(a(m), b(m))
+
+  private def and(a: Row => Boolean, b: Row => Boolean): Row => Boolean = m => a(m) && b(m)
+
+  private def or(a: Row => Boolean, b: Row => Boolean): Row => Boolean = m => a(m) || b(m)
+
+  private def not(a: Row => Boolean): Row => Boolean = m => !a(m)
+
+  private def equals(a: Row => Any, b: Row => Any): Row => Boolean = m => a(m) == b(m)
+
+  private def isNull(a: Row => Any): Row => Boolean = m => a(m) == null
+
+  private def comparison(c: ComparablePredicate, a: Expression, b: Expression): Row => Boolean = {
+    val left = expression(a)
+    val right = expression(b)
+    m => c.compare(c.compare(left(m), right(m)))
+  }
+
+  private def has(h: Has, entity: SlotLookup, property: String): Row => Boolean = m => entity(m) match {
+    case Some(pc: PropertyContainer) => pc.hasProperty(property)
+    case _                           => h.isMatch(m)
+  }
+
+  private def nullable(inner: Row => Boolean, exp: Seq[(Row => Any, Boolean)]): Row => Boolean = m =>
+    exp.find {
+      case (e, _) => e(m) == null
+    } match {
+      case Some((_, result)) => result
+      case None              => inner(m)
+    }
+
+  private def nullable(inner: Row => Any): Row => Any = m => try {
+    inner(m)
+  } catch {
+    case x: EntityNotFoundException => null
+  }
+
+  private def parameter(p: ParameterExpression): Row => Any = {
+    val key = new SlotLookup("-=PARAMETER=-" + p.parameterName + "-=PARAMETER=-")
+    m => key(m) match {
+      case Some(ParameterValue(x)) => x
+      case _                       => p(m)
+    }
+  }
+
+  private def cached(c: CachedExpression): Row => Any = {
+    val key = new SlotLookup(c.key)
+    m => key(m) match {
+      case Some(x) => x
+      case None    => c(m)
+    }
+  }
+
+  private def precomputed(e: Expression): Row => Any = {
+    val key = new SlotLookup(e.identifier.name)
+    m => key(m) match {
+      case Some(x) => x
+      case None    => e(m)
+    }
+  }
+
+  private def property(p: Property): Row => Any = {
+    val entity = new SlotLookup(p.entity)
+    val propertyName = p.property
+    m => entity(m) match {
+      case Some(pc: PropertyContainer) => try {
+        pc.getProperty(propertyName)
+      } catch {
+        case x: NotFoundException => throw new EntityNotFoundException("The property '%s' does not exist on %s".format(propertyName, pc), x)
+      }
+      case _ => p(m)
+    }
+  }
+
+  private def collection(expressions: Seq[Row => Any]): Row => Any = m => expressions.map(e => e(m))
+}
+
+private object NotANumber extends ControlThrowable
+
+/*
+Finds the value of a key in a row. For rows backed by slots, the slot of the key is looked up once per Slots
+instance, and the value is then read by index.
+*/
+private class SlotLookup(key: String) {
+  @volatile private var cache: SlotIndex = new SlotIndex(null, -1)
+
+  def apply(m: Map[String, Any]): Option[Any] = m match {
+    case ctx: ExecutionContext =>
+      val c = cache
+      if (c.slots eq ctx.slots) {
+        ctx.getAt(c.index)
+      } else {
+        val index = ctx.slots.indexOf(key)
+        if (index >= 0) {
+          cache = new SlotIndex(ctx.slots, index)
+        }
+        ctx.getAt(index)
+      }
+    case _ => m.get(key)
+  }
+}
+
+private class SlotIndex(val slots: Slots, val index: Int)
+
+/*
+A predicate with a compiled isMatch. Everything else is answered by the predicate it was compiled from, so plans
+look the same, and rewriting gives back an interpreted predicate.
+*/
+class CompiledPredicate(val inner: Predicate, compiled: Map[String, Any] => Boolean) extends Predicate {
+  def isMatch(m: Map[String, Any]) = compiled(m)
+  def atoms = inner.atoms
+  def dependencies = inner.dependencies
+  def exists(f: (Expression) => Boolean) = inner.exists(f)
+  def rewrite(f: (Expression) => Expression) = inner.rewrite(f)
+  def containsIsNull = inner.containsIsNull
+  def filter(f: (Expression) => Boolean) = inner.filter(f)
+  override def toString = inner.toString
+}
+
+/*
+An expression with a compiled apply, see CompiledPredicate
+*/
+class CompiledExpression(val inner: Expression, compiled: Map[String, Any] => Any) extends Expression {
+  val identifier: Identifier = inner.identifier
+  override def apply(m: Map[String, Any]) = compiled(m)
+  protected def compute(m: Map[String, Any]) = compiled(m)
+  def declareDependencies(extectedType: AnyType) = inner.declareDependencies(extectedType)
+  override def dependencies(extectedType: AnyType) = inner.dependencies(extectedType)
+  def rewrite(f: (Expression) => Expression) = inner.rewrite(f)
+  def filter(f: (Expression) => Boolean) = inner.filter(f)
+  override def toString() = inner.toString()
+}
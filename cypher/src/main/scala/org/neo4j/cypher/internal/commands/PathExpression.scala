@@ -27,7 +27,10 @@ import org.neo4j.graphdb.Path
 
 case class PathExpression(pathPattern: Seq[Pattern]) extends Expression with PathExtractor {
   val symbols = new SymbolTable(declareDependencies(AnyType()).distinct: _*)
-  val matchingContext = new MatchingContext(pathPattern, symbols, Seq())
+  // The matchers keep state while matching, so every thread gets its own
+  private val matchingContext = new ThreadLocal[MatchingContext] {
+    override def initialValue() = new MatchingContext(pathPattern, symbols, Seq())
+  }
   val interestingPoints = pathPattern.flatMap(_.possibleStartPoints.map(_.name)).distinct
 
   def compute(m: Map[String, Any]): Any = {
@@ -45,8 +48,8 @@ case class PathExpression(pathPattern: Seq[Pattern]) extends Expression with Pat
   }
 
   def getMatches(v1: Map[String, Any]): Traversable[Path] = {
-    val matches = matchingContext.getMatches(v1)
-    matches.map(getPath)
+    val matches = matchingContext.get.getMatches(v1)
+    matches.map(getPath).toList
   }
 
   def declareDependencies(extectedType: AnyType): Seq[Identifier] = pathPattern.flatMap(pattern => pattern.possibleStartPoints.filterNot(_.name.startsWith("  UNNAMED")))
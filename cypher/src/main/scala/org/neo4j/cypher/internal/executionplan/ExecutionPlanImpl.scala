@@ -27,16 +27,33 @@ import org.neo4j.cypher._
 import internal.commands._
 import collection.mutable.{Map => MutableMap}
 import internal.symbols.SymbolTable
+import org.neo4j.kernel.AbstractGraphDatabase
+import org.neo4j.graphdb.factory.GraphDatabaseSettings
 
-class ExecutionPlanImpl(inputQuery: Query, graph: GraphDatabaseService) extends ExecutionPlan {
+class ExecutionPlanImpl(inputQuery: Query, graph: GraphDatabaseService, profile: Boolean = false) extends ExecutionPlan {
   val (executionPlan, executionPlanText) = prepareExecutionPlan()
 
   def execute(params: Map[String, Any]): ExecutionResult = executionPlan(params)
 
+  private lazy val spillThreshold: Int = graph match {
+    case db: AbstractGraphDatabase => db.getConfig.get(GraphDatabaseSettings.cypher_spill_threshold)
+    case _ => 0
+  }
+
+  private lazy val compileExpressions: Boolean = graph match {
+    case db: AbstractGraphDatabase => db.getConfig.get(GraphDatabaseSettings.cypher_compile_expressions)
+    case _ => false
+  }
+
+  private lazy val parallelism: Int = graph match {
+    case db: AbstractGraphDatabase => db.getConfig.get(GraphDatabaseSettings.cypher_parallelism)
+    case _ => 0
+  }
+
   private def prepareExecutionPlan(): ((Map[String, Any]) => ExecutionResult, String) = {
 
     var continue = true
-    var planInProgress = ExecutionPlanInProgress(PartiallySolvedQuery(inputQuery), new ParameterPipe(), false)
+    var planInProgress = ExecutionPlanInProgress(PartiallySolvedQuery(inputQuery), profiled(new ParameterPipe(), None), false)
 
     while (continue) {
       while (builders.exists(_.canWorkWith(planInProgress))) {
@@ -49,7 +66,11 @@ class ExecutionPlanImpl(inputQuery: Query, graph: GraphDatabaseService) extends
           throw new InternalException("Something went wrong trying to build your query. The offending builder was: " + builder.getClass.getSimpleName)
         }
 
-        planInProgress = newPlan
+        planInProgress = if (profile && (newPlan.pipe ne planInProgress.pipe)) {
+          newPlan.copy(pipe = profiled(newPlan.pipe, Some(planInProgress.pipe)))
+        } else {
+          newPlan
+        }
       }
 
       if (!planInProgress.query.isSolved) {
@@ -64,7 +85,7 @@ class ExecutionPlanImpl(inputQuery: Query, graph: GraphDatabaseService) extends
 
     val columns = getQueryResultColumns(inputQuery, planInProgress.pipe.symbols)
     val (pipe, func) = if (planInProgress.containsTransaction) {
-      val p = new CommitPipe(planInProgress.pipe, graph)
+      val p = profiled(new CommitPipe(planInProgress.pipe, graph), Some(planInProgress.pipe))
       (p, getEagerReadWriteQuery(p, columns))
     } else {
       (planInProgress.pipe, getLazyReadonlyQuery(planInProgress.pipe, columns))
@@ -75,6 +96,24 @@ class ExecutionPlanImpl(inputQuery: Query, graph: GraphDatabaseService) extends
     (func, executionPlan)
   }
 
+  /*
+  When profiling, every pipe added by a builder is wrapped, so that the figures can be
+  collected per step. A builder adding more than one pipe at a time gives one step.
+  */
+  private def profiled(pipe: Pipe, source: Option[Pipe]): Pipe = if (profile) {
+    val profiledSource = source.collect {
+      case p: ProfilingPipe => p
+    }
+    new ProfilingPipe(pipe, profiledSource, graph)
+  } else {
+    pipe
+  }
+
+  private def describe(pipe: Pipe): Option[() => PlanDescription] = pipe match {
+    case p: ProfilingPipe => Some(() => p.description)
+    case _ => None
+  }
+
   private def getQueryResultColumns(q: Query, currentSymbols:SymbolTable) = {
     var query = q
     while (query.tail.isDefined) {
@@ -90,18 +129,20 @@ class ExecutionPlanImpl(inputQuery: Query, graph: GraphDatabaseService) extends
   }
 
   private def getLazyReadonlyQuery(pipe: Pipe, columns: List[String]): Map[String, Any] => ExecutionResult = {
+    val slots = new Slots(pipe.symbols.identifiers.map(_.name))
     val func = (params: Map[String, Any]) => {
-      val state = new QueryState(graph, MutableMaps.create ++ params)
-      new PipeExecutionResult(pipe.createResults(state), pipe.symbols, columns)
+      val state = new QueryState(graph, MutableMaps.create ++ params, slots = slots, spillThreshold = spillThreshold)
+      new PipeExecutionResult(pipe.createResults(state), pipe.symbols, columns, state, describe(pipe))
     }
 
     func
   }
 
   private def getEagerReadWriteQuery(pipe: Pipe, columns: List[String]): Map[String, Any] => ExecutionResult = {
+    val slots = new Slots(pipe.symbols.identifiers.map(_.name))
     val func = (params: Map[String, Any]) => {
-      val state = new QueryState(graph, MutableMaps.create ++ params)
-      new EagerPipeExecutionResult(pipe.createResults(state), pipe.symbols, columns, state, graph)
+      val state = new QueryState(graph, MutableMaps.create ++ params, slots = slots, spillThreshold = spillThreshold)
+      new EagerPipeExecutionResult(pipe.createResults(state), pipe.symbols, columns, state, graph, describe(pipe))
     }
 
     func
@@ -129,25 +170,29 @@ The Neo4j Team
     throw new SyntaxException(errorMessage)
   }
 
-  lazy val builders = Seq(
+  private lazy val nodeStartBuilders = Seq(
     new NodeByIdBuilder(graph),
     new IndexQueryBuilder(graph),
-    new GraphGlobalStartBuilder(graph),
-    new FilterBuilder,
+    new GraphGlobalStartBuilder(graph)
+  )
+
+  lazy val builders = nodeStartBuilders ++ Seq(
+    new FilterBuilder(compileExpressions),
     new NamedPathBuilder,
-    new ExtractBuilder,
+    new ExtractBuilder(compileExpressions),
     //TODO: Reintroduce this when the problems with SlicePipe are solved.
     //new SortedAggregationBuilder,
     new MatchBuilder,
     new SortBuilder,
     new ColumnFilterBuilder,
     new SliceBuilder,
-    new AggregationBuilder,
+    new AggregationBuilder(parallelism),
     new ShortestPathBuilder,
     new RelationshipByIdBuilder(graph),
     new CreateNodesAndRelationshipsBuilder(graph),
     new UpdateActionBuilder(graph),
-    new EmptyResultBuilder
+    new EmptyResultBuilder,
+    new NodeHashJoinBuilder(nodeStartBuilders)
   )
 
   override def toString = executionPlanText
@@ -39,6 +39,7 @@ object PlanBuilder extends Enumeration {
   val CachedExpressions = -100
   val Filter = -10
   val NamedPath = -9
+  val HashJoin = -2
   val Mutation = -1
   val NodeById = -1
   val RelationshipById = -1
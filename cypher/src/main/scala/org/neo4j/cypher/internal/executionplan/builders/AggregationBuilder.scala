@@ -19,11 +19,11 @@
  */
 package org.neo4j.cypher.internal.executionplan.builders
 
-import org.neo4j.cypher.internal.pipes.{ExtractPipe, EagerAggregationPipe}
+import org.neo4j.cypher.internal.pipes.{ParallelScan, ExtractPipe, EagerAggregationPipe}
 import org.neo4j.cypher.internal.executionplan.{ExecutionPlanInProgress, PartiallySolvedQuery, PlanBuilder}
 import org.neo4j.cypher.internal.commands.{CachedExpression, Entity, Expression, AggregationExpression}
 
-class AggregationBuilder extends PlanBuilder with ExpressionExtractor {
+class AggregationBuilder(parallelism: Int = 0) extends PlanBuilder with ExpressionExtractor {
   def apply(plan: ExecutionPlanInProgress) = {
 
     val (keyExpressionsToExtract,_) = getExpressions(plan)
@@ -35,7 +35,12 @@ class AggregationBuilder extends PlanBuilder with ExpressionExtractor {
       aggregationExpressions: Seq[AggregationExpression]
       ) = getExpressions(newPlan)
 
-    val pipe = new EagerAggregationPipe(newPlan.pipe, keyExpressions, aggregationExpressions)
+    val parallel = if (parallelism > 1)
+      ParallelScan.scanOf(newPlan.pipe).map(scan => new ParallelScan(scan, parallelism))
+    else
+      None
+
+    val pipe = new EagerAggregationPipe(newPlan.pipe, keyExpressions, aggregationExpressions, parallel)
 
     val query = newPlan.query
 
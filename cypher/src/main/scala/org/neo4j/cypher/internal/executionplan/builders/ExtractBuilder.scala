@@ -20,11 +20,11 @@
 package org.neo4j.cypher.internal.executionplan.builders
 
 import org.neo4j.cypher.internal.pipes.ExtractPipe
-import org.neo4j.cypher.internal.commands.{CachedExpression, Expression}
+import org.neo4j.cypher.internal.commands.{ExpressionCompiler, CachedExpression, Expression}
 import org.neo4j.cypher.internal.executionplan.{ExecutionPlanInProgress, PlanBuilder}
 
-class ExtractBuilder extends PlanBuilder {
-  def apply(plan: ExecutionPlanInProgress) = ExtractBuilder.extractIfNecessary(plan, plan.query.returns.flatMap(_.token.expressions(plan.pipe.symbols)))
+class ExtractBuilder(compile: Boolean = false) extends PlanBuilder {
+  def apply(plan: ExecutionPlanInProgress) = ExtractBuilder.extractIfNecessary(plan, plan.query.returns.flatMap(_.token.expressions(plan.pipe.symbols)), compile)
 
   def canWorkWith(plan: ExecutionPlanInProgress) = {
     val q = plan.query
@@ -36,7 +36,7 @@ class ExtractBuilder extends PlanBuilder {
 
 object ExtractBuilder {
 
-  def extractIfNecessary(plan: ExecutionPlanInProgress, expressions: Seq[Expression]): (ExecutionPlanInProgress) = {
+  def extractIfNecessary(plan: ExecutionPlanInProgress, expressions: Seq[Expression], compile: Boolean = false): (ExecutionPlanInProgress) = {
     val missing = plan.pipe.symbols.missingExpressions(expressions)
     val query = plan.query
     val pipe = plan.pipe
@@ -49,7 +49,8 @@ object ExtractBuilder {
           fromQueryExpression
       ))
 
-      val resultPipe = new ExtractPipe(pipe, expressions)
+      val toExtract = if (compile) expressions.map(ExpressionCompiler.compile(_, pipe.symbols)) else expressions
+      val resultPipe = new ExtractPipe(pipe, toExtract)
       val resultQuery = newPsq.copy(extracted = true)
       plan.copy(pipe = resultPipe, query = resultQuery)
     } else {
@@ -20,18 +20,18 @@ package org.neo4j.cypher.internal.executionplan.builders
  * along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
 
-import org.neo4j.cypher.internal.commands.Predicate
+import org.neo4j.cypher.internal.commands.{ExpressionCompiler, Predicate}
 import org.neo4j.cypher.internal.pipes.{FilterPipe, Pipe}
 import org.neo4j.cypher.internal.executionplan.{ExecutionPlanInProgress, PlanBuilder}
 
-class FilterBuilder extends PlanBuilder {
+class FilterBuilder(compile: Boolean = false) extends PlanBuilder {
   def apply(plan: ExecutionPlanInProgress) = {
     val q = plan.query
     val p = plan.pipe
 
     val item = q.where.filter(pred => yesOrNo(pred, p))
     val pred: Predicate = item.map(_.token).reduce(_ ++ _)
-    val newPipe = new FilterPipe(p, pred)
+    val newPipe = new FilterPipe(p, if (compile) ExpressionCompiler.compile(pred, p.symbols) else pred)
     val newQuery = q.where.filterNot(item.contains) ++ item.map(_.solve)
 
     plan.copy(
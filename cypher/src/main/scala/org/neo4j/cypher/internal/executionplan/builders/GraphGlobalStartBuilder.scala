@@ -20,10 +20,8 @@
 package org.neo4j.cypher.internal.executionplan.builders
 
 import org.neo4j.cypher.internal.commands._
-import org.neo4j.cypher.internal.pipes.{RelationshipStartPipe, NodeStartPipe, Pipe}
+import org.neo4j.cypher.internal.pipes.{AllRelationshipsPipe, AllNodesPipe, Pipe}
 import org.neo4j.graphdb.GraphDatabaseService
-import collection.JavaConverters._
-import org.neo4j.tooling.GlobalGraphOperations
 import org.neo4j.cypher.internal.executionplan.{ExecutionPlanInProgress, PartiallySolvedQuery, PlanBuilder}
 
 class GraphGlobalStartBuilder(graph: GraphDatabaseService) extends PlanBuilder {
@@ -48,8 +46,8 @@ class GraphGlobalStartBuilder(graph: GraphDatabaseService) extends PlanBuilder {
   }
 
   private def createStartPipe(lastPipe: Pipe, item: StartItem): Pipe = item match {
-    case AllNodes(identifierName) => new NodeStartPipe(lastPipe, identifierName, m => GlobalGraphOperations.at(graph).getAllNodes.asScala)
-    case AllRelationships(identifierName) => new RelationshipStartPipe(lastPipe, identifierName, m => GlobalGraphOperations.at(graph).getAllRelationships.asScala)
+    case AllNodes(identifierName) => new AllNodesPipe(lastPipe, identifierName, graph)
+    case AllRelationships(identifierName) => new AllRelationshipsPipe(lastPipe, identifierName, graph)
   }
 
   def canWorkWith(plan: ExecutionPlanInProgress) = plan.query.start.exists(filter)
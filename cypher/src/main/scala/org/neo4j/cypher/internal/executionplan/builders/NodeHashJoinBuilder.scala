@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.executionplan.builders
+
+import org.neo4j.cypher.internal.executionplan.{ExecutionPlanInProgress, PlanBuilder}
+import org.neo4j.cypher.internal.commands._
+import org.neo4j.cypher.internal.pipes.NodeHashJoinPipe
+import org.neo4j.cypher.internal.pipes.matching.{NodeHashJoin, JoinStep}
+import org.neo4j.graphdb.Direction
+
+/*
+Picks up queries where the whole pattern is two relationships meeting in a node, a-[r1]-x-[r2]-b, and a and b are
+start points of their own. Instead of taking every combination of a and b and matching the pattern for each, both
+start points are solved on their own, and joined with a NodeHashJoinPipe.
+
+One of the two relationships can be optional. It is always put on the right side of the join, which is the side
+NodeHashJoin fills in the missing matches for.
+
+The start points are solved by the ordinary start point builders. This is only done while the query hasn't produced
+any rows of its own yet, since both sides read the rows that come before them.
+*/
+class NodeHashJoinBuilder(startBuilders: Seq[PlanBuilder]) extends PlanBuilder {
+  def apply(plan: ExecutionPlanInProgress) = {
+    val q = plan.query
+    val join = findJoin(plan).get
+
+    val left = startPipe(plan, join.leftItem)
+    val right = startPipe(plan, join.rightItem)
+    val hashJoin = new NodeHashJoin(join.leftStep, join.rightStep, join.meetingNode)
+    val newPipe = new NodeHashJoinPipe(left, right, join.leftStep.start, join.rightStep.start, hashJoin, join.patterns.map(_.token))
+
+    val items = Seq(join.leftItem, join.rightItem)
+    plan.copy(pipe = newPipe, query = q.copy(
+      start = q.start.map(item => if (items.contains(item)) item.solve else item),
+      patterns = q.patterns.map(pattern => if (join.patterns.contains(pattern)) pattern.solve else pattern)))
+  }
+
+  def canWorkWith(plan: ExecutionPlanInProgress) = findJoin(plan).nonEmpty
+
+  def priority = PlanBuilder.HashJoin
+
+  private case class Join(leftItem: QueryToken[StartItem],
+                          rightItem: QueryToken[StartItem],
+                          leftStep: JoinStep,
+                          rightStep: JoinStep,
+                          meetingNode: String,
+                          patterns: Seq[QueryToken[Pattern]])
+
+  private def findJoin(plan: ExecutionPlanInProgress): Option[Join] = {
+    val q = plan.query
+    if (plan.pipe.symbols.identifiers.nonEmpty) {
+      return None
+    }
+
+    val patterns = q.patterns.filter(_.unsolved).distinct
+    val startItems = q.start.filter(item => item.unsolved && item.token.isInstanceOf[NodeStartItem] && startPipeBuilder(plan, item).nonEmpty)
+    val startNames = q.start.map(_.token.identifierName)
+
+    // All of the pattern has to be solved here, the pattern matcher makes sure no relationship is used twice
+    patterns.map(_.token) match {
+      case Seq(p1: RelatedTo, p2: RelatedTo) if joinable(p1) && joinable(p2) && !(p1.optional && p2.optional) && p1.relName != p2.relName =>
+        val (r1, r2) = if (p1.optional) (p2, p1) else (p1, p2)
+        val candidates = for (
+          meeting <- Seq(r1.left, r1.right).filter(n => n == r2.left || n == r2.right);
+          if !startNames.contains(meeting) && meeting != r1.relName && meeting != r2.relName;
+          leftItem <- startItems.find(_.token.identifierName == otherEnd(r1, meeting));
+          rightItem <- startItems.find(_.token.identifierName == otherEnd(r2, meeting));
+          if leftItem != rightItem
+        ) yield Join(leftItem, rightItem, step(r1, meeting), step(r2, meeting), meeting, patterns)
+
+        candidates.headOption
+      case _ => None
+    }
+  }
+
+  private def joinable(r: RelatedTo) = r.predicate == True() && r.left != r.right
+
+  private def otherEnd(r: RelatedTo, node: String) = if (r.left == node) r.right else r.left
+
+  // The step from the start point at the other end of the relationship, towards the meeting node
+  private def step(r: RelatedTo, meeting: String): JoinStep = if (r.right == meeting)
+    JoinStep(r.left, r.relName, r.relTypes, r.direction, r.optional)
+  else
+    JoinStep(r.right, r.relName, r.relTypes, reverse(r.direction), r.optional)
+
+  private def reverse(dir: Direction) = dir match {
+    case Direction.OUTGOING => Direction.INCOMING
+    case Direction.INCOMING => Direction.OUTGOING
+    case Direction.BOTH => Direction.BOTH
+  }
+
+  private def startPipeBuilder(plan: ExecutionPlanInProgress, item: QueryToken[StartItem]): Option[PlanBuilder] = {
+    val single = plan.copy(query = plan.query.copy(start = Seq(item)))
+    startBuilders.filter(_.canWorkWith(single)).sortBy(_.priority).headOption
+  }
+
+  private def startPipe(plan: ExecutionPlanInProgress, item: QueryToken[StartItem]) = {
+    val single = plan.copy(query = plan.query.copy(start = Seq(item)))
+    startPipeBuilder(plan, item).get.apply(single).pipe
+  }
+}
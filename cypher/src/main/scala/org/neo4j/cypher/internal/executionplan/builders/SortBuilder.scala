@@ -19,7 +19,8 @@
  */
 package org.neo4j.cypher.internal.executionplan.builders
 
-import org.neo4j.cypher.internal.pipes.SortPipe
+import org.neo4j.cypher.internal.pipes.{TopPipe, SortPipe}
+import org.neo4j.cypher.internal.commands.Slice
 import org.neo4j.cypher.internal.executionplan.{ExecutionPlanInProgress, PlanBuilder}
 
 class SortBuilder extends PlanBuilder {
@@ -30,9 +31,15 @@ class SortBuilder extends PlanBuilder {
 
     val q = newPlan.query
     val sortItems = q.sort.map(_.token)
-    val resultPipe = new SortPipe(newPlan.pipe, sortItems.toList)
 
-    val resultQ = q.copy(sort = q.sort.map(_.solve))
+    // ORDER BY with a LIMIT only needs to keep the first skip + limit rows
+    val (resultPipe, resultQ) = q.slice.filter(_.unsolved).map(_.token).headOption match {
+      case Some(Slice(skip, Some(limit))) =>
+        (new TopPipe(newPlan.pipe, sortItems.toList, skip, limit),
+          q.copy(sort = q.sort.map(_.solve), slice = q.slice.map(_.solve)))
+      case _ =>
+        (new SortPipe(newPlan.pipe, sortItems.toList), q.copy(sort = q.sort.map(_.solve)))
+    }
 
     plan.copy(pipe = resultPipe, query = resultQ)
   }
@@ -27,7 +27,7 @@ class CommitPipe(source: Pipe, graph: GraphDatabaseService) extends PipeWithSour
   lazy val still_has_relationships = "Node record Node\\[(\\d),.*] still has relationships".r
 
   def createResults(state: QueryState) = {
-    val result = source.createResults(state)
+    val result = source.createResults(state).toList
 
     state.transaction match {
       case None => throw new InternalException("Expected to be in a transaction but wasn't")
@@ -56,7 +56,7 @@ class CommitPipe(source: Pipe, graph: GraphDatabaseService) extends PipeWithSour
       }
     }
 
-    result
+    result.iterator
   }
 
   def executionPlan() = source.executionPlan() + "\r\nTransactionBegin()"
@@ -27,7 +27,10 @@ import collection.mutable.{Map => MutableMap}
 // Eager aggregation means that this pipe will eagerly load the whole resulting sub graphs before starting
 // to emit aggregated results.
 // Cypher is lazy until it has to - this pipe makes stops the lazyness
-class EagerAggregationPipe(source: Pipe, val keyExpressions: Seq[Expression], aggregations: Seq[AggregationExpression]) extends PipeWithSource(source) {
+class EagerAggregationPipe(source: Pipe, val keyExpressions: Seq[Expression], aggregations: Seq[AggregationExpression],
+                           parallel: Option[ParallelScan] = None) extends PipeWithSource(source) {
+  type Groups = MutableMap[NiceHasher, (ExecutionContext, Seq[AggregationFunction])]
+
   val symbols: SymbolTable = createSymbols()
 
   def dependencies: Seq[Identifier] = keyExpressions.flatMap(_.dependencies(AnyType())) ++ aggregations.flatMap(_.dependencies(AnyType()))
@@ -40,44 +43,126 @@ class EagerAggregationPipe(source: Pipe, val keyExpressions: Seq[Expression], ag
     keySymbols.add(aggregatedColumns: _*)
   }
 
-  def createResults(state: QueryState): Traversable[ExecutionContext] = {
+  private val keyNames = keyExpressions.map(_.identifier.name)
+  private val aggregationNames = aggregations.map(_.identifier.name)
+
+  def createResults(state: QueryState): Iterator[ExecutionContext] = {
+    val result = parallel match {
+      case Some(scan) if scan.canRun(state) => emit(scan.run[Groups](state, s => group(source.createResults(s)), merge))
+      case _ => aggregate(source.createResults(state), state, 0)
+    }
+
+    if (!result.hasNext && keyExpressions.isEmpty) {
+      createEmptyResult(aggregations.map(_.identifier.name), state)
+    } else result
+  }
+
+  // Once the spill threshold number of groups are held in memory, rows of
+  // other groups are written to spill files, partitioned on their group
+  // values, and aggregated one partition at a time when the in memory groups
+  // have been emitted. Every group ends up entirely in memory or entirely in
+  // one partition, and gets its rows in the order they came in.
+  private def aggregate(input: TraversableOnce[ExecutionContext], state: QueryState, depth: Int): Iterator[ExecutionContext] = {
     // This is the temporary storage used while the aggregation is going on
-    val result = MutableMap[NiceHasher, (ExecutionContext,Seq[AggregationFunction])]()
-    val keyNames = keyExpressions.map(_.identifier.name)
-    val aggregationNames = aggregations.map(_.identifier.name)
-
-    source.createResults(state).foreach(ctx => {
-      val groupValues: NiceHasher = new NiceHasher(keyNames.map(ctx(_)))
-      val (_,functions) = result.getOrElseUpdate(groupValues, (ctx, aggregations.map(_.createAggregationFunction)))
-      functions.foreach(func => func(ctx))
+    val result: Groups = MutableMap()
+    var spill = state.spillThreshold > 0 && depth < EagerAggregationPipe.MaxSpillDepth
+    var partitions: Array[SpillFile] = null
+
+    def add(ctx: ExecutionContext, groupValues: NiceHasher) {
+      addTo(result, ctx, groupValues)
+    }
+
+    input.foreach(ctx => {
+      val groupValues: NiceHasher = groupValuesOf(ctx)
+      if (!spill || result.size < state.spillThreshold || result.contains(groupValues)) {
+        add(ctx, groupValues)
+      } else {
+        if (partitions == null) {
+          partitions = Array.fill(EagerAggregationPipe.SpillPartitions)(state.spillFiles.create(state.db, ctx))
+        }
+        try {
+          partitions(partitionOf(groupValues, depth)).write(ctx)
+        } catch {
+          case e: CantSpillException =>
+            spill = false
+            partitions.foreach(_.rows.foreach(row => add(row, groupValuesOf(row))))
+            partitions = null
+            add(ctx, groupValues)
+        }
+      }
     })
 
-    if (result.isEmpty && keyNames.isEmpty) {
-      createEmptyResult(aggregationNames)
-    } else result.map {
-      case (key, (ctx,aggregator)) =>
-        val newMap = MutableMaps.create
+    val inMemory = emit(result)
+
+    if (partitions == null) {
+      inMemory
+    } else {
+      partitions.filter(_.size == 0).foreach(_.delete())
+      val spilled = partitions.filter(_.size > 0).toList
+      inMemory ++ spilled.iterator.flatMap(partition => aggregate(partition.rows, state, depth + 1))
+    }
+  }
+
+  private def groupValuesOf(ctx: ExecutionContext) = new NiceHasher(keyNames.map(ctx(_)))
 
-        //add key values
-        keyNames.zip(key.original).foreach( newMap += _)
+  private def addTo(groups: Groups, ctx: ExecutionContext, groupValues: NiceHasher, partial: Boolean = false) {
+    val (_,functions) = groups.getOrElseUpdate(groupValues, (ctx, aggregations.map(a =>
+      if (partial) a.createPartialAggregationFunction else a.createAggregationFunction)))
+    functions.foreach(func => func(ctx))
+  }
 
-        //add aggregated values
-        aggregationNames.zip(aggregator.map(_.result)).foreach( newMap += _ )
+  // Aggregates one id range of a parallel run, all in memory
+  private def group(input: Iterator[ExecutionContext]): Groups = {
+    val groups: Groups = MutableMap()
+    input.foreach(ctx => addTo(groups, ctx, groupValuesOf(ctx), partial = true))
+    groups
+  }
 
-        ctx.newFrom(newMap)
+  // The rows of the right groups came after the rows of the left ones
+  private def merge(left: Groups, right: Groups): Groups = {
+    right.foreach {
+      case (key, (ctx, functions)) => left.get(key) match {
+        case Some((_, leftFunctions)) => leftFunctions.zip(functions).foreach {
+          case (l, r) => l.combine(r)
+        }
+        case None => left(key) = (ctx, functions)
+      }
     }
+    left
   }
 
+  private def emit(groups: Groups): Iterator[ExecutionContext] = groups.iterator.map {
+    case (key, (ctx,aggregator)) =>
+      val newMap = MutableMaps.create
+
+      //add key values
+      keyNames.zip(key.original).foreach( newMap += _)
+
+      //add aggregated values
+      aggregationNames.zip(aggregator.map(_.result)).foreach( newMap += _ )
 
-  private def createEmptyResult(aggregationNames: Seq[String]): Traversable[ExecutionContext] = {
+      ctx.newFrom(newMap)
+  }
+
+  private def partitionOf(groupValues: NiceHasher, depth: Int) = {
+    val hash = Integer.rotateLeft(groupValues.hashCode(), depth * 8)
+    ((hash ^ (hash >>> 16)) & Int.MaxValue) % EagerAggregationPipe.SpillPartitions
+  }
+
+  private def createEmptyResult(aggregationNames: Seq[String], state: QueryState): Iterator[ExecutionContext] = {
     val newMap = MutableMaps.create
     val aggregationNamesAndFunctions = aggregationNames zip aggregations.map(_.createAggregationFunction.result)
     aggregationNamesAndFunctions.toMap
       .foreach {
       case (name, zeroValue) => newMap += name -> zeroValue
     }
-    Traversable(ExecutionContext(newMap))
+    Iterator(ExecutionContext(newMap, slots = state.slots))
   }
 
-  override def executionPlan(): String = source.executionPlan() + "\r\n" + "EagerAggregation( keys: [" + keyExpressions.map(_.identifier.name).mkString(", ") + "], aggregates: [" + aggregations.mkString(", ") + "])"
-}
\ No newline at end of file
+  override def executionPlan(): String = source.executionPlan() + "\r\n" + "EagerAggregation( keys: [" + keyExpressions.map(_.identifier.name).mkString(", ") + "], aggregates: [" + aggregations.mkString(", ") + "]" + parallel.map(", " + _).getOrElse("") + ")"
+}
+
+object EagerAggregationPipe {
+  val SpillPartitions = 16
+  val MaxSpillDepth = 4
+}
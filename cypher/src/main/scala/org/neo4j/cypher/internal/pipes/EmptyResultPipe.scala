@@ -25,9 +25,9 @@ class EmptyResultPipe(source: Pipe)
   extends PipeWithSource(source) {
 
   def createResults(state: QueryState) = {
-    source.createResults(state)
+    source.createResults(state).foreach(ctx => ())
 
-    Seq()
+    Iterator.empty
   }
 
   def symbols = new SymbolTable()
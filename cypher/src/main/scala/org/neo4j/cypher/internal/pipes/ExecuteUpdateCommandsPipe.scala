@@ -31,12 +31,15 @@ class ExecuteUpdateCommandsPipe(source: Pipe, db: GraphDatabaseService, commands
     val deletedNodes = MutableHashSet[Long]()
     val deletedRelationships = MutableHashSet[Long]()
 
+    // The input is read before anything is changed, so the updates can't affect what is read
+    val input = source.createResults(state).toList
+
     if (commands.size == 1) {
-      source.createResults(state).flatMap {
+      input.iterator.flatMap {
         case ctx => executeMutationCommands(ctx, state, deletedNodes, deletedRelationships)
       }
     } else {
-      source.createResults(state).flatMap {
+      input.iterator.flatMap {
         case ctx => executeMutationCommands(ctx, state, deletedNodes, deletedRelationships, ctx => if (ctx.size > 1) throw new ParameterWrongTypeException("If you create multiple elements, you can only create one of each."))
       }
     }
@@ -23,14 +23,18 @@ import matching.MatchingContext
 import java.lang.String
 import org.neo4j.cypher.internal.commands.{Predicate, Pattern}
 
-class MatchPipe(source: Pipe, patterns: Seq[Pattern], predicates: Seq[Predicate]) extends Pipe {
-  val matchingContext = new MatchingContext(patterns, source.symbols, predicates)
-  val symbols = matchingContext.symbols
+class MatchPipe(val source: Pipe, patterns: Seq[Pattern], predicates: Seq[Predicate]) extends Pipe {
+  val symbols = newMatchingContext.symbols
 
-  def createResults(state: QueryState) =
+  // The matchers keep state while matching, so every run of the plan gets its own
+  private def newMatchingContext = new MatchingContext(patterns, source.symbols, predicates)
+
+  def createResults(state: QueryState) = {
+    val matchingContext = newMatchingContext
     source.createResults(state).flatMap(ctx => {
-      matchingContext.getMatches(ctx.toMap).map(pm => ctx.newWith( pm ) )
+      matchingContext.getMatches(ctx.toMap).toIterator.map(pm => ctx.newWith( pm ) )
     })
+  }
 
   override def executionPlan(): String = source.executionPlan() + "\r\nPatternMatch(" + patterns.mkString(",") + ")"
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.pipes
+
+import matching.NodeHashJoin
+import org.neo4j.cypher.internal.commands.Pattern
+import org.neo4j.graphdb.Node
+
+/*
+Solves a pattern between two start points by expanding both sides to the node they meet in,
+see NodeHashJoin. The left pipe gives the rows, the right pipe gives the nodes to join with.
+*/
+class NodeHashJoinPipe(left: Pipe, right: Pipe, leftNode: String, rightNode: String, join: NodeHashJoin, patterns: Seq[Pattern])
+  extends Pipe {
+  val symbols = left.symbols.add(join.identifiers: _*)
+
+  def createResults(state: QueryState): Iterator[ExecutionContext] = {
+    // The table is built when the first row is asked for
+    lazy val table = join.buildTable(right.createResults(state).map(_(rightNode).asInstanceOf[Node]))
+
+    left.createResults(state).flatMap(ctx => {
+      join.join(ctx(leftNode).asInstanceOf[Node], table).map(entries => ctx.newWith(entries))
+    })
+  }
+
+  override def executionPlan(): String = left.executionPlan() + "\r\nNodeHashJoin(" + rightNode + ", " + patterns.mkString(",") + ")"
+}
@@ -45,14 +45,14 @@ class OrderedAggregationPipe(source: Pipe, val keyExpressions: Seq[Expression],
     keySymbols.add(aggregateIdentifiers: _*)
   }
 
-  def createResults(state: QueryState): Traversable[ExecutionContext] = new OrderedAggregator(source.createResults(state), keyExpressions, aggregations)
+  def createResults(state: QueryState): Iterator[ExecutionContext] = new OrderedAggregator(source.createResults(state), keyExpressions, aggregations)
 
   override def executionPlan(): String = source.executionPlan() + "\r\n" + "EagerAggregation( keys: [" + keyExpressions.map(_.identifier.name).mkString(", ") + "], aggregates: [" + aggregations.mkString(", ") + "])"
 }
 
-private class OrderedAggregator(source: Traversable[ExecutionContext],
+private class OrderedAggregator(source: Iterator[ExecutionContext],
                                 returnItems: Seq[Expression],
-                                aggregations: Seq[AggregationExpression]) extends Traversable[ExecutionContext] {
+                                aggregations: Seq[AggregationExpression]) extends Iterator[ExecutionContext] {
   var currentKey: Option[Seq[Any]] = None
   var aggregationSpool: Seq[AggregationFunction] = null
   var currentCtx: Option[ExecutionContext] = null
@@ -71,26 +71,34 @@ private class OrderedAggregator(source: Traversable[ExecutionContext],
     ctx.newFrom(newMap)
   }
 
-  def foreach[U](f: ExecutionContext => U) {
-    source.foreach(ctx => {
+  def hasNext: Boolean = currentKey.nonEmpty || source.hasNext
+
+  def next(): ExecutionContext = {
+    if (currentKey.isEmpty) {
+      startGroup(source.next())
+    }
+
+    while (source.hasNext) {
+      val ctx = source.next()
       val key = Some(returnItems.map(_.apply(ctx)))
-      if (currentKey.isEmpty) {
-        aggregationSpool = aggregations.map(_.createAggregationFunction)
-        currentKey = key
-        currentCtx = Some(ctx)
-      } else if (key != currentKey) {
-        f(getIntermediateResults(currentCtx.get))
-
-        aggregationSpool = aggregations.map(_.createAggregationFunction)
-        currentKey = key
-        currentCtx = Some(ctx)
+      if (key != currentKey) {
+        val result = getIntermediateResults(currentCtx.get)
+        startGroup(ctx)
+        return result
       }
 
       aggregationSpool.foreach(func => func(ctx))
-    })
-
-    if (currentKey.nonEmpty) {
-      f(getIntermediateResults(currentCtx.get))
     }
+
+    val result = getIntermediateResults(currentCtx.get)
+    currentKey = None
+    result
+  }
+
+  private def startGroup(ctx: ExecutionContext) {
+    aggregationSpool = aggregations.map(_.createAggregationFunction)
+    currentKey = Some(returnItems.map(_.apply(ctx)))
+    currentCtx = Some(ctx)
+    aggregationSpool.foreach(func => func(ctx))
   }
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.pipes
+
+import scala.concurrent.forkjoin.{RecursiveTask, ForkJoinPool}
+import java.util.concurrent.ConcurrentHashMap
+import org.neo4j.kernel.GraphDatabaseAPI
+
+case class IdRange(start: Long, end: Long) {
+  def size = end - start
+
+  def split: (IdRange, IdRange) = {
+    val middle = start + size / 2
+    (IdRange(start, middle), IdRange(middle, end))
+  }
+}
+
+/*
+Runs a plan that starts with a scan of all nodes or all relationships one id range at a time, spread over a fork join
+pool, and merges what the ranges give. The ranges are split in halves until they are small enough, and the halves are
+merged left to right, so the merged result sees the rows in the same order as a single run of the plan would.
+
+Only plans that produce their rows one by one from the rows of the scan can be split like this, see scanOf. The
+plan is run on other threads, so it is only done when the calling thread has no transaction of its own, that the
+other threads wouldn't see.
+*/
+class ParallelScan(scan: ScanPipe[_], parallelism: Int) {
+  def canRun(state: QueryState): Boolean = state.transaction.isEmpty &&
+    scan.graph.asInstanceOf[GraphDatabaseAPI].getTxManager.getTransaction == null
+
+  def run[T](state: QueryState, runRange: QueryState => T, merge: (T, T) => T): T = {
+    val all = IdRange(0, scan.highestPossibleId + 1)
+    val rangeSize = math.max(ParallelScan.MinRangeSize, all.size / (parallelism * ParallelScan.RangesPerThread))
+
+    class RangeTask(range: IdRange) extends RecursiveTask[T] {
+      protected def compute(): T = if (range.size <= rangeSize) {
+        runRange(state.forPartition(range))
+      } else {
+        val (left, right) = range.split
+        val leftTask = new RangeTask(left)
+        leftTask.fork()
+        val rightResult = new RangeTask(right).compute()
+        merge(leftTask.join(), rightResult)
+      }
+    }
+
+    ParallelScan.pool(parallelism).invoke(new RangeTask(all))
+  }
+
+  override def toString = "Parallel(" + parallelism + ")"
+}
+
+object ParallelScan {
+  val MinRangeSize = 10000L
+  val RangesPerThread = 4
+
+  private val pools = new ConcurrentHashMap[Int, ForkJoinPool]()
+
+  private def pool(parallelism: Int): ForkJoinPool = {
+    val existing = pools.get(parallelism)
+    if (existing != null) {
+      existing
+    } else {
+      val created = new ForkJoinPool(parallelism)
+      val raced = pools.putIfAbsent(parallelism, created)
+      if (raced == null) {
+        created
+      } else {
+        created.shutdown()
+        raced
+      }
+    }
+  }
+
+  /*
+  Finds the scan at the bottom of a plan, if the plan only has steps that work on one row at a time on top of it.
+  Other start points are fine, as long as they come after the scan, since they are read once for every row of it.
+  */
+  def scanOf(pipe: Pipe): Option[ScanPipe[_]] = pipe match {
+    case p: ScanPipe[_] => p.inner match {
+      case _: ParameterPipe => Some(p)
+      case _ => None
+    }
+    case p: StartPipe[_] => scanOf(p.inner)
+    case p: FilterPipe => scanOf(p.source)
+    case p: ExtractPipe => scanOf(p.source)
+    case p: MatchPipe => scanOf(p.source)
+    case p: NamedPathPipe => scanOf(p.source)
+    case _ => None
+  }
+}
@@ -35,7 +35,13 @@ import java.util.HashMap
  * the execute the query.
  */
 trait Pipe {
-  def createResults(state: QueryState): Traversable[ExecutionContext]
+  /**
+   * Rows are pulled through the pipes one at a time, so a consumer that stops
+   * early (a LIMIT, or a client that stops reading) saves the work of producing
+   * the rest. Pipes that need all of their input, like sorting, consume their
+   * source before returning.
+   */
+  def createResults(state: QueryState): Iterator[ExecutionContext]
 
   def symbols: SymbolTable
 
@@ -43,7 +49,7 @@ trait Pipe {
 }
 
 class NullPipe extends Pipe {
-  def createResults(state: QueryState) = Seq(ExecutionContext.empty)
+  def createResults(state: QueryState) = Iterator(ExecutionContext(slots = state.slots))
 
   def symbols: SymbolTable = new SymbolTable()
 
@@ -68,12 +74,25 @@ object QueryState {
 
 class QueryState(val db: GraphDatabaseService,
                  val params: MutableMap[String, Any],
-                 var transaction: Option[Transaction] = None) {
+                 var transaction: Option[Transaction] = None,
+                 val slots: Slots = new Slots(),
+                 val spillThreshold: Int = 0,
+                 val partition: Option[IdRange] = None,
+                 val spillFiles: SpillFiles = new SpillFiles) {
   val createdNodes = new Counter
   val createdRelationships = new Counter
   val propertySet = new Counter
   val deletedNodes = new Counter
   val deletedRelationships = new Counter
+
+  def forPartition(range: IdRange) = new QueryState(db, params, transaction, slots, spillThreshold, Some(range), spillFiles)
+
+  /**
+   * Releases what the query holds on to once it's done with, or given up on.
+   */
+  def close() {
+    spillFiles.deleteAll()
+  }
 }
 
 class Counter {
@@ -86,49 +105,149 @@ class Counter {
   }
 }
 
+/**
+ * Gives every key of the rows of a query a fixed index, a slot, in the rows.
+ * The identifiers a plan returns get their slots when the plan is built, other
+ * keys (parameters, identifiers that are filtered away before the end) get
+ * theirs the first time they are seen. Slots are never reassigned, so they can
+ * be shared between rows and between executions of the same plan.
+ */
+class Slots(initialKeys: Seq[String] = Seq()) {
+  @volatile private var keys: Array[String] = initialKeys.distinct.toArray
+  @volatile private var indexes: Map[String, Int] = keys.zipWithIndex.toMap
+
+  def size: Int = keys.length
+
+  def keyAt(index: Int): String = keys(index)
+
+  /**
+   * @return the slot of the key, or -1 if it has none yet
+   */
+  def indexOf(key: String): Int = indexes.getOrElse(key, -1)
+
+  def indexFor(key: String): Int = {
+    val index = indexOf(key)
+    if (index >= 0) index else assign(key)
+  }
+
+  private def assign(key: String): Int = synchronized {
+    indexes.get(key) match {
+      case Some(index) => index
+      case None =>
+        val index = keys.length
+        keys = keys :+ key
+        indexes = indexes + (key -> index)
+        index
+    }
+  }
+}
+
 object ExecutionContext {
-  def empty = new ExecutionContext()
+  def empty = apply()
+
+  def apply(m: MutableMap[String, Any] = MutableMaps.create,
+            mutationCommands: Queue[UpdateAction] = Queue[UpdateAction](),
+            slots: Slots = new Slots()): ExecutionContext = {
+    val ctx = new ExecutionContext(slots, newCells(slots.size), mutationCommands)
+    ctx ++= m
+    ctx
+  }
+
+  private object Absent
+
+  private def isAbsent(value: Any) = value.asInstanceOf[AnyRef] eq Absent
+
+  private def newCells(size: Int): Array[Any] = copyCells(new Array[Any](0), size)
+
+  private def copyCells(values: Array[Any], size: Int): Array[Any] = {
+    val result = new Array[Any](math.max(size, values.length))
+    System.arraycopy(values, 0, result, 0, values.length)
+    var i = values.length
+    while (i < result.length) {
+      result(i) = Absent
+      i += 1
+    }
+    result
+  }
 }
 
-case class ExecutionContext(m: MutableMap[String, Any] = MutableMaps.create,
-                            mutationCommands: Queue[UpdateAction] = Queue[UpdateAction]())
+/**
+ * A row in the result of a query. The values are kept in an array indexed by
+ * the slots of their keys, see {@link Slots}. Rows are extended by copying
+ * the array rather than a whole map.
+ */
+class ExecutionContext private(val slots: Slots,
+                               private var cells: Array[Any],
+                               val mutationCommands: Queue[UpdateAction])
   extends MutableMap[String, Any] {
-  def get(key: String): Option[Any] = m.get(key)
 
-  def iterator: Iterator[(String, Any)] = m.iterator
+  import ExecutionContext.{Absent, isAbsent, copyCells, newCells}
+
+  def m: MutableMap[String, Any] = this
+
+  def get(key: String): Option[Any] = getAt(slots.indexOf(key))
 
-  override def size = m.size
+  /**
+   * Like get, for callers that already know the slot of the key.
+   */
+  def getAt(index: Int): Option[Any] =
+    if (index < 0 || index >= cells.length) None
+    else {
+      val value = cells(index)
+      if (isAbsent(value)) None else Some(value)
+    }
 
-  override def foreach[U](f: ((String, Any)) => U) { m.foreach(f) }
+  def iterator: Iterator[(String, Any)] =
+    cells.indices.iterator.filter(i => !isAbsent(cells(i))).map(i => (slots.keyAt(i), cells(i)))
+
+  override def size = cells.count(value => !isAbsent(value))
+
+  override def foreach[U](f: ((String, Any)) => U) {
+    var i = 0
+    while (i < cells.length) {
+      val value = cells(i)
+      if (!isAbsent(value)) {
+        f((slots.keyAt(i), value))
+      }
+      i += 1
+    }
+  }
 
   def +=(kv: (String, Any)) = {
-    m += kv
+    val index = slots.indexFor(kv._1)
+    if (index >= cells.length) {
+      cells = copyCells(cells, slots.size)
+    }
+    cells(index) = kv._2
     this
   }
 
   def -=(key: String) = {
-    m -= key
+    val index = slots.indexOf(key)
+    if (index >= 0 && index < cells.length) {
+      cells(index) = Absent
+    }
     this
   }
+
+  private def extended = new ExecutionContext(slots, copyCells(cells, slots.size), mutationCommands)
+
+  private def fresh = new ExecutionContext(slots, newCells(slots.size), mutationCommands)
+
   def newWith(newEntries : Seq[(String,Any)]) = {
-    copy(m = (MutableMaps.create(this.m) ++= newEntries))
+    extended ++= newEntries
   }
   def newWith(newEntries : scala.collection.Map[String,Any]) = {
-    copy(m = (MutableMaps.create(this.m) ++= newEntries))
+    extended ++= newEntries
   }
   def newFrom(newEntries : Seq[(String,Any)]) = {
-    copy(m = MutableMaps.create(newEntries))
+    fresh ++= newEntries
   }
   def newFrom(newEntries : scala.collection.Map[String,Any]) = {
-    copy(m = MutableMaps.create(newEntries))
+    fresh ++= newEntries
   }
 
   def newWith(newEntry : (String,Any)) = {
-    copy(m = (MutableMaps.create(this.m) += newEntry))
+    extended += newEntry
   }
-/*
-  def newWith(newEntries : (String,Any)*) = {
-    copy(m = this.m.clone() ++ newEntries)
-  }
-*/
-}
\ No newline at end of file
+}
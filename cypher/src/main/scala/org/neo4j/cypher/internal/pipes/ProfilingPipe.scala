@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.pipes
+
+import org.neo4j.cypher.PlanDescription
+import org.neo4j.graphdb.GraphDatabaseService
+import org.neo4j.kernel.GraphDatabaseAPI
+
+/**
+ * Wraps a pipe and keeps track of the rows it produces, the time spent in it and the
+ * number of nodes and relationships it touches. Time and db hits are measured around
+ * every call into the wrapped pipe, and so include what is spent in the pipes feeding it,
+ * which is subtracted when the plan is described.
+ *
+ * A profiled plan is built for a single execution, running it again starts over.
+ */
+class ProfilingPipe(val inner: Pipe, val source: Option[ProfilingPipe], graph: GraphDatabaseService) extends Pipe {
+  private var rows = 0L
+  private var time = 0L
+  private var dbHits = 0L
+
+  private val nodeManager = graph match {
+    case db: GraphDatabaseAPI => Some(db.getNodeManager)
+    case _ => None
+  }
+
+  def symbols = inner.symbols
+
+  def executionPlan() = inner.executionPlan()
+
+  def createResults(state: QueryState): Iterator[ExecutionContext] = {
+    rows = 0
+    time = 0
+    dbHits = 0
+
+    val result = measure(inner.createResults(state))
+
+    new Iterator[ExecutionContext] {
+      def hasNext = measure(result.hasNext)
+
+      def next() = {
+        val ctx = measure(result.next())
+        rows += 1
+        ctx
+      }
+    }
+  }
+
+  private def measure[T](f: => T): T = {
+    val started = nodeManager.exists(_.startCountingAccesses())
+    val hitsBefore = accessCount
+    val start = System.nanoTime()
+    try {
+      f
+    } finally {
+      time += System.nanoTime() - start
+      dbHits += accessCount - hitsBefore
+      if (started) {
+        nodeManager.foreach(_.stopCountingAccesses())
+      }
+    }
+  }
+
+  private def accessCount = nodeManager.map(_.getAccessCount).getOrElse(0L)
+
+  def description: PlanDescription = {
+    val children = source.toSeq.map(_.description)
+    val sourceTime = source.map(_.time).getOrElse(0L)
+    val sourceDbHits = source.map(_.dbHits).getOrElse(0L)
+
+    PlanDescription(
+      name = stepName,
+      rowsIn = source.map(_.rows).getOrElse(0L),
+      rows = rows,
+      dbHits = math.max(0L, dbHits - sourceDbHits),
+      timeNanos = math.max(0L, time - sourceTime),
+      children = children)
+  }
+
+  /*
+  The plan text of a pipe is the plan text of its source with its own steps appended, so
+  what is left after removing the source's text describes the pipes this one wraps.
+  */
+  private def stepName: String = {
+    val text = inner.executionPlan()
+    val sourceText = source.map(_.executionPlan()).getOrElse("")
+    val own = if (text.startsWith(sourceText)) text.substring(sourceText.length) else text
+    val steps = own.split("\r?\n").map(_.trim).filter(_.nonEmpty)
+
+    if (steps.isEmpty) inner.getClass.getSimpleName else steps.mkString(", ")
+  }
+}
@@ -27,12 +27,11 @@ import collection.mutable.Map
 class SlicePipe(source:Pipe, skip:Option[Expression], limit:Option[Expression]) extends Pipe {
   val symbols = source.symbols
 
-  //TODO: Make this nicer. I'm sure it's expensive and silly.
-  def createResults(state: QueryState): Traversable[ExecutionContext] = {
-    val sourceTraversable = source.createResults(state)
+  def createResults(state: QueryState): Iterator[ExecutionContext] = {
+    val sourceTraversable = source.createResults(state).buffered
 
-    if(sourceTraversable.isEmpty)
-      return Seq()
+    if(!sourceTraversable.hasNext)
+      return Iterator.empty
 
     val first: Map[String, Any] = sourceTraversable.head
 
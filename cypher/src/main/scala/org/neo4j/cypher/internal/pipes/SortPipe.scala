@@ -30,7 +30,8 @@ class SortPipe(source: Pipe, sortDescription: List[SortItem]) extends Pipe with
 
   assertDependenciesAreMet()
 
-  def createResults(state:QueryState) = source.createResults(state).toList.sortWith((a, b) => compareBy(a, b, sortDescription))
+  def createResults(state:QueryState) =
+    new SpillingSorter(state, state.spillThreshold, (a, b) => compareBy(a, b, sortDescription)).sort(source.createResults(state))
 
   def compareBy(a: Map[String, Any], b: Map[String, Any], order: Seq[SortItem]): Boolean = order match {
     case Nil => false
@@ -0,0 +1,233 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.pipes
+
+import java.io._
+import java.lang.reflect.{Array => ReflectArray}
+import org.neo4j.graphdb.{GraphDatabaseService, Node, Path, PropertyContainer, Relationship}
+import org.neo4j.cypher.PathImpl
+import org.neo4j.cypher.internal.commands.ParameterValue
+import scala.collection.JavaConverters._
+
+/**
+ * Thrown when a row holds a value that can't be written to a spill file.
+ */
+class CantSpillException(value: Any)
+  extends RuntimeException("Can't write a " + value.asInstanceOf[AnyRef].getClass.getName + " to a spill file")
+
+/**
+ * The spill files of one execution of a query. A spill file deletes itself
+ * once it has been read, the ones left when the query is closed, because it
+ * was given up on before all rows were read, are deleted then.
+ */
+class SpillFiles {
+  private val files = collection.mutable.Set[SpillFile]()
+
+  def create(db: GraphDatabaseService, template: ExecutionContext): SpillFile = synchronized {
+    val file = new SpillFile(db, template, this)
+    files += file
+    file
+  }
+
+  private[pipes] def deleted(file: SpillFile) {
+    synchronized {
+      files -= file
+    }
+  }
+
+  def size = synchronized(files.size)
+
+  def deleteAll() {
+    synchronized(files.toList).foreach(_.delete())
+  }
+}
+
+/**
+ * A temporary file that rows are written to when a query holds more of them
+ * than it's allowed to keep in memory. Nodes and relationships are written as
+ * their ids and looked up again when the rows are read back. The file is
+ * deleted when its rows have been read, or when the query it belongs to is
+ * closed, see {@link SpillFiles}.
+ */
+class SpillFile private[pipes](db: GraphDatabaseService, template: ExecutionContext, owner: SpillFiles) {
+  private val file = File.createTempFile("cypher-spill", ".tmp")
+  private var out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024))
+  private var in: DataInputStream = null
+  private var rowCount = 0L
+
+  def size = rowCount
+
+  /**
+   * Writes a row to the file. If the row can't be written the file is left as
+   * it was and a {@link CantSpillException} thrown.
+   */
+  def write(row: ExecutionContext) {
+    val bytes = new ByteArrayOutputStream()
+    val rowOut = new DataOutputStream(bytes)
+    rowOut.writeInt(row.size)
+    row.foreach {
+      case (key, value) =>
+        rowOut.writeUTF(key)
+        writeValue(rowOut, value)
+    }
+    rowOut.flush()
+    bytes.writeTo(out)
+    rowCount += 1
+  }
+
+  /**
+   * @return the rows written to the file, in the order they were written.
+   * The rows can only be read once, the file is deleted when the last one
+   * has been read. No more rows can be written after this has been called.
+   */
+  def rows: Iterator[ExecutionContext] = {
+    closeOutput()
+    if (rowCount == 0) {
+      delete()
+      return Iterator.empty
+    }
+    in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024))
+    new Iterator[ExecutionContext] {
+      var left = rowCount
+
+      def hasNext = left > 0
+
+      def next() = {
+        if (left == 0)
+          throw new NoSuchElementException("No more rows")
+
+        val entries = (0 until in.readInt()).map(i => (in.readUTF(), readValue(in)))
+        left -= 1
+        if (left == 0) {
+          delete()
+        }
+        template.newFrom(entries)
+      }
+    }
+  }
+
+  def delete() {
+    closeOutput()
+    if (in != null) {
+      in.close()
+      in = null
+    }
+    file.delete()
+    owner.deleted(this)
+  }
+
+  private def closeOutput() {
+    if (out != null) {
+      out.close()
+      out = null
+    }
+  }
+
+  private def writeValue(out: DataOutputStream, value: Any) {
+    value match {
+      case null => out.writeByte(0)
+      case x: String => out.writeByte(1); writeString(out, x)
+      case x: Int => out.writeByte(2); out.writeInt(x)
+      case x: Long => out.writeByte(3); out.writeLong(x)
+      case x: Double => out.writeByte(4); out.writeDouble(x)
+      case x: Float => out.writeByte(5); out.writeFloat(x)
+      case x: Boolean => out.writeByte(6); out.writeBoolean(x)
+      case x: Short => out.writeByte(7); out.writeShort(x)
+      case x: Byte => out.writeByte(8); out.writeByte(x)
+      case x: Char => out.writeByte(9); out.writeChar(x)
+      case x: Node if db != null => out.writeByte(10); out.writeLong(x.getId)
+      case x: Relationship if db != null => out.writeByte(11); out.writeLong(x.getId)
+      case x: Path =>
+        val entities = x.iterator().asScala.toList
+        out.writeByte(12)
+        out.writeInt(entities.size)
+        entities.foreach(writeValue(out, _))
+      case x: ParameterValue => out.writeByte(13); writeValue(out, x.value)
+      case x: Array[_] =>
+        out.writeByte(14)
+        out.writeUTF(x.getClass.getComponentType.getName)
+        out.writeInt(x.length)
+        x.foreach(writeValue(out, _))
+      case x: scala.collection.Map[_, _] =>
+        out.writeByte(15)
+        out.writeInt(x.size)
+        x.foreach {
+          case (k, v) => writeValue(out, k); writeValue(out, v)
+        }
+      case x: Traversable[_] =>
+        out.writeByte(16)
+        out.writeInt(x.size)
+        x.foreach(writeValue(out, _))
+      case x => throw new CantSpillException(x)
+    }
+  }
+
+  private def readValue(in: DataInputStream): Any = in.readByte() match {
+    case 0 => null
+    case 1 => readString(in)
+    case 2 => in.readInt()
+    case 3 => in.readLong()
+    case 4 => in.readDouble()
+    case 5 => in.readFloat()
+    case 6 => in.readBoolean()
+    case 7 => in.readShort()
+    case 8 => in.readByte()
+    case 9 => in.readChar()
+    case 10 => db.getNodeById(in.readLong())
+    case 11 => db.getRelationshipById(in.readLong())
+    case 12 => PathImpl((0 until in.readInt()).map(i => readValue(in).asInstanceOf[PropertyContainer]): _*)
+    case 13 => ParameterValue(readValue(in))
+    case 14 =>
+      val componentType = componentTypeFor(in.readUTF())
+      val length = in.readInt()
+      val array = ReflectArray.newInstance(componentType, length)
+      (0 until length).foreach(i => ReflectArray.set(array, i, readValue(in)))
+      array
+    case 15 => (0 until in.readInt()).map(i => (readValue(in), readValue(in))).toMap
+    case 16 => (0 until in.readInt()).map(i => readValue(in)).toList
+  }
+
+  private def componentTypeFor(name: String): Class[_] = name match {
+    case "int" => classOf[Int]
+    case "long" => classOf[Long]
+    case "double" => classOf[Double]
+    case "float" => classOf[Float]
+    case "boolean" => classOf[Boolean]
+    case "short" => classOf[Short]
+    case "byte" => classOf[Byte]
+    case "char" => classOf[Char]
+    case _ => Class.forName(name)
+  }
+
+  private def writeString(out: DataOutputStream, value: String) {
+    out.writeInt(value.length)
+    out.writeChars(value)
+  }
+
+  private def readString(in: DataInputStream) = {
+    val chars = new Array[Char](in.readInt())
+    var i = 0
+    while (i < chars.length) {
+      chars(i) = in.readChar()
+      i += 1
+    }
+    new String(chars)
+  }
+}
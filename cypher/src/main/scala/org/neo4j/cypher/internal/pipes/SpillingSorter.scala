@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.pipes
+
+import collection.mutable.{ArrayBuffer, ListBuffer}
+import java.util.{Comparator, PriorityQueue}
+
+/**
+ * Sorts rows like {@code sortWith} does, but keeps at most {@code threshold}
+ * rows in memory. When that many rows have been read they are sorted and
+ * written to a {@link SpillFile} as a run, and when all rows have been read
+ * the runs are merged. Rows that compare equal keep the order they came in.
+ * If a row can't be written to a spill file everything is sorted in memory.
+ */
+class SpillingSorter(state: QueryState, threshold: Int, lessThan: (ExecutionContext, ExecutionContext) => Boolean) {
+
+  def sort(input: TraversableOnce[ExecutionContext]): Iterator[ExecutionContext] = {
+    val buffer = new ArrayBuffer[ExecutionContext]()
+    val runs = new ListBuffer[SpillFile]()
+    var spill = threshold > 0
+
+    input.foreach(row => {
+      buffer += row
+      if (spill && buffer.size >= threshold) {
+        try {
+          runs += writeRun(buffer.sortWith(lessThan), row)
+          buffer.clear()
+        } catch {
+          case e: CantSpillException =>
+            spill = false
+            buffer.prependAll(runs.flatMap(_.rows))
+            runs.clear()
+        }
+      }
+    })
+
+    if (runs.isEmpty) {
+      buffer.toList.sortWith(lessThan).iterator
+    } else {
+      new MergedRuns(runs.toList, buffer.sortWith(lessThan).toList)
+    }
+  }
+
+  private def writeRun(rows: Seq[ExecutionContext], template: ExecutionContext) = {
+    val run = state.spillFiles.create(state.db, template)
+    try {
+      rows.foreach(run.write)
+    } catch {
+      case e: CantSpillException =>
+        run.delete()
+        throw e
+    }
+    run
+  }
+
+  private class MergedRuns(runs: List[SpillFile], last: List[ExecutionContext]) extends Iterator[ExecutionContext] {
+    private val sources = (runs.map(_.rows) :+ last.iterator).toIndexedSeq
+    private val heads = new PriorityQueue[(ExecutionContext, Int)](sources.size, new Comparator[(ExecutionContext, Int)] {
+      def compare(a: (ExecutionContext, Int), b: (ExecutionContext, Int)) =
+        if (lessThan(a._1, b._1)) -1
+        else if (lessThan(b._1, a._1)) 1
+        else a._2.compareTo(b._2)
+    })
+
+    sources.zipWithIndex.foreach {
+      case (source, index) => if (source.hasNext) heads.add((source.next(), index))
+    }
+
+    def hasNext = !heads.isEmpty
+
+    def next(): ExecutionContext = {
+      if (heads.isEmpty)
+        throw new NoSuchElementException("No more rows")
+
+      val (row, index) = heads.poll()
+      val source = sources(index)
+      if (source.hasNext) heads.add((source.next(), index))
+      row
+    }
+  }
+}
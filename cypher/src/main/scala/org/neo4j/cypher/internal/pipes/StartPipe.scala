@@ -19,13 +19,16 @@
  */
 package org.neo4j.cypher.internal.pipes
 
-import org.neo4j.graphdb.{Relationship, Node, PropertyContainer}
+import org.neo4j.graphdb.{GraphDatabaseService, Relationship, Node, PropertyContainer}
 import java.lang.String
 import org.neo4j.cypher.internal.symbols.{AnyType, NodeType, RelationshipType, Identifier}
 import collection.mutable.Map
 import collection.{Traversable, Iterable}
+import collection.JavaConverters._
+import org.neo4j.kernel.GraphDatabaseAPI
+import org.neo4j.tooling.GlobalGraphOperations
 
-abstract class StartPipe[T <: PropertyContainer](inner: Pipe, name: String, createSource: ExecutionContext => Iterable[T]) extends Pipe {
+abstract class StartPipe[T <: PropertyContainer](val inner: Pipe, name: String, createSource: ExecutionContext => Iterable[T]) extends Pipe {
   def this(inner: Pipe, name: String, sourceIterable: Iterable[T]) = this (inner, name, m => sourceIterable)
 
   def identifierType: AnyType
@@ -33,16 +36,18 @@ abstract class StartPipe[T <: PropertyContainer](inner: Pipe, name: String, crea
   val symbols = inner.symbols.add(Identifier(name, identifierType))
 
 
-  def createResults(state: QueryState): Traversable[ExecutionContext] = {
+  def createResults(state: QueryState): Iterator[ExecutionContext] = {
     val map = inner.createResults(state).flatMap(ctx => {
-      val source: Iterable[T] = createSource(ctx)
-      source.map(x => {
+      val source: Iterable[T] = sourceFor(ctx, state)
+      source.iterator.map(x => {
         ctx.newWith(name -> x)
       })
     })
     map
   }
 
+  protected def sourceFor(ctx: ExecutionContext, state: QueryState): Iterable[T] = createSource(ctx)
+
   def visibleName: String
 
   override def executionPlan(): String = inner.executionPlan() + "\r\n" + visibleName + "(" + name + ")"
@@ -60,4 +65,43 @@ class RelationshipStartPipe(inner: Pipe, name: String, createSource: ExecutionCo
   def identifierType = RelationshipType()
 
   def visibleName = "Rels"
-}
\ No newline at end of file
+}
+
+/*
+Reads all nodes or all relationships of the graph. When the query state has an id range, only the ids in that range
+are read, see ParallelScan.
+*/
+trait ScanPipe[T <: PropertyContainer] extends StartPipe[T] {
+  def graph: GraphDatabaseService
+
+  def highestPossibleId: Long
+
+  def inRange(range: IdRange): Iterable[T]
+
+  override protected def sourceFor(ctx: ExecutionContext, state: QueryState): Iterable[T] = state.partition match {
+    case Some(range) => inRange(range)
+    case None => super.sourceFor(ctx, state)
+  }
+
+  protected def nodeManager = graph.asInstanceOf[GraphDatabaseAPI].getNodeManager
+}
+
+class AllNodesPipe(inner: Pipe, name: String, val graph: GraphDatabaseService)
+  extends NodeStartPipe(inner, name, m => GlobalGraphOperations.at(graph).getAllNodes.asScala)
+  with ScanPipe[Node] {
+  def highestPossibleId = nodeManager.getHighestPossibleIdInUse(classOf[Node])
+
+  def inRange(range: IdRange) = new Iterable[Node] {
+    def iterator = nodeManager.getAllNodes(range.start, range.end).asScala
+  }
+}
+
+class AllRelationshipsPipe(inner: Pipe, name: String, val graph: GraphDatabaseService)
+  extends RelationshipStartPipe(inner, name, m => GlobalGraphOperations.at(graph).getAllRelationships.asScala)
+  with ScanPipe[Relationship] {
+  def highestPossibleId = nodeManager.getHighestPossibleIdInUse(classOf[Relationship])
+
+  def inRange(range: IdRange) = new Iterable[Relationship] {
+    def iterator = nodeManager.getAllRelationships(range.start, range.end).asScala
+  }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.pipes
+
+import scala.math.signum
+import org.neo4j.cypher.internal.commands.{Expression, SortItem}
+import java.lang.String
+import java.util.{Comparator, PriorityQueue}
+import org.neo4j.cypher.internal.Comparer
+
+/**
+ * Sorts and slices in one go, for ORDER BY together with LIMIT. Instead of
+ * sorting all rows, only the skip + limit first ones are kept, in a bounded
+ * heap with the last of them on top. Rows that compare equal keep the order
+ * they came in, like they do in the SortPipe.
+ */
+class TopPipe(source: Pipe, sortDescription: List[SortItem], skip: Option[Expression], limit: Expression)
+  extends Pipe with Comparer {
+  val symbols = source.symbols
+
+  assertDependenciesAreMet()
+
+  def createResults(state: QueryState): Iterator[ExecutionContext] = {
+    val input = source.createResults(state)
+    if (!input.hasNext)
+      return Iterator.empty
+
+    val first = input.next()
+    def asInt(v: Expression) = v(first).asInstanceOf[Int]
+    val start = skip.map(asInt).getOrElse(0)
+    val size = start.toLong + asInt(limit)
+    if (size <= 0)
+      return Iterator.empty
+    if (size > Int.MaxValue)
+      return (Iterator(first) ++ input).toList.sortWith((a, b) => compareBy(a, b, sortDescription) < 0).iterator.drop(start)
+
+    val k = size.toInt
+    val top = new PriorityQueue[Row](math.min(k, 1024), new Comparator[Row] {
+      def compare(a: Row, b: Row) = -compareRows(a, b)
+    })
+
+    var count = 0L
+    (Iterator(first) ++ input).foreach(ctx => {
+      val row = new Row(ctx, count)
+      count += 1
+      if (top.size < k) {
+        top.add(row)
+      } else if (compareRows(row, top.peek()) < 0) {
+        top.poll()
+        top.add(row)
+      }
+    })
+
+    val result = new Array[Row](top.size)
+    var i = result.length - 1
+    while (i >= 0) {
+      result(i) = top.poll()
+      i -= 1
+    }
+    result.iterator.drop(start).map(_.ctx)
+  }
+
+  private class Row(val ctx: ExecutionContext, val seq: Long)
+
+  private def compareRows(a: Row, b: Row): Int = {
+    val order = compareBy(a.ctx, b.ctx, sortDescription)
+    if (order != 0) order else a.seq.compareTo(b.seq)
+  }
+
+  private def compareBy(a: ExecutionContext, b: ExecutionContext, order: List[SortItem]): Int = order match {
+    case Nil => 0
+    case head :: tail => {
+      val key = head.expression.identifier.name
+      val result = signum(compare(a(key), b(key)))
+      if (result == 0) compareBy(a, b, tail)
+      else if (head.ascending) result
+      else -result
+    }
+  }
+
+  override def executionPlan(): String = {
+    val info = skip match {
+      case None => "Limit: " + limit.toString()
+      case Some(s) => "Skip: " + s.toString() + ", " + "Limit: " + limit.toString()
+    }
+    source.executionPlan() + "\r\nTop(" + sortDescription.mkString(",") + ", " + info + ")"
+  }
+
+  private def assertDependenciesAreMet() {
+    sortDescription.map(_.expression.identifier).foreach(source.symbols.assertHas)
+  }
+}
@@ -32,6 +32,13 @@ abstract class AggregationFunction {
    */
   def apply(data: Map[String, Any])
 
+  /**
+   * Adds what another instance of the same function has aggregated, from
+   * other rows. Rows of the other function are taken to come after the rows
+   * of this one.
+   */
+  def combine(other: AggregationFunction)
+
   /**
    * The aggregated result.
    */
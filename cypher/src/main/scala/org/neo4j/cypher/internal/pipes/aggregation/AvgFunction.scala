@@ -32,6 +32,12 @@ class AvgFunction(val value: Expression)
   private var count: Int = 0
   private var sofar: Any = 0
 
+  def combine(other: AggregationFunction) {
+    val avg = other.asInstanceOf[AvgFunction]
+    count += avg.count
+    sofar = plus(sofar, avg.sofar)
+  }
+
   def result =
     if (count > 0)
       divide(sofar, count)
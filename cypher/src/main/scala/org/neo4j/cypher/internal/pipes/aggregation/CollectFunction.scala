@@ -31,5 +31,9 @@ class CollectFunction(value:Expression) extends AggregationFunction {
     collection += value(data)
   }
 
+  def combine(other: AggregationFunction) {
+    collection ++= other.asInstanceOf[CollectFunction].collection
+  }
+
   def result: Any = collection.toSeq
 }
\ No newline at end of file
@@ -32,5 +32,9 @@ class CountFunction(value: Expression) extends AggregationFunction {
     }
   }
 
+  def combine(other: AggregationFunction) {
+    count += other.asInstanceOf[CountFunction].count
+  }
+
   def result: Long = count
 }
\ No newline at end of file
@@ -27,6 +27,10 @@ class CountStarFunction extends AggregationFunction {
     count += 1
   }
 
+  def combine(other: AggregationFunction) {
+    count += other.asInstanceOf[CountStarFunction].count
+  }
+
   def result: Long = count
 }
 
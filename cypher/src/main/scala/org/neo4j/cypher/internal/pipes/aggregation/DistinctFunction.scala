@@ -20,25 +20,44 @@
 package org.neo4j.cypher.internal.pipes.aggregation
 
 import org.neo4j.cypher.internal.commands.Expression
+import org.neo4j.cypher.InternalException
 import collection.Map
+import collection.mutable.ListBuffer
 
-class DistinctFunction(value: Expression, inner: AggregationFunction) extends AggregationFunction {
+class DistinctFunction(value: Expression, inner: AggregationFunction, keepRows: Boolean = false) extends AggregationFunction {
   val seen = scala.collection.mutable.Set[Any]()
   var seenNull = false
 
+  // Only kept when this function is to be combined: the first row of every value seen, in the order they came in
+  private val firstRows = if (keepRows) Some(ListBuffer[(Any, Map[String, Any])]()) else None
+
   def apply(m: Map[String, Any]) {
-    val data = value(m)
+    add(value(m), m)
+  }
 
-    if (data == null) {
-      if (!seenNull) {
-        seenNull = true
-        inner(m)
+  def combine(other: AggregationFunction) {
+    other.asInstanceOf[DistinctFunction].firstRows match {
+      case Some(rows) => rows.foreach {
+        case (data, m) => add(data, m)
       }
-    } else if (!seen.contains(data)) {
-      seen += data
+      case None => throw new InternalException("Only distinct functions created for partial aggregation can be combined")
+    }
+  }
+
+  private def add(data: Any, m: Map[String, Any]) {
+    if (firstTimeSeen(data)) {
+      firstRows.foreach(_ += data -> m)
       inner(m)
     }
   }
 
+  private def firstTimeSeen(data: Any): Boolean = if (data == null) {
+    val first = !seenNull
+    seenNull = true
+    first
+  } else {
+    seen.add(data)
+  }
+
   def result: Any = inner.result
-}
\ No newline at end of file
+}
@@ -41,6 +41,13 @@ trait MinMax extends AggregationFunction with Comparer {
     }
   }
 
+  def combine(other: AggregationFunction) {
+    other.result match {
+      case null =>
+      case x => checkIfLargest(x)
+    }
+  }
+
   private def checkIfLargest(value: Any) {
     if (biggestSeen == null) {
       biggestSeen = value
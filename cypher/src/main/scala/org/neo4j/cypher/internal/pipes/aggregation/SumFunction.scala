@@ -36,4 +36,8 @@ class SumFunction(val value: Expression)
       result = plus(result, number)
     })
   }
+
+  def combine(other: AggregationFunction) {
+    result = plus(result, other.result)
+  }
 }
\ No newline at end of file
@@ -40,13 +40,13 @@ class DoubleOptionalPatternMatcher(bindings: Map[String, MatchingPair],
 
   private lazy val optionalRels: Seq[String] = doubleOptionalPaths.map(_.relationshipName)
 
-  override protected def traverseNextSpecificNode[U](remaining: Set[MatchingPair],
-                                                     history: History,
-                                                     yielder: (Map[String, Any]) => U,
-                                                     current: MatchingPair,
-                                                     leftToDoAfterThisOne: Set[MatchingPair],
-                                                     alreadyInExtraWork: Boolean): Boolean = {
-    val initialResult = super.traverseNextSpecificNode(remaining, history, yielder, current, leftToDoAfterThisOne, alreadyInExtraWork = false)
+  override protected def traverseNextSpecificNode(remaining: Set[MatchingPair],
+                                                  history: History,
+                                                  accept: (Map[String, Any]) => Boolean,
+                                                  current: MatchingPair,
+                                                  leftToDoAfterThisOne: Set[MatchingPair],
+                                                  alreadyInExtraWork: Boolean): Stream[Option[Map[String, Any]]] = {
+    val initialResult = super.traverseNextSpecificNode(remaining, history, accept, current, leftToDoAfterThisOne, alreadyInExtraWork = false)
 
     // To prevent going around for infinity, we check that we are not already checking for double optionals
     if (includeOptionals && !alreadyInExtraWork) {
@@ -56,9 +56,9 @@ class DoubleOptionalPatternMatcher(bindings: Map[String, MatchingPair],
         val (newHead, newRemaining) = remaining.partition(p => p.patternNode.key == next.endNode)
         val remainingPlusCurrent = newRemaining + current
 
-        val myYielder = createYielder(yielder, next.relationshipName) _
+        val myAccept = createAcceptor(accept, next.relationshipName) _
 
-        traverseNextSpecificNode(remaining, history, myYielder, newHead.head, remainingPlusCurrent, alreadyInExtraWork = true) || last
+        last append traverseNextSpecificNode(remaining, history, myAccept, newHead.head, remainingPlusCurrent, alreadyInExtraWork = true)
       })
 
       extendedCheck
@@ -75,12 +75,12 @@ class DoubleOptionalPatternMatcher(bindings: Map[String, MatchingPair],
       standingOnOptionalPath && endPointStillToDo
     })
 
-  private def createYielder[A](inner: Map[String, Any] => A, relName: String)(m: Map[String, Any]) {
+  private def createAcceptor(inner: Map[String, Any] => Boolean, relName: String)(m: Map[String, Any]): Boolean = {
     m.get(relName) match {
       case Some(null) if !allOptionalRelsAreNull(m) => inner(m) /*We should only yield if we have found a null for
                                                                   this relationship, and not all optional relationships
                                                                   are null*/
-      case _                                        =>
+      case _                                        => false
     }
   }
 
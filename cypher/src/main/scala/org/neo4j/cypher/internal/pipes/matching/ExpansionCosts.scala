@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.pipes.matching
+
+import org.neo4j.graphdb.{Relationship, Node}
+import org.neo4j.kernel.GraphDatabaseAPI
+import collection.mutable.{Map => MutableMap}
+import collection.JavaConverters._
+
+/*
+Estimates how many relationships the pattern matcher has to look at to expand a pattern relationship from a node,
+so that it can start with the cheapest bound node and the cheapest relationship.
+
+The relationships of the node that fit the types and direction of the pattern relationship are counted, up to a
+limit. The kernel loads the relationships of a node in batches, so counting them is about as expensive as looking at
+the first batch, which the expansion itself then finds in the cache. Nodes with more relationships than the limit
+are all equally expensive, expanding from any of them is a fan-out.
+
+Variable length relationships are expanded by walking as many steps as they are allowed to, so their cost is the
+number of relationships of the node, times the average number of relationships per node in the graph for every
+further step. That average comes from the number of node and relationship ids in use.
+*/
+class ExpansionCosts {
+  private val costs = MutableMap[(Node, String), Long]()
+  private var averageDegree: Option[Double] = None
+
+  def apply(pair: MatchingPair, pRel: PatternRelationship): Long = {
+    val (pNode, node) = pair.getPatternAndGraphPoint
+    costs.getOrElseUpdate((node, pRel.key), estimate(pNode, node, pRel))
+  }
+
+  private def estimate(pNode: PatternNode, node: Node, pRel: PatternRelationship): Long = {
+    val degree = countRelationships(pRel.relationshipsOf(pNode, node).asScala.iterator)
+
+    pRel match {
+      case varLength: VariableLengthPatternRelationship =>
+        val furtherSteps = varLength.maxHops.getOrElse(ExpansionCosts.UnboundedDepth) - 1
+        val fanOut = math.max(1.0, averageDegreeOf(node))
+        math.min(Long.MaxValue / 2, math.ceil(degree * math.pow(fanOut, furtherSteps)).toLong)
+      case _ => degree
+    }
+  }
+
+  private def countRelationships(relationships: Iterator[Relationship]): Long = {
+    var count = 0L
+    while (count < ExpansionCosts.Limit && relationships.hasNext) {
+      relationships.next()
+      count += 1
+    }
+    count
+  }
+
+  private def averageDegreeOf(node: Node): Double = averageDegree.getOrElse {
+    val degree = node.getGraphDatabase match {
+      case db: GraphDatabaseAPI =>
+        val nodes = db.getNodeManager.getNumberOfIdsInUse(classOf[Node])
+        val relationships = db.getNodeManager.getNumberOfIdsInUse(classOf[Relationship])
+        2.0 * relationships / math.max(1L, nodes)
+      case _ => ExpansionCosts.Limit.toDouble
+    }
+    averageDegree = Some(degree)
+    degree
+  }
+}
+
+object ExpansionCosts {
+  val Limit = 50
+
+  // Variable length relationships without a max length are expected to be walked this far
+  val UnboundedDepth = 3
+}
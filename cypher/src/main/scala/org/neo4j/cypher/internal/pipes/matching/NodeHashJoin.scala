@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.pipes.matching
+
+import org.neo4j.graphdb.{DynamicRelationshipType, Relationship, Direction, Node}
+import collection.mutable.{ArrayBuffer, HashMap}
+import collection.JavaConverters._
+import org.neo4j.cypher.internal.symbols.{RelationshipType, NodeType, Identifier}
+
+/*
+Following the relationships of a bound node along one pattern relationship
+*/
+case class JoinStep(start: String, relName: String, relTypes: Seq[String], dir: Direction, optional: Boolean = false) {
+  private lazy val neo4jRelTypes = relTypes.map(t => DynamicRelationshipType.withName(t))
+
+  def relationships(node: Node): Iterator[Relationship] = (if (relTypes.isEmpty)
+    node.getRelationships(dir)
+  else
+    node.getRelationships(dir, neo4jRelTypes: _*)).asScala.iterator
+}
+
+/*
+Joins bound nodes on both sides of a node they are both related to: a-[r1]-x-[r2]-b. Walking out from every a and
+checking which of the b's are reached costs the fan-out of a for every combination of a and b. Instead, the
+relationships of every b are followed once, and kept in a hash table on the id of the node they lead to. Every a is
+then expanded once, and the nodes it reaches are looked up in the table.
+
+The right relationship can be optional. Then every right node that isn't related to a meeting node still gives a
+row, with the relationship set to null, just like the pattern matcher does.
+
+Just like the pattern matcher, the same relationship is never used on both sides.
+*/
+class NodeHashJoin(left: JoinStep, right: JoinStep, joinNode: String) {
+  case class Table(rightNodes: Seq[Node], byMeetingNode: collection.Map[Long, Seq[(Node, Relationship)]])
+
+  def identifiers: Seq[Identifier] = Seq(
+    Identifier(left.relName, RelationshipType()),
+    Identifier(joinNode, NodeType()),
+    Identifier(right.start, NodeType()),
+    Identifier(right.relName, RelationshipType()))
+
+  def buildTable(rightNodes: Iterator[Node]): Table = {
+    val nodes = new ArrayBuffer[Node]()
+    val table = new HashMap[Long, ArrayBuffer[(Node, Relationship)]]()
+    rightNodes.foreach(node => {
+      // The nodes themselves are only needed to fill in the missing optional matches
+      if (right.optional) {
+        nodes += node
+      }
+      right.relationships(node).foreach(rel => {
+        table.getOrElseUpdate(rel.getOtherNode(node).getId, new ArrayBuffer[(Node, Relationship)]()) += (node -> rel)
+      })
+    })
+    Table(nodes, table)
+  }
+
+  def join(leftNode: Node, table: Table): Iterator[Seq[(String, Any)]] =
+    left.relationships(leftNode).flatMap(leftRel => {
+      val meeting = leftRel.getOtherNode(leftNode)
+      val matches = table.byMeetingNode.getOrElse(meeting.getId, Seq()).filter(_._2 != leftRel)
+
+      def row(rightNode: Node, rightRel: Relationship) =
+        Seq(left.relName -> leftRel, joinNode -> meeting, right.start -> rightNode, right.relName -> rightRel)
+
+      if (right.optional) {
+        // A right node that is given more than once is in the table more than once, but should match once per time
+        val relsByNode = matches.groupBy(_._1).mapValues(_.map(_._2).distinct)
+        table.rightNodes.iterator.flatMap(rightNode => relsByNode.get(rightNode) match {
+          case Some(rels) => rels.iterator.map(rel => row(rightNode, rel))
+          case None => Iterator(row(rightNode, null))
+        })
+      } else {
+        matches.iterator.map {
+          case (rightNode, rightRel) => row(rightNode, rightRel)
+        }
+      }
+    })
+}
@@ -34,7 +34,7 @@ class PatterMatchingBuilder(patternGraph: PatternGraph, predicates: Seq[Predicat
       map(patternGraph(_).asInstanceOf[PatternRelationship]).
       filter(_.dir == Direction.BOTH)
 
-    val mandatoryPattern: Traversable[Map[String, Any]] = if (undirectedBoundRelationships.isEmpty) {
+    val mandatoryPattern: Stream[Map[String, Any]] = if (undirectedBoundRelationships.isEmpty) {
       createPatternMatcher(boundPairs, false, sourceRow)
     } else {
       val boundRels: Seq[Map[String, MatchingPair]] = createListOfBoundRelationshipsWithHangingNodes(undirectedBoundRelationships, bindings)
@@ -78,16 +78,16 @@ class PatterMatchingBuilder(patternGraph: PatternGraph, predicates: Seq[Predicat
         result.flatMap(r => element.map(e => e :: r))
     ).toSeq
 
-  private def createPatternMatcher(boundPairs: Map[String, MatchingPair], includeOptionals: Boolean, source: Map[String, Any]): Traversable[Map[String, Any]] = {
+  private def createPatternMatcher(boundPairs: Map[String, MatchingPair], includeOptionals: Boolean, source: Map[String, Any]): Stream[Map[String, Any]] = {
     val patternMatcher = if (patternGraph.hasDoubleOptionals)
       new DoubleOptionalPatternMatcher(boundPairs, predicates, includeOptionals, source, patternGraph.doubleOptionalPaths)
     else
       new PatternMatcher(boundPairs, predicates, includeOptionals, source)
 
     if (includeOptionals)
-      patternMatcher.map(matchedGraph => matchedGraph ++ createNullValuesForOptionalElements(matchedGraph))
+      patternMatcher.matches.map(matchedGraph => matchedGraph ++ createNullValuesForOptionalElements(matchedGraph))
     else
-      patternMatcher
+      patternMatcher.matches
   }
 
   private def extractBoundMatchingPairs(bindings: Map[String, Any]): Map[String, MatchingPair] = bindings.flatMap {
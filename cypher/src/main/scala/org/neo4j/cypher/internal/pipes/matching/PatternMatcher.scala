@@ -27,66 +27,104 @@ class PatternMatcher(bindings: Map[String, MatchingPair], predicates: Seq[Predic
   extends Traversable[Map[String, Any]] {
   val boundNodes = bindings.filter(_._2.patternElement.isInstanceOf[PatternNode])
   val boundRels = bindings.filter(_._2.patternElement.isInstanceOf[PatternRelationship])
+  private val costs = new ExpansionCosts
 
   def foreach[U](f: (Map[String, Any]) => U) {
+    matches.foreach(f)
+  }
+
+  /*
+  The matches are produced lazily. Only as much of the graph is explored as is needed to produce the
+  matches that are actually consumed, so a consumer that stops early saves the rest of the work.
+  */
+  def matches: Stream[Map[String, Any]] = {
     debug("startPatternMatching")
 
-    traverseNode(boundNodes.values.toSet, new InitialHistory(source), f)
+    traverseNode(boundNodes.values.toSet, new InitialHistory(source), _ => true).filter(_.isDefined).map(_.get)
   }
 
-  protected def traverseNextSpecificNode[U](remaining: Set[MatchingPair],
-                                            history: History,
-                                            yielder: (Map[String, Any]) => U,
-                                            current: MatchingPair,
-                                            leftToDoAfterThisOne: Set[MatchingPair],
-                                            alreadyInExtraWork: Boolean): Boolean = {
+  /*
+  The traversal methods return the subgraphs they reach, one element per subgraph. An element is empty when the
+  subgraph was reached, but turned down by the accept function. That way, callers can still see that something
+  was reached, which is what decides if an optional relationship should be matched with null instead.
+  */
+  protected def traverseNextSpecificNode(remaining: Set[MatchingPair],
+                                         history: History,
+                                         accept: (Map[String, Any]) => Boolean,
+                                         current: MatchingPair,
+                                         leftToDoAfterThisOne: Set[MatchingPair],
+                                         alreadyInExtraWork: Boolean): Stream[Option[Map[String, Any]]] = {
     debug(current, history, leftToDoAfterThisOne)
 
     if (!current.matchesBoundEntity(boundNodes)) {
       debug("Didn't match bound node")
-      return false
+      return Stream.empty
     }
 
     val newHistory = history.add(current)
     if (!isMatchSoFar(newHistory)) {
       debug("failed subgraph because of predicate")
-      return false
+      return Stream.empty
     }
 
     val notYetVisited: List[PatternRelationship] = getPatternRelationshipsNotYetVisited(current.patternNode, history)
 
     notYetVisited match {
-      case List() => traverseNextNodeOrYield(leftToDoAfterThisOne, newHistory, yielder)
-      case List(single) => traverseRelationship(current, single, newHistory, leftToDoAfterThisOne, yielder)
-      case _ => traverseRelationship(current, notYetVisited.head, newHistory, remaining, yielder)
+      case List() => traverseNextNodeOrYield(leftToDoAfterThisOne, newHistory, accept)
+      case List(single) => traverseRelationship(current, single, newHistory, leftToDoAfterThisOne, accept)
+      case _ => traverseRelationship(current, cheapestRelationship(current, notYetVisited), newHistory, remaining, accept)
     }
   }
 
-  private def traverseNode[U](remaining: Set[MatchingPair],
-                              history: History,
-                              yielder: Map[String, Any] => U): Boolean = {
+  private def traverseNode(remaining: Set[MatchingPair],
+                           history: History,
+                           accept: Map[String, Any] => Boolean): Stream[Option[Map[String, Any]]] = {
+
+    val current = cheapestNode(remaining, history)
+    val leftToDoAfterThisOne = remaining - current
+
+    traverseNextSpecificNode(remaining, history, accept, current, leftToDoAfterThisOne, false)
+  }
+
+  /*
+  The order in which nodes and relationships are expanded doesn't change what is matched, only how much of the
+  graph has to be looked at. Expanding the node with the fewest relationships to follow first keeps the number of
+  partial matches down, instead of fanning out from a dense node and filtering most of it away afterwards.
+  Optional relationships are left for last, since they can't rule anything out.
+  */
+  private[matching] def cheapestNode(remaining: Set[MatchingPair], history: History): MatchingPair =
+    if (remaining.size == 1) {
+      remaining.head
+    } else {
+      remaining.minBy(pair => getPatternRelationshipsNotYetVisited(pair.patternNode, history) match {
+        case List() => 0L
+        case rels => costOf(pair, cheapestRelationship(pair, rels))
+      })
+    }
 
-    val current = remaining.head
-    val leftToDoAfterThisOne = remaining.tail
+  private[matching] def cheapestRelationship(current: MatchingPair, rels: List[PatternRelationship]): PatternRelationship =
+    rels.minBy(rel => (rel.optional, costOf(current, rel)))
 
-    traverseNextSpecificNode(remaining, history, yielder, current, leftToDoAfterThisOne, false)
+  private def costOf(pair: MatchingPair, rel: PatternRelationship): Long = pair.entity match {
+    case _: Node => costs(pair, rel)
+    case _ => 0L
   }
 
-  private def traverseNextNodeFromRelationship[U](rel: GraphRelationship, gNode: Node, nextPNode: PatternNode, currentRel: PatternRelationship, history: History, remaining: Set[MatchingPair], yielder: (Map[String, Any]) => U): Boolean = {
+  private def traverseNextNodeFromRelationship(rel: GraphRelationship, gNode: Node, nextPNode: PatternNode, currentRel: PatternRelationship, history: History, remaining: Set[MatchingPair], accept: (Map[String, Any]) => Boolean): Stream[Option[Map[String, Any]]] = {
     debug(rel, gNode, nextPNode, currentRel, history, remaining)
     val current = MatchingPair(currentRel, rel)
 
     val boundEntity = current.matchesBoundEntity(boundRels)
     if (!boundEntity) {
       debug("Didn't match bound relationship")
-      false
+      Stream.empty
     } else {
 
       val newHistory = history.add(current)
       
       currentRel.predicate match {
         case True() =>
-        case p => if(!p.isMatch(newHistory.toMap)) return false
+        case p => if(!p.isMatch(newHistory.toMap)) return Stream.empty
       } 
 
       if (isMatchSoFar(newHistory)) {
@@ -95,12 +133,12 @@ class PatternMatcher(bindings: Map[String, MatchingPair], predicates: Seq[Predic
         val nextPair = MatchingPair(nextPNode, nextNode)
 
         remaining.find(_.patternElement.key == nextPNode.key) match {
-          case None => traverseNode(remaining ++ Set(nextPair), newHistory, yielder)
+          case None => traverseNode(remaining ++ Set(nextPair), newHistory, accept)
           case Some(x) => if (x.entity == nextNode)
-            traverseNode(remaining ++ Set(nextPair), newHistory, yielder)
+            traverseNode(remaining ++ Set(nextPair), newHistory, accept)
           else {
             debug("other side of relationship already found, and doesn't match")
-            false
+            Stream.empty
           }
         }
 
@@ -108,7 +146,7 @@ class PatternMatcher(bindings: Map[String, MatchingPair], predicates: Seq[Predic
       }
       else {
         debug("failed because of a predicate")
-        false
+        Stream.empty
       }
     }
 
@@ -121,11 +159,11 @@ class PatternMatcher(bindings: Map[String, MatchingPair], predicates: Seq[Predic
     }
   }
 
-  private def traverseRelationship[U](currentNode: MatchingPair,
-                                      currentRel: PatternRelationship,
-                                      history: History,
-                                      remaining: Set[MatchingPair],
-                                      yielder: (Map[String, Any]) => U): Boolean = {
+  private def traverseRelationship(currentNode: MatchingPair,
+                                   currentRel: PatternRelationship,
+                                   history: History,
+                                   remaining: Set[MatchingPair],
+                                   accept: (Map[String, Any]) => Boolean): Stream[Option[Map[String, Any]]] = {
     debug(currentNode, currentRel, history, remaining)
 
     val (pNode, gNode) = currentNode.getPatternAndGraphPoint
@@ -139,21 +177,22 @@ class PatternMatcher(bindings: Map[String, MatchingPair], predicates: Seq[Predic
 
     /*
      We need to know if any of these sub-calls results in a yield. If none do, and we're
-     looking at an optional pattern relationship, we'll output a null as match.
+     looking at an optional pattern relationship, we'll output a null as match. Only the
+     first yield is needed to know that, the rest is left for when it is consumed.
     */
-    val yielded = notVisitedRelationships.map(rel => traverseNextNodeFromRelationship(rel, gNode, nextPNode, currentRel, history, remaining, yielder)).foldLeft(false)(_ || _)
+    val matches = notVisitedRelationships.toStream.flatMap(rel => traverseNextNodeFromRelationship(rel, gNode, nextPNode, currentRel, history, remaining, accept))
 
-    if (yielded) {
-      return true
+    if (matches.nonEmpty) {
+      return matches
     }
 
     if (currentRel.optional && includeOptionals) {
       debug("trying with null for " + currentRel)
-      return traverseNextNodeOrYield(remaining, history.add(currentNode).add(MatchingPair(currentRel, null)), yielder)
+      return traverseNextNodeOrYield(remaining, history.add(currentNode).add(MatchingPair(currentRel, null)), accept)
     }
 
     debug("failed to find matching relationship")
-    false
+    Stream.empty
   }
 
   private def isMatchSoFar(history: History): Boolean = {
@@ -162,22 +201,21 @@ class PatternMatcher(bindings: Map[String, MatchingPair], predicates: Seq[Predic
     predicate.forall(_.isMatch(m))
   }
 
-  private def traverseNextNodeOrYield[U](remaining: Set[MatchingPair], history: History, yielder: Map[String, Any] => U): Boolean = {
+  private def traverseNextNodeOrYield(remaining: Set[MatchingPair], history: History, accept: Map[String, Any] => Boolean): Stream[Option[Map[String, Any]]] = {
     debug(history, remaining)
 
     if (remaining.isEmpty) {
-      yieldThis(yielder, history)
+      yieldThis(accept, history)
     } else {
-      traverseNode(remaining, history, yielder)
+      traverseNode(remaining, history, accept)
     }
   }
 
-  private def yieldThis[U](yielder: Map[String, Any] => U, history: History): Boolean = {
+  private def yieldThis(accept: Map[String, Any] => Boolean, history: History): Stream[Option[Map[String, Any]]] = {
     val toMap = history.toMap
     debug(history, toMap)
 
-    yielder(toMap)
-    true
+    Stream(if (accept(toMap)) Some(toMap) else None)
   }
 
   private def getPatternRelationshipsNotYetVisited[U](patternNode: PatternNode, history: History): List[PatternRelationship] =
@@ -40,11 +40,7 @@ class PatternRelationship(key: String,
 
   def getGraphRelationships(node: PatternNode, realNode: Node): Seq[GraphRelationship] = {
     
-    val result = (if(relTypes.isEmpty) {
-      realNode.getRelationships(getDirection(node))
-    } else {
-      realNode.getRelationships(getDirection(node), neo4jRelTypes:_*)
-    }).asScala.toStream.map(new SingleGraphRelationship(_))
+    val result = relationshipsOf(node, realNode).asScala.toStream.map(new SingleGraphRelationship(_))
 
     if (startNode == endNode)
       result.filter(r => r.getOtherNode(realNode) == realNode)
@@ -52,6 +48,15 @@ class PatternRelationship(key: String,
       result
   }
 
+  /*
+  The relationships of the node that fit the types and direction of this pattern relationship
+  */
+  def relationshipsOf(node: PatternNode, realNode: Node): java.lang.Iterable[Relationship] = if (relTypes.isEmpty) {
+    realNode.getRelationships(getDirection(node))
+  } else {
+    realNode.getRelationships(getDirection(node), neo4jRelTypes: _*)
+  }
+
   protected def getDirection(node: PatternNode): Direction = {
     dir match {
       case Direction.OUTGOING => if (node == startNode) Direction.OUTGOING else Direction.INCOMING
@@ -98,7 +103,7 @@ class VariableLengthPatternRelationship(pathName: String,
                                         val end: PatternNode,
                                         val relIterable: Option[String],
                                         minHops: Option[Int],
-                                        maxHops: Option[Int],
+                                        val maxHops: Option[Int],
                                         relType: Seq[String],
                                         dir: Direction,
                                         optional: Boolean,
@@ -75,8 +75,8 @@ class SimplePatternMatcherBuilder(pattern: PatternGraph, predicates: Seq[Predica
     setAssociations(sourceRow)
     val result = MutableMaps.create(sourceRow)
     val validPredicates = predicates.filter(p => symbolTable.satisfies(p.dependencies))
-    val startPoint = patternNodes.values.find(_.getAssociation != null).get
-    SimplePatternMatcher.getMatcher.`match`(startPoint, startPoint.getAssociation).asScala.map(patternMatch => {
+    val startPoint = cheapestStartPoint()
+    SimplePatternMatcher.getMatcher.`match`(startPoint, startPoint.getAssociation).asScala.toStream.map(patternMatch => {
       patternNodes.foreach {
         case (key, pn) => result += key -> patternMatch.getNodeFor(pn)
       }
@@ -90,6 +90,19 @@ class SimplePatternMatcherBuilder(pattern: PatternGraph, predicates: Seq[Predica
         null
     }).filter(_ != null)
   }
+
+  /*
+  The matching starts from one of the bound nodes, and finds the others by walking the pattern from there. Starting
+  from the bound node with the fewest relationships to follow keeps the walk from fanning out from a dense node.
+  */
+  private[matching] def cheapestStartPoint(): SimplePatternNode = {
+    val costs = new ExpansionCosts
+    patternNodes.values.filter(_.getAssociation != null).minBy(pn => {
+      val pNode = pattern.patternNodes(pn.getLabel)
+      val start = MatchingPair(pNode, pn.getAssociation)
+      pNode.relationships.map(rel => costs(start, rel)).min
+    })
+  }
 }
 
 object SimplePatternMatcherBuilder {
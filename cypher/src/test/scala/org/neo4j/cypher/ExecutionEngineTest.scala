@@ -20,6 +20,7 @@
 package org.neo4j.cypher
 
 import internal.commands._
+import internal.QueryCacheStatistics
 import org.junit.Assert._
 import java.lang.String
 import scala.collection.JavaConverters._
@@ -2062,4 +2063,102 @@ RETURN x0.name?
     val result = parseAndExecute("START a=node(1),b=node(2) MATCH a-[?]->X<-[?]-b return X").toList
     assert(result === List(Map("X"->null)))
   }
-}
\ No newline at end of file
+
+  @Test
+  def two_start_points_meeting_in_a_node() {
+    val a1 = createNode()
+    val a2 = createNode()
+    val b = createNode()
+    val x1 = createNode()
+    val x2 = createNode()
+    relate(a1, x1)
+    relate(a2, x1)
+    relate(a1, x2)
+    relate(b, x1)
+    relate(b, x2)
+
+    val result = parseAndExecute("START a=node(1,2), b=node(3) MATCH a-->x<--b RETURN a, x, b").toSet
+    assert(result === Set(
+      Map("a" -> a1, "x" -> x1, "b" -> b),
+      Map("a" -> a2, "x" -> x1, "b" -> b),
+      Map("a" -> a1, "x" -> x2, "b" -> b)))
+  }
+
+  @Test
+  def two_start_points_meeting_in_a_node_do_not_share_relationships() {
+    val a = createNode()
+    val x = createNode()
+    relate(a, x)
+
+    val result = parseAndExecute("START a=node(1), b=node(1) MATCH a-->x<--b RETURN x").toList
+    assert(result === List())
+  }
+
+  @Test
+  def two_start_points_meeting_in_a_node_over_an_optional_relationship() {
+    val a = createNode()
+    val b1 = createNode()
+    val b2 = createNode()
+    val x1 = createNode()
+    val x2 = createNode()
+    relate(a, x1)
+    relate(a, x2)
+    val r = relate(b1, x1)
+
+    val expected = Set(
+      Map("x" -> x1, "b" -> b1, "r" -> r),
+      Map("x" -> x2, "b" -> b1, "r" -> null),
+      Map("x" -> x1, "b" -> b2, "r" -> null),
+      Map("x" -> x2, "b" -> b2, "r" -> null))
+
+    assert(parseAndExecute("START a=node(1), b=node(2,3) MATCH a-->x<-[r?]-b RETURN x, b, r").toSet === expected)
+    assert(parseAndExecute("START b=node(2,3), a=node(1) MATCH b-[r?]->x<--a RETURN x, b, r").toSet === expected)
+  }
+
+  @Test
+  def an_optional_relationship_is_not_shared_with_the_other_side_of_the_meeting_node() {
+    val a = createNode()
+    val x = createNode()
+    relate(a, x)
+
+    val result = parseAndExecute("START a=node(1), b=node(1) MATCH a-->x<-[r?]-b RETURN x, r").toList
+    assert(result === List(Map("x" -> x, "r" -> null)))
+  }
+
+  @Test
+  def two_start_points_meeting_in_a_node_are_hash_joined() {
+    createNodes("a", "b")
+
+    assert(engine.prepare("START a=node(1), b=node(2) MATCH a-->x<--b RETURN x").toString.contains("NodeHashJoin"))
+    assert(engine.prepare("START a=node(1), b=node(2) MATCH a-->x<-[?]-b RETURN x").toString.contains("NodeHashJoin"))
+  }
+
+  @Test
+  def patterns_that_go_beyond_the_meeting_node_or_are_optional_on_both_sides_are_not_hash_joined() {
+    createNodes("a", "b")
+
+    assert(!engine.prepare("START a=node(1), b=node(2) MATCH a-->x<--b, x-->y RETURN y").toString.contains("NodeHashJoin"))
+    assert(!engine.prepare("START a=node(1), b=node(2) MATCH a-[?]->x<-[?]-b RETURN x").toString.contains("NodeHashJoin"))
+  }
+
+  @Test
+  def a_result_can_be_dumped_after_it_has_been_iterated_over() {
+    createNodes("a", "b", "c")
+
+    val result = parseAndExecute("start n=node(1,2,3) return n")
+    assert(result.toList.size === 3)
+    assert(result.dumpToString().contains("3 rows"))
+  }
+
+  @Test
+  def a_rewritten_query_that_does_not_parse_is_only_parsed_once() {
+    val statistics = QueryCacheStatistics.forDatabase(graph)
+    val query = "start n=node(0) where n.name = 'Andres' retrun n"
+
+    intercept[SyntaxException](engine.execute(query))
+    val missesAfterFirst = statistics.getMisses
+    intercept[SyntaxException](engine.execute(query))
+
+    assert(statistics.getMisses === missesAfterFirst + 1)
+  }
+}
@@ -23,6 +23,10 @@ import org.scalatest.Assertions
 import org.junit.Test
 import org.junit.Assert._
 import java.util.regex.Pattern
+import scala.collection.JavaConverters._
+import internal.commands.{Literal, SortItem, Entity}
+import internal.pipes.{MutableMaps, QueryState, SlicePipe, SortPipe, FakePipe}
+import collection.mutable.{Map => MutableMap}
 
 class ExecutionResultTest extends ExecutionEngineHelper with Assertions {
   @Test def columnOrderIsPreserved() {
@@ -41,4 +45,30 @@ class ExecutionResultTest extends ExecutionEngineHelper with Assertions {
 
     assertTrue( "Columns did not apperar in the expected order: \n" + result.dumpToString(), pattern.matcher(result.dumpToString()).find() );
   }
-}
\ No newline at end of file
+
+  @Test def streamingIteratorHandsOutAllRows() {
+    val a = createNode("a")
+    val b = createNode("b")
+
+    val result = parseAndExecute("start n=node(1,2) return n")
+
+    assert(result.javaStreamingIterator.asScala.map(_.get("n")).toList === List(a, b))
+  }
+
+  @Test def streamingIteratorHandsOutRowsOfEagerResults() {
+    val result = parseAndExecute("create (a {name:'a'}) return a.name")
+
+    assert(result.javaStreamingIterator.asScala.map(_.get("a.name")).toList === List("a"))
+  }
+
+  @Test def limitedResultDeletesTheSpillFilesOfTheRowsNotRead() {
+    val source = new FakePipe((0 until 100).map(i => MutableMap[String, Any]("x" -> i)))
+    val pipe = new SlicePipe(new SortPipe(source, List(SortItem(Entity("x"), true))), None, Some(Literal(3)))
+    val state = new QueryState(null, MutableMaps.create, spillThreshold = 7)
+
+    val result = new PipeExecutionResult(pipe.createResults(state), pipe.symbols, List("x"), state)
+
+    assert(result.toList.map(_("x")) === List(0, 1, 2))
+    assert(state.spillFiles.size === 0)
+  }
+}
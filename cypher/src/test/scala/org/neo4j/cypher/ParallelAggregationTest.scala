@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher
+
+import org.junit.{After, Before, Test}
+import org.scalatest.junit.JUnitSuite
+import org.neo4j.test.ImpermanentGraphDatabase
+import org.neo4j.graphdb.factory.GraphDatabaseSettings
+import org.neo4j.graphdb.DynamicRelationshipType
+import scala.collection.JavaConverters._
+
+class ParallelAggregationTest extends JUnitSuite {
+  var graph: ImpermanentGraphDatabase = null
+  var engine: ExecutionEngine = null
+
+  // Enough nodes for the scan to be split in a number of id ranges
+  val nodeCount = 50000
+
+  @Before
+  def init() {
+    graph = new ImpermanentGraphDatabase(Map(GraphDatabaseSettings.cypher_parallelism.name() -> "4").asJava)
+    engine = new ExecutionEngine(graph)
+
+    val tx = graph.beginTx()
+    val next = DynamicRelationshipType.withName("NEXT")
+    (1 to nodeCount).foldLeft(graph.getReferenceNode)((previous, i) => {
+      val node = graph.createNode()
+      node.setProperty("type", i % 3)
+      node.setProperty("value", i)
+      previous.createRelationshipTo(node, next)
+      node
+    })
+    tx.success()
+    tx.finish()
+  }
+
+  @After
+  def cleanUp() {
+    graph.shutdown()
+  }
+
+  @Test
+  def aggregates_all_nodes_in_parallel() {
+    val query = "start n=node(*) where has(n.type) return n.type, count(*), sum(n.value), max(n.value)"
+    assert(engine.prepare(query).toString.contains("Parallel(4)"))
+
+    val result = engine.execute(query)
+
+    val expected = (1 to nodeCount).groupBy(_ % 3).map {
+      case (typ, values) => Map("n.type" -> typ, "count(*)" -> values.size.toLong, "sum(n.value)" -> values.sum, "max(n.value)" -> values.max)
+    }.toSet
+
+    assert(result.toSet === expected)
+  }
+
+  @Test
+  def keeps_the_order_of_collect() {
+    val result = engine.execute("start n=node(*) where n.type! = 1 return collect(n.value)").toList
+    assert(result === List(Map("collect(n.value)" -> (1 to nodeCount).filter(_ % 3 == 1))))
+  }
+
+  @Test
+  def aggregates_all_relationships_in_parallel() {
+    val result = engine.execute("start r=rel(*) match a-[r]->b return count(distinct a), count(*)").toList
+    assert(result === List(Map("count(distinct a)" -> nodeCount.toLong, "count(*)" -> nodeCount.toLong)))
+  }
+
+  @Test
+  def sees_the_transaction_of_the_caller() {
+    val tx = graph.beginTx()
+    try {
+      graph.createNode().setProperty("type", 0)
+      val result = engine.execute("start n=node(*) where n.type! = 0 return count(*)").toList
+      assert(result === List(Map("count(*)" -> (nodeCount / 3 + 1).toLong)))
+    } finally {
+      tx.finish()
+    }
+  }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher
+
+import org.scalatest.Assertions
+import org.junit.Test
+
+class ProfilerTest extends ExecutionEngineHelper with Assertions {
+  @Test def profiledQueryGivesTheSameResult() {
+    createNodes("a", "b", "c")
+
+    val result = engine.profile("start n=node(1,2,3) where n.name = 'b' return n.name")
+
+    assert(result.toList === List(Map("n.name" -> "b")))
+  }
+
+  @Test def shouldCountRowsInAndOutOfEveryStep() {
+    createNodes("a", "b", "c")
+
+    val result = engine.profile("start n=node(1,2,3) where n.name = 'b' return n.name")
+    val plan = result.executionPlanDescription()
+
+    assert(plan.rows === 1)
+
+    val filter = steps(plan).find(_.name.startsWith("Filter")).get
+    assert(filter.rowsIn === 3)
+    assert(filter.rows === 1)
+    assert(filter.dbHits >= 3, "reading the name of every node should be counted: " + plan)
+  }
+
+  @Test def shouldStopPullingRowsWhenTheLimitIsReached() {
+    createNodes("a", "b", "c", "d")
+
+    val plan = engine.profile("start n=node(1,2,3,4) return n limit 2").executionPlanDescription()
+
+    assert(plan.rows === 2)
+    assert(steps(plan).find(_.name.startsWith("Nodes")).map(_.rows) === Some(2L))
+  }
+
+  @Test def rowsAreStillAvailableAfterThePlanIsDescribed() {
+    createNodes("a", "b")
+
+    val result = engine.profile("start n=node(1,2) return n.name")
+    result.executionPlanDescription()
+
+    assert(result.toList === List(Map("n.name" -> "a"), Map("n.name" -> "b")))
+  }
+
+  @Test def describesUpdatingQueries() {
+    val result = engine.profile("create (a {name : 'Andres'}) return a.name")
+    val plan = result.executionPlanDescription()
+
+    assert(plan.rows === 1)
+    assert(result.queryStatistics().nodesCreated === 1)
+  }
+
+  @Test(expected = classOf[QueryNotProfiledException]) def queriesThatAreNotProfiledCanNotBeDescribed() {
+    createNodes("a")
+
+    engine.execute("start n=node(1) return n").executionPlanDescription()
+  }
+
+  private def steps(plan: PlanDescription): Seq[PlanDescription] = plan +: plan.children.flatMap(steps)
+}
@@ -61,4 +61,22 @@ class LRUCacheTest extends Assertions {
 
     assertFalse( cache.containsKey("2") );
   }
-}
\ No newline at end of file
+
+  @Test def shouldTellAboutEvictedItems() {
+    var evictedKeys = List[String]()
+    val cache = new LRUCache[String, String](5) {
+      override protected def evicted(key: String, value: String) {
+        evictedKeys = key :: evictedKeys
+      }
+    }
+    fillWithOneToFive(cache)
+
+    cache.getOrElseUpdate("1", "not used")
+    cache.getOrElseUpdate("6", "6")
+    cache.getOrElseUpdate("7", "7")
+
+    assert(evictedKeys === List("3", "2"))
+    assert(cache.get("1") === "1")
+    assert(cache.size === 5)
+  }
+}
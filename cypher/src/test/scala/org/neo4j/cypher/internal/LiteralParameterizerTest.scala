@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal
+
+import org.scalatest.Assertions
+import org.junit.Test
+
+class LiteralParameterizerTest extends Assertions {
+  @Test def replacesStringLiteralsInWhere() {
+    assert(LiteralParameterizer("start n=node(1) where n.name = 'Andres' return n") ===
+      ("start n=node(1) where n.name = {__literal_0} return n", Map("__literal_0" -> "Andres")))
+  }
+
+  @Test def replacesNumberLiteralsInWhere() {
+    assert(LiteralParameterizer("start n=node(1) where n.age > 30 and n.weight < 1.5 return n") ===
+      ("start n=node(1) where n.age > {__literal_0} and n.weight < {__literal_1} return n",
+        Map("__literal_0" -> 30L, "__literal_1" -> 1.5)))
+  }
+
+  @Test def leavesLiteralsOutsideOfWhereAlone() {
+    assert(LiteralParameterizer("start n=node(1) where n.x = \"a\" return n, 'foo' limit 10") ===
+      ("start n=node(1) where n.x = {__literal_0} return n, 'foo' limit 10", Map("__literal_0" -> "a")))
+  }
+
+  @Test def leavesRegularExpressionsAndPathLengthsAlone() {
+    val query = "start a=node(1), b=node(2) where a-[*1..3]->b and a.name =~ /And.*/ and a.name =~ 'And.*' and a.age =~ 13 return a"
+
+    assert(LiteralParameterizer(query) === (query, Map()))
+  }
+
+  @Test def leavesParametersAndIdentifiersAlone() {
+    assert(LiteralParameterizer("start n=node({0}), n1=node(2) where n.x = {1} and n1.y = 2 return n") ===
+      ("start n=node({0}), n1=node(2) where n.x = {1} and n1.y = {__literal_0} return n", Map("__literal_0" -> 2L)))
+  }
+
+  @Test def leavesWhereInsideOfFunctionsAlone() {
+    val query = "start n=node(1) return filter(x in n.list where x > 2)"
+
+    assert(LiteralParameterizer(query) === (query, Map()))
+  }
+
+  @Test def leavesLiteralsAfterWithAlone() {
+    assert(LiteralParameterizer("start n=node(1) where n.x = 1 with n, count(*) as c where c > 1 return n") ===
+      ("start n=node(1) where n.x = {__literal_0} with n, count(*) as c where c > 1 return n", Map("__literal_0" -> 1L)))
+
+    val query = "start n=node(1) match n-->m ==== n, count(*) as c ==== where c > 1 return n"
+
+    assert(LiteralParameterizer(query) === (query, Map()))
+  }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.commands
+
+import org.junit.Test
+import org.scalatest.Assertions
+import org.neo4j.cypher.CypherTypeException
+import org.neo4j.cypher.internal.symbols.{NumberType, NodeType, Identifier, SymbolTable}
+import org.neo4j.cypher.internal.pipes.{Slots, ExecutionContext}
+import collection.mutable.{Map => MutableMap}
+
+class ExpressionCompilerTest extends Assertions {
+  val symbols = new SymbolTable(Identifier("x", NumberType()), Identifier("y", NumberType()))
+  val slots = new Slots(Seq("x", "y"))
+
+  def row(values: (String, Any)*) = ExecutionContext(MutableMap(values: _*), slots = slots)
+
+  def compile(e: Expression) = ExpressionCompiler.compile(e, symbols)
+
+  def compile(p: Predicate) = ExpressionCompiler.compile(p, symbols)
+
+  @Test def arithmetic_is_done_on_doubles() {
+    val expr = compile(Add(Multiply(Entity("x"), Literal(2)), Subtract(Entity("y"), Literal(1))))
+
+    assert(expr(row("x" -> 3, "y" -> 5L)) === 10.0)
+  }
+
+  @Test def gives_the_same_answers_as_the_interpreter() {
+    val expressions = Seq(
+      Add(Entity("x"), Literal(1)),
+      Divide(Entity("x"), Entity("y")),
+      Modulo(Entity("x"), Literal(3)),
+      Pow(Literal(2), Entity("y")),
+      Collection(Entity("x"), Literal("a")),
+      Null())
+
+    val r = row("x" -> 7, "y" -> 2)
+    expressions.foreach(e => assert(compile(e)(r) === e(r), e.toString))
+  }
+
+  @Test def strings_are_added_by_the_interpreter() {
+    assert(compile(Add(Entity("x"), Literal("b")))(row("x" -> "a")) === "ab")
+    assert(compile(Add(Entity("x"), Entity("y")))(row("x" -> "a", "y" -> "b")) === "ab")
+  }
+
+  @Test def errors_are_the_same_as_the_interpreters() {
+    intercept[CypherTypeException](compile(Subtract(Entity("x"), Literal(1)))(row("x" -> "a")))
+  }
+
+  @Test def uses_precomputed_values() {
+    val symbolsWithCache = new SymbolTable(Identifier("x", NumberType()), Identifier("x + 1", NumberType()))
+    val expr = ExpressionCompiler.compile(Add(Entity("x"), Literal(1)), symbolsWithCache)
+
+    assert(expr(row("x" -> 1, "x + 1" -> 42)) === 42)
+  }
+
+  @Test def works_on_ordinary_maps() {
+    assert(compile(Add(Entity("x"), Literal(1)))(Map("x" -> 1)) === 2.0)
+  }
+
+  @Test def predicates() {
+    val r = row("x" -> 7, "y" -> 2)
+
+    assert(compile(And(GreaterThan(Entity("x"), Literal(5)), LessThan(Entity("y"), Literal(5)))).isMatch(r))
+    assert(compile(Or(Equals(Entity("x"), Literal(1)), Equals(Entity("y"), Literal(2)))).isMatch(r))
+    assert(!compile(Not(LessThanOrEqual(Entity("x"), Entity("y")))).isMatch(row("x" -> 1, "y" -> 2)))
+    assert(compile(IsNull(Nullable(Entity("x")))).isMatch(row("x" -> null)))
+  }
+
+  @Test def parameters() {
+    val r = ExecutionContext(MutableMap("-=PARAMETER=-p-=PARAMETER=-" -> ParameterValue(5), "x" -> 7), slots = slots)
+
+    assert(compile(GreaterThan(Entity("x"), ParameterExpression("p"))).isMatch(r))
+  }
+
+  @Test def looks_and_rewrites_like_the_original() {
+    val pred = GreaterThan(Property("n", "age"), Literal(5))
+    val compiled = ExpressionCompiler.compile(pred, new SymbolTable(Identifier("n", NodeType())))
+
+    assert(compiled.toString === pred.toString)
+    assert(compiled.dependencies === pred.dependencies)
+    assert(compiled.rewrite(x => x) === pred)
+  }
+}
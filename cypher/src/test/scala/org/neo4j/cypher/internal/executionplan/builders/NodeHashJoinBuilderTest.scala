@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.executionplan.builders
+
+import org.junit.Test
+import org.junit.Assert._
+import org.neo4j.cypher.internal.executionplan.PartiallySolvedQuery
+import org.neo4j.cypher.internal.commands.{True, RelatedTo, NodeById}
+import org.neo4j.graphdb.Direction
+import org.neo4j.cypher.internal.pipes.NodeHashJoinPipe
+
+class NodeHashJoinBuilderTest extends BuilderTest {
+
+  val builder = new NodeHashJoinBuilder(Seq(new NodeByIdBuilder(null)))
+
+  val aToX = RelatedTo("a", "x", "r1", Seq(), Direction.OUTGOING, false, True())
+  val bToX = RelatedTo("b", "x", "r2", Seq(), Direction.OUTGOING, false, True())
+
+  @Test
+  def says_yes_to_two_start_points_meeting_in_a_node() {
+    val q = PartiallySolvedQuery().copy(
+      start = Seq(Unsolved(NodeById("a", 0)), Unsolved(NodeById("b", 1))),
+      patterns = Seq(Unsolved(aToX), Unsolved(bToX)))
+
+    assertTrue("Should be able to build on this", builder.canWorkWith(plan(q)))
+  }
+
+  @Test
+  def says_no_when_a_start_point_is_already_solved() {
+    val q = PartiallySolvedQuery().copy(
+      start = Seq(Solved(NodeById("a", 0)), Unsolved(NodeById("b", 1))),
+      patterns = Seq(Unsolved(aToX), Unsolved(bToX)))
+
+    assertFalse("Should not build on this", builder.canWorkWith(plan(createPipe(Seq("a")), q)))
+  }
+
+  @Test
+  def says_yes_to_one_optional_relationship() {
+    val q = PartiallySolvedQuery().copy(
+      start = Seq(Unsolved(NodeById("a", 0)), Unsolved(NodeById("b", 1))),
+      patterns = Seq(Unsolved(aToX.copy(optional = true)), Unsolved(bToX)))
+
+    assertTrue("Should be able to build on this", builder.canWorkWith(plan(q)))
+  }
+
+  @Test
+  def says_no_when_both_relationships_are_optional() {
+    val q = PartiallySolvedQuery().copy(
+      start = Seq(Unsolved(NodeById("a", 0)), Unsolved(NodeById("b", 1))),
+      patterns = Seq(Unsolved(aToX.copy(optional = true)), Unsolved(bToX.copy(optional = true))))
+
+    assertFalse("Should not build on this", builder.canWorkWith(plan(q)))
+  }
+
+  @Test
+  def says_no_when_the_join_would_not_solve_the_whole_pattern() {
+    val q = PartiallySolvedQuery().copy(
+      start = Seq(Unsolved(NodeById("a", 0)), Unsolved(NodeById("b", 1))),
+      patterns = Seq(Unsolved(aToX), Unsolved(bToX), Unsolved(RelatedTo("x", "c", "r3", Seq(), Direction.OUTGOING, false, True()))))
+
+    assertFalse("Should not build on this", builder.canWorkWith(plan(q)))
+  }
+
+  @Test
+  def says_no_when_the_meeting_node_is_a_start_point() {
+    val q = PartiallySolvedQuery().copy(
+      start = Seq(Unsolved(NodeById("a", 0)), Unsolved(NodeById("b", 1)), Unsolved(NodeById("x", 2))),
+      patterns = Seq(Unsolved(aToX), Unsolved(bToX)))
+
+    assertFalse("Should not build on this", builder.canWorkWith(plan(q)))
+  }
+
+  @Test
+  def solves_both_start_points_and_the_pattern() {
+    val q = PartiallySolvedQuery().copy(
+      start = Seq(Unsolved(NodeById("a", 0)), Unsolved(NodeById("b", 1))),
+      patterns = Seq(Unsolved(aToX), Unsolved(bToX)))
+
+    val result = builder(plan(q))
+
+    assert(result.query.start === Seq(Solved(NodeById("a", 0)), Solved(NodeById("b", 1))))
+    assert(result.query.patterns === Seq(Solved(aToX), Solved(bToX)))
+    assertTrue(result.pipe.isInstanceOf[NodeHashJoinPipe])
+    assert(result.pipe.symbols.identifiers.map(_.name).toSet === Set("a", "b", "x", "r1", "r2"))
+  }
+}
@@ -21,9 +21,10 @@ package org.neo4j.cypher.internal.executionplan.builders
 
 import org.junit.Test
 import org.junit.Assert._
-import org.neo4j.cypher.internal.commands.{CachedExpression, Property, SortItem}
+import org.neo4j.cypher.internal.commands.{Literal, Slice, CachedExpression, Property, SortItem}
 import org.neo4j.cypher.internal.symbols.{ScalarType, Identifier}
 import org.neo4j.cypher.internal.executionplan.PartiallySolvedQuery
+import org.neo4j.cypher.internal.pipes.{SortPipe, TopPipe}
 
 class SortBuilderTest extends BuilderTest {
 
@@ -56,4 +57,34 @@ class SortBuilderTest extends BuilderTest {
 
     assertFalse("Builder should accept this", builder.canWorkWith(plan(p, q)))
   }
-}
\ No newline at end of file
+
+  @Test def should_solve_sort_and_limit_together() {
+    val q = PartiallySolvedQuery().copy(
+      sort = Seq(Unsolved(SortItem(Property("x", "foo"), true))),
+      slice = Seq(Unsolved(Slice(Some(Literal(5)), Some(Literal(10))))),
+      extracted = true
+    )
+
+    val p = createPipe(nodes = Seq("x"))
+
+    val resultPlan = builder(plan(p, q))
+
+    assertTrue("Should be a top pipe", resultPlan.pipe.isInstanceOf[TopPipe])
+    assert(resultPlan.query.slice === q.slice.map(_.solve))
+  }
+
+  @Test def should_not_solve_a_skip_without_limit() {
+    val q = PartiallySolvedQuery().copy(
+      sort = Seq(Unsolved(SortItem(Property("x", "foo"), true))),
+      slice = Seq(Unsolved(Slice(Some(Literal(5)), None))),
+      extracted = true
+    )
+
+    val p = createPipe(nodes = Seq("x"))
+
+    val resultPlan = builder(plan(p, q))
+
+    assertTrue("Should be a sort pipe", resultPlan.pipe.isInstanceOf[SortPipe])
+    assert(resultPlan.query.slice === q.slice)
+  }
+}
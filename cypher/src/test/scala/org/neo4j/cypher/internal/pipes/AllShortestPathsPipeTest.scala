@@ -32,7 +32,7 @@ class AllShortestPathsPipeTest extends GraphDatabaseTestBase with Assertions {
     val source = new FakePipe(List(Map("a" -> a, "b" -> b)))
 
     val pipe = new ShortestPathPipe(source, ShortestPath("p", "a", "b", Seq(), Direction.BOTH, Some(15), optional = true, single = false, relIterator = None))
-    pipe.createResults(QueryState()).map(m => m("p").asInstanceOf[Path])
+    pipe.createResults(QueryState()).map(m => m("p").asInstanceOf[Path]).toList
   }
 
   @Test def shouldReturnTheShortestPathBetweenTwoNodes() {
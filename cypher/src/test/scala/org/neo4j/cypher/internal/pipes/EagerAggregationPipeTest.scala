@@ -93,6 +93,23 @@ class EagerAggregationPipeTest extends JUnitSuite {
     assertEquals(List(Map("count(name)" -> 3)), aggregationPipe.createResults(QueryState()).toList)
   }
 
+  @Test def shouldAggregateGroupsSpilledToDisk() {
+    val source = new FakePipe((0 until 100).map(i => Map[String, Any]("name" -> ("n" + (i % 10)), "age" -> i)),
+      new SymbolTable(Identifier("name", NodeType()), Identifier("age", NumberType())))
+
+    val returnItems = List(Entity("name"))
+    val grouping = List(CountStar(), Collect(Entity("age")))
+    val aggregationPipe = new EagerAggregationPipe(source, returnItems, grouping)
+
+    val state = new QueryState(null, MutableMaps.create, spillThreshold = 3)
+    val results = aggregationPipe.createResults(state).toList
+
+    assertEquals(10, results.size)
+    (0 until 10).foreach(n => assertTrue(results.contains(
+      Map("name" -> ("n" + n), "count(*)" -> 10, "collect(age)" -> (0 until 10).map(i => i * 10 + n).toList))))
+    assertEquals(0, state.spillFiles.size)
+  }
+
   private def createSymbolTableFor(name: String) = new SymbolTable(Identifier(name, NodeType()))
 
   private def getResults(p: Pipe): JIterable[Map[String, Any]] = p.createResults(QueryState()).map(_.m).toIterable.asJava
@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.pipes
+
+import org.junit.Test
+import org.junit.Assert._
+import org.scalatest.junit.JUnitSuite
+import collection.mutable.Map
+
+class ExecutionContextTest extends JUnitSuite {
+  @Test def extendingDoesNotChangeTheOriginalRow() {
+    val slots = new Slots(Seq("a", "b"))
+    val row = ExecutionContext(Map("a" -> 1), slots = slots)
+
+    val extended = row.newWith("b" -> 2)
+
+    assertEquals(Map("a" -> 1), row)
+    assertEquals(Map("a" -> 1, "b" -> 2), extended)
+  }
+
+  @Test def keysWithoutSlotsGetOneWhenFirstSeen() {
+    val slots = new Slots(Seq("a"))
+    val row = ExecutionContext(Map("a" -> 1), slots = slots)
+
+    val extended = row.newWith(Seq("x" -> "foo", "y" -> "bar"))
+
+    assertEquals(1, slots.indexOf("x"))
+    assertEquals(2, slots.indexOf("y"))
+    assertEquals(Map("a" -> 1, "x" -> "foo", "y" -> "bar"), extended)
+    assertEquals(Some("foo"), row.newWith("x" -> "foo").get("x"))
+  }
+
+  @Test def nullValuesAreKeptAndRemovedKeysAreGone() {
+    val row = ExecutionContext(Map("a" -> 1, "p" -> null))
+
+    assertEquals(Some(null), row.get("p"))
+    assertEquals(2, row.size)
+
+    row -= "a"
+
+    assertEquals(None, row.get("a"))
+    assertEquals(Map("p" -> null), row)
+  }
+
+  @Test def newFromOnlyKeepsTheNewEntries() {
+    val row = ExecutionContext(Map("a" -> 1, "b" -> 2))
+
+    assertEquals(Map("c" -> 3), row.newFrom(Seq("c" -> 3)))
+    assertSame(row.slots, row.newFrom(Seq("c" -> 3)).slots)
+  }
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.pipes
+
+import org.junit.Test
+import org.junit.Assert._
+import org.scalatest.junit.JUnitSuite
+import org.neo4j.cypher.internal.commands.Literal
+import collection.mutable.Map
+
+class SlicePipeTest extends JUnitSuite {
+  @Test def emptyInIsEmptyOut() {
+    val slicePipe = new SlicePipe(new FakePipe(List()), None, Some(Literal(2)))
+
+    assertEquals(List(), slicePipe.createResults(QueryState()).toList)
+  }
+
+  @Test def limitStopsPullingRowsFromTheSource() {
+    var pulled = 0
+    val endless = Stream.from(1).map(i => {
+      pulled += 1
+      Map[String, Any]("x" -> i)
+    })
+    val slicePipe = new SlicePipe(new FakePipe(endless), None, Some(Literal(3)))
+
+    assertEquals(List(Map("x" -> 1), Map("x" -> 2), Map("x" -> 3)), slicePipe.createResults(QueryState()).toList)
+    assertTrue("Pulled " + pulled + " rows to produce 3", pulled <= 4)
+  }
+
+  @Test def skipAndLimitOnAnEndlessSource() {
+    val endless = Stream.from(1).map(i => Map[String, Any]("x" -> i))
+    val slicePipe = new SlicePipe(new FakePipe(endless), Some(Literal(10)), Some(Literal(2)))
+
+    assertEquals(List(Map("x" -> 11), Map("x" -> 12)), slicePipe.createResults(QueryState()).toList)
+  }
+}
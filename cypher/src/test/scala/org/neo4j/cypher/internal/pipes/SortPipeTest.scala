@@ -87,12 +87,36 @@ class SortPipeTest extends JUnitSuite {
       Map("y" -> null)), sortPipe.createResults(QueryState()).toList)
   }
 
+  @Test def sortsRowsSpilledToDisk() {
+    val rows = (0 until 100).map(i => Map[String, Any]("x" -> (i * 37) % 10, "y" -> i)).toList
+    val source = new FakePipe(rows)
+    val sortPipe = new SortPipe(source, List(SortItem(Entity("x"), true)))
+
+    val state = new QueryState(null, MutableMaps.create, spillThreshold = 7)
+
+    assertEquals(rows.sortWith((a, b) => a("x").asInstanceOf[Int] < b("x").asInstanceOf[Int]),
+      sortPipe.createResults(state).toList)
+    assertEquals(0, state.spillFiles.size)
+  }
+
+  @Test def deletesSpillFilesOfAQueryGivenUpOn() {
+    val source = new FakePipe((0 until 100).map(i => Map[String, Any]("x" -> i)))
+    val sortPipe = new SortPipe(source, List(SortItem(Entity("x"), false)))
+
+    val state = new QueryState(null, MutableMaps.create, spillThreshold = 7)
+    val first = sortPipe.createResults(state).next()
+
+    assertEquals(Map("x" -> 99), first)
+    assertEquals(14, state.spillFiles.size)
+    state.close()
+    assertEquals(0, state.spillFiles.size)
+  }
 }
 
 class FakePipe(data: Seq[Map[String, Any]], val symbols: SymbolTable) extends Pipe {
   def this(data: Seq[Map[String, Any]]) = this(data, new FakeSymbolTable())
 
-  def createResults(state: QueryState): Traversable[ExecutionContext] = data.map(m => ExecutionContext(m))
+  def createResults(state: QueryState): Iterator[ExecutionContext] = data.iterator.map(m => ExecutionContext(m))
 
   def executionPlan(): String = "FAKE"
 }
@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.pipes
+
+import org.junit.Test
+import org.junit.Assert._
+import org.scalatest.junit.JUnitSuite
+import org.neo4j.cypher.internal.commands.{Literal, Entity, SortItem}
+import collection.mutable.Map
+
+class TopPipeTest extends JUnitSuite {
+  @Test def emptyInIsEmptyOut() {
+    val source = createSource(List())
+    val topPipe = new TopPipe(source, List(SortItem(Entity("x"), true)), None, Literal(2))
+
+    assertEquals(List(), topPipe.createResults(QueryState()).toList)
+  }
+
+  @Test def keepsTheFirstRowsInOrder() {
+    val source = createSource((1 to 100).reverse.map(i => Map[String, Any]("x" -> i)).toList)
+    val topPipe = new TopPipe(source, List(SortItem(Entity("x"), true)), None, Literal(3))
+
+    assertEquals(List(Map("x" -> 1), Map("x" -> 2), Map("x" -> 3)), topPipe.createResults(QueryState()).toList)
+  }
+
+  @Test def skipsAndSortsDescending() {
+    val source = createSource((1 to 100).map(i => Map[String, Any]("x" -> i)).toList)
+    val topPipe = new TopPipe(source, List(SortItem(Entity("x"), false)), Some(Literal(10)), Literal(2))
+
+    assertEquals(List(Map("x" -> 90), Map("x" -> 89)), topPipe.createResults(QueryState()).toList)
+  }
+
+  @Test def keepsTheOrderOfEqualRowsLikeSorting() {
+    val rows = (1 to 20).map(i => Map[String, Any]("x" -> i % 3, "y" -> i)).toList
+    val topPipe = new TopPipe(createSource(rows), List(SortItem(Entity("x"), true)), Some(Literal(2)), Literal(5))
+    val sortPipe = new SortPipe(createSource(rows), List(SortItem(Entity("x"), true)))
+
+    assertEquals(sortPipe.createResults(QueryState()).toList.slice(2, 7), topPipe.createResults(QueryState()).toList)
+  }
+
+  private def createSource(data: List[Map[String, Any]]) = new FakePipe(data)
+}
@@ -25,6 +25,8 @@ import org.neo4j.cypher.internal.commands.{Entity, Expression}
 abstract class AggregateTest {
   def createAggregator(inner: Expression): AggregationFunction
 
+  def createPartialAggregator(inner: Expression): AggregationFunction = createAggregator(inner)
+
   def aggregateOn(values: Any*): Any = {
     val func = createAggregator(Entity("x"))
 
@@ -34,4 +36,16 @@ abstract class AggregateTest {
 
     func.result
   }
+
+  // Aggregates the two parts on their own, and then combines them
+  def combineOn(first: Seq[Any], second: Seq[Any]): Any = {
+    val funcs = Seq(first, second).map(values => {
+      val func = createPartialAggregator(Entity("x"))
+      values.foreach(value => func(Map("x" -> value)))
+      func
+    })
+
+    funcs(0).combine(funcs(1))
+    funcs(0).result
+  }
 }
\ No newline at end of file
@@ -67,4 +67,8 @@ class AvgFunctionTest extends AggregateTest {
 
     assertEquals(4.5, result)
   }
-}
\ No newline at end of file
+
+  @Test def combinesLikeOneRun() {
+    assertEquals(aggregateOn(1, 2, 6), combineOn(Seq(1, 2), Seq(6)))
+  }
+}
@@ -30,4 +30,8 @@ class CollectFunctionTest extends AggregateTest {
   @Test def singleOne() {
     assertEquals(Seq(1), aggregateOn(1))
   }
-}
\ No newline at end of file
+
+  @Test def combinesLikeOneRun() {
+    assertEquals(aggregateOn(1, 2, 3, null), combineOn(Seq(1, 2), Seq(3, null)))
+  }
+}
@@ -32,4 +32,8 @@ class CountTest extends AggregateTest {
     assertEquals(2L, result)
     assertTrue(result.isInstanceOf[Long])
   }
-}
\ No newline at end of file
+
+  @Test def combinesLikeOneRun() {
+    assertEquals(aggregateOn(1, null, "foo", 2), combineOn(Seq(1, null), Seq("foo", 2)))
+  }
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.pipes.aggregation
+
+import org.junit.Test
+import org.junit.Assert._
+import org.neo4j.cypher.internal.commands.{Entity, Expression}
+import org.neo4j.cypher.InternalException
+import org.scalatest.Assertions
+
+class DistinctFunctionTest extends AggregateTest with Assertions {
+  def createAggregator(inner: Expression) = new DistinctFunction(inner, new CollectFunction(inner))
+
+  override def createPartialAggregator(inner: Expression) = new DistinctFunction(inner, new CollectFunction(inner), keepRows = true)
+
+  @Test def onlyFirstOfEveryValue() {
+    assertEquals(Seq(1, null, 2), aggregateOn(1, null, 1, 2, null))
+  }
+
+  @Test def combinesLikeOneRun() {
+    assertEquals(aggregateOn(1, null, 3, 1, 2, null, 3), combineOn(Seq(1, null, 3), Seq(1, 2, null, 3)))
+  }
+
+  @Test def onlyPartialAggregatesCanBeCombined() {
+    val partial = createPartialAggregator(Entity("x"))
+    partial(Map("x" -> 1))
+
+    intercept[InternalException](partial.combine(createAggregator(Entity("x"))))
+  }
+}
@@ -58,4 +58,8 @@ class MaxFunctionTest extends AggregateTest {
   @Test(expected = classOf[SyntaxException]) def noNumberValuesThrowAnException() {
     aggregateOn(1, "wut")
   }
-}
\ No newline at end of file
+
+  @Test def combinesLikeOneRun() {
+    assertEquals(aggregateOn(1, 10, null, 3), combineOn(Seq(1, 10), Seq(null, 3)))
+  }
+}
@@ -61,4 +61,8 @@ class MinFunctionTest extends AggregateTest {
   }
 
   def createAggregator(inner: Expression) = new MinFunction(inner)
+
+  @Test def combinesLikeOneRun() {
+    assertEquals(aggregateOn(5, 10, null, 3), combineOn(Seq(5, 10), Seq(null, 3)))
+  }
 }
@@ -73,4 +73,8 @@ class SumFunctionTest extends AggregateTest with Assertions {
   @Test def noNumberValuesThrowAnException() {
     intercept[CypherTypeException](aggregateOn(1, "wut"))
   }
+
+  @Test def combinesLikeOneRun() {
+    assertEquals(aggregateOn(1, 2, null, 3.5d), combineOn(Seq(1, 2), Seq(null, 3.5d)))
+  }
 }
@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.pipes.matching
+
+import org.scalatest.Assertions
+import org.neo4j.cypher.GraphDatabaseTestBase
+import org.neo4j.graphdb.{Node, Direction}
+import org.neo4j.cypher.internal.commands.{Pattern, RelatedTo, True}
+import org.neo4j.cypher.internal.symbols.{NodeType, Identifier, SymbolTable}
+import org.junit.Test
+
+class ExpansionCostsTest extends GraphDatabaseTestBase with Assertions {
+  @Test def countsTheRelationshipsThatFitThePattern() {
+    val a = createNode()
+    relate(a, createNode(), "KNOWS")
+    relate(a, createNode(), "KNOWS")
+    relate(a, createNode(), "LIKES")
+    relate(createNode(), a, "KNOWS")
+
+    val (pA, r) = singleRelationshipPattern(Seq("KNOWS"), Direction.OUTGOING)
+
+    assert(new ExpansionCosts()(MatchingPair(pA, a), r) === 2)
+  }
+
+  @Test def stopsCountingAtTheLimit() {
+    val a = createNode()
+    (1 to ExpansionCosts.Limit + 10).foreach(_ => relate(a, createNode()))
+
+    val (pA, r) = singleRelationshipPattern(Seq(), Direction.BOTH)
+
+    assert(new ExpansionCosts()(MatchingPair(pA, a), r) === ExpansionCosts.Limit)
+  }
+
+  @Test def variableLengthRelationshipsCostMoreThanSingleOnes() {
+    val a = createNode()
+    val b = createNode()
+    val c = createNode()
+    relate(a, b, c)
+    relate(b, createNode())
+    relate(c, createNode())
+
+    val pA = new PatternNode("a")
+    val single = pA.relateTo("r", new PatternNode("b"), Seq(), Direction.OUTGOING, false, True())
+    val varLength = pA.relateViaVariableLengthPathTo("p", new PatternNode("c"), Some(1), Some(3), Seq(), Direction.OUTGOING, None, false, True())
+
+    val costs = new ExpansionCosts
+    assert(costs(MatchingPair(pA, a), single) === 1)
+    assert(costs(MatchingPair(pA, a), varLength) > 1)
+  }
+
+  @Test def startsFromTheBoundNodeWithFewestRelationships() {
+    val dense = createNode("dense")
+    val sparse = createNode("sparse")
+    val x = createNode("x")
+    relate(dense, x, "rel", "r1")
+    relate(sparse, x, "rel", "r2")
+    (1 to 100).foreach(_ => relate(dense, createNode(), "rel"))
+
+    val patterns: Seq[Pattern] = Seq(
+      RelatedTo("a", "x", "r1", "rel", Direction.OUTGOING, false),
+      RelatedTo("b", "x", "r2", "rel", Direction.OUTGOING, false))
+
+    assertCheapMatch(patterns, Map("a" -> dense, "b" -> sparse), x)
+  }
+
+  @Test def fullPatternMatcherExpandsTheCheapestNodeFirst() {
+    val dense = createNode("dense")
+    val sparse = createNode("sparse")
+    val x = createNode("x")
+    relate(dense, x, "rel", "r1")
+    relate(sparse, x, "rel", "r2")
+    (1 to 100).foreach(_ => relate(dense, createNode(), "rel"))
+
+    // The optional relationship keeps the simple pattern matcher from being used
+    val patterns: Seq[Pattern] = Seq(
+      RelatedTo("a", "x", "r1", "rel", Direction.OUTGOING, false),
+      RelatedTo("b", "x", "r2", "rel", Direction.OUTGOING, false),
+      RelatedTo("b", "y", "r3", "other", Direction.OUTGOING, true))
+
+    assertCheapMatch(patterns, Map("a" -> dense, "b" -> sparse), x)
+  }
+
+  @Test def simplePatternMatcherPicksTheBoundNodeWithFewestRelationshipsAsStartPoint() {
+    val (dense, sparse) = denseAndSparseNodes()
+
+    val patterns: Seq[Pattern] = Seq(
+      RelatedTo("a", "x", "r1", "rel", Direction.OUTGOING, false),
+      RelatedTo("b", "x", "r2", "rel", Direction.OUTGOING, false))
+
+    val builder = matchingContext(patterns, "a", "b").builder.asInstanceOf[SimplePatternMatcherBuilder]
+
+    builder.setAssociations(Map("a" -> dense, "b" -> sparse))
+    assert(builder.cheapestStartPoint().getLabel === "b")
+
+    builder.setAssociations(Map("a" -> sparse, "b" -> dense))
+    assert(builder.cheapestStartPoint().getLabel === "a")
+  }
+
+  @Test def patternMatcherPicksTheCheapestNodeAndLeavesOptionalRelationshipsForLast() {
+    val (dense, sparse) = denseAndSparseNodes()
+
+    val patterns: Seq[Pattern] = Seq(
+      RelatedTo("a", "x", "r1", "rel", Direction.OUTGOING, false),
+      RelatedTo("b", "x", "r2", "rel", Direction.OUTGOING, false),
+      RelatedTo("b", "y", "r3", "other", Direction.OUTGOING, true))
+
+    val patternGraph = matchingContext(patterns, "a", "b").patternGraph
+    val a = MatchingPair(patternGraph.patternNodes("a"), dense)
+    val b = MatchingPair(patternGraph.patternNodes("b"), sparse)
+    val matcher = new PatternMatcher(Map("a" -> a, "b" -> b), Seq(), false, Map())
+
+    assert(matcher.cheapestNode(Set(a, b), new InitialHistory(Map())) === b)
+
+    val rels = patternGraph.patternNodes("b").relationships.toList
+    assert(matcher.cheapestRelationship(b, rels).key === "r2")
+  }
+
+  /*
+  Gives a dense node with a hundred and one outgoing relationships, and a sparse one with a single one
+  */
+  private def denseAndSparseNodes(): (Node, Node) = {
+    val dense = createNode("dense")
+    val sparse = createNode("sparse")
+    val x = createNode("x")
+    relate(dense, x, "rel")
+    relate(sparse, x, "rel")
+    (1 to 100).foreach(_ => relate(dense, createNode(), "rel"))
+    (dense, sparse)
+  }
+
+  private def matchingContext(patterns: Seq[Pattern], bound: String*) =
+    new MatchingContext(patterns, new SymbolTable(bound.map(Identifier(_, NodeType())): _*))
+
+  private def assertCheapMatch(patterns: Seq[Pattern], bound: Map[String, Node], expected: Node) {
+    val symbols = new SymbolTable(bound.keys.map(Identifier(_, NodeType())).toSeq: _*)
+    val matchingContext = new MatchingContext(patterns, symbols)
+
+    val nodeManager = graph.getNodeManager
+    nodeManager.startCountingAccesses()
+    val matches = try {
+      matchingContext.getMatches(bound).toList
+    } finally {
+      assert(nodeManager.stopCountingAccesses() < 100, "should not have expanded the dense node")
+    }
+
+    assert(matches.map(_("x")) === List(expected))
+  }
+
+  private def singleRelationshipPattern(types: Seq[String], dir: Direction): (PatternNode, PatternRelationship) = {
+    val pA = new PatternNode("a")
+    val r = pA.relateTo("r", new PatternNode("b"), types, dir, false, True())
+    (pA, r)
+  }
+}
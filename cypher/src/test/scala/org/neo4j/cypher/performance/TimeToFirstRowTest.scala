@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.performance
+
+import org.neo4j.cypher.ExecutionEngine
+import org.scalatest.Assertions
+import org.junit.{Ignore, After, Before, Test}
+import org.neo4j.graphdb.{GraphDatabaseService, DynamicRelationshipType, Node}
+import org.neo4j.graphdb.factory.GraphDatabaseFactory
+
+/*
+Compares the time it takes to get the first row of a deep pattern match with the
+time it takes to get all of them, and with the time a LIMIT 1 query takes. With
+rows being pulled through the pipes, the first row and the LIMIT 1 query should
+only cost a fraction of producing the whole result.
+ */
+@Ignore
+class TimeToFirstRowTest extends Assertions {
+  val fanOut = 8
+  val depth = 5
+
+  var db: GraphDatabaseService = null
+  var engine: ExecutionEngine = null
+
+  @Before
+  def init() {
+    db = new GraphDatabaseFactory().newEmbeddedDatabase("target/ttfr-db")
+    engine = new ExecutionEngine(db)
+  }
+
+  @After
+  def closeDown() {
+    db.shutdown()
+  }
+
+  @Test
+  def deepPatternMatch() {
+    val root = createTree()
+    val query = "start a=node({root}) match a-->b-->c-->d-->e-->f return f"
+    val params = Map[String, Any]("root" -> root.getId)
+
+    (0 to 5).foreach(i => {
+      val t0 = System.nanoTime()
+      val result = engine.execute(query, params)
+      result.next()
+      val t1 = System.nanoTime()
+      val count = 1 + result.size
+      val t2 = System.nanoTime()
+      engine.execute(query + " limit 1", params).toList
+      val t3 = System.nanoTime()
+
+      println("%d rows, first row %.2f ms, all rows %.2f ms, limit 1 %.2f ms".format(
+        count, (t1 - t0) / 1000000.0, (t2 - t0) / 1000000.0, (t3 - t2) / 1000000.0))
+    })
+  }
+
+  private def createTree(): Node = {
+    val tx = db.beginTx()
+    val root = db.createNode()
+    var level = Seq(root)
+    (1 to depth).foreach(x => {
+      level = level.flatMap(parent => (1 to fanOut).map(y => {
+        val child = db.createNode()
+        parent.createRelationshipTo(child, DynamicRelationshipType.withName("r"))
+        child
+      }))
+    })
+    tx.success()
+    tx.finish()
+    root
+  }
+}
@@ -220,7 +220,7 @@ public class AStar implements PathFinder<WeightedPath>
         @SuppressWarnings( "unchecked" )
         private void expand()
         {
-            for ( Relationship rel : expander.expand( this, Traversal.NO_BRANCH_STATE ) )
+            for ( Relationship rel : (Iterable<Relationship>) expander.expand( this, Traversal.NO_BRANCH_STATE ) )
             {
                 lastMetadata.rels++;
                 Node node = rel.getOtherNode( this.lastNode );
@@ -113,7 +113,7 @@ public class Script extends ConfigurationParser
         {
             throw new UnsupportedOperationException( "Could not initialize script", e );
         }
-        script.storeDir = args[0];
+        ((Script) script).storeDir = args[0];
         return script;
     }
 
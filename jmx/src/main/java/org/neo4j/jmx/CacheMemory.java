@@ -0,0 +1,39 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.jmx;
+
+@ManagementInterface( name = CacheMemory.NAME )
+@Description( "Memory used by the node and relationship caches, when using the memory budgeted ('budget') cache" )
+public interface CacheMemory
+{
+    final String NAME = "Cache memory";
+
+    @Description( "The estimated number of bytes used by the nodes in the node cache" )
+    long getNodeCacheBytesUsed();
+
+    @Description( "The number of bytes the node cache may use" )
+    long getNodeCacheMaxBytes();
+
+    @Description( "The estimated number of bytes used by the relationships in the relationship cache" )
+    long getRelationshipCacheBytesUsed();
+
+    @Description( "The number of bytes the relationship cache may use" )
+    long getRelationshipCacheMaxBytes();
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.jmx;
+
+@ManagementInterface( name = Commits.NAME )
+@Description( "Statistics about the cost of committing transactions in the Neo4j kernel" )
+public interface Commits
+{
+    final String NAME = "Commits";
+
+    @Description( "The number of transactions committed" )
+    long getNumberOfCommittedTransactions();
+
+    @Description( "The number of transactions spanning several resources where only one of them had written "
+                  + "anything, committed in one phase without writing to the transaction manager log" )
+    long getNumberOfOnePhaseOptimizedTransactions();
+
+    @Description( "The average number of log forces (fsyncs) asked for per committed transaction" )
+    double getAverageLogForcesPerCommit();
+
+    @Description( "The average time in milliseconds spent committing a transaction" )
+    double getAverageCommitTimeMillis();
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.jmx;
+
+@ManagementInterface( name = RelationshipChains.NAME )
+@Description( "Loading of relationship chains, for nodes with all their relationships in the first chunk loaded and "
+              + "for dense nodes that need more chunks" )
+public interface RelationshipChains
+{
+    final String NAME = "Relationship chains";
+
+    @Description( "The number of times the first chunk of the relationships of a node has been loaded" )
+    long getFirstChunksLoaded();
+
+    @Description( "The number of relationships loaded in first chunks" )
+    long getFirstChunkRelationshipsLoaded();
+
+    @Description( "The number of chunks loaded after the first one, for dense nodes" )
+    long getDenseChunksLoaded();
+
+    @Description( "The number of relationships loaded in chunks after the first one, for dense nodes" )
+    long getDenseChunkRelationshipsLoaded();
+
+    @Description( "The number of chunks loaded in the background that were used" )
+    long getPrefetchesUsed();
+
+    @Description( "The number of chunks loaded in the background that couldn't be used, "
+                  + "since the relationship chain changed in the mean time" )
+    long getPrefetchesDiscarded();
+}
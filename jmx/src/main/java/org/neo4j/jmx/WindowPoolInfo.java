@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.jmx;
+
+import java.beans.ConstructorProperties;
+import java.io.Serializable;
+
+/**
+ * The state of the pool of memory mapped windows of one store file, as
+ * exposed by {@link MemoryMapping}.
+ */
+public final class WindowPoolInfo implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private final String name;
+    private final long memAvail;
+    private final long memUsed;
+    private final int windowCount;
+    private final int windowSize;
+    private final int hitCount;
+    private final int missCount;
+    private final int oomCount;
+    private final int switchCount;
+    private final int refreshCount;
+    private final int windowSizeChangeCount;
+
+    @ConstructorProperties( { "windowPoolName", "availableMemory", "usedMemory", "numberOfWindows",
+            "windowSize", "windowHitCount", "windowMissCount", "numberOfOutOfMemory", "windowSwitchCount",
+            "refreshCount", "windowSizeChangeCount" } )
+    public WindowPoolInfo( String name, long memAvail, long memUsed, int windowCount, int windowSize,
+            int hitCount, int missCount, int oomCount, int switchCount, int refreshCount,
+            int windowSizeChangeCount )
+    {
+        this.name = name;
+        this.memAvail = memAvail;
+        this.memUsed = memUsed;
+        this.windowCount = windowCount;
+        this.windowSize = windowSize;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.oomCount = oomCount;
+        this.switchCount = switchCount;
+        this.refreshCount = refreshCount;
+        this.windowSizeChangeCount = windowSizeChangeCount;
+    }
+
+    public String getWindowPoolName()
+    {
+        return name;
+    }
+
+    public long getAvailableMemory()
+    {
+        return memAvail;
+    }
+
+    public long getUsedMemory()
+    {
+        return memUsed;
+    }
+
+    public int getNumberOfWindows()
+    {
+        return windowCount;
+    }
+
+    public int getWindowSize()
+    {
+        return windowSize;
+    }
+
+    public int getWindowHitCount()
+    {
+        return hitCount;
+    }
+
+    public int getWindowMissCount()
+    {
+        return missCount;
+    }
+
+    public int getNumberOfOutOfMemory()
+    {
+        return oomCount;
+    }
+
+    public int getWindowSwitchCount()
+    {
+        return switchCount;
+    }
+
+    public int getRefreshCount()
+    {
+        return refreshCount;
+    }
+
+    public int getWindowSizeChangeCount()
+    {
+        return windowSizeChangeCount;
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.jmx.impl;
+
+import javax.management.NotCompliantMBeanException;
+
+import org.neo4j.helpers.Service;
+import org.neo4j.jmx.CacheMemory;
+import org.neo4j.kernel.GraphDatabaseAPI;
+import org.neo4j.kernel.impl.cache.Cache;
+import org.neo4j.kernel.impl.cache.MemoryBudgetCache;
+import org.neo4j.kernel.impl.core.NodeManager;
+
+@Service.Implementation( ManagementBeanProvider.class )
+public final class CacheMemoryBean extends ManagementBeanProvider
+{
+    public CacheMemoryBean()
+    {
+        super( CacheMemory.class );
+    }
+
+    @Override
+    protected Neo4jMBean createMBean( ManagementData management ) throws NotCompliantMBeanException
+    {
+        NodeManager nodeManager = ((GraphDatabaseAPI) management.getKernelData().graphDatabase()).getNodeManager();
+        MemoryBudgetCache<?> nodeCache = null, relationshipCache = null;
+        for ( Cache<?> cache : nodeManager.caches() )
+        {
+            if ( !(cache instanceof MemoryBudgetCache) ) return null;
+            if ( nodeCache == null ) nodeCache = (MemoryBudgetCache<?>) cache;
+            else relationshipCache = (MemoryBudgetCache<?>) cache;
+        }
+        if ( nodeCache == null || relationshipCache == null ) return null;
+        return new CacheMemoryImpl( management, nodeCache, relationshipCache );
+    }
+
+    private static class CacheMemoryImpl extends Neo4jMBean implements CacheMemory
+    {
+        private final MemoryBudgetCache<?> nodeCache;
+        private final MemoryBudgetCache<?> relationshipCache;
+
+        CacheMemoryImpl( ManagementData management, MemoryBudgetCache<?> nodeCache,
+                MemoryBudgetCache<?> relationshipCache ) throws NotCompliantMBeanException
+        {
+            super( management );
+            this.nodeCache = nodeCache;
+            this.relationshipCache = relationshipCache;
+        }
+
+        public long getNodeCacheBytesUsed()
+        {
+            return nodeCache.bytesUsed();
+        }
+
+        public long getNodeCacheMaxBytes()
+        {
+            return nodeCache.maxBytes();
+        }
+
+        public long getRelationshipCacheBytesUsed()
+        {
+            return relationshipCache.bytesUsed();
+        }
+
+        public long getRelationshipCacheMaxBytes()
+        {
+            return relationshipCache.maxBytes();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.jmx.impl;
+
+import javax.management.NotCompliantMBeanException;
+import javax.transaction.TransactionManager;
+
+import org.neo4j.helpers.Service;
+import org.neo4j.jmx.Commits;
+import org.neo4j.kernel.GraphDatabaseAPI;
+import org.neo4j.kernel.impl.transaction.TxManager;
+
+@Service.Implementation( ManagementBeanProvider.class )
+public final class CommitsBean extends ManagementBeanProvider
+{
+    public CommitsBean()
+    {
+        super( Commits.class );
+    }
+
+    @Override
+    protected Neo4jMBean createMBean( ManagementData management ) throws NotCompliantMBeanException
+    {
+        TransactionManager txManager = ((GraphDatabaseAPI) management.getKernelData().graphDatabase()).getTxManager();
+        if ( !(txManager instanceof TxManager) ) return null;
+        return new CommitsImpl( management, (TxManager) txManager );
+    }
+
+    private static class CommitsImpl extends Neo4jMBean implements Commits
+    {
+        private final TxManager txManager;
+
+        CommitsImpl( ManagementData management, TxManager txManager ) throws NotCompliantMBeanException
+        {
+            super( management );
+            this.txManager = txManager;
+        }
+
+        public long getNumberOfCommittedTransactions()
+        {
+            return txManager.getCommittedTxCount();
+        }
+
+        public long getNumberOfOnePhaseOptimizedTransactions()
+        {
+            return txManager.getOnePhaseOptimizedTxCount();
+        }
+
+        public double getAverageLogForcesPerCommit()
+        {
+            long committed = txManager.getCommittedTxCount();
+            return committed == 0 ? 0 : (double) txManager.getCommitLogForceCount() / committed;
+        }
+
+        public double getAverageCommitTimeMillis()
+        {
+            long committed = txManager.getCommittedTxCount();
+            return committed == 0 ? 0 : txManager.getCommitTimeNanos() / 1000000.0 / committed;
+        }
+    }
+}
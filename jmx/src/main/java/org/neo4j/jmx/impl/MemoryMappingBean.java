@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.jmx.impl;
+
+import java.util.List;
+
+import javax.management.NotCompliantMBeanException;
+
+import org.neo4j.helpers.Service;
+import org.neo4j.jmx.MemoryMapping;
+import org.neo4j.jmx.WindowPoolInfo;
+import org.neo4j.kernel.GraphDatabaseAPI;
+import org.neo4j.kernel.impl.nioneo.store.WindowPoolStats;
+import org.neo4j.kernel.impl.transaction.XaDataSourceManager;
+
+@Service.Implementation( ManagementBeanProvider.class )
+public final class MemoryMappingBean extends ManagementBeanProvider
+{
+    public MemoryMappingBean()
+    {
+        super( MemoryMapping.class );
+    }
+
+    @Override
+    protected Neo4jMBean createMBean( ManagementData management ) throws NotCompliantMBeanException
+    {
+        return new MemoryMappingImpl( management, false );
+    }
+
+    @Override
+    protected Neo4jMBean createMXBean( ManagementData management ) throws NotCompliantMBeanException
+    {
+        return new MemoryMappingImpl( management, true );
+    }
+
+    private static class MemoryMappingImpl extends Neo4jMBean implements MemoryMapping
+    {
+        private final XaDataSourceManager dataSourceManager;
+
+        MemoryMappingImpl( ManagementData management, boolean isMXBean )
+        {
+            super( management, isMXBean );
+            this.dataSourceManager = ((GraphDatabaseAPI) management.getKernelData().graphDatabase()).getXaDataSourceManager();
+        }
+
+        public WindowPoolInfo[] getMemoryPools()
+        {
+            // Look up the data source every time, it may have been replaced
+            List<WindowPoolStats> stats = dataSourceManager.getNeoStoreDataSource().getWindowPoolStats();
+            WindowPoolInfo[] pools = new WindowPoolInfo[stats.size()];
+            for ( int i = 0; i < pools.length; i++ )
+            {
+                WindowPoolStats pool = stats.get( i );
+                pools[i] = new WindowPoolInfo( pool.getName(), pool.getMemAvail(), pool.getMemUsed(),
+                        pool.getWindowCount(), pool.getWindowSize(), pool.getHitCount(), pool.getMissCount(),
+                        pool.getOomCount(), pool.getSwitchCount(), pool.getRefreshCount(),
+                        pool.getWindowSizeChangeCount() );
+            }
+            return pools;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.jmx.impl;
+
+import javax.management.NotCompliantMBeanException;
+
+import org.neo4j.helpers.Service;
+import org.neo4j.jmx.RelationshipChains;
+import org.neo4j.kernel.GraphDatabaseAPI;
+import org.neo4j.kernel.impl.core.RelationshipChainLoader;
+
+@Service.Implementation( ManagementBeanProvider.class )
+public final class RelationshipChainsBean extends ManagementBeanProvider
+{
+    public RelationshipChainsBean()
+    {
+        super( RelationshipChains.class );
+    }
+
+    @Override
+    protected Neo4jMBean createMBean( ManagementData management ) throws NotCompliantMBeanException
+    {
+        return new RelationshipChainsImpl( management );
+    }
+
+    private static class RelationshipChainsImpl extends Neo4jMBean implements RelationshipChains
+    {
+        private final RelationshipChainLoader loader;
+
+        RelationshipChainsImpl( ManagementData management ) throws NotCompliantMBeanException
+        {
+            super( management );
+            this.loader = ((GraphDatabaseAPI) management.getKernelData().graphDatabase()).getNodeManager()
+                    .getRelationshipChainLoader();
+        }
+
+        public long getFirstChunksLoaded()
+        {
+            return loader.getFirstChunksLoaded();
+        }
+
+        public long getFirstChunkRelationshipsLoaded()
+        {
+            return loader.getFirstChunkRelationshipsLoaded();
+        }
+
+        public long getDenseChunksLoaded()
+        {
+            return loader.getDenseChunksLoaded();
+        }
+
+        public long getDenseChunkRelationshipsLoaded()
+        {
+            return loader.getDenseChunkRelationshipsLoaded();
+        }
+
+        public long getPrefetchesUsed()
+        {
+            return loader.getPrefetchesUsed();
+        }
+
+        public long getPrefetchesDiscarded()
+        {
+            return loader.getPrefetchesDiscarded();
+        }
+    }
+}
@@ -79,6 +79,30 @@ public abstract class GraphDatabaseSettings
     @Description( "Enable this to specify a parser other than the default one. 1.5 and 1.6 are available" )
     public static final OptionsSetting cypher_parser_version = new CypherParserSetting();
 
+    @Description( "The number of rows a Cypher ORDER BY, or the number of groups a Cypher aggregation, keeps in memory "+
+                  "before writing the rest to temporary files. 0 keeps everything in memory" )
+    @Default("1000000")
+    public static final IntegerSetting cypher_spill_threshold = new IntegerSetting( "cypher_spill_threshold", "Must be a number", 0, null );
+
+    @Description( "Enable this to have Cypher compile WHERE predicates and RETURN expressions into functions when a query "+
+                  "is planned, instead of interpreting them for every row" )
+    @Default(FALSE)
+    public static final BooleanSetting cypher_compile_expressions = new BooleanSetting( "cypher_compile_expressions" );
+
+    @Description( "The number of threads a read only Cypher aggregation over all nodes or all relationships is spread "+
+                  "over. 0 or 1 runs every query on the calling thread" )
+    @Default("0")
+    public static final IntegerSetting cypher_parallelism = new IntegerSetting( "cypher_parallelism", "Must be a number", 0, null );
+
+    @Description( "The number of Cypher execution plans an execution engine keeps cached. 0 disables the cache" )
+    @Default("100")
+    public static final IntegerSetting query_cache_size = new IntegerSetting( "query_cache_size", "Must be a number", 0, null );
+
+    @Description( "Enable this to have the literals in Cypher WHERE clauses replaced with parameters before a query is "+
+                  "parsed, so that queries that only differ in those literals share one cached execution plan" )
+    @Default(TRUE)
+    public static final BooleanSetting query_cache_parameterize_literals = new BooleanSetting( "query_cache_parameterize_literals" );
+
     // Remote logging
     @Description( "Whether to enable logging to a remote server or not" )
     @Default(FALSE)
@@ -131,6 +155,21 @@ public abstract class GraphDatabaseSettings
     @Description( "Make Neo4j keep the logical transaction logs for being able to backup the database" )
     public static final StringSetting keep_logical_logs = new StringSetting( "keep_logical_logs", ANY, "No value=don't store,true=store all logs,comma separated list=store logs from listed sources" );
 
+    @Description( "Let transactions committing at the same time share one force of the logical log, instead of forcing it once per transaction. "+
+                  "A committing transaction still doesn't return until its commit record is on disk, but its changes become visible "+
+                  "to other transactions before that force has completed." )
+    @Default(FALSE)
+    public static final BooleanSetting group_commit = new BooleanSetting( "group_commit" );
+
+    @Description( "The number of transactions waiting for a group commit that will make the logical log be forced right away." )
+    @Default("64")
+    public static final IntegerSetting group_commit_max_batch_size = new IntegerSetting( "group_commit_max_batch_size", "Must be a number", 1, null );
+
+    @Description( "The maximum time a group commit force may be held back, waiting for more transactions to join it. "+
+                  "0ms means only transactions queueing up while a force is in progress are grouped together." )
+    @Default("0ms")
+    public static final TimeSpanSetting group_commit_max_wait = new TimeSpanSetting( "group_commit_max_wait" );
+
     @Description( "Use a quick approach for rebuilding the ID generators. This give quicker recovery time, but will limit the ability to reuse the space of deleted entities." )
     @Default(TRUE)
     public static final BooleanSetting rebuild_idgenerators_fast = new BooleanSetting( "rebuild_idgenerators_fast" );
@@ -167,9 +206,27 @@ public abstract class GraphDatabaseSettings
     @Default("100M")
     public static final NumberOfBytesSetting relationshipstore_mapped_memory = new NumberOfBytesSetting("neostore.relationshipstore.db.mapped_memory");
 
+    @Description( "Memory map the whole of the node, relationship and property store files, in segments of 1G, instead of "+
+                  "the most used parts of them within the sizes given by the mapped_memory settings. Needs address space "+
+                  "for the store files (a 64-bit JVM) and use_memory_mapped_buffers to be enabled, read only databases "+
+                  "always use the mapped_memory settings" )
+    @Default(FALSE)
+    public static final BooleanSetting map_whole_store_files = new BooleanSetting( "map_whole_store_files" );
+
     @Default("100")
     public static final IntegerSetting relationship_grab_size = new IntegerSetting( "relationship_grab_size", "Must be a number" );
 
+    @Description( "The largest number of relationships to load from a relationship chain at a time. Iterating over the "+
+                  "relationships of a node loads relationship_grab_size of them at first, for each further load of the "+
+                  "same node that number is doubled up to this size" )
+    @Default("10000")
+    public static final IntegerSetting relationship_max_grab_size = new IntegerSetting( "relationship_max_grab_size", "Must be a number", 1, null );
+
+    @Description( "Load the next relationships of a node in the background while the ones already loaded are iterated "+
+                  "over. Only done for nodes that have needed more than one load of relationships" )
+    @Default(TRUE)
+    public static final BooleanSetting relationship_prefetch = new BooleanSetting( "relationship_prefetch" );
+
     @Description( "Whether to grab locks on files or not" )
     @Default(TRUE)
     public static final BooleanSetting grab_file_lock = new BooleanSetting( "grab_file_lock" );
@@ -223,10 +280,10 @@ public abstract class GraphDatabaseSettings
     // GCR Settings
     // TODO: These should be part of a settings class specifically for GCR, and loaded
     // the same way settings for kernel extensions are loaded.
-    @Description( "The amount of memory to use for the node cache (when using the 'gcr' cache)" )
+    @Description( "The amount of memory to use for the node cache (when using the 'gcr' or 'budget' cache)" )
     public static final GCRMemoryUsageSetting node_cache_size = new GCRMemoryUsageSetting( "node_cache_size");
 
-    @Description( "The amount of memory to use for the relationship cache (when using the 'gcr' cache)" )
+    @Description( "The amount of memory to use for the relationship cache (when using the 'gcr' or 'budget' cache)" )
     public static final GCRMemoryUsageSetting relationship_cache_size = new GCRMemoryUsageSetting( "relationship_cache_size");
 
     @Description( "The fraction of the heap (1%-10%) to use for the base array in the node cache (when using the 'gcr' cache)" )
@@ -240,6 +297,24 @@ public abstract class GraphDatabaseSettings
     @Description( "The minimal time that must pass in between logging statistics from the cache (when using the 'gcr' cache)" )
     @Default( "60s" )
     public static final TimeSpanSetting gcr_cache_min_log_interval = new TimeSpanSetting( "gcr_cache_min_log_interval");
+
+    @Description( "The maximum number of nodes to keep in the node cache (when using the 'clock' cache), \n" +
+                  "or in the on heap part of it (when using the 'offheap' cache)" )
+    @Default( "100000" )
+    public static final IntegerSetting node_cache_max_entries = new IntegerSetting( "node_cache_max_entries", "Must be a number", 1, null );
+
+    @Description( "The maximum number of relationships to keep in the relationship cache (when using the 'clock' cache), \n" +
+                  "or in the on heap part of it (when using the 'offheap' cache)" )
+    @Default( "100000" )
+    public static final IntegerSetting relationship_cache_max_entries = new IntegerSetting( "relationship_cache_max_entries", "Must be a number", 1, null );
+
+    @Description( "The amount of memory outside of the JVM heap to use for the node cache (when using the 'offheap' cache)" )
+    @Default( "256M" )
+    public static final NumberOfBytesSetting node_cache_off_heap_size = new NumberOfBytesSetting( "node_cache_off_heap_size" );
+
+    @Description( "The amount of memory outside of the JVM heap to use for the relationship cache (when using the 'offheap' cache)" )
+    @Default( "256M" )
+    public static final NumberOfBytesSetting relationship_cache_off_heap_size = new NumberOfBytesSetting( "relationship_cache_off_heap_size" );
     
     
     
@@ -260,6 +335,20 @@ public abstract class GraphDatabaseSettings
         @Description("Use strong references")
         public static final String strong = "strong";
 
+        @Description("Holds a configurable number of entries and evicts with an approximation of LRU (clock/second chance). \n" +
+                     "Lookups don't take any locks, which makes it suitable for many concurrent readers." )
+        public static final String clock = "clock";
+
+        @Description("Gets assigned a configurable amount of heap for nodes and for relationships (node_cache_size and \n" +
+                     "relationship_cache_size), tracks the estimated size of each cached entity and evicts to stay within it, \n" +
+                     "instead of relying on GC for eviction." )
+        public static final String budget = "budget";
+
+        @Description("Keeps a configurable number of entries on the JVM heap, like the clock cache, and the entries \n" +
+                     "evicted from there serialized in memory outside of the heap (node_cache_off_heap_size and \n" +
+                     "relationship_cache_off_heap_size). Keeps large graphs cached without them burdening the GC." )
+        public static final String offheap = "offheap";
+
         @Description("GC resistant cache. Gets assigned a configurable amount of space in the JVM heap \n" +
         		"and will evict objects whenever it grows bigger than that, instead of relying on GC for eviction. \n" +
         		"It has got the fastest insert/lookup times and should be optimal for most use cases. \n" +
@@ -276,10 +365,10 @@ public abstract class GraphDatabaseSettings
             try
             {
                 GraphDatabaseSettings.class.getClassLoader().loadClass( "org.neo4j.kernel.impl.cache.GCResistantCacheProvider" );
-                return new String[]{gcr,soft,weak,strong,none};
+                return new String[]{gcr,soft,weak,strong,clock,budget,offheap,none};
             } catch( ClassNotFoundException e )
             {
-                return new String[]{soft,weak,strong,none};
+                return new String[]{soft,weak,strong,clock,budget,offheap,none};
             }
         }
     }
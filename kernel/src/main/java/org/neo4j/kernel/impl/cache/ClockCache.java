@@ -0,0 +1,430 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.cache;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cache holding at most a fixed number of elements, evicting with the
+ * clock (second chance) approximation of LRU.
+ * <p>
+ * Elements are kept in a concurrent map from id to element, so
+ * {@link #get(long)} doesn't take any lock, it only marks the element as
+ * referenced. For eviction the elements are split into a number of segments,
+ * selected by id, each with a ring of slots and a clock hand guarded by the
+ * segment monitor. When a segment is full the hand sweeps the ring, clearing
+ * the referenced mark of the elements it passes, and evicts the first element
+ * that hasn't been referenced since the hand last passed it.
+ * <p>
+ * What "full" means is decided by {@link #weigh(EntityWithSize)}, each
+ * element weighs 1 here, subclasses may weigh them differently.
+ */
+public class ClockCache<E extends EntityWithSize> implements Cache<E>
+{
+    private static final int MAX_SEGMENTS = 16; // must be a power of two
+
+    private final String name;
+    private final ConcurrentHashMap<Long,Entry<E>> map;
+    private final Segment<E>[] segments;
+    private final int segmentMask;
+    private final HitCounter counter = new HitCounter();
+
+    public ClockCache( String name, int maxSize )
+    {
+        this( name, maxSize, maxSize );
+    }
+
+    /**
+     * Caches with a maximum weight below {@value #MAX_SEGMENTS} get fewer
+     * segments, so that every segment can hold at least one element and the
+     * maximum weight is still respected.
+     *
+     * @param name the name of the cache.
+     * @param maxWeight the maximum total weight of the elements in the cache.
+     * @param expectedSize the expected number of elements, for initial sizing.
+     */
+    @SuppressWarnings( { "unchecked", "rawtypes" } )
+    protected ClockCache( String name, long maxWeight, int expectedSize )
+    {
+        if ( name == null || maxWeight < 1 )
+        {
+            throw new IllegalArgumentException( "maxSize=" + maxWeight + ", name=" + name );
+        }
+        this.name = name;
+        this.map = new ConcurrentHashMap<Long,Entry<E>>( expectedSize * 4 / 3 + 1 );
+        int segmentCount = MAX_SEGMENTS;
+        while ( segmentCount > maxWeight )
+        {
+            segmentCount >>= 1;
+        }
+        this.segments = new Segment[segmentCount];
+        this.segmentMask = segmentCount - 1;
+        for ( int i = 0; i < segmentCount; i++ )
+        {
+            // spread the remainder over the first segments
+            long segmentWeight = maxWeight / segmentCount + (i < maxWeight % segmentCount ? 1 : 0);
+            segments[i] = new Segment<E>( this, segmentWeight, Math.max( 1, expectedSize / segmentCount ) );
+        }
+    }
+
+    private Segment<E> segmentFor( long id )
+    {
+        int hash = (int) (id ^ (id >>> 32));
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        hash ^= (hash >>> 7) ^ (hash >>> 4);
+        return segments[hash & segmentMask];
+    }
+
+    /**
+     * @return the weight of {@code value} when accounting for how full the
+     * cache is, 1 for all elements in this implementation.
+     */
+    protected int weigh( E value )
+    {
+        return 1;
+    }
+
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public void put( E value )
+    {
+        segmentFor( value.getId() ).put( value );
+    }
+
+    @Override
+    public void putAll( Collection<E> values )
+    {
+        for ( E value : values )
+        {
+            put( value );
+        }
+    }
+
+    @Override
+    public E remove( long key )
+    {
+        return segmentFor( key ).remove( key );
+    }
+
+    @Override
+    public E get( long key )
+    {
+        Entry<E> entry = map.get( key );
+        if ( entry == null )
+        {
+            return counter.<E>count( null );
+        }
+        if ( !entry.referenced )
+        {
+            // only write when needed, to not bounce the cache line around
+            entry.referenced = true;
+        }
+        return counter.count( entry.value );
+    }
+
+    @Override
+    public void clear()
+    {
+        for ( Segment<E> segment : segments )
+        {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public long size()
+    {
+        return map.size();
+    }
+
+    public int maxSize()
+    {
+        return (int) Math.min( Integer.MAX_VALUE, maxWeight() );
+    }
+
+    /**
+     * @return the total weight of the elements currently in the cache.
+     */
+    protected long weight()
+    {
+        long weight = 0;
+        for ( Segment<E> segment : segments )
+        {
+            weight += segment.weight;
+        }
+        return weight;
+    }
+
+    /**
+     * @return the maximum total weight of the elements in the cache.
+     */
+    protected long maxWeight()
+    {
+        long maxWeight = 0;
+        for ( Segment<E> segment : segments )
+        {
+            maxWeight += segment.maxWeight;
+        }
+        return maxWeight;
+    }
+
+    /**
+     * Changes the weight of {@code value}, if it is in the cache, evicting
+     * other elements if the cache then is too full.
+     *
+     * @return whether or not {@code value} (that very instance) was in the
+     * cache.
+     */
+    protected boolean reweigh( E value, int newWeight )
+    {
+        return segmentFor( value.getId() ).reweigh( value, newWeight );
+    }
+
+    /**
+     * Called when {@code value} is evicted to make room for other elements,
+     * not when removed or cleared. Called just before {@code value} leaves
+     * the cache, so that {@link #get(long)} still finds it until whatever is
+     * done with it here is done. Called while holding the monitor of the
+     * segment {@code value} is in, which means that it's ordered with respect
+     * to {@link #reweigh(EntityWithSize, int)} of that same element.
+     */
+    protected void evicted( E value )
+    {
+    }
+
+    @Override
+    public long hitCount()
+    {
+        return counter.getHitsCount();
+    }
+
+    @Override
+    public long missCount()
+    {
+        return counter.getMissCount();
+    }
+
+    @Override
+    public void updateSize( E entity, int newSize )
+    {
+        // do nothing
+    }
+
+    @Override
+    public void printStatistics()
+    {
+        // do nothing
+    }
+
+    private static class Entry<E>
+    {
+        final E value;
+        final int slot;
+        int weight; // guarded by the segment
+        volatile boolean referenced;
+
+        Entry( E value, int slot, int weight )
+        {
+            this.value = value;
+            this.slot = slot;
+            this.weight = weight;
+        }
+    }
+
+    private static class Segment<E extends EntityWithSize>
+    {
+        private final ClockCache<E> cache;
+        private final ConcurrentHashMap<Long,Entry<E>> map;
+        private final long maxWeight;
+        private volatile long weight; // only written under the monitor
+
+        // Guarded by this, as are the entries in map for ids in this segment
+        private Entry<E>[] slots;
+        private int[] freeSlots;
+        private int freeCount;
+        private int count;
+        private int hand;
+
+        @SuppressWarnings( { "unchecked", "rawtypes" } )
+        Segment( ClockCache<E> cache, long maxWeight, int initialSlots )
+        {
+            this.cache = cache;
+            this.map = cache.map;
+            this.maxWeight = maxWeight;
+            this.slots = new Entry[initialSlots];
+            this.freeSlots = new int[initialSlots];
+            resetFreeSlots();
+        }
+
+        private void resetFreeSlots()
+        {
+            for ( int i = 0; i < freeSlots.length; i++ )
+            {
+                freeSlots[i] = freeSlots.length - 1 - i;
+            }
+            freeCount = freeSlots.length;
+        }
+
+        synchronized void put( E value )
+        {
+            Long key = value.getId();
+            int newWeight = cache.weigh( value );
+            Entry<E> existing = map.get( key );
+            int slot;
+            if ( existing != null )
+            {
+                slot = existing.slot;
+                weight -= existing.weight;
+                count--;
+            }
+            else
+            {
+                slot = -1;
+            }
+            // make room before placing the new element so that it's never
+            // the one evicted, but don't evict down to nothing for it
+            while ( count > 0 && weight + newWeight > maxWeight )
+            {
+                evict( existing );
+            }
+            if ( slot == -1 )
+            {
+                slot = freeSlot();
+            }
+            Entry<E> entry = new Entry<E>( value, slot, newWeight );
+            slots[slot] = entry;
+            map.put( key, entry );
+            weight += newWeight;
+            count++;
+        }
+
+        synchronized boolean reweigh( E value, int newWeight )
+        {
+            Entry<E> entry = map.get( value.getId() );
+            if ( entry == null || entry.value != value )
+            {
+                return false;
+            }
+            weight += newWeight - entry.weight;
+            entry.weight = newWeight;
+            while ( count > 1 && weight > maxWeight )
+            {
+                evict( entry );
+            }
+            return true;
+        }
+
+        private int freeSlot()
+        {
+            if ( freeCount == 0 )
+            {
+                // only when elements are weighed by something else than count
+                int oldLength = slots.length;
+                Entry<E>[] newSlots = copyOf( slots, oldLength * 2 );
+                slots = newSlots;
+                freeSlots = new int[newSlots.length];
+                for ( int i = newSlots.length - 1; i >= oldLength; i-- )
+                {
+                    freeSlots[freeCount++] = i;
+                }
+            }
+            return freeSlots[--freeCount];
+        }
+
+        @SuppressWarnings( { "unchecked", "rawtypes" } )
+        private static <E> Entry<E>[] copyOf( Entry<E>[] slots, int length )
+        {
+            Entry<E>[] result = new Entry[length];
+            System.arraycopy( slots, 0, result, 0, slots.length );
+            return result;
+        }
+
+        /**
+         * Sweeps the clock hand until it finds an entry, other than
+         * {@code keep}, not referenced since the last sweep and evicts it.
+         * Terminates within two laps since every referenced mark passed gets
+         * cleared, given that there's some other entry than {@code keep}.
+         */
+        private void evict( Entry<E> keep )
+        {
+            while ( true )
+            {
+                Entry<E> entry = slots[hand];
+                int slot = hand;
+                hand = (hand + 1) % slots.length;
+                if ( entry == null || entry == keep )
+                {
+                    continue;
+                }
+                if ( entry.referenced )
+                {
+                    entry.referenced = false;
+                }
+                else
+                {
+                    cache.evicted( entry.value );
+                    map.remove( entry.value.getId() );
+                    release( entry );
+                    return;
+                }
+            }
+        }
+
+        private void release( Entry<E> entry )
+        {
+            slots[entry.slot] = null;
+            freeSlots[freeCount++] = entry.slot;
+            weight -= entry.weight;
+            count--;
+        }
+
+        synchronized E remove( long key )
+        {
+            Entry<E> entry = map.remove( key );
+            if ( entry == null )
+            {
+                return null;
+            }
+            release( entry );
+            return entry.value;
+        }
+
+        synchronized void clear()
+        {
+            for ( int i = 0; i < slots.length; i++ )
+            {
+                if ( slots[i] != null )
+                {
+                    map.remove( slots[i].value.getId() );
+                    slots[i] = null;
+                }
+            }
+            resetFreeSlots();
+            weight = 0;
+            count = 0;
+        }
+    }
+}
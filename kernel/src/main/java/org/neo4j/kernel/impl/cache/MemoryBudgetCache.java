@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.cache;
+
+/**
+ * A {@link ClockCache} bounded by the estimated heap usage of its elements,
+ * as told by {@link SizeOf#size()}, instead of by their number. Elements
+ * grow as more of their properties and relationships are loaded, which is
+ * reported through {@link #updateSize(EntityWithSize, int)}, and the cache
+ * evicts other elements to stay within its budget when that happens.
+ */
+public class MemoryBudgetCache<E extends EntityWithSize> extends ClockCache<E>
+{
+    // just for initial sizing of the map, elements seldom get this small
+    private static final int MIN_EXPECTED_ELEMENT_SIZE = 256;
+
+    public MemoryBudgetCache( String name, long maxBytes )
+    {
+        super( name, maxBytes, (int) Math.min( 1 << 20, Math.max( 16, maxBytes / MIN_EXPECTED_ELEMENT_SIZE ) ) );
+    }
+
+    @Override
+    protected int weigh( E value )
+    {
+        int size = value.size();
+        value.setRegisteredSize( size );
+        return size;
+    }
+
+    @Override
+    public void updateSize( E entity, int newSize )
+    {
+        entity.setRegisteredSize( newSize );
+        reweigh( entity, newSize );
+    }
+
+    /**
+     * @return the estimated number of bytes used by the elements currently
+     * in this cache.
+     */
+    public long bytesUsed()
+    {
+        return weight();
+    }
+
+    /**
+     * @return the number of bytes this cache may use.
+     */
+    public long maxBytes()
+    {
+        return maxWeight();
+    }
+}
@@ -0,0 +1,302 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.cache;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A cache in two tiers: a {@link ClockCache} of live objects on the java
+ * heap, holding at most a fixed number of elements, backed by an
+ * {@link OffHeapStore} of serialized elements outside of the heap.
+ * <p>
+ * Elements evicted from the heap tier are serialized with an
+ * {@link EntityCodec} into the off heap tier. They are serialized before
+ * they leave the heap tier, so that a cached element is always in at least
+ * one of the tiers. A {@link #get(long)} missing the heap tier restores the
+ * element from a copy of its serialized form and moves it to the heap tier.
+ * That is done while holding a lock for the id, as are puts and removes, so
+ * that a lookup missing both tiers waits for the move to finish, two threads
+ * can't restore two instances of the same element, and a restore can't
+ * bring back an element removed in the mean time.
+ * <p>
+ * Committed changes are applied to the cached element in place, followed by
+ * {@link #updateSize(EntityWithSize, int)}. If the element has been evicted
+ * (and serialized) in the mean time it's no longer in the heap tier by then
+ * and its serialized form is dropped, since it may be stale, as is any
+ * instance restored from it.
+ * <p>
+ * The off heap memory is direct buffers, which the JVM limits the total size
+ * of, see -XX:MaxDirectMemorySize.
+ */
+public class OffHeapCache<E extends EntityWithSize> implements Cache<E>
+{
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    private static final int LOCK_STRIPE_COUNT = 64; // must be a power of two
+
+    private final String name;
+    private final EntityCodec<E> codec;
+    private final HeapTier heap;
+    private final OffHeapStore offHeap;
+    private final HitCounter counter = new HitCounter();
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPE_COUNT];
+    private final ThreadLocal<ByteBuffer> buffers = new ThreadLocal<ByteBuffer>()
+    {
+        @Override
+        protected ByteBuffer initialValue()
+        {
+            return ByteBuffer.allocate( INITIAL_BUFFER_SIZE );
+        }
+    };
+
+    /**
+     * @param name the name of the cache.
+     * @param codec how to serialize elements for the off heap tier.
+     * @param maxHeapSize the maximum number of elements in the heap tier.
+     * @param maxOffHeapBytes the maximum number of bytes of the off heap
+     * tier.
+     */
+    public OffHeapCache( String name, EntityCodec<E> codec, int maxHeapSize, long maxOffHeapBytes )
+    {
+        this.name = name;
+        this.codec = codec;
+        this.heap = new HeapTier( name, maxHeapSize );
+        this.offHeap = new OffHeapStore( maxOffHeapBytes );
+        for ( int i = 0; i < locks.length; i++ )
+        {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    private ReentrantLock lockId( long id )
+    {
+        ReentrantLock lock = locks[(int) (id ^ (id >>> 32)) & (LOCK_STRIPE_COUNT - 1)];
+        lock.lock();
+        return lock;
+    }
+
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public void put( E value )
+    {
+        ReentrantLock lock = lockId( value.getId() );
+        try
+        {
+            heap.put( value );
+            offHeap.remove( value.getId() );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void putAll( Collection<E> values )
+    {
+        for ( E value : values )
+        {
+            put( value );
+        }
+    }
+
+    @Override
+    public E remove( long key )
+    {
+        ReentrantLock lock = lockId( key );
+        try
+        {
+            E removed = heap.remove( key );
+            offHeap.remove( key );
+            return removed;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E get( long key )
+    {
+        E value = heap.get( key );
+        if ( value == null )
+        {
+            value = restore( key );
+        }
+        return counter.count( value );
+    }
+
+    private E restore( long key )
+    {
+        ReentrantLock lock = lockId( key );
+        try
+        {
+            E value = heap.get( key );
+            if ( value == null )
+            {
+                ByteBuffer record = offHeap.get( key );
+                if ( record != null )
+                {
+                    value = codec.read( key, record );
+                    // removed first, since putting it in the heap tier can
+                    // get it evicted and serialized again right away
+                    offHeap.remove( key );
+                    heap.put( value );
+                }
+            }
+            return value;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        heap.clear();
+        offHeap.clear();
+    }
+
+    @Override
+    public long size()
+    {
+        return heap.size() + offHeap.size();
+    }
+
+    /**
+     * @return the number of elements in the heap tier.
+     */
+    public long heapSize()
+    {
+        return heap.size();
+    }
+
+    /**
+     * @return the number of elements in the off heap tier.
+     */
+    public long offHeapSize()
+    {
+        return offHeap.size();
+    }
+
+    /**
+     * @return the number of bytes of memory reserved for the off heap tier so
+     * far.
+     */
+    public long offHeapBytesReserved()
+    {
+        return offHeap.reservedBytes();
+    }
+
+    @Override
+    public long hitCount()
+    {
+        return counter.getHitsCount();
+    }
+
+    @Override
+    public long missCount()
+    {
+        return counter.getMissCount();
+    }
+
+    @Override
+    public void updateSize( E entity, int newSize )
+    {
+        if ( !heap.reweigh( entity, 1 ) )
+        {
+            // changed after having been evicted, the serialized form may not
+            // include the change, nor an instance restored from it. Eviction
+            // is ordered with reweigh so if it's still in the heap tier any
+            // later serialization will include it.
+            ReentrantLock lock = lockId( entity.getId() );
+            try
+            {
+                heap.remove( entity.getId() );
+                offHeap.remove( entity.getId() );
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void printStatistics()
+    {
+        // do nothing
+    }
+
+    private void serialize( E value )
+    {
+        ByteBuffer buffer = buffers.get();
+        while ( true )
+        {
+            buffer.clear();
+            try
+            {
+                codec.write( value, buffer );
+                break;
+            }
+            catch ( BufferOverflowException e )
+            {
+                if ( buffer.capacity() > OffHeapStore.maxRecordSize() )
+                {
+                    return; // too big to keep, let it go
+                }
+                buffer = ByteBuffer.allocate( buffer.capacity() * 2 );
+                buffers.set( buffer );
+            }
+            catch ( RuntimeException e )
+            {
+                // changed while being serialized, which means that updateSize
+                // is coming and would have dropped it anyway
+                return;
+            }
+        }
+        buffer.flip();
+        offHeap.put( value.getId(), buffer );
+    }
+
+    private class HeapTier extends ClockCache<E>
+    {
+        HeapTier( String name, int maxSize )
+        {
+            super( name, maxSize );
+        }
+
+        @Override
+        protected void evicted( E value )
+        {
+            serialize( value );
+        }
+    }
+}
@@ -0,0 +1,565 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.cache;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Byte records keyed by id, stored in direct {@link ByteBuffer}s outside of
+ * the java heap.
+ * <p>
+ * Memory is reserved in slabs, up to a fixed total, and each slab is carved
+ * into equally sized blocks. There are a number of size classes, with block
+ * sizes doubling from {@link #MIN_BLOCK_SIZE}, and a record goes into a block
+ * of the smallest class it fits in. When a class is out of free blocks and
+ * no more slabs can be reserved it evicts its blocks in the order they were
+ * handed out. Records too big for the largest class aren't stored.
+ * <p>
+ * Each block starts with the id of its record, or {@link #FREE}, and the
+ * length of the record. The free blocks of a class are linked through the
+ * blocks themselves, so the only per record state on the java heap is the
+ * entry in the id to block index, which is a striped open addressing hash
+ * table of primitive longs. Each size class is guarded by its own monitor.
+ * The index is only changed while holding the monitor of the size class of
+ * the block in question.
+ * <p>
+ * {@link #clear()} gives the slabs back right away, instead of leaving them
+ * to the garbage collector, see {@link #freeDirect(ByteBuffer)}.
+ */
+class OffHeapStore
+{
+    static final int MIN_BLOCK_SIZE = 32;
+    private static final int SIZE_CLASSES = 12; // largest block is 64k
+    private static final int MIN_SLAB_SIZE = MIN_BLOCK_SIZE << (SIZE_CLASSES - 1);
+    private static final int MAX_SLAB_SIZE = 1024 * 1024;
+    private static final long FREE = -1;
+    private static final int ID_OFFSET = 0;
+    private static final int LENGTH_OFFSET = 8; // of the record, or of the next free block
+    private static final int HEADER_SIZE = 12;
+
+    private final long maxBytes;
+    private final int slabSize;
+    private final AtomicLong reservedBytes = new AtomicLong();
+    private final Index index = new Index();
+    private final SizeClass[] classes = new SizeClass[SIZE_CLASSES];
+
+    OffHeapStore( long maxBytes )
+    {
+        if ( maxBytes < 0 )
+        {
+            throw new IllegalArgumentException( "maxBytes=" + maxBytes );
+        }
+        this.maxBytes = maxBytes;
+        // enough slabs for all size classes to get a few each
+        this.slabSize = (int) Math.max( MIN_SLAB_SIZE, Math.min( MAX_SLAB_SIZE, maxBytes / (SIZE_CLASSES * 4) ) );
+        for ( int i = 0; i < SIZE_CLASSES; i++ )
+        {
+            classes[i] = new SizeClass( this, i, MIN_BLOCK_SIZE << i );
+        }
+    }
+
+    /**
+     * @return the largest record, in bytes, that can be stored.
+     */
+    static int maxRecordSize()
+    {
+        return (MIN_BLOCK_SIZE << (SIZE_CLASSES - 1)) - HEADER_SIZE;
+    }
+
+    /**
+     * Stores the remaining bytes of {@code record} for {@code id}, replacing
+     * any previous record for it. The record is consumed.
+     *
+     * @return whether or not the record was stored.
+     */
+    boolean put( long id, ByteBuffer record )
+    {
+        remove( id );
+        SizeClass sizeClass = sizeClassFor( record.remaining() + HEADER_SIZE );
+        return sizeClass != null && sizeClass.store( id, record );
+    }
+
+    /**
+     * Copies the bytes of the record for {@code id}, leaving the record in
+     * place.
+     *
+     * @return a copy of the record in a heap buffer positioned at its start,
+     * or {@code null} if there's no record for {@code id}.
+     */
+    ByteBuffer get( long id )
+    {
+        long address;
+        while ( (address = index.get( id )) != FREE )
+        {
+            ByteBuffer record = classes[sizeClassOf( address )].read( id, address );
+            if ( record != null )
+            {
+                return record;
+            }
+            // moved or removed concurrently, look again
+        }
+        return null;
+    }
+
+    void remove( long id )
+    {
+        long address;
+        while ( (address = index.get( id )) != FREE )
+        {
+            if ( classes[sizeClassOf( address )].remove( id, address ) )
+            {
+                return;
+            }
+        }
+    }
+
+    void clear()
+    {
+        for ( SizeClass sizeClass : classes )
+        {
+            sizeClass.clear();
+        }
+    }
+
+    /**
+     * @return the number of records stored.
+     */
+    long size()
+    {
+        return index.size();
+    }
+
+    /**
+     * @return the number of bytes reserved in slabs so far.
+     */
+    long reservedBytes()
+    {
+        return reservedBytes.get();
+    }
+
+    long maxBytes()
+    {
+        return maxBytes;
+    }
+
+    private SizeClass sizeClassFor( int length )
+    {
+        for ( SizeClass sizeClass : classes )
+        {
+            if ( sizeClass.blockSize >= length )
+            {
+                return sizeClass;
+            }
+        }
+        return null;
+    }
+
+    private boolean reserveSlab()
+    {
+        while ( true )
+        {
+            long reserved = reservedBytes.get();
+            if ( reserved + slabSize > maxBytes )
+            {
+                return false;
+            }
+            if ( reservedBytes.compareAndSet( reserved, reserved + slabSize ) )
+            {
+                return true;
+            }
+        }
+    }
+
+    private static long address( int sizeClass, int block )
+    {
+        return (((long) sizeClass) << 32) | block;
+    }
+
+    private static int sizeClassOf( long address )
+    {
+        return (int) (address >>> 32);
+    }
+
+    private static int blockOf( long address )
+    {
+        return (int) address;
+    }
+
+    private static class SizeClass
+    {
+        private final OffHeapStore store;
+        private final int sizeClass;
+        private final int blockSize;
+        private final int blocksPerSlab;
+
+        // Guarded by this
+        private final List<ByteBuffer> slabs = new ArrayList<ByteBuffer>();
+        private int blocks;
+        private int firstFree = -1;
+        private int hand;
+
+        SizeClass( OffHeapStore store, int sizeClass, int blockSize )
+        {
+            this.store = store;
+            this.sizeClass = sizeClass;
+            this.blockSize = blockSize;
+            this.blocksPerSlab = store.slabSize / blockSize;
+        }
+
+        synchronized boolean store( long id, ByteBuffer record )
+        {
+            int block = allocate();
+            if ( block == -1 )
+            {
+                return false;
+            }
+            ByteBuffer slab = slabFor( block );
+            int offset = offsetOf( block );
+            slab.putLong( offset + ID_OFFSET, id );
+            slab.putInt( offset + LENGTH_OFFSET, record.remaining() );
+            slab.position( offset + HEADER_SIZE );
+            slab.put( record );
+            store.index.put( id, address( sizeClass, block ) );
+            return true;
+        }
+
+        synchronized ByteBuffer read( long id, long address )
+        {
+            if ( store.index.get( id ) != address )
+            {
+                return null;
+            }
+            int block = blockOf( address );
+            ByteBuffer slab = slabFor( block );
+            int offset = offsetOf( block );
+            byte[] bytes = new byte[slab.getInt( offset + LENGTH_OFFSET )];
+            slab.position( offset + HEADER_SIZE );
+            slab.get( bytes );
+            return ByteBuffer.wrap( bytes );
+        }
+
+        synchronized boolean remove( long id, long address )
+        {
+            if ( !store.index.remove( id, address ) )
+            {
+                return false;
+            }
+            free( blockOf( address ) );
+            return true;
+        }
+
+        synchronized void clear()
+        {
+            for ( int block = 0; block < blocks; block++ )
+            {
+                long owner = owner( block );
+                if ( owner != FREE )
+                {
+                    store.index.remove( owner, address( sizeClass, block ) );
+                }
+            }
+            // the index no longer points into the slabs, so nothing reads them
+            for ( ByteBuffer slab : slabs )
+            {
+                freeDirect( slab );
+            }
+            store.reservedBytes.addAndGet( -(long) slabs.size() * store.slabSize );
+            slabs.clear();
+            blocks = 0;
+            firstFree = -1;
+            hand = 0;
+        }
+
+        private int allocate()
+        {
+            if ( firstFree == -1 && !addSlab() )
+            {
+                if ( blocks == 0 )
+                {
+                    return -1;
+                }
+                evict();
+            }
+            int block = firstFree;
+            firstFree = slabFor( block ).getInt( offsetOf( block ) + LENGTH_OFFSET );
+            return block;
+        }
+
+        private boolean addSlab()
+        {
+            if ( !store.reserveSlab() )
+            {
+                return false;
+            }
+            slabs.add( ByteBuffer.allocateDirect( store.slabSize ) );
+            int newBlocks = blocks + blocksPerSlab;
+            for ( int block = newBlocks - 1; block >= blocks; block-- )
+            {
+                free( block );
+            }
+            blocks = newBlocks;
+            return true;
+        }
+
+        /**
+         * Frees the block under the hand and moves the hand forward. All
+         * blocks are in use when this is called so the hand never passes a
+         * free block, which makes this FIFO in the order blocks were handed
+         * out since the last wrap around.
+         */
+        private void evict()
+        {
+            int block = hand;
+            hand = (hand + 1) % blocks;
+            store.index.remove( owner( block ), address( sizeClass, block ) );
+            free( block );
+        }
+
+        private long owner( int block )
+        {
+            return slabFor( block ).getLong( offsetOf( block ) + ID_OFFSET );
+        }
+
+        private void free( int block )
+        {
+            ByteBuffer slab = slabFor( block );
+            int offset = offsetOf( block );
+            slab.putLong( offset + ID_OFFSET, FREE );
+            slab.putInt( offset + LENGTH_OFFSET, firstFree );
+            firstFree = block;
+        }
+
+        private ByteBuffer slabFor( int block )
+        {
+            return slabs.get( block / blocksPerSlab );
+        }
+
+        private int offsetOf( int block )
+        {
+            return (block % blocksPerSlab) * blockSize;
+        }
+    }
+
+    /**
+     * Frees the memory of a direct buffer right away, instead of when the
+     * buffer is garbage collected. The buffer must not be used afterwards.
+     * JVMs that don't have a cleaner for their direct buffers leave it to the
+     * garbage collector.
+     */
+    private static void freeDirect( ByteBuffer buffer )
+    {
+        try
+        {
+            Method cleanerMethod = buffer.getClass().getMethod( "cleaner" );
+            cleanerMethod.setAccessible( true );
+            Object cleaner = cleanerMethod.invoke( buffer );
+            if ( cleaner != null )
+            {
+                Method cleanMethod = cleaner.getClass().getMethod( "clean" );
+                cleanMethod.setAccessible( true );
+                cleanMethod.invoke( cleaner );
+            }
+        }
+        catch ( Exception e )
+        {
+            // no cleaner to be had, the garbage collector frees it eventually
+        }
+    }
+
+    /**
+     * Maps ids to block addresses. Split into stripes, each an open
+     * addressing hash table with linear probing guarded by its own monitor.
+     */
+    private static class Index
+    {
+        private static final int STRIPES = 64; // must be a power of two
+        private final Stripe[] stripes = new Stripe[STRIPES];
+
+        Index()
+        {
+            for ( int i = 0; i < STRIPES; i++ )
+            {
+                stripes[i] = new Stripe();
+            }
+        }
+
+        private static long hash( long id )
+        {
+            return id * 0x9E3779B97F4A7C15L;
+        }
+
+        private Stripe stripeFor( long hash )
+        {
+            return stripes[(int) (hash >>> 58) & (STRIPES - 1)];
+        }
+
+        /**
+         * @return the address for {@code id}, or {@link OffHeapStore#FREE}.
+         */
+        long get( long id )
+        {
+            long hash = hash( id );
+            return stripeFor( hash ).get( id, hash );
+        }
+
+        void put( long id, long address )
+        {
+            long hash = hash( id );
+            stripeFor( hash ).put( id, hash, address );
+        }
+
+        /**
+         * Removes {@code id} if it maps to {@code address}.
+         *
+         * @return whether or not it was removed.
+         */
+        boolean remove( long id, long address )
+        {
+            long hash = hash( id );
+            return stripeFor( hash ).remove( id, hash, address );
+        }
+
+        long size()
+        {
+            long size = 0;
+            for ( Stripe stripe : stripes )
+            {
+                size += stripe.size();
+            }
+            return size;
+        }
+    }
+
+    private static class Stripe
+    {
+        private static final int INITIAL_CAPACITY = 64; // must be a power of two
+
+        // Keys are stored as id + 1 so that 0 means empty. Guarded by this.
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private long[] values = new long[INITIAL_CAPACITY];
+        private int size;
+
+        private int slotFor( long hash, int capacity )
+        {
+            return (int) (hash >>> 24) & (capacity - 1);
+        }
+
+        synchronized long get( long id, long hash )
+        {
+            int slot = find( id + 1, hash );
+            return slot == -1 ? FREE : values[slot];
+        }
+
+        synchronized void put( long id, long hash, long address )
+        {
+            if ( (size + 1) * 4 > keys.length * 3 )
+            {
+                resize( keys.length * 2 );
+            }
+            long key = id + 1;
+            int mask = keys.length - 1;
+            for ( int slot = slotFor( hash, keys.length ); ; slot = (slot + 1) & mask )
+            {
+                if ( keys[slot] == 0 )
+                {
+                    keys[slot] = key;
+                    values[slot] = address;
+                    size++;
+                    return;
+                }
+                if ( keys[slot] == key )
+                {
+                    values[slot] = address;
+                    return;
+                }
+            }
+        }
+
+        synchronized boolean remove( long id, long hash, long address )
+        {
+            int slot = find( id + 1, hash );
+            if ( slot == -1 || values[slot] != address )
+            {
+                return false;
+            }
+            // shift back following entries of the probe sequence into the hole
+            int mask = keys.length - 1;
+            int hole = slot;
+            for ( int next = (hole + 1) & mask; keys[next] != 0; next = (next + 1) & mask )
+            {
+                int home = slotFor( Index.hash( keys[next] - 1 ), keys.length );
+                if ( ((next - home) & mask) >= ((next - hole) & mask) )
+                {
+                    keys[hole] = keys[next];
+                    values[hole] = values[next];
+                    hole = next;
+                }
+            }
+            keys[hole] = 0;
+            values[hole] = 0;
+            size--;
+            return true;
+        }
+
+        synchronized int size()
+        {
+            return size;
+        }
+
+        private int find( long key, long hash )
+        {
+            int mask = keys.length - 1;
+            for ( int slot = slotFor( hash, keys.length ); keys[slot] != 0; slot = (slot + 1) & mask )
+            {
+                if ( keys[slot] == key )
+                {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        private void resize( int capacity )
+        {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = new long[capacity];
+            values = new long[capacity];
+            int mask = capacity - 1;
+            for ( int i = 0; i < oldKeys.length; i++ )
+            {
+                if ( oldKeys[i] != 0 )
+                {
+                    int slot = slotFor( Index.hash( oldKeys[i] - 1 ), capacity );
+                    while ( keys[slot] != 0 )
+                    {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+}
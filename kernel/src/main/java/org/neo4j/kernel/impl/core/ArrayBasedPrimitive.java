@@ -43,6 +43,12 @@ abstract class ArrayBasedPrimitive extends Primitive implements EntityWithSize
         super( newPrimitive );
     }
     
+    ArrayBasedPrimitive( PropertyData[] properties )
+    {
+        super( false );
+        this.properties = properties;
+    }
+    
     @Override
     public void setRegisteredSize( int size )
     {
@@ -0,0 +1,204 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.core;
+
+import java.nio.ByteBuffer;
+
+import org.neo4j.helpers.UTF8;
+import org.neo4j.kernel.impl.cache.EntityCodec;
+import org.neo4j.kernel.impl.nioneo.store.PropertyData;
+import org.neo4j.kernel.impl.nioneo.store.PropertyDatas;
+import org.neo4j.kernel.impl.util.RelIdArray;
+
+/**
+ * {@link EntityCodec}s for the cached state of nodes and relationships, i.e.
+ * the properties and relationship ids loaded so far. Property values other
+ * than primitives and strings (arrays) are written as not loaded, to be
+ * loaded again on demand like with light loading.
+ */
+public class CachedEntityCodecs
+{
+    private static final byte NOT_LOADED = 0;
+    private static final byte BOOLEAN = 1;
+    private static final byte BYTE = 2;
+    private static final byte SHORT = 3;
+    private static final byte CHAR = 4;
+    private static final byte INT = 5;
+    private static final byte LONG = 6;
+    private static final byte FLOAT = 7;
+    private static final byte DOUBLE = 8;
+    private static final byte STRING = 9;
+
+    public static final EntityCodec<NodeImpl> NODE = new EntityCodec<NodeImpl>()
+    {
+        @Override
+        public void write( NodeImpl node, ByteBuffer buffer )
+        {
+            buffer.putLong( node.getRelChainPosition() );
+            RelIdArray[] relationships = node.getLoadedRelationships();
+            if ( relationships == null )
+            {
+                buffer.putInt( -1 );
+            }
+            else
+            {
+                buffer.putInt( relationships.length );
+                for ( RelIdArray ids : relationships )
+                {
+                    ids.writeTo( buffer );
+                }
+            }
+            writeProperties( node.allProperties(), buffer );
+        }
+
+        @Override
+        public NodeImpl read( long id, ByteBuffer buffer )
+        {
+            long relChainPosition = buffer.getLong();
+            int relationshipCount = buffer.getInt();
+            RelIdArray[] relationships = null;
+            if ( relationshipCount != -1 )
+            {
+                relationships = new RelIdArray[relationshipCount];
+                for ( int i = 0; i < relationshipCount; i++ )
+                {
+                    relationships[i] = RelIdArray.readFrom( buffer );
+                }
+            }
+            return new NodeImpl( id, relChainPosition, relationships, readProperties( buffer ) );
+        }
+    };
+
+    public static final EntityCodec<RelationshipImpl> RELATIONSHIP = new EntityCodec<RelationshipImpl>()
+    {
+        @Override
+        public void write( RelationshipImpl relationship, ByteBuffer buffer )
+        {
+            buffer.putLong( relationship.getStartNodeId() );
+            buffer.putLong( relationship.getEndNodeId() );
+            buffer.putInt( relationship.getTypeId() );
+            writeProperties( relationship.allProperties(), buffer );
+        }
+
+        @Override
+        public RelationshipImpl read( long id, ByteBuffer buffer )
+        {
+            long startNodeId = buffer.getLong();
+            long endNodeId = buffer.getLong();
+            int typeId = buffer.getInt();
+            return new RelationshipImpl( id, startNodeId, endNodeId, typeId, readProperties( buffer ) );
+        }
+    };
+
+    private CachedEntityCodecs()
+    {
+    }
+
+    private static void writeProperties( PropertyData[] properties, ByteBuffer buffer )
+    {
+        if ( properties == null )
+        {
+            buffer.putInt( -1 );
+            return;
+        }
+        buffer.putInt( properties.length );
+        for ( PropertyData property : properties )
+        {
+            buffer.putInt( property.getIndex() );
+            buffer.putLong( property.getId() );
+            Object value = property.getValue();
+            if ( value instanceof Boolean )
+            {
+                buffer.put( BOOLEAN ).put( (byte) (((Boolean) value).booleanValue() ? 1 : 0) );
+            }
+            else if ( value instanceof Byte )
+            {
+                buffer.put( BYTE ).put( ((Byte) value).byteValue() );
+            }
+            else if ( value instanceof Short )
+            {
+                buffer.put( SHORT ).putShort( ((Short) value).shortValue() );
+            }
+            else if ( value instanceof Character )
+            {
+                buffer.put( CHAR ).putChar( ((Character) value).charValue() );
+            }
+            else if ( value instanceof Integer )
+            {
+                buffer.put( INT ).putInt( ((Integer) value).intValue() );
+            }
+            else if ( value instanceof Long )
+            {
+                buffer.put( LONG ).putLong( ((Long) value).longValue() );
+            }
+            else if ( value instanceof Float )
+            {
+                buffer.put( FLOAT ).putFloat( ((Float) value).floatValue() );
+            }
+            else if ( value instanceof Double )
+            {
+                buffer.put( DOUBLE ).putDouble( ((Double) value).doubleValue() );
+            }
+            else if ( value instanceof String )
+            {
+                byte[] bytes = UTF8.encode( (String) value );
+                buffer.put( STRING ).putInt( bytes.length ).put( bytes );
+            }
+            else
+            {
+                buffer.put( NOT_LOADED );
+            }
+        }
+    }
+
+    private static PropertyData[] readProperties( ByteBuffer buffer )
+    {
+        int count = buffer.getInt();
+        if ( count == -1 )
+        {
+            return null;
+        }
+        PropertyData[] properties = new PropertyData[count];
+        for ( int i = 0; i < count; i++ )
+        {
+            int index = buffer.getInt();
+            long id = buffer.getLong();
+            byte type = buffer.get();
+            switch ( type )
+            {
+            case BOOLEAN: properties[i] = PropertyDatas.forBoolean( index, id, buffer.get() != 0 ); break;
+            case BYTE: properties[i] = PropertyDatas.forByte( index, id, buffer.get() ); break;
+            case SHORT: properties[i] = PropertyDatas.forShort( index, id, buffer.getShort() ); break;
+            case CHAR: properties[i] = PropertyDatas.forChar( index, id, buffer.getChar() ); break;
+            case INT: properties[i] = PropertyDatas.forInt( index, id, buffer.getInt() ); break;
+            case LONG: properties[i] = PropertyDatas.forLong( index, id, buffer.getLong() ); break;
+            case FLOAT: properties[i] = PropertyDatas.forFloat( index, id, buffer.getFloat() ); break;
+            case DOUBLE: properties[i] = PropertyDatas.forDouble( index, id, buffer.getDouble() ); break;
+            case STRING:
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get( bytes );
+                properties[i] = PropertyDatas.forStringOrArray( index, id, UTF8.decode( bytes ) );
+                break;
+            default: properties[i] = PropertyDatas.forStringOrArray( index, id, null ); break;
+            }
+        }
+        return properties;
+    }
+}
@@ -19,7 +19,6 @@
  */
 package org.neo4j.kernel.impl.core;
 
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -29,6 +28,7 @@ import org.neo4j.graphdb.NotFoundException;
 import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.RelationshipType;
 import org.neo4j.helpers.collection.PrefetchingIterator;
+import org.neo4j.kernel.impl.util.PrimitiveLongSet;
 import org.neo4j.kernel.impl.util.RelIdArray;
 import org.neo4j.kernel.impl.util.RelIdArray.DirectionWrapper;
 import org.neo4j.kernel.impl.util.RelIdIterator;
@@ -120,7 +120,7 @@ class IntArrayIterator extends PrefetchingIterator<Relationship> implements Iter
                             RelIdIterator itr = newRels.get( type );
                             if ( itr == null )
                             {
-                                Collection<Long> remove = nodeManager.getCowRelationshipRemoveMap( fromNode, type );
+                                PrimitiveLongSet remove = nodeManager.getCowRelationshipRemoveMap( fromNode, type );
                                 itr = remove == null ? ids.iterator( direction ) :
                                         RelIdArray.from( ids, null, remove ).iterator( direction );
                                 newRels.put( type, itr );
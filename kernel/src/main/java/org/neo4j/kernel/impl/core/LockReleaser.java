@@ -20,11 +20,7 @@
 package org.neo4j.kernel.impl.core;
 
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map.Entry;
-import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -43,6 +39,9 @@ import org.neo4j.kernel.impl.nioneo.store.Record;
 import org.neo4j.kernel.impl.transaction.LockManager;
 import org.neo4j.kernel.impl.transaction.LockType;
 import org.neo4j.kernel.impl.util.ArrayMap;
+import org.neo4j.kernel.impl.util.PrimitiveLongIterator;
+import org.neo4j.kernel.impl.util.PrimitiveLongMap;
+import org.neo4j.kernel.impl.util.PrimitiveLongSet;
 import org.neo4j.kernel.impl.util.RelIdArray;
 import org.neo4j.kernel.impl.util.RelIdArray.DirectionWrapper;
 import org.neo4j.kernel.impl.util.RelIdArrayWithLoops;
@@ -74,10 +73,10 @@ public class LockReleaser
     {
         PrimitiveElement() {}
 
-        private final ArrayMap<Long,CowNodeElement> nodes =
-            new ArrayMap<Long,CowNodeElement>();
-        private final ArrayMap<Long,CowRelElement> relationships =
-            new ArrayMap<Long,CowRelElement>();
+        private final PrimitiveLongMap<CowNodeElement> nodes =
+            new PrimitiveLongMap<CowNodeElement>();
+        private final PrimitiveLongMap<CowRelElement> relationships =
+            new PrimitiveLongMap<CowRelElement>();
         private CowGraphElement graph;
 
         public CowNodeElement nodeElement( long id, boolean create )
@@ -151,7 +150,7 @@ public class LockReleaser
         private long firstProp = Record.NO_NEXT_PROPERTY.intValue();
 
         private ArrayMap<String,RelIdArray> relationshipAddMap;
-        private ArrayMap<String,Collection<Long>> relationshipRemoveMap;
+        private ArrayMap<String,PrimitiveLongSet> relationshipRemoveMap;
 
         public ArrayMap<String, RelIdArray> getRelationshipAddMap( boolean create )
         {
@@ -172,20 +171,20 @@ public class LockReleaser
             return result;
         }
 
-        public ArrayMap<String, Collection<Long>> getRelationshipRemoveMap( boolean create )
+        public ArrayMap<String, PrimitiveLongSet> getRelationshipRemoveMap( boolean create )
         {
-            if ( relationshipRemoveMap == null && create ) relationshipRemoveMap = new ArrayMap<String, Collection<Long>>();
+            if ( relationshipRemoveMap == null && create ) relationshipRemoveMap = new ArrayMap<String, PrimitiveLongSet>();
             return relationshipRemoveMap;
         }
 
-        public Collection<Long> getRelationshipRemoveMap( String type, boolean create )
+        public PrimitiveLongSet getRelationshipRemoveMap( String type, boolean create )
         {
-            ArrayMap<String, Collection<Long>> map = getRelationshipRemoveMap( create );
+            ArrayMap<String, PrimitiveLongSet> map = getRelationshipRemoveMap( create );
             if ( map == null ) return null;
-            Collection<Long> result = map.get( type );
+            PrimitiveLongSet result = map.get( type );
             if ( result == null && create )
             {
-                result = new HashSet<Long>();
+                result = new PrimitiveLongSet();
                 map.put( type, result );
             }
             return result;
@@ -330,12 +329,12 @@ public class LockReleaser
         }
     }
 
-    public Collection<Long> getCowRelationshipRemoveMap( NodeImpl node, String type )
+    public PrimitiveLongSet getCowRelationshipRemoveMap( NodeImpl node, String type )
     {
         PrimitiveElement primitiveElement = cowMap.get( getTransaction() );
         if ( primitiveElement != null )
         {
-            ArrayMap<Long,CowNodeElement> cowElements =
+            PrimitiveLongMap<CowNodeElement> cowElements =
                 primitiveElement.nodes;
             CowNodeElement element = cowElements.get( node.getId() );
             if ( element != null && element.relationshipRemoveMap != null )
@@ -346,7 +345,7 @@ public class LockReleaser
         return null;
     }
 
-    public Collection<Long> getOrCreateCowRelationshipRemoveMap( NodeImpl node, String type )
+    public PrimitiveLongSet getOrCreateCowRelationshipRemoveMap( NodeImpl node, String type )
     {
         return getPrimitiveElement( true ).nodeElement( node.getId(), true ).getRelationshipRemoveMap( type, true );
     }
@@ -433,15 +432,16 @@ public class LockReleaser
         {
             return;
         }
-        ArrayMap<Long,CowNodeElement> cowNodeElements = element.nodes;
-        Set<Entry<Long,CowNodeElement>> nodeEntrySet =
-            cowNodeElements.entrySet();
-        for ( Entry<Long,CowNodeElement> entry : nodeEntrySet )
+        boolean relationshipsRemoved = false;
+        for ( CowNodeElement nodeElement : element.nodes.values() )
         {
-            NodeImpl node = nodeManager.getNodeIfCached( entry.getKey() );
+            if ( param == Status.STATUS_COMMITTED && nodeElement.relationshipRemoveMap != null )
+            {
+                relationshipsRemoved = true;
+            }
+            NodeImpl node = nodeManager.getNodeIfCached( nodeElement.id );
             if ( node != null )
             {
-                CowNodeElement nodeElement = entry.getValue();
                 if ( param == Status.STATUS_COMMITTED )
                 {
                     node.commitRelationshipMaps( nodeElement.relationshipAddMap,
@@ -456,15 +456,15 @@ public class LockReleaser
                 }
             }
         }
-        ArrayMap<Long,CowRelElement> cowRelElements = element.relationships;
-        Set<Entry<Long,CowRelElement>> relEntrySet =
-            cowRelElements.entrySet();
-        for ( Entry<Long,CowRelElement> entry : relEntrySet )
+        if ( relationshipsRemoved )
         {
-            RelationshipImpl rel = nodeManager.getRelIfCached( entry.getKey() );
+            nodeManager.relationshipsRemoved();
+        }
+        for ( CowRelElement relElement : element.relationships.values() )
+        {
+            RelationshipImpl rel = nodeManager.getRelIfCached( relElement.id );
             if ( rel != null )
             {
-                CowRelElement relElement = entry.getValue();
                 if ( param == Status.STATUS_COMMITTED )
                 {
                     rel.commitPropertyMaps( relElement.propertyAddMap,
@@ -659,9 +659,9 @@ public class LockReleaser
     private void populateRelationshipPropertyEvents( PrimitiveElement element,
             TransactionDataImpl result )
     {
-        for ( long relId : element.relationships.keySet() )
+        for ( CowRelElement relElement : element.relationships.values() )
         {
-            CowRelElement relElement = element.relationships.get( relId );
+            long relId = relElement.id;
             RelationshipProxy rel = nodeManager.newRelationshipProxyById( relId );
             RelationshipImpl relImpl = nodeManager.getRelationshipForProxy( relId, null );
             if ( relElement.deleted )
@@ -702,9 +702,9 @@ public class LockReleaser
     private void populateNodeRelEvent( PrimitiveElement element,
             TransactionDataImpl result )
     {
-        for ( long nodeId : element.nodes.keySet() )
+        for ( CowNodeElement nodeElement : element.nodes.values() )
         {
-            CowNodeElement nodeElement = element.nodes.get( nodeId );
+            long nodeId = nodeElement.id;
             NodeProxy node = nodeManager.newNodeProxyById( nodeId );
             NodeImpl nodeImpl = nodeManager.getNodeForProxy( nodeId, null );
             if ( nodeElement.deleted )
@@ -727,9 +727,10 @@ public class LockReleaser
             {
                 for ( String type : nodeElement.relationshipRemoveMap.keySet() )
                 {
-                    Collection<Long> deletedRels = nodeElement.relationshipRemoveMap.get( type );
-                    for ( long relId : deletedRels )
+                    PrimitiveLongSet deletedRels = nodeElement.relationshipRemoveMap.get( type );
+                    for ( PrimitiveLongIterator iterator = deletedRels.iterator(); iterator.hasNext(); )
                     {
+                        long relId = iterator.next();
                         if ( nodeManager.relCreated( relId ) )
                         {
                             continue;
@@ -816,7 +817,7 @@ public class LockReleaser
         PrimitiveElement primitiveElement = cowMap.get( tx );
         if ( primitiveElement != null )
         {
-            ArrayMap<Long,CowNodeElement> cowElements =
+            PrimitiveLongMap<CowNodeElement> cowElements =
                 primitiveElement.nodes;
             CowNodeElement element = cowElements.get( node.getId() );
             if ( element != null && (element.relationshipAddMap != null || element.relationshipRemoveMap != null) )
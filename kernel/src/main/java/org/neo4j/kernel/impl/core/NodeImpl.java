@@ -23,7 +23,6 @@ import static org.neo4j.kernel.impl.cache.SizeOfs.withArrayOverheadIncludingRefe
 import static org.neo4j.kernel.impl.util.RelIdArray.empty;
 
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -43,6 +42,7 @@ import org.neo4j.kernel.impl.nioneo.store.Record;
 import org.neo4j.kernel.impl.transaction.LockType;
 import org.neo4j.kernel.impl.util.ArrayMap;
 import org.neo4j.kernel.impl.util.CombinedRelIdIterator;
+import org.neo4j.kernel.impl.util.PrimitiveLongSet;
 import org.neo4j.kernel.impl.util.RelIdArray;
 import org.neo4j.kernel.impl.util.RelIdArray.DirectionWrapper;
 import org.neo4j.kernel.impl.util.RelIdIterator;
@@ -72,6 +72,24 @@ public class NodeImpl extends ArrayBasedPrimitive
         if ( newNode ) relationships = NO_RELATIONSHIPS;
     }
 
+    // Only for restoring a node from its serialized form, see CachedEntityCodecs
+    NodeImpl( long id, long relChainPosition, RelIdArray[] relationships, PropertyData[] properties )
+    {
+        super( properties );
+        this.id = id;
+        this.relChainPosition = relChainPosition;
+        this.relationships = relationships;
+    }
+
+    /**
+     * @return the relationship ids loaded so far, one {@link RelIdArray} per
+     * type, or {@code null} if none have been loaded yet.
+     */
+    RelIdArray[] getLoadedRelationships()
+    {
+        return relationships;
+    }
+
     @Override
     public long getId()
     {
@@ -145,7 +163,7 @@ public class NodeImpl extends ArrayBasedPrimitive
         for ( RelIdArray src : relationships )
         {
             String type = src.getType();
-            Collection<Long> remove = null;
+            PrimitiveLongSet remove = null;
             RelIdArray add = null;
             RelIdIterator iterator = null;
             if ( hasModifications )
@@ -169,7 +187,7 @@ public class NodeImpl extends ArrayBasedPrimitive
             {
                 if ( getRelIdArray( type ) == null )
                 {
-                    Collection<Long> remove = nodeManager.getCowRelationshipRemoveMap( this, type );
+                    PrimitiveLongSet remove = nodeManager.getCowRelationshipRemoveMap( this, type );
                     RelIdArray add = addMap.get( type );
                     relTypeList.add( new CombinedRelIdIterator( type, direction, null, add, remove ) );
                 }
@@ -188,7 +206,7 @@ public class NodeImpl extends ArrayBasedPrimitive
         {
             String typeName = type.name();
             RelIdArray src = getRelIdArray( typeName );
-            Collection<Long> remove = null;
+            PrimitiveLongSet remove = null;
             RelIdArray add = null;
             RelIdIterator iterator = null;
             if ( hasModifications )
@@ -326,7 +344,7 @@ public class NodeImpl extends ArrayBasedPrimitive
     // a relationship delete is invoked.
     void removeRelationship( NodeManager nodeManager, RelationshipType type, long relId )
     {
-        Collection<Long> relationshipSet = nodeManager.getOrCreateCowRelationshipRemoveMap(
+        PrimitiveLongSet relationshipSet = nodeManager.getOrCreateCowRelationshipRemoveMap(
             this, type.name() );
         relationshipSet.add( relId );
     }
@@ -580,7 +598,7 @@ public class NodeImpl extends ArrayBasedPrimitive
 
     protected void commitRelationshipMaps(
         ArrayMap<String,RelIdArray> cowRelationshipAddMap,
-        ArrayMap<String,Collection<Long>> cowRelationshipRemoveMap, long firstRel, NodeManager nodeManager )
+        ArrayMap<String,PrimitiveLongSet> cowRelationshipRemoveMap, long firstRel, NodeManager nodeManager )
     {
         if ( relationships == null )
         {
@@ -595,7 +613,7 @@ public class NodeImpl extends ArrayBasedPrimitive
                 for ( String type : cowRelationshipAddMap.keySet() )
                 {
                     RelIdArray add = cowRelationshipAddMap.get( type );
-                    Collection<Long> remove = null;
+                    PrimitiveLongSet remove = null;
                     if ( cowRelationshipRemoveMap != null )
                     {
                         remove = cowRelationshipRemoveMap.get( type );
@@ -616,7 +634,7 @@ public class NodeImpl extends ArrayBasedPrimitive
                     RelIdArray src = getRelIdArray( type );
                     if ( src != null )
                     {
-                        Collection<Long> remove = cowRelationshipRemoveMap.get( type );
+                        PrimitiveLongSet remove = cowRelationshipRemoveMap.get( type );
                         putRelIdArray( RelIdArray.from( src, null, remove ) );
                     }
                 }
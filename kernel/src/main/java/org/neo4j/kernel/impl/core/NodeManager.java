@@ -37,6 +37,7 @@ import org.neo4j.graphdb.PropertyContainer;
 import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.RelationshipType;
 import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
 import org.neo4j.graphdb.index.Index;
 import org.neo4j.helpers.Pair;
 import org.neo4j.helpers.Triplet;
@@ -56,6 +57,7 @@ import org.neo4j.kernel.impl.transaction.LockException;
 import org.neo4j.kernel.impl.transaction.LockManager;
 import org.neo4j.kernel.impl.transaction.LockType;
 import org.neo4j.kernel.impl.util.ArrayMap;
+import org.neo4j.kernel.impl.util.PrimitiveLongSet;
 import org.neo4j.kernel.impl.util.RelIdArray;
 import org.neo4j.kernel.impl.util.RelIdArray.DirectionWrapper;
 import org.neo4j.kernel.impl.util.RelIdArrayWithLoops;
@@ -82,6 +84,7 @@ public class NodeManager
     private final PropertyIndexManager propertyIndexManager;
     private final RelationshipTypeHolder relTypeHolder;
     private final PersistenceManager persistenceManager;
+    private final RelationshipChainLoader relationshipChainLoader;
     private final EntityIdGenerator idGenerator;
 
     private final NodeProxy.NodeLookup nodeLookup;
@@ -97,6 +100,11 @@ public class NodeManager
         new ReentrantLock[LOCK_STRIPE_COUNT];
     private GraphProperties graphProperties;
 
+    // Number of threads currently counting accesses, so that reads made
+    // when nobody is profiling only pay for a volatile read
+    private volatile int countingThreads;
+    private final ThreadLocal<long[]> accessCounts = new ThreadLocal<long[]>();
+
     public NodeManager( Config config, GraphDatabaseService graphDb, LockManager lockManager,
             LockReleaser lockReleaser, TransactionManager transactionManager,
             PersistenceManager persistenceManager, EntityIdGenerator idGenerator,
@@ -112,6 +120,10 @@ public class NodeManager
         this.lockReleaser = lockReleaser;
         this.persistenceManager = persistenceManager;
         this.idGenerator = idGenerator;
+        this.relationshipChainLoader = new RelationshipChainLoader( persistenceManager,
+                config.get( GraphDatabaseSettings.relationship_grab_size ),
+                config.get( GraphDatabaseSettings.relationship_max_grab_size ),
+                config.get( GraphDatabaseSettings.relationship_prefetch ) );
         this.nodeLookup = nodeLookup;
         this.relationshipLookups = relationshipLookups;
         this.relTypeHolder = relationshipTypeHolder;
@@ -159,6 +171,7 @@ public class NodeManager
         {
             setHasAllpropertyIndexes( true );
         }
+        relationshipChainLoader.start();
 
 //        useAdaptiveCache = config.use_adaptive_cache(false);
 //        float adaptiveCacheHeapRatio = config.adaptive_cache_heap_ratio( 0.77f, 0.1f, 0.95f );
@@ -172,6 +185,7 @@ public class NodeManager
     @Override
     public void stop()
     {
+        relationshipChainLoader.stop();
         clearCache();
     }
 
@@ -336,6 +350,7 @@ public class NodeManager
 
     protected Node getNodeByIdOrNull( long nodeId )
     {
+        countAccess();
         NodeImpl node = nodeCache.get( nodeId );
         if ( node != null )
         {
@@ -378,15 +393,23 @@ public class NodeManager
 
     public Iterator<Node> getAllNodes()
     {
-        final long highId = getHighestPossibleIdInUse( Node.class );
+        return getAllNodes( 0, getHighestPossibleIdInUse( Node.class ) + 1 );
+    }
+
+    /**
+     * Returns the nodes with ids from {@code fromId}, inclusive, up to
+     * {@code toId}, exclusive. Disjoint ranges can be read by different threads.
+     */
+    public Iterator<Node> getAllNodes( final long fromId, final long toId )
+    {
         return new PrefetchingIterator<Node>()
         {
-            private long currentId;
+            private long currentId = fromId;
             
             @Override
             protected Node fetchNextOrNull()
             {
-                while ( currentId <= highId )
+                while ( currentId < toId )
                 {
                     try
                     {
@@ -436,6 +459,7 @@ public class NodeManager
 
     public NodeImpl getNodeForProxy( long nodeId, LockType lock )
     {
+        countAccess();
         if ( lock != null )
             acquireTxBoundLock( new NodeProxy( nodeId, nodeLookup ), lock );
         NodeImpl node = getLightNode( nodeId );
@@ -443,6 +467,72 @@ public class NodeManager
         return node;
     }
 
+    /**
+     * Starts counting the node and relationship lookups made by the calling
+     * thread, including the lookups made by every operation on a node or
+     * relationship proxy, f.ex. reading a property. Used for profiling, the
+     * count is read with {@link #getAccessCount()} and counting is ended with
+     * {@link #stopCountingAccesses()}.
+     *
+     * @return {@code true} if counting was started by this call, {@code false}
+     * if the calling thread was already counting.
+     */
+    public boolean startCountingAccesses()
+    {
+        if ( accessCounts.get() != null )
+        {
+            return false;
+        }
+        accessCounts.set( new long[1] );
+        synchronized ( accessCounts )
+        {
+            countingThreads++;
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of accesses made by the calling thread since it
+     * started counting, or 0 if it isn't counting.
+     */
+    public long getAccessCount()
+    {
+        long[] count = accessCounts.get();
+        return count != null ? count[0] : 0;
+    }
+
+    /**
+     * Stops counting accesses for the calling thread.
+     *
+     * @return the number of accesses made since counting was started.
+     */
+    public long stopCountingAccesses()
+    {
+        long[] count = accessCounts.get();
+        if ( count == null )
+        {
+            return 0;
+        }
+        accessCounts.remove();
+        synchronized ( accessCounts )
+        {
+            countingThreads--;
+        }
+        return count[0];
+    }
+
+    private void countAccess()
+    {
+        if ( countingThreads > 0 )
+        {
+            long[] count = accessCounts.get();
+            if ( count != null )
+            {
+                count[0]++;
+            }
+        }
+    }
+
     public Node getReferenceNode() throws NotFoundException
     {
         if ( referenceNodeId == -1 )
@@ -459,6 +549,7 @@ public class NodeManager
 
     protected Relationship getRelationshipByIdOrNull( long relId )
     {
+        countAccess();
         RelationshipImpl relationship = relCache.get( relId );
         if ( relationship != null )
         {
@@ -509,15 +600,23 @@ public class NodeManager
 
     public Iterator<Relationship> getAllRelationships()
     {
-        final long highId = getHighestPossibleIdInUse( Relationship.class );
+        return getAllRelationships( 0, getHighestPossibleIdInUse( Relationship.class ) + 1 );
+    }
+
+    /**
+     * Returns the relationships with ids from {@code fromId}, inclusive, up to
+     * {@code toId}, exclusive. Disjoint ranges can be read by different threads.
+     */
+    public Iterator<Relationship> getAllRelationships( final long fromId, final long toId )
+    {
         return new PrefetchingIterator<Relationship>()
         {
-            private long currentId;
+            private long currentId = fromId;
             
             @Override
             protected Relationship fetchNextOrNull()
             {
-                while ( currentId <= highId )
+                while ( currentId < toId )
                 {
                     try
                     {
@@ -544,6 +643,7 @@ public class NodeManager
 
     public RelationshipImpl getRelationshipForProxy( long relId, LockType lock )
     {
+        countAccess();
         if ( lock != null )
             acquireTxBoundLock( new RelationshipProxy( relId, relationshipLookups ), lock );
         RelationshipImpl relationship = relCache.get( relId );
@@ -607,7 +707,7 @@ public class NodeManager
         long nodeId = node.getId();
         long position = node.getRelChainPosition();
         Pair<Map<DirectionWrapper, Iterable<RelationshipRecord>>, Long> rels =
-            persistenceManager.getMoreRelationships( nodeId, position );
+            relationshipChainLoader.load( node, position, node.getRelationshipIds() == null );
         ArrayMap<String,RelIdArray> newRelationshipMap =
             new ArrayMap<String,RelIdArray>();
         // Map<Long,RelationshipImpl> relsMap = new HashMap<Long,RelationshipImpl>( 150 );
@@ -668,6 +768,16 @@ public class NodeManager
 //         relCache.putAll( map );
 //    }
 
+    void relationshipsRemoved()
+    {
+        relationshipChainLoader.relationshipsRemoved();
+    }
+
+    public RelationshipChainLoader getRelationshipChainLoader()
+    {
+        return relationshipChainLoader;
+    }
+
     void putAllInRelCache( Collection<RelationshipImpl> relationships  )
     {
          relCache.putAll( relationships );
@@ -1038,12 +1148,12 @@ public class NodeManager
         persistenceManager.relRemoveProperty( rel.getId(), property );
     }
 
-    public Collection<Long> getCowRelationshipRemoveMap( NodeImpl node, String type )
+    public PrimitiveLongSet getCowRelationshipRemoveMap( NodeImpl node, String type )
     {
         return lockReleaser.getCowRelationshipRemoveMap( node, type );
     }
 
-    public Collection<Long> getOrCreateCowRelationshipRemoveMap( NodeImpl node, String type )
+    public PrimitiveLongSet getOrCreateCowRelationshipRemoveMap( NodeImpl node, String type )
     {
         return lockReleaser.getOrCreateCowRelationshipRemoveMap( node, type );
     }
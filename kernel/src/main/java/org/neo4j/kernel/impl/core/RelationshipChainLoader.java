@@ -0,0 +1,329 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.core;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.neo4j.helpers.DaemonThreadFactory;
+import org.neo4j.helpers.Pair;
+import org.neo4j.kernel.impl.nioneo.store.Record;
+import org.neo4j.kernel.impl.nioneo.store.RelationshipRecord;
+import org.neo4j.kernel.impl.persistence.PersistenceManager;
+import org.neo4j.kernel.impl.util.RelIdArray.DirectionWrapper;
+
+/**
+ * Loads relationship chains for the {@link NodeManager}, one chunk at a time.
+ * The first chunk of a node is relationship_grab_size relationships big. A
+ * node that needs more than that is a dense node being iterated over, so each
+ * following chunk doubles in size up to relationship_max_grab_size, and if
+ * prefetching is enabled the next chunk is loaded in the background while the
+ * current one is handed out.
+ * <p>
+ * A prefetched chunk is only used if the node hasn't been evicted and loaded
+ * again, is still at the position the chunk starts at and no relationships
+ * have been removed since it was scheduled. Created relationships go first in
+ * the chain so they can't end up in a chunk further down it.
+ */
+public class RelationshipChainLoader
+{
+    private static final int MAX_TRACKED_CHAINS = 1024;
+    private static final int MAX_PENDING_PREFETCHES = 64;
+
+    private final PersistenceManager persistenceManager;
+    private final int grabSize;
+    private final int maxGrabSize;
+    private final boolean prefetch;
+
+    private final Map<Long,Chain> chains = new ConcurrentHashMap<Long,Chain>();
+    private final AtomicLong relationshipRemovals = new AtomicLong();
+    private volatile ThreadPoolExecutor prefetcher;
+
+    private final AtomicLong firstChunks = new AtomicLong();
+    private final AtomicLong firstChunkRelationships = new AtomicLong();
+    private final AtomicLong denseChunks = new AtomicLong();
+    private final AtomicLong denseChunkRelationships = new AtomicLong();
+    private final AtomicLong prefetchesUsed = new AtomicLong();
+    private final AtomicLong prefetchesDiscarded = new AtomicLong();
+
+    RelationshipChainLoader( PersistenceManager persistenceManager, int grabSize, int maxGrabSize, boolean prefetch )
+    {
+        this.persistenceManager = persistenceManager;
+        this.grabSize = grabSize;
+        this.maxGrabSize = Math.max( grabSize, maxGrabSize );
+        this.prefetch = prefetch;
+    }
+
+    void start()
+    {
+        if ( prefetch )
+        {
+            prefetcher = new ThreadPoolExecutor( 1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<Runnable>( MAX_PENDING_PREFETCHES ),
+                    new DaemonThreadFactory( "Relationship chain prefetch" ) );
+        }
+    }
+
+    void stop()
+    {
+        ThreadPoolExecutor executor = prefetcher;
+        prefetcher = null;
+        if ( executor != null )
+        {
+            executor.shutdownNow();
+        }
+        chains.clear();
+    }
+
+    /**
+     * Loads the chunk of relationships starting at {@code position} in the
+     * relationship chain of {@code node}.
+     *
+     * @param node the node whose relationships to load.
+     * @param position the position in the chain to load from.
+     * @param first whether or not this is the first chunk loaded for the node.
+     * @return the loaded relationships and the chain position after them.
+     */
+    Pair<Map<DirectionWrapper,Iterable<RelationshipRecord>>,Long> load( NodeImpl node, long position,
+            boolean first )
+    {
+        long nodeId = node.getId();
+        if ( first )
+        {
+            chains.remove( nodeId );
+            Pair<Map<DirectionWrapper,Iterable<RelationshipRecord>>,Long> rels =
+                    persistenceManager.getMoreRelationships( nodeId, position, grabSize );
+            firstChunks.incrementAndGet();
+            firstChunkRelationships.addAndGet( count( rels ) );
+            return rels;
+        }
+
+        Chain chain = chains.remove( nodeId );
+        if ( chain != null && chain.node != node )
+        {
+            chain.discard();
+            chain = null;
+        }
+        int size = chain != null ? chain.grabSize : grow( grabSize );
+        Pair<Map<DirectionWrapper,Iterable<RelationshipRecord>>,Long> rels = null;
+        if ( chain != null && chain.prefetched != null )
+        {
+            if ( chain.position == position && chain.removals == relationshipRemovals.get() )
+            {
+                rels = chain.get();
+            }
+            if ( rels != null )
+            {
+                prefetchesUsed.incrementAndGet();
+            }
+            else
+            {
+                chain.discard();
+            }
+        }
+        if ( rels == null )
+        {
+            rels = persistenceManager.getMoreRelationships( nodeId, position, size );
+        }
+        denseChunks.incrementAndGet();
+        denseChunkRelationships.addAndGet( count( rels ) );
+
+        long next = rels.other();
+        if ( next != Record.NO_NEXT_RELATIONSHIP.intValue() )
+        {
+            track( new Chain( node, next, grow( size ), relationshipRemovals.get() ) );
+        }
+        return rels;
+    }
+
+    /**
+     * Called when a transaction that removed relationships has committed,
+     * makes chunks prefetched before that unusable.
+     */
+    void relationshipsRemoved()
+    {
+        relationshipRemovals.incrementAndGet();
+    }
+
+    private void track( final Chain chain )
+    {
+        if ( chains.size() >= MAX_TRACKED_CHAINS )
+        {
+            // Mostly iterations that were abandoned half way, start over
+            for ( Chain abandoned : chains.values() )
+            {
+                abandoned.discard();
+            }
+            chains.clear();
+        }
+        ThreadPoolExecutor executor = prefetcher;
+        if ( executor != null )
+        {
+            try
+            {
+                chain.prefetched = executor.submit( new Callable<Pair<Map<DirectionWrapper,Iterable<RelationshipRecord>>,Long>>()
+                {
+                    @Override
+                    public Pair<Map<DirectionWrapper,Iterable<RelationshipRecord>>,Long> call()
+                    {
+                        return persistenceManager.getMoreRelationships( chain.node.getId(), chain.position,
+                                chain.grabSize );
+                    }
+                } );
+            }
+            catch ( RejectedExecutionException e )
+            {
+                // Enough prefetching going on already, or shut down, this chunk is loaded when needed
+            }
+        }
+        Chain previous = chains.put( chain.node.getId(), chain );
+        if ( previous != null )
+        {
+            previous.discard();
+        }
+    }
+
+    private int grow( int size )
+    {
+        return (int) Math.min( maxGrabSize, 2L * size );
+    }
+
+    private static int count( Pair<Map<DirectionWrapper,Iterable<RelationshipRecord>>,Long> rels )
+    {
+        int count = 0;
+        for ( Iterable<RelationshipRecord> records : rels.first().values() )
+        {
+            for ( @SuppressWarnings( "unused" ) RelationshipRecord record : records )
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of first chunks loaded, i.e. the number of times
+     * the relationships of a node have been loaded from the start of its chain.
+     */
+    public long getFirstChunksLoaded()
+    {
+        return firstChunks.get();
+    }
+
+    /**
+     * @return the number of relationships loaded in first chunks.
+     */
+    public long getFirstChunkRelationshipsLoaded()
+    {
+        return firstChunkRelationships.get();
+    }
+
+    /**
+     * @return the number of chunks loaded after the first one, i.e. for
+     * dense nodes that didn't have all their relationships in the first chunk.
+     */
+    public long getDenseChunksLoaded()
+    {
+        return denseChunks.get();
+    }
+
+    /**
+     * @return the number of relationships loaded in chunks after the first one.
+     */
+    public long getDenseChunkRelationshipsLoaded()
+    {
+        return denseChunkRelationships.get();
+    }
+
+    /**
+     * @return the number of chunks that had been loaded in the background
+     * by the time they were needed.
+     */
+    public long getPrefetchesUsed()
+    {
+        return prefetchesUsed.get();
+    }
+
+    /**
+     * @return the number of chunks loaded in the background that couldn't be
+     * used, because the chain changed or the node was evicted in the mean time.
+     */
+    public long getPrefetchesDiscarded()
+    {
+        return prefetchesDiscarded.get();
+    }
+
+    private class Chain
+    {
+        private final NodeImpl node;
+        private final long position;
+        private final int grabSize;
+        private final long removals;
+        private volatile Future<Pair<Map<DirectionWrapper,Iterable<RelationshipRecord>>,Long>> prefetched;
+
+        Chain( NodeImpl node, long position, int grabSize, long removals )
+        {
+            this.node = node;
+            this.position = position;
+            this.grabSize = grabSize;
+            this.removals = removals;
+        }
+
+        Pair<Map<DirectionWrapper,Iterable<RelationshipRecord>>,Long> get()
+        {
+            try
+            {
+                return prefetched.get();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+            catch ( ExecutionException e )
+            {
+                // The chain changed under the prefetch, load it again
+            }
+            catch ( CancellationException e )
+            {
+                // Shut down, load it again
+            }
+            return null;
+        }
+
+        void discard()
+        {
+            Future<?> future = prefetched;
+            if ( future != null )
+            {
+                future.cancel( false );
+                prefetchesDiscarded.incrementAndGet();
+            }
+        }
+    }
+}
@@ -52,6 +52,15 @@ public class RelationshipImpl extends ArrayBasedPrimitive
         this.idAndMore = (((long)typeId) << 48) | ((startNodeId&0xF00000000L)<<12) | ((endNodeId&0xF00000000L)<<8) | id;
     }
 
+    // Only for restoring a relationship from its serialized form, see CachedEntityCodecs
+    RelationshipImpl( long id, long startNodeId, long endNodeId, int typeId, PropertyData[] properties )
+    {
+        super( properties );
+        this.startNodeId = (int) startNodeId;
+        this.endNodeId = (int) endNodeId;
+        this.idAndMore = (((long)typeId) << 48) | ((startNodeId&0xF00000000L)<<12) | ((endNodeId&0xF00000000L)<<8) | id;
+    }
+
     @Override
     public boolean equals( Object obj )
     {
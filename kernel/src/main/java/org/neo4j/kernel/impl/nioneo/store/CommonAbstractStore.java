@@ -55,6 +55,7 @@ public abstract class CommonAbstractStore
         public static final GraphDatabaseSetting.BooleanSetting read_only = GraphDatabaseSettings.read_only;
         public static final GraphDatabaseSetting.BooleanSetting backup_slave = GraphDatabaseSettings.backup_slave;
         public static final GraphDatabaseSetting.BooleanSetting use_memory_mapped_buffers = GraphDatabaseSettings.use_memory_mapped_buffers;
+        public static final GraphDatabaseSetting.BooleanSetting map_whole_store_files = GraphDatabaseSettings.map_whole_store_files;
     }
 
     public static final String ALL_STORES_VERSION = "v0.A.0";
@@ -72,7 +73,7 @@ public abstract class CommonAbstractStore
     protected StringLogger stringLogger;
     private IdGenerator idGenerator = null;
     private FileChannel fileChannel = null;
-    private PersistenceWindowPool windowPool;
+    private WindowPool windowPool;
     private boolean storeOk = true;
     private Throwable causeOfStoreNotOk;
     private FileLock fileLock;
@@ -220,9 +221,36 @@ public abstract class CommonAbstractStore
         }
         loadIdGenerator();
 
-        setWindowPool( new PersistenceWindowPool( getStorageFileName(),
-            getEffectiveRecordSize(), getFileChannel(), calculateMappedMemory(configuration.getParams(), storageFileName ),
-            configuration.getBoolean( Configuration.use_memory_mapped_buffers ), isReadOnly() && !isBackupSlave() ) );
+        if ( mapWholeFile() )
+        {
+            setWindowPool( new SegmentedMappedWindowPool( getStorageFileName(),
+                getEffectiveRecordSize(), getFileChannel(), SegmentedMappedWindowPool.DEFAULT_SEGMENT_SIZE ) );
+        }
+        else
+        {
+            setWindowPool( new PersistenceWindowPool( getStorageFileName(),
+                getEffectiveRecordSize(), getFileChannel(), calculateMappedMemory(configuration.getParams(), storageFileName ),
+                configuration.getBoolean( Configuration.use_memory_mapped_buffers ), isReadOnly() && !isBackupSlave() ) );
+        }
+    }
+
+    private boolean mapWholeFile()
+    {
+        return mayMapWholeFile() && configuration.get( Configuration.map_whole_store_files )
+            && configuration.get( Configuration.use_memory_mapped_buffers )
+            && !(isReadOnly() && !isBackupSlave());
+    }
+
+    /**
+     * Returns whether or not this store may have its whole file memory mapped
+     * by a {@link SegmentedMappedWindowPool}, if configured to. Only worth it
+     * for the large stores read in the hot path, so stores have to opt in.
+     *
+     * @return {@code true} if this store may have its whole file mapped.
+     */
+    protected boolean mayMapWholeFile()
+    {
+        return false;
     }
 
     protected abstract int getEffectiveRecordSize();
@@ -344,7 +372,7 @@ public abstract class CommonAbstractStore
     }
 
     /**
-     * Sets the {@link PersistenceWindowPool} for this store to use. Normally
+     * Sets the {@link WindowPool} for this store to use. Normally
      * this is set in the {@link #loadStorage()} method. This method must be
      * invoked with a valid "pool" before any of the
      * {@link #acquireWindow(long, OperationType)}
@@ -356,7 +384,7 @@ public abstract class CommonAbstractStore
      * @param pool
      *            The window pool this store should use
      */
-    protected void setWindowPool( PersistenceWindowPool pool )
+    protected void setWindowPool( WindowPool pool )
     {
         this.windowPool = pool;
     }
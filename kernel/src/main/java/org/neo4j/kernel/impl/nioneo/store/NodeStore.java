@@ -65,6 +65,12 @@ public class NodeStore extends AbstractStore implements Store, RecordStore<NodeR
         return RECORD_SIZE;
     }
 
+    @Override
+    protected boolean mayMapWholeFile()
+    {
+        return true;
+    }
+
     @Override
     public int getRecordHeaderSize()
     {
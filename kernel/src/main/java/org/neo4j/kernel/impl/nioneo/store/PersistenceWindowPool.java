@@ -28,9 +28,14 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.neo4j.helpers.DaemonThreadFactory;
 import org.neo4j.helpers.Pair;
 
 /**
@@ -40,10 +45,22 @@ import org.neo4j.helpers.Pair;
  * make the most efficient use of those windows by allocating them in such a way
  * that the most frequently used records/blocks (be it for read or write
  * operations) are encapsulated by a memory mapped persistence window.
+ * <p>
+ * The file is divided into bricks of equal size, each of which may have a
+ * window mapped to it. Looking up the window for a position doesn't take any
+ * lock, the bricks are published as an immutable {@link Bricks snapshot} which
+ * is replaced whenever the file grows past the last brick or the brick size
+ * changes. Deciding which bricks to map, based on how often each brick is
+ * requested, is done in the background by a refresher thread of the pool after a
+ * certain number of requests have missed a mapped window. When the store has
+ * grown well past the memory available for mapping, that same background
+ * refresh picks a new brick size for the file and remaps it.
  */
-public class PersistenceWindowPool
+public class PersistenceWindowPool implements WindowPool
 {
     private static final int MAX_BRICK_COUNT = 100000;
+    // Only change the brick size once it's this many times off from the best one
+    private static final int BRICK_SIZE_CHANGE_FACTOR = 4;
 
     private final String storeName;
     // == recordSize
@@ -52,20 +69,30 @@ public class PersistenceWindowPool
     private final ConcurrentMap<Integer,PersistenceRow> activeRowWindows =
         new ConcurrentHashMap<Integer,PersistenceRow>();
     private long availableMem = 0;
-    private long memUsed = 0;
-    private int brickCount = 0;
-    private int brickSize = 0;
-    private BrickElement brickArray[] = new BrickElement[0];
+    private volatile long memUsed = 0;
+    private volatile Bricks bricks = Bricks.NONE;
+    // Windows from a previous brick size which were in use when the bricks
+    // were resized, closed as soon as they're free. Guarded by this.
+    private final List<Pair<LockableWindow,Integer>> retiredWindows =
+        new ArrayList<Pair<LockableWindow,Integer>>();
     private int brickMiss = 0;
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+    // Each pool has its own, so that a slow store doesn't hold up the others.
+    // The thread is only started by the first refresh, and stops on close.
+    private final ExecutorService refresher;
 
     private static Logger log = Logger.getLogger( PersistenceWindowPool.class.getName() );
     private static final int REFRESH_BRICK_COUNT = 50000;
     private final FileChannel.MapMode mapMode;
 
+    // Should be AtomicIntegers, but it's completely OK to miss some
+    // updates for these statistics, right?
     private int hit = 0;
     private int miss = 0;
     private int switches = 0;
     private int ooe = 0;
+    private int refreshes = 0;
+    private int brickSizeChanges = 0;
     private boolean useMemoryMapped = true;
 
     private final boolean readOnly;
@@ -95,6 +122,8 @@ public class PersistenceWindowPool
         this.useMemoryMapped = useMemoryMappedBuffers;
         this.readOnly = readOnly;
         this.mapMode = readOnly ? MapMode.READ_ONLY : MapMode.READ_WRITE;
+        this.refresher = Executors.newSingleThreadExecutor(
+                new DaemonThreadFactory( "Persistence window pool refresh [" + storeName + "]" ) );
         setupBricks();
         dumpStatus();
     }
@@ -116,38 +145,35 @@ public class PersistenceWindowPool
         LockableWindow window = null;
         if ( brickMiss >= REFRESH_BRICK_COUNT )
         {
-            refreshBricks();
+            scheduleRefresh();
         }
         boolean readFullRow = false;
         while ( window == null )
         {
-            if ( brickSize > 0 )
+            Bricks bricks = this.bricks;
+            if ( bricks.size > 0 )
             {
-                int brickIndex = positionToBrickIndex( position );
-                if ( brickIndex < brickArray.length )
+                int brickIndex = bricks.indexOf( position, blockSize );
+                if ( brickIndex >= bricks.elements.length )
                 {
-                    BrickElement brick = brickArray[brickIndex];
-                    window = brick.getWindow();
-                    if ( window != null && !window.markAsInUse() )
-                        // Oops, a refreshBricks call from another thread just closed
-                        // this window, treat it as if we hadn't even found it.
-                        window = null;
-                    
-                    // assert window == null || window.encapsulates( position );
-                    brick.setHit();
-                }
-                else
-                {
-                    expandBricks( brickIndex + 1 );
-                    window = brickArray[brickIndex].getWindow();
+                    // Look again in the expanded bricks, which may even have
+                    // gotten a new brick size in the mean time
+                    expandBricks( bricks, brickIndex + 1 );
+                    continue;
                 }
+                BrickElement brick = bricks.elements[brickIndex];
+                window = brick.getWindow();
+                if ( window != null && !window.markAsInUse() )
+                    // Oops, a refresh from another thread just closed this
+                    // window, treat it as if we hadn't even found it.
+                    window = null;
+
+                // assert window == null || window.encapsulates( position );
+                brick.setHit();
             }
             if ( window == null )
             {
                 // There was no mapped window for this brick. Go for active window instead.
-                
-                // Should be AtomicIntegers, but it's completely OK to miss some
-                // updates for these statistics, right?
                 miss++;
                 brickMiss++;
     
@@ -212,20 +238,11 @@ public class PersistenceWindowPool
         return window;
     }
 
-    private int positionToBrickIndex( long position )
-    {
-        return (int) (position * blockSize / brickSize);
-    }
-    
-    private long brickIndexToPosition( int brickIndex )
-    {
-        return (long) brickIndex * brickSize / blockSize;
-    }
-    
     void dumpStatistics()
     {
         log.finest( storeName + " hit=" + hit + " miss=" + miss + " switches="
-            + switches + " ooe=" + ooe );
+            + switches + " ooe=" + ooe + " refreshes=" + refreshes
+            + " brickSizeChanges=" + brickSizeChanges );
     }
 
     /**
@@ -247,7 +264,7 @@ public class PersistenceWindowPool
             // If the corresponding window has been instantiated while we had
             // this active row we need to hand over the changes to that
             // window if the window isn't memory mapped.
-            if ( brickSize > 0 && dpw.getOperationType() == OperationType.WRITE )
+            if ( dpw.getOperationType() == OperationType.WRITE )
                 applyChangesToWindowIfNecessary( dpw );
             
             if ( dpw.isFree() )
@@ -265,9 +282,12 @@ public class PersistenceWindowPool
 
     private void applyChangesToWindowIfNecessary( PersistenceRow dpw )
     {
-        int brickIndex = positionToBrickIndex( dpw.position() );
-        LockableWindow existingBrickWindow = brickIndex < brickArray.length ?
-                brickArray[brickIndex].getWindow() : null;
+        Bricks bricks = this.bricks;
+        if ( bricks.size <= 0 )
+            return;
+        int brickIndex = bricks.indexOf( dpw.position(), blockSize );
+        LockableWindow existingBrickWindow = brickIndex < bricks.elements.length ?
+                bricks.elements[brickIndex].getWindow() : null;
         if ( existingBrickWindow != null && !(existingBrickWindow instanceof MappedPersistenceWindow) &&
                 existingBrickWindow.markAsInUse() )
         {
@@ -285,10 +305,13 @@ public class PersistenceWindowPool
         }
     }
 
-    synchronized void close()
+    public synchronized void close()
     {
+        // A refresh already running waits for this monitor and then finds the
+        // pool closed, so there's no need to wait for it here
+        refresher.shutdown();
         flushAll();
-        for ( BrickElement element : brickArray )
+        for ( BrickElement element : bricks.elements )
         {
             if ( element.getWindow() != null )
             {
@@ -296,17 +319,22 @@ public class PersistenceWindowPool
                 element.setWindow( null );
             }
         }
+        for ( Pair<LockableWindow,Integer> retired : retiredWindows )
+        {
+            retired.first().close();
+        }
+        retiredWindows.clear();
         fileChannel = null;
         activeRowWindows.clear();
         dumpStatistics();
     }
 
-    void flushAll()
+    public void flushAll()
     {
         if ( readOnly )
             return;
 
-        for ( BrickElement element : brickArray )
+        for ( BrickElement element : bricks.elements )
         {
             PersistenceWindow window = element.getWindow();
             if ( window != null )
@@ -314,6 +342,13 @@ public class PersistenceWindowPool
                 window.force();
             }
         }
+        synchronized ( this )
+        {
+            for ( Pair<LockableWindow,Integer> retired : retiredWindows )
+            {
+                retired.first().force();
+            }
+        }
         try
         {
             fileChannel.force( false );
@@ -325,22 +360,26 @@ public class PersistenceWindowPool
         }
     }
 
-    /**
-     * Initial setup of bricks based on the size of the given channel and
-     * available memory to map.
-     */
-    private void setupBricks()
+    private long fileSize()
     {
-        long fileSize = -1;
         try
         {
-            fileSize = fileChannel.size();
+            return fileChannel.size();
         }
         catch ( IOException e )
         {
             throw new UnderlyingStorageException(
                 "Unable to get file size for " + storeName, e );
         }
+    }
+
+    /**
+     * Initial setup of bricks based on the size of the given channel and
+     * available memory to map.
+     */
+    private void setupBricks()
+    {
+        long fileSize = fileSize();
         if ( blockSize == 0 )
         {
             return;
@@ -354,10 +393,10 @@ public class PersistenceWindowPool
                 + "b (block size * 10)" );
             logWarn( "Memory mapped windows have been turned off" );
             availableMem = 0;
-            brickCount = 0;
-            brickSize = 0;
             return;
         }
+        int brickCount = 0;
+        int brickSize = 0;
         if ( availableMem > 0 && fileSize > 0 )
         {
             double ratio = (availableMem + 0.0d) / fileSize;
@@ -385,8 +424,6 @@ public class PersistenceWindowPool
                         + (fileSize / brickCount / 1024) + "kb" );
                     logWarn( "Memory mapped windows have been turned off" );
                     availableMem = 0;
-                    brickCount = 0;
-                    brickSize = 0;
                     return;
                 }
                 brickSize = (int) (fileSize / brickCount);
@@ -412,104 +449,213 @@ public class PersistenceWindowPool
             }
             brickSize = (brickSize / blockSize) * blockSize;
         }
-        brickArray = new BrickElement[brickCount];
+        BrickElement[] elements = new BrickElement[brickCount];
         for ( int i = 0; i < brickCount; i++ )
         {
-            BrickElement element = new BrickElement( i );
-            brickArray[i] = element;
+            elements[i] = new BrickElement( i );
         }
+        bricks = new Bricks( brickSize, elements );
     }
 
     /**
-     * Called during expanding of bricks where we see that we use too much
-     * memory and need to release some windows.
-     * 
-     * @param nr the number of windows to free.
+     * The brick size best suited for a file of the given size, once the file
+     * is larger than the memory available for mapping: a thousandth of the
+     * available memory, like when setting up the bricks, or larger if needed
+     * to keep the number of bricks down to {@link #MAX_BRICK_COUNT}.
+     *
+     * @return the brick size to use for the file, or the current brick size
+     * if the file still fits in the available memory.
      */
-    private void freeWindows( int nr )
+    private int brickSizeFor( long fileSize, int currentBrickSize )
     {
-        // Only called from expandBricks, so we're under a lock here
-        if ( brickSize <= 0 )
+        if ( fileSize <= availableMem )
+        {
+            return currentBrickSize;
+        }
+        long size = Math.max( availableMem / 1000, fileSize / MAX_BRICK_COUNT );
+        size = Math.min( size, Math.min( availableMem / 10, Integer.MAX_VALUE ) );
+        size = (size / blockSize) * blockSize;
+        return size > blockSize ? (int) size : currentBrickSize;
+    }
+
+    private boolean shouldChangeBrickSize( long fileSize, int currentBrickSize )
+    {
+        // Windows can only be remapped to a new size safely if they're memory
+        // mapped, since plain windows keep their changes to themselves until
+        // written out.
+        if ( !useMemoryMapped || readOnly || currentBrickSize <= 0 )
+        {
+            return false;
+        }
+        int bestBrickSize = brickSizeFor( fileSize, currentBrickSize );
+        return bestBrickSize >= (long) currentBrickSize * BRICK_SIZE_CHANGE_FACTOR ||
+                currentBrickSize >= (long) bestBrickSize * BRICK_SIZE_CHANGE_FACTOR;
+    }
+
+    /**
+     * Hands a refresh of the bricks over to the background refresher, unless
+     * one is already scheduled for this pool.
+     */
+    private void scheduleRefresh()
+    {
+        if ( refreshScheduled.get() || !refreshScheduled.compareAndSet( false, true ) )
         {
-            // memory mapped turned off
             return;
         }
-        ArrayList<BrickElement> mappedBricks = new ArrayList<BrickElement>();
-        for ( int i = 0; i < brickCount; i++ )
+        try
         {
-            BrickElement be = brickArray[i];
-            if ( be.getWindow() != null )
+            refresher.execute( refreshTask );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            refreshScheduled.set( false );
+        }
+    }
+
+    private final Runnable refreshTask = new Runnable()
+    {
+        public void run()
+        {
+            try
             {
-                mappedBricks.add( be );
+                refreshBricks();
+            }
+            catch ( RuntimeException e )
+            {
+                logWarn( "Unable to refresh memory mapped windows", e );
+            }
+            finally
+            {
+                refreshScheduled.set( false );
             }
         }
-        Collections.sort( mappedBricks, BRICK_SORTER );
-        for ( int i = 0; i < nr && i < mappedBricks.size(); i++ )
+    };
+
+    /**
+     * Go through the bricks and see if they are optimally placed, and change
+     * accordingly. This happens in the background whenever we see that there
+     * has been a certain amount of brick misses since the last refresh, or
+     * the file has grown past the last brick and there wasn't any memory left
+     * to map the new brick with. If the file has grown well past the
+     * available memory the brick size is changed first.
+     */
+    synchronized void refreshBricks()
+    {
+        if ( fileChannel == null || bricks.size <= 0 )
+            return;
+
+        brickMiss = 0;
+        refreshes++;
+        closeRetiredWindows();
+        long fileSize = fileSize();
+        if ( shouldChangeBrickSize( fileSize, bricks.size ) )
+        {
+            changeBrickSize( brickSizeFor( fileSize, bricks.size ), fileSize );
+        }
+
+        Pair<List<BrickElement>, List<BrickElement>> currentMappings = gatherMappedVersusUnmappedWindows();
+        List<BrickElement> mappedBricks = currentMappings.first();
+        List<BrickElement> unmappedBricks = currentMappings.other();
+        int brickSize = bricks.size;
+
+        // Fill up unused memory, i.e. map unmapped bricks as much as available memory allows
+        // and request patterns signals. Start the loop from the end of the array where the
+        // bricks with highest hit ratio are.
+        int unmappedIndex = unmappedBricks.size() - 1;
+        while ( memUsed + brickSize <= availableMem && unmappedIndex >= 0 )
+        {
+            BrickElement unmappedBrick = unmappedBricks.get( unmappedIndex-- );
+            if ( unmappedBrick.getRefreshedHit() == 0 )
+                // We have more memory available, but no more windows have actually
+                // been requested so don't map unused random windows.
+                return;
+
+            allocateNewWindow( unmappedBrick, brickSize );
+        }
+
+        // Switch bad/unused mappings. Start iterating over mapped bricks
+        // from the beginning (those with lowest hit ratio) and unmapped from the end
+        // (or rather where the fill-up-unused-memory loop above left off) where we've
+        // got the unmapped bricks with highest hit ratio.
+        int mappedIndex = 0;
+        while ( unmappedIndex >= 0 && mappedIndex < mappedBricks.size() )
         {
-            BrickElement mappedBrick = mappedBricks.get( i );
+            BrickElement mappedBrick = mappedBricks.get( mappedIndex++ );
+            BrickElement unmappedBrick = unmappedBricks.get( unmappedIndex-- );
+            if ( mappedBrick.getRefreshedHit() >= unmappedBrick.getRefreshedHit() )
+                // We've passed a point where we don't have any unmapped brick
+                // with a higher hit ratio then the lowest mapped brick. We're done.
+                break;
+
             LockableWindow window = mappedBrick.getWindow();
             if ( window.writeOutAndCloseIfFree( readOnly ) )
             {
                 mappedBrick.setWindow( null );
                 memUsed -= brickSize;
+                if ( allocateNewWindow( unmappedBrick, brickSize ) )
+                    switches++;
             }
         }
     }
 
     /**
-     * Go through the bricks and see if they are optimally placed, and change
-     * accordingly. This happens whenever we see that there has been a certain
-     * amount of brick misses since the last refresh.
+     * Replaces the bricks with bricks of a new size covering the file. Hit
+     * counts are carried over to the new bricks covering the same part of the
+     * file, so that the refresh following this can map the new bricks in the
+     * same places as the old. The old windows are closed, or retired until
+     * they're no longer in use if someone is using them right now.
      */
-    private void refreshBricks()
+    private void changeBrickSize( int newBrickSize, long fileSize )
     {
-        if ( brickMiss < REFRESH_BRICK_COUNT || brickSize <= 0 )
-            return;
-     
-        synchronized ( this )
+        Bricks oldBricks = bricks;
+        int brickCount = (int) Math.min( fileSize / newBrickSize, Integer.MAX_VALUE - 1 );
+        BrickElement[] elements = new BrickElement[brickCount];
+        for ( int i = 0; i < brickCount; i++ )
         {
-            brickMiss = 0;
-            Pair<List<BrickElement>, List<BrickElement>> currentMappings = gatherMappedVersusUnmappedWindows();
-            List<BrickElement> mappedBricks = currentMappings.first();
-            List<BrickElement> unmappedBricks = currentMappings.other();
-            
-            // Fill up unused memory, i.e. map unmapped bricks as much as available memory allows
-            // and request patterns signals. Start the loop from the end of the array where the
-            // bricks with highest hit ratio are.
-            int unmappedIndex = unmappedBricks.size() - 1;
-            while ( memUsed + brickSize <= availableMem && unmappedIndex >= 0 )
+            elements[i] = new BrickElement( i );
+        }
+        for ( BrickElement old : oldBricks.elements )
+        {
+            long startPosition = oldBricks.position( old.index(), blockSize );
+            int index = (int) (startPosition * blockSize / newBrickSize);
+            if ( index < brickCount )
             {
-                BrickElement unmappedBrick = unmappedBricks.get( unmappedIndex-- );
-                if ( unmappedBrick.getHit() == 0 )
-                    // We have more memory available, but no more windows have actually
-                    // been requested so don't map unused random windows.
-                    return;
-                
-                allocateNewWindow( unmappedBrick );
+                elements[index].addHits( old.getHit() );
             }
-            
-            // Switch bad/unused mappings. Start iterating over mapped bricks
-            // from the beginning (those with lowest hit ratio) and unmapped from the end
-            // (or rather where the fill-up-unused-memory loop above left off) where we've
-            // got the unmapped bricks with highest hit ratio.
-            int mappedIndex = 0;
-            while ( unmappedIndex >= 0 && mappedIndex < mappedBricks.size() )
+        }
+        // From here on new requests will look at the new bricks only
+        bricks = new Bricks( newBrickSize, elements );
+        brickSizeChanges++;
+        logFine( "Changed brick size from " + oldBricks.size + "b to " + newBrickSize
+                + "b for a store of " + fileSize + "b" );
+
+        for ( BrickElement old : oldBricks.elements )
+        {
+            LockableWindow window = old.getWindow();
+            if ( window != null )
             {
-                BrickElement mappedBrick = mappedBricks.get( mappedIndex++ );
-                BrickElement unmappedBrick = unmappedBricks.get( unmappedIndex-- );
-                if ( mappedBrick.getHit() >= unmappedBrick.getHit() )
-                    // We've passed a point where we don't have any unmapped brick
-                    // with a higher hit ratio then the lowest mapped brick. We're done.
-                    break;
-                
-                LockableWindow window = mappedBrick.getWindow();
+                old.setWindow( null );
                 if ( window.writeOutAndCloseIfFree( readOnly ) )
                 {
-                    mappedBrick.setWindow( null );
-                    memUsed -= brickSize;
-                    if ( allocateNewWindow( unmappedBrick ) )
-                        switches++;
+                    memUsed -= oldBricks.size;
                 }
+                else
+                {
+                    retiredWindows.add( Pair.of( window, oldBricks.size ) );
+                }
+            }
+        }
+    }
+
+    private void closeRetiredWindows()
+    {
+        for ( int i = retiredWindows.size() - 1; i >= 0; i-- )
+        {
+            Pair<LockableWindow,Integer> retired = retiredWindows.get( i );
+            if ( retired.first().writeOutAndCloseIfFree( readOnly ) )
+            {
+                memUsed -= retired.other();
+                retiredWindows.remove( i );
             }
         }
     }
@@ -519,7 +665,7 @@ public class PersistenceWindowPool
      * i.e. those with a mapped persistence window assigned to it and those without.
      * 
      * The two {@link List lists} coming back are also sorted where the first element
-     * has got the lowest {@link BrickElement#getHit()} ratio, and the last the highest.
+     * has got the lowest {@link BrickElement#getRefreshedHit()} ratio, and the last the highest.
      * 
      * @return all bricks in this pool divided into mapped and unmapped.
      */
@@ -527,9 +673,8 @@ public class PersistenceWindowPool
     {
         List<BrickElement> mappedBricks = new ArrayList<BrickElement>();
         List<BrickElement> unmappedBricks = new ArrayList<BrickElement>();
-        for ( int i = 0; i < brickCount; i++ )
+        for ( BrickElement be : bricks.elements )
         {
-            BrickElement be = brickArray[i];
             if ( be.getWindow() != null )
                 mappedBricks.add( be );
             else
@@ -544,29 +689,39 @@ public class PersistenceWindowPool
     /**
      * Called every time we request a brick that has a greater index than
      * the current brick count. This happens as the underlying file channel
-     * grows as new blocks/records are added to it.
+     * grows as new blocks/records are added to it. The new bricks are mapped
+     * right away if there's memory left to map them with, otherwise the
+     * background refresh decides whether or not they're worth mapping.
      * 
+     * @param seen the bricks which were found too small.
      * @param newBrickCount the size to expand the brick count to.
      */
-    private synchronized void expandBricks( int newBrickCount )
+    private synchronized void expandBricks( Bricks seen, int newBrickCount )
     {
-        if ( newBrickCount > brickCount )
+        Bricks current = bricks;
+        if ( current.size != seen.size || newBrickCount <= current.elements.length )
         {
-            BrickElement tmpArray[] = new BrickElement[newBrickCount];
-            System.arraycopy( brickArray, 0, tmpArray, 0, brickArray.length );
-            if ( memUsed + brickSize >= availableMem )
-            {
-                freeWindows( 1 );
-            }
-            for ( int i = brickArray.length; i < tmpArray.length; i++ )
+            // Someone else expanded or resized them while we waited for the lock
+            return;
+        }
+        BrickElement tmpArray[] = new BrickElement[newBrickCount];
+        System.arraycopy( current.elements, 0, tmpArray, 0, current.elements.length );
+        boolean allMapped = true;
+        for ( int i = current.elements.length; i < tmpArray.length; i++ )
+        {
+            BrickElement be = new BrickElement( i );
+            tmpArray[i] = be;
+            if ( fileChannel == null || memUsed + current.size > availableMem ||
+                    !allocateNewWindow( be, current.size ) )
             {
-                BrickElement be = new BrickElement( i );
-                tmpArray[i] = be;
-                if ( memUsed + brickSize <= availableMem )
-                    allocateNewWindow( be );
+                allMapped = false;
             }
-            brickArray = tmpArray;
-            brickCount = tmpArray.length;
+        }
+        bricks = new Bricks( current.size, tmpArray );
+        if ( fileChannel != null && (!allMapped ||
+                shouldChangeBrickSize( (long) newBrickCount * current.size, current.size )) )
+        {
+            scheduleRefresh();
         }
     }
 
@@ -578,26 +733,25 @@ public class PersistenceWindowPool
      * {@link PersistenceRow persistence rows}.
      * 
      * @param brick the {@link BrickElement} to allocate a new window for.
+     * @param brickSize the size of the bricks {@code brick} belongs to.
      * @return {@code true} if the window was successfully allocated,
      * otherwise {@code false}.
      */
-    private boolean allocateNewWindow( BrickElement brick )
+    private boolean allocateNewWindow( BrickElement brick, int brickSize )
     {
         try
         {
+            long position = (long) brick.index() * brickSize / blockSize;
             LockableWindow window = null;
             if ( useMemoryMapped )
             {
                  window = new MappedPersistenceWindow(
-                    brickIndexToPosition( brick.index() ), blockSize,
-                    brickSize, fileChannel, mapMode );
+                    position, blockSize, brickSize, fileChannel, mapMode );
             }
             else
             {
                 PlainPersistenceWindow dpw =
-                    new PlainPersistenceWindow(
-                        brickIndexToPosition( brick.index() ),
-                        blockSize, brickSize, fileChannel );
+                    new PlainPersistenceWindow( position, blockSize, brickSize, fileChannel );
                 dpw.readFullWindow();
                 window = dpw;
             }
@@ -620,17 +774,15 @@ public class PersistenceWindowPool
 
     private void dumpStatus()
     {
-        try
-        {
-            log.fine( "[" + storeName + "] brickCount=" + brickCount
-                + " brickSize=" + brickSize + "b mappedMem=" + availableMem
-                + "b (storeSize=" + fileChannel.size() + "b)" );
-        }
-        catch ( IOException e )
-        {
-            throw new UnderlyingStorageException(
-                "Unable to get file size for " + storeName, e );
-        }
+        Bricks bricks = this.bricks;
+        logFine( "brickCount=" + bricks.elements.length
+            + " brickSize=" + bricks.size + "b mappedMem=" + availableMem
+            + "b (storeSize=" + fileSize() + "b)" );
+    }
+
+    private void logFine( String logMessage )
+    {
+        log.fine( "[" + storeName + "] " + logMessage );
     }
 
     private void logWarn( String logMessage )
@@ -643,16 +795,49 @@ public class PersistenceWindowPool
         log.log( Level.WARNING, "[" + storeName + "] " + logMessage, cause );
     }
 
-    WindowPoolStats getStats()
+    public WindowPoolStats getStats()
+    {
+        Bricks bricks = this.bricks;
+        return new WindowPoolStats( storeName, availableMem, memUsed, bricks.elements.length,
+                bricks.size, hit, miss, ooe, switches, refreshes, brickSizeChanges );
+    }
+
+    /**
+     * The bricks of a pool at one point in time, all of the same size. A
+     * pool never modifies the array of a published instance, except for
+     * assigning windows to its elements, it publishes a new instance instead.
+     */
+    private static final class Bricks
     {
-        return new WindowPoolStats( storeName, availableMem, memUsed, brickCount,
-                brickSize, hit, miss, ooe );
+        static final Bricks NONE = new Bricks( 0, new BrickElement[0] );
+
+        final int size;
+        final BrickElement[] elements;
+
+        Bricks( int size, BrickElement[] elements )
+        {
+            this.size = size;
+            this.elements = elements;
+        }
+
+        int indexOf( long position, int blockSize )
+        {
+            return (int) (position * blockSize / size);
+        }
+
+        long position( int brickIndex, int blockSize )
+        {
+            return (long) brickIndex * size / blockSize;
+        }
     }
 
     private static class BrickElement
     {
         private final int index;
         private int hitCount;
+        // The hit count as of the last refresh, so that the bricks can be
+        // sorted while requests keep updating hitCount
+        private int refreshedHitCount;
         private volatile LockableWindow window;
 
         BrickElement( int index )
@@ -677,10 +862,15 @@ public class PersistenceWindowPool
 
         void setHit()
         {
-            hitCount += 10;
+            addHits( 10 );
+        }
+
+        void addHits( int hits )
+        {
+            hitCount += hits;
             if ( hitCount < 0 )
             {
-                hitCount -= 10;
+                hitCount = Integer.MAX_VALUE;
             }
         }
 
@@ -689,6 +879,11 @@ public class PersistenceWindowPool
             return hitCount;
         }
 
+        int getRefreshedHit()
+        {
+            return refreshedHitCount;
+        }
+
         void refresh()
         {
             if ( window == null )
@@ -699,6 +894,7 @@ public class PersistenceWindowPool
             {
                 hitCount /= 1.15;
             }
+            refreshedHitCount = hitCount;
         }
 
         @Override
@@ -709,7 +905,7 @@ public class PersistenceWindowPool
     }
 
     /**
-     * Sorts {@link BrickElement} by their {@link BrickElement#getHit()} ratio.
+     * Sorts {@link BrickElement} by their {@link BrickElement#getRefreshedHit()} ratio.
      * Lowest hit ratio will make that brick end up at a lower index in list,
      * so the least requested will be at the beginning and the most requested at the end.
      */
@@ -717,7 +913,7 @@ public class PersistenceWindowPool
     {
         public int compare( BrickElement o1, BrickElement o2 )
         {
-            return o1.getHit() - o2.getHit();
+            return o1.getRefreshedHit() - o2.getRefreshedHit();
         }
     };
 }
@@ -146,6 +146,12 @@ public class PropertyStore extends AbstractStore implements Store, RecordStore<P
         return RECORD_SIZE;
     }
 
+    @Override
+    protected boolean mayMapWholeFile()
+    {
+        return true;
+    }
+
     @Override
     public int getRecordHeaderSize()
     {
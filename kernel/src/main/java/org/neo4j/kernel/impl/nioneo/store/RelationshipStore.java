@@ -67,6 +67,12 @@ public class RelationshipStore extends AbstractStore implements Store, RecordSto
         return RECORD_SIZE;
     }
 
+    @Override
+    protected boolean mayMapWholeFile()
+    {
+        return true;
+    }
+
     @Override
     public int getRecordHeaderSize()
     {
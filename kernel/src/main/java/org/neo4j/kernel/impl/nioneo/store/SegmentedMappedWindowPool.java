@@ -0,0 +1,349 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.nioneo.store;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * A {@link WindowPool} which memory maps its whole store file, in segments of
+ * a fixed size, and reads and writes records straight from those. There are
+ * no bricks to choose between and no {@link PersistenceRow rows} to fall back
+ * on, a window is a view of the segment the record lives in. Windows over the
+ * same record are kept from being used concurrently by a lock striped over
+ * the record position, rather than by a lock per window.
+ * <p>
+ * The last segment is mapped as far as the file goes, and is remapped
+ * larger, with some room to grow into, when a record past it is requested.
+ * Mapping past the end of the file grows the file, so on close the file is
+ * truncated to the records that were actually written. This needs address
+ * space for the whole store file, so it's meant for 64-bit JVMs on machines
+ * with plenty of memory.
+ */
+public class SegmentedMappedWindowPool implements WindowPool
+{
+    static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+    private static final int MIN_TAIL_SIZE = 1 << 20;
+    private static final int MAX_TAIL_GROWTH = 1 << 26;
+    private static final int LOCK_STRIPES = 1024;
+
+    private static Logger log = Logger.getLogger( SegmentedMappedWindowPool.class.getName() );
+
+    private final String storeName;
+    private final int recordSize;
+    private final FileChannel fileChannel;
+    // Segment size in records, all segments but the last are this large
+    private final int segmentRecords;
+    private volatile Segment[] segments = new Segment[0];
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    // The file size without the room mapped to grow into, kept on close
+    private final AtomicLong writtenSize;
+
+    // Should be AtomicIntegers, but it's completely OK to miss some
+    // updates for these statistics
+    private int hit = 0;
+    private int remaps = 0;
+
+    /**
+     * Create new pool for a store, mapping the whole of its file as it is now.
+     *
+     * @param storeName name of store that use this pool.
+     * @param recordSize the size of each record/block in the store.
+     * @param fileChannel a file channel to the store, open for writing.
+     * @param segmentSize the largest number of bytes mapped by one mapping.
+     */
+    public SegmentedMappedWindowPool( String storeName, int recordSize, FileChannel fileChannel,
+            int segmentSize )
+    {
+        if ( recordSize <= 0 || segmentSize < recordSize )
+        {
+            throw new IllegalArgumentException( "Can't fit records of " + recordSize
+                    + "b in segments of " + segmentSize + "b" );
+        }
+        this.storeName = storeName;
+        this.recordSize = recordSize;
+        this.fileChannel = fileChannel;
+        this.segmentRecords = segmentSize / recordSize;
+        for ( int i = 0; i < locks.length; i++ )
+        {
+            locks[i] = new ReentrantLock();
+        }
+        long fileSize;
+        try
+        {
+            fileSize = fileChannel.size();
+        }
+        catch ( IOException e )
+        {
+            throw new UnderlyingStorageException( "Unable to get file size for " + storeName, e );
+        }
+        this.writtenSize = new AtomicLong( fileSize );
+        long fileRecords = (fileSize + recordSize - 1) / recordSize;
+        Segment[] mapped = new Segment[(int) ((fileRecords + segmentRecords - 1) / segmentRecords)];
+        for ( int i = 0; i < mapped.length; i++ )
+        {
+            long position = (long) i * segmentRecords;
+            mapped[i] = mapSegment( position, (int) Math.min( segmentRecords, fileRecords - position ) );
+        }
+        segments = mapped;
+        log.fine( "[" + storeName + "] mapped " + mappedBytes() + "b in " + segments.length
+                + " segments of at most " + (long) segmentRecords * recordSize + "b" );
+    }
+
+    public PersistenceWindow acquire( long position, OperationType operationType )
+    {
+        Segment segment = segmentFor( position );
+        if ( operationType == OperationType.WRITE )
+        {
+            wrote( position );
+        }
+        ReentrantLock lock = locks[(int) (position & (LOCK_STRIPES - 1))];
+        lock.lock();
+        hit++;
+        return new SegmentWindow( segment, recordSize, lock );
+    }
+
+    public void release( PersistenceWindow window )
+    {
+        ((SegmentWindow) window).lock.unlock();
+    }
+
+    private void wrote( long position )
+    {
+        long size = (position + 1) * recordSize;
+        for ( long current = writtenSize.get(); size > current; current = writtenSize.get() )
+        {
+            if ( writtenSize.compareAndSet( current, size ) )
+            {
+                break;
+            }
+        }
+    }
+
+    private Segment segmentFor( long position )
+    {
+        Segment[] segments = this.segments;
+        long index = position / segmentRecords;
+        if ( index < segments.length )
+        {
+            Segment segment = segments[(int) index];
+            if ( position < segment.position + segment.records )
+            {
+                return segment;
+            }
+        }
+        return map( position );
+    }
+
+    /**
+     * Maps the segments needed to reach {@code position}, i.e. fills up the
+     * current last segment if there is one and maps new segments up to the
+     * one containing the position. The mappings being replaced are left to
+     * be unmapped by the garbage collector, since windows over them may still
+     * be in use.
+     */
+    private synchronized Segment map( long position )
+    {
+        Segment[] current = segments;
+        int index = (int) (position / segmentRecords);
+        if ( index < current.length && position < current[index].position + current[index].records )
+        {
+            // Someone else mapped it while we waited for the lock
+            return current[index];
+        }
+        Segment[] mapped = new Segment[Math.max( index + 1, current.length )];
+        System.arraycopy( current, 0, mapped, 0, current.length );
+        for ( int i = Math.max( current.length - 1, 0 ); i <= index; i++ )
+        {
+            int records = segmentRecords;
+            if ( i == index )
+            {
+                int previousRecords = i < current.length ? current[i].records : 0;
+                records = tailRecords( (int) (position - (long) i * segmentRecords) + 1, previousRecords );
+            }
+            if ( mapped[i] == null || mapped[i].records < records )
+            {
+                mapped[i] = mapSegment( (long) i * segmentRecords, records );
+            }
+        }
+        segments = mapped;
+        return mapped[index];
+    }
+
+    private int tailRecords( int neededRecords, int previousRecords )
+    {
+        long bytes = Math.max( (long) neededRecords * recordSize,
+                Math.max( MIN_TAIL_SIZE, (long) previousRecords * recordSize
+                        + Math.min( (long) previousRecords * recordSize, MAX_TAIL_GROWTH ) ) );
+        return (int) Math.min( (bytes + recordSize - 1) / recordSize, segmentRecords );
+    }
+
+    private Segment mapSegment( long position, int records )
+    {
+        try
+        {
+            MappedByteBuffer buffer = fileChannel.map( MapMode.READ_WRITE,
+                    position * recordSize, (long) records * recordSize );
+            remaps++;
+            return new Segment( position, records, buffer );
+        }
+        catch ( IOException e )
+        {
+            throw new MappedMemException( "[" + storeName + "] Unable to map pos=" + position
+                    + " recordSize=" + recordSize + " records=" + records, e );
+        }
+    }
+
+    private long mappedBytes()
+    {
+        long bytes = 0;
+        for ( Segment segment : segments )
+        {
+            bytes += (long) segment.records * recordSize;
+        }
+        return bytes;
+    }
+
+    public void flushAll()
+    {
+        for ( Segment segment : segments )
+        {
+            segment.buffer.force();
+        }
+        try
+        {
+            fileChannel.force( false );
+        }
+        catch ( IOException e )
+        {
+            throw new UnderlyingStorageException( "Failed to flush file channel " + storeName, e );
+        }
+    }
+
+    public synchronized void close()
+    {
+        flushAll();
+        segments = new Segment[0];
+        try
+        {
+            // Don't leave the room mapped to grow into behind, it would be
+            // taken for records by whoever opens the file next
+            if ( fileChannel.size() > writtenSize.get() )
+            {
+                fileChannel.truncate( writtenSize.get() );
+            }
+        }
+        catch ( IOException e )
+        {
+            // Some platforms won't truncate a file still mapped, the store
+            // truncates it to its high id on shutdown anyway
+            log.warning( "[" + storeName + "] Unable to truncate to " + writtenSize.get() + "b: " + e );
+        }
+        log.finest( storeName + " hit=" + hit + " remaps=" + remaps );
+    }
+
+    public WindowPoolStats getStats()
+    {
+        Segment[] segments = this.segments;
+        long mapped = mappedBytes();
+        return new WindowPoolStats( storeName, mapped, mapped, segments.length, segmentRecords * recordSize,
+                hit, 0, 0, 0, remaps, 0 );
+    }
+
+    private static class Segment
+    {
+        private final long position;
+        private final int records;
+        private final MappedByteBuffer buffer;
+
+        Segment( long position, int records, MappedByteBuffer buffer )
+        {
+            this.position = position;
+            this.records = records;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * A view of a {@link Segment} for the one thread that acquired it, with a
+     * buffer of its own so that its offset isn't shared with other threads.
+     */
+    private static class SegmentWindow implements PersistenceWindow
+    {
+        private final Segment segment;
+        private final int recordSize;
+        private final ReentrantLock lock;
+        private final Buffer buffer;
+
+        SegmentWindow( Segment segment, int recordSize, ReentrantLock lock )
+        {
+            this.segment = segment;
+            this.recordSize = recordSize;
+            this.lock = lock;
+            this.buffer = new Buffer( this, segment.buffer.duplicate() );
+        }
+
+        public Buffer getBuffer()
+        {
+            return buffer;
+        }
+
+        public Buffer getOffsettedBuffer( long id )
+        {
+            return buffer.setOffset( (int) (id - segment.position) * recordSize );
+        }
+
+        public int getRecordSize()
+        {
+            return recordSize;
+        }
+
+        public long position()
+        {
+            return segment.position;
+        }
+
+        public int size()
+        {
+            return segment.records;
+        }
+
+        public void force()
+        {
+            segment.buffer.force();
+        }
+
+        public void close()
+        {
+            // The segment is shared and outlives this window
+        }
+
+        @Override
+        public String toString()
+        {
+            return "SegmentWindow[p=" + segment.position + ",rs=" + recordSize + ",ws=" + segment.records + "]";
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.nioneo.store;
+
+/**
+ * Hands out {@link PersistenceWindow persistence windows} over the records of
+ * a store file. A window is acquired for the position of the record to read
+ * or write and must be released when the operation is done.
+ */
+public interface WindowPool
+{
+    /**
+     * Acquires a window encapsulating {@code position}, locked for use by the
+     * calling thread until {@link #release(PersistenceWindow) released}.
+     *
+     * @param position the record position the window needs to encapsulate.
+     * @param operationType the type of operation (READ or WRITE).
+     * @return a locked window encapsulating the position.
+     */
+    PersistenceWindow acquire( long position, OperationType operationType );
+
+    /**
+     * Releases a window acquired from this pool, writing out any changes
+     * made to it if needed.
+     *
+     * @param window the window to release.
+     */
+    void release( PersistenceWindow window );
+
+    /**
+     * Forces all changes made through the windows of this pool to disk.
+     */
+    void flushAll();
+
+    /**
+     * Flushes and closes all windows of this pool.
+     */
+    void close();
+
+    WindowPoolStats getStats();
+}
@@ -33,8 +33,19 @@ public class WindowPoolStats
     private final int missCount;
     private final int oomCount;
     
+    private final int switchCount;
+    private final int refreshCount;
+    private final int windowSizeChangeCount;
+    
     public WindowPoolStats( String name, long memAvail, long memUsed, int windowCount,
             int windowSize, int hitCount, int missCount, int oomCount )
+    {
+        this( name, memAvail, memUsed, windowCount, windowSize, hitCount, missCount, oomCount, 0, 0, 0 );
+    }
+    
+    public WindowPoolStats( String name, long memAvail, long memUsed, int windowCount,
+            int windowSize, int hitCount, int missCount, int oomCount, int switchCount,
+            int refreshCount, int windowSizeChangeCount )
     {
         this.name = name;
         this.memAvail = memAvail;
@@ -44,6 +55,9 @@ public class WindowPoolStats
         this.hitCount = hitCount;
         this.missCount = missCount;
         this.oomCount = oomCount;
+        this.switchCount = switchCount;
+        this.refreshCount = refreshCount;
+        this.windowSizeChangeCount = windowSizeChangeCount;
     }
     
     public String getName()
@@ -85,6 +99,33 @@ public class WindowPoolStats
     {
         return oomCount;
     }
+
+    /**
+     * @return the number of times a mapped window has been unmapped to make
+     * room for a window over a more frequently used part of the store.
+     */
+    public int getSwitchCount()
+    {
+        return switchCount;
+    }
+
+    /**
+     * @return the number of times the pool has reconsidered which parts of
+     * the store to map, based on how frequently they are used.
+     */
+    public int getRefreshCount()
+    {
+        return refreshCount;
+    }
+
+    /**
+     * @return the number of times the size of the windows has been changed
+     * as the store grew.
+     */
+    public int getWindowSizeChangeCount()
+    {
+        return windowSizeChangeCount;
+    }
     
     @Override
     public String toString()
@@ -96,6 +137,9 @@ public class WindowPoolStats
                 "win size:" + windowSize + " " +
                 "hits:" + hitCount + " " +
                 "misses:" + missCount + " " +
-                "ooms:" + oomCount + "]";
+                "ooms:" + oomCount + " " +
+                "switches:" + switchCount + " " +
+                "refreshes:" + refreshCount + " " +
+                "win size changes:" + windowSizeChangeCount + "]";
     }
 }
@@ -47,18 +47,37 @@ import org.neo4j.kernel.info.WaitingThread;
  * must invoke <CODE>releaseReadLock</CODE> x times to release all the locks.
  * <p>
  * LockManager just maps locks to resources and they do all the hard work
- * together with a resource allocation graph.
+ * together with a resource allocation graph. The map from resource to lock is
+ * split into a number of stripes, selected by the hash code of the resource,
+ * so that transactions locking different resources seldom contend for the
+ * same monitor.
  */
 public class LockManager
 {
-    private final Map<Object,RWLock> resourceLockMap =
-        new HashMap<Object,RWLock>();
+    private static final int STRIPES = 64; // must be a power of two
+
+    private final Map<Object,RWLock>[] resourceLockMaps;
 
     private final RagManager ragManager;
 
+    @SuppressWarnings( "unchecked" )
     public LockManager( RagManager ragManager)
     {
         this.ragManager = ragManager;
+        this.resourceLockMaps = new Map[STRIPES];
+        for ( int i = 0; i < STRIPES; i++ )
+        {
+            resourceLockMaps[i] = new HashMap<Object,RWLock>();
+        }
+    }
+
+    private Map<Object,RWLock> stripeFor( Object resource )
+    {
+        // spread the bits, hash codes of nodes and relationships are their ids
+        int hash = resource.hashCode();
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        hash ^= (hash >>> 7) ^ (hash >>> 4);
+        return resourceLockMaps[hash & (STRIPES - 1)];
     }
 
     public long getDetectedDeadlockCount()
@@ -87,6 +106,7 @@ public class LockManager
         }
 
         RWLock lock = null;
+        Map<Object,RWLock> resourceLockMap = stripeFor( resource );
         synchronized ( resourceLockMap )
         {
             lock = resourceLockMap.get( resource );
@@ -121,6 +141,7 @@ public class LockManager
         }
 
         RWLock lock = null;
+        Map<Object,RWLock> resourceLockMap = stripeFor( resource );
         synchronized ( resourceLockMap )
         {
             lock = resourceLockMap.get( resource );
@@ -153,6 +174,7 @@ public class LockManager
         }
 
         RWLock lock = null;
+        Map<Object,RWLock> resourceLockMap = stripeFor( resource );
         synchronized ( resourceLockMap )
         {
             lock = resourceLockMap.get( resource );
@@ -190,6 +212,7 @@ public class LockManager
         }
 
         RWLock lock = null;
+        Map<Object,RWLock> resourceLockMap = stripeFor( resource );
         synchronized ( resourceLockMap )
         {
             lock = resourceLockMap.get( resource );
@@ -218,6 +241,7 @@ public class LockManager
     public void dumpLocksOnResource( Object resource )
     {
         RWLock lock = null;
+        Map<Object,RWLock> resourceLockMap = stripeFor( resource );
         synchronized ( resourceLockMap )
         {
             if ( !resourceLockMap.containsKey( resource ) )
@@ -249,11 +273,14 @@ public class LockManager
      */
     private <V extends Visitor<LockInfo>> V eachLock( V visitor )
     {
-        synchronized ( resourceLockMap )
+        for ( Map<Object,RWLock> resourceLockMap : resourceLockMaps )
         {
-            for ( RWLock lock : resourceLockMap.values() )
+            synchronized ( resourceLockMap )
             {
-                if ( visitor.visit( lock.info() ) ) break;
+                for ( RWLock lock : resourceLockMap.values() )
+                {
+                    if ( visitor.visit( lock.info() ) ) return visitor;
+                }
             }
         }
         return visitor;
@@ -273,11 +300,14 @@ public class LockManager
     private <V extends Visitor<LockInfo>> V eachAwaitedLock( V visitor, long minWaitTime )
     {
         long waitStart = System.currentTimeMillis() - minWaitTime;
-        synchronized ( resourceLockMap )
+        for ( Map<Object,RWLock> resourceLockMap : resourceLockMaps )
         {
-            for ( RWLock lock : resourceLockMap.values() )
+            synchronized ( resourceLockMap )
             {
-                if ( lock.acceptVisitorIfWaitedSinceBefore( visitor, waitStart ) ) break;
+                for ( RWLock lock : resourceLockMap.values() )
+                {
+                    if ( lock.acceptVisitorIfWaitedSinceBefore( visitor, waitStart ) ) return visitor;
+                }
             }
         }
         return visitor;
@@ -26,12 +26,13 @@ import org.neo4j.kernel.impl.util.ArrayMap;
 import javax.transaction.SystemException;
 import javax.transaction.Transaction;
 import javax.transaction.TransactionManager;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -55,6 +56,14 @@ import java.util.concurrent.atomic.AtomicInteger;
  * traverse node nodespace starting on the resource and see if we can get back
  * to the tx ( T1 wants to wait on R1 and R1->T2->R2->T3->R8->T1 <==>
  * deadlock!).
+ * <p>
+ * Only the waiting part of the graph (T->R) is guarded by the monitor of this
+ * RagManager, so that it is only taken when a transaction actually has to
+ * wait. The R->T relationships are kept in a concurrent map and are updated
+ * under the monitor of the {@link RWLock} they belong to. A cycle can only be
+ * closed by a transaction starting to wait (a transaction acquiring a lock
+ * isn't waiting for anything), so seeing every other waiting transaction in
+ * {@link #checkWaitOn} is enough to never miss a deadlock.
  */
 public class RagManager
 {
@@ -71,9 +80,11 @@ public class RagManager
     // in a DeadlockDetectedException the transaction must wait
     // o When the transaction wakes up from waiting on a resource the
     // stopWaitOn( resource ) method must be invoked
+    // o lockAcquired and lockReleased for a resource must not be invoked
+    // concurrently, RWLock does this while holding its own monitor
 
-    private final Map<Object,List<Transaction>> resourceMap =
-        new HashMap<Object,List<Transaction>>();
+    private final ConcurrentMap<Object,List<Transaction>> resourceMap =
+        new ConcurrentHashMap<Object,List<Transaction>>();
 
     private final ArrayMap<Transaction,Object> waitingTxMap =
         new ArrayMap<Transaction,Object>( (byte)5, false, true );
@@ -92,7 +103,7 @@ public class RagManager
         return deadlockCount.longValue();
     }
 
-    synchronized void lockAcquired( Object resource, Transaction tx )
+    void lockAcquired( Object resource, Transaction tx )
     {
         List<Transaction> lockingTxList = resourceMap.get( resource );
         if ( lockingTxList != null )
@@ -102,13 +113,14 @@ public class RagManager
         }
         else
         {
-            lockingTxList = new LinkedList<Transaction>();
+            // copy on write since a deadlock check may iterate it concurrently
+            lockingTxList = new CopyOnWriteArrayList<Transaction>();
             lockingTxList.add( tx );
             resourceMap.put( resource, lockingTxList );
         }
     }
 
-    synchronized void lockReleased( Object resource, Transaction tx )
+    void lockReleased( Object resource, Transaction tx )
     {
         List<Transaction> lockingTxList = resourceMap.get( resource );
         if ( lockingTxList == null )
@@ -42,6 +42,7 @@ import javax.transaction.xa.Xid;
 import org.neo4j.helpers.Exceptions;
 import org.neo4j.kernel.impl.nioneo.xa.NeoStoreXaDataSource;
 import org.neo4j.kernel.impl.transaction.xaframework.ForceMode;
+import org.neo4j.kernel.impl.transaction.xaframework.XaLogicalLog;
 
 class TransactionImpl implements Transaction
 {
@@ -67,6 +68,8 @@ class TransactionImpl implements Transaction
 
     private final TxManager txManager;
     private final ForceMode forceMode;
+    private boolean forcesDeferred;
+    private int logForces;
 
     TransactionImpl( TxManager txManager, ForceMode forceMode )
     {
@@ -474,7 +477,15 @@ class TransactionImpl implements Transaction
     void doCommit() throws XAException, SystemException
     {
         boolean onePhase = isOnePhase();
-        boolean readOnly = true;
+        /*
+         * If only one of several resources has written anything, that resource
+         * alone decides the outcome. It's committed in one phase, without being
+         * prepared and without marking the transaction as committing in the tx
+         * log. Recovery then applies its one-phase commit record, or rolls the
+         * branch back if that record wasn't written, without asking the tx log.
+         */
+        ResourceElement soleWriter = onePhase ? null : findSoleWriter();
+        List<XAResource> writers = new ArrayList<XAResource>();
         if ( !onePhase )
         {
             // prepare
@@ -487,19 +498,12 @@ class TransactionImpl implements Transaction
                 if ( !preparedXids.contains( re.getXid() ) )
                 {
                     preparedXids.add( re.getXid() );
-                    int vote = re.getResource().prepare( re.getXid() );
-                    if ( vote == XAResource.XA_OK )
+                    if ( re == soleWriter )
                     {
-                        readOnly = false;
+                        continue;
                     }
-                    else if ( vote == XAResource.XA_RDONLY )
+                    if ( !prepare( re, writers ) )
                     {
-                        re.setStatus( RS_READONLY );
-                    }
-                    else
-                    {
-                        // rollback tx
-                        status = Status.STATUS_MARKED_ROLLBACK;
                         return;
                     }
                 }
@@ -509,10 +513,31 @@ class TransactionImpl implements Transaction
                     re.setStatus( RS_READONLY );
                 }
             }
+            if ( soleWriter != null && !writers.isEmpty() )
+            {
+                // another resource wrote after all, fall back to two-phase commit
+                if ( !prepare( soleWriter, writers ) )
+                {
+                    return;
+                }
+                soleWriter = null;
+            }
             status = Status.STATUS_PREPARED;
         }
         // commit
-        if ( !onePhase && readOnly )
+        if ( soleWriter != null )
+        {
+            status = Status.STATUS_COMMITTING;
+            soleWriter.getResource().commit( soleWriter.getXid(), true );
+            txManager.onePhaseOptimized();
+            if ( forceMode == ForceMode.forced )
+            {
+                logForces++;
+            }
+            status = Status.STATUS_COMMITTED;
+            return;
+        }
+        if ( !onePhase && writers.isEmpty() )
         {
             status = Status.STATUS_COMMITTED;
             return;
@@ -530,20 +555,111 @@ class TransactionImpl implements Transaction
                 throw Exceptions.withCause( new SystemException( "TM encountered a problem, "
                                                                  + " error writing transaction log" ), e );
             }
+            if ( forceMode == ForceMode.forced )
+            {
+                logForces++;
+            }
+        }
+
+        /*
+         * With more than one resource having written, write all the commit
+         * records unforced and then force the logs of those resources
+         * concurrently instead of one after the other.
+         */
+        List<XaLogicalLog> logsToForce = null;
+        if ( writers.size() > 1 && forceMode == ForceMode.forced )
+        {
+            logsToForce = txManager.getLogicalLogs( writers );
         }
         status = Status.STATUS_COMMITTING;
-        Iterator<ResourceElement> itr = resourceList.iterator();
-        while ( itr.hasNext() )
+        forcesDeferred = logsToForce != null;
+        try
         {
-            ResourceElement re = itr.next();
-            if ( re.getStatus() != RS_READONLY )
+            Iterator<ResourceElement> itr = resourceList.iterator();
+            while ( itr.hasNext() )
             {
-                re.getResource().commit( re.getXid(), onePhase );
+                ResourceElement re = itr.next();
+                if ( re.getStatus() != RS_READONLY )
+                {
+                    re.getResource().commit( re.getXid(), onePhase );
+                }
             }
         }
+        finally
+        {
+            forcesDeferred = false;
+        }
+        if ( logsToForce != null )
+        {
+            txManager.forceLogs( logsToForce );
+        }
+        if ( forceMode == ForceMode.forced )
+        {
+            logForces += onePhase ? 1 : writers.size();
+        }
         status = Status.STATUS_COMMITTED;
     }
 
+    /**
+     * @return the only resource element, of several, whose branch has written
+     * anything, or {@code null} if none or more than one of them has written.
+     */
+    private ResourceElement findSoleWriter() throws XAException
+    {
+        ResourceElement writer = null;
+        for ( ResourceElement re : resourceList )
+        {
+            if ( writer != null && writer.getXid().equals( re.getXid() ) )
+            {
+                continue;
+            }
+            if ( txManager.hasWritten( re.getResource(), re.getXid() ) )
+            {
+                if ( writer != null )
+                {
+                    return null;
+                }
+                writer = re;
+            }
+        }
+        return writer;
+    }
+
+    /**
+     * Prepares the branch of {@code re}, adding its resource to
+     * {@code writers} if it has written anything.
+     *
+     * @return {@code false} if the resource voted for rollback.
+     */
+    private boolean prepare( ResourceElement re, List<XAResource> writers ) throws XAException
+    {
+        int vote = re.getResource().prepare( re.getXid() );
+        if ( vote == XAResource.XA_OK )
+        {
+            writers.add( re.getResource() );
+        }
+        else if ( vote == XAResource.XA_RDONLY )
+        {
+            re.setStatus( RS_READONLY );
+        }
+        else
+        {
+            // rollback tx
+            status = Status.STATUS_MARKED_ROLLBACK;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of logical log and tx log forces this transaction
+     * asked for when committing.
+     */
+    int getLogForceCount()
+    {
+        return logForces;
+    }
+
     void doRollback() throws XAException
     {
         status = Status.STATUS_ROLLING_BACK;
@@ -648,6 +764,6 @@ class TransactionImpl implements Transaction
     
     public ForceMode getForceMode()
     {
-        return forceMode;
+        return forcesDeferred ? ForceMode.unforced : forceMode;
     }
 }
\ No newline at end of file
@@ -27,8 +27,14 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.transaction.HeuristicMixedException;
@@ -40,14 +46,19 @@ import javax.transaction.SystemException;
 import javax.transaction.Transaction;
 import javax.transaction.xa.XAException;
 import javax.transaction.xa.XAResource;
+import javax.transaction.xa.Xid;
 import org.neo4j.graphdb.TransactionFailureException;
 import org.neo4j.graphdb.event.ErrorState;
+import org.neo4j.helpers.DaemonThreadFactory;
 import org.neo4j.helpers.Exceptions;
 import org.neo4j.helpers.UTF8;
 import org.neo4j.kernel.impl.core.KernelPanicEventGenerator;
 import org.neo4j.kernel.impl.nioneo.store.FileSystemAbstraction;
 import org.neo4j.kernel.impl.transaction.xaframework.ForceMode;
+import org.neo4j.kernel.impl.transaction.xaframework.XaDataSource;
+import org.neo4j.kernel.impl.transaction.xaframework.XaLogicalLog;
 import org.neo4j.kernel.impl.transaction.xaframework.XaResource;
+import org.neo4j.kernel.impl.transaction.xaframework.XaResourceHelpImpl;
 import org.neo4j.kernel.impl.util.StringLogger;
 import org.neo4j.kernel.lifecycle.Lifecycle;
 
@@ -87,6 +98,12 @@ public class TxManager extends AbstractTransactionManager
     private final AtomicInteger comittedTxCount = new AtomicInteger( 0 );
     private final AtomicInteger rolledBackTxCount = new AtomicInteger( 0 );
     private int peakConcurrentTransactions = 0;
+    private final AtomicInteger onePhaseOptimizedTxCount = new AtomicInteger( 0 );
+    private final AtomicLong commitLogForceCount = new AtomicLong( 0 );
+    private final AtomicLong commitTimeNanos = new AtomicLong( 0 );
+
+    private static final int LOG_FORCE_THREADS = 4;
+    private ExecutorService logForceExecutor;
 
     private final StringLogger msgLog;
 
@@ -131,6 +148,8 @@ public class TxManager extends AbstractTransactionManager
     public void init()
     {
         txThreadMap = new ConcurrentHashMap<Thread, TransactionImpl>();
+        logForceExecutor = Executors.newFixedThreadPool( LOG_FORCE_THREADS,
+                new DaemonThreadFactory( "Logical log force" ) );
         logSwitcherFileName = txLogDir + separator + "active_tx_log";
         txLog1FileName = "tm_tx_log.1";
         txLog2FileName = "tm_tx_log.2";
@@ -233,6 +252,10 @@ public class TxManager extends AbstractTransactionManager
                 log.log( Level.WARNING, "Unable to close tx log[" + txLog.getName() + "]", e );
             }
         }
+        if ( logForceExecutor != null )
+        {
+            logForceExecutor.shutdown();
+        }
         msgLog.logMessage( "TM shutting down", true );
     }
 
@@ -439,6 +462,7 @@ public class TxManager extends AbstractTransactionManager
         }
         else
         {
+            long startTime = System.nanoTime();
             try
             {
                 tx.doCommit();
@@ -461,6 +485,8 @@ public class TxManager extends AbstractTransactionManager
                 log.log( Level.SEVERE, "Commit failed", t );
                 commitFailureCause = t;
             }
+            commitTimeNanos.addAndGet( System.nanoTime() - startTime );
+            commitLogForceCount.addAndGet( tx.getLogForceCount() );
         }
         if ( tx.getStatus() != Status.STATUS_COMMITTED )
         {
@@ -726,6 +752,83 @@ public class TxManager extends AbstractTransactionManager
         // ...
     }
 
+    void onePhaseOptimized()
+    {
+        onePhaseOptimizedTxCount.incrementAndGet();
+    }
+
+    /**
+     * @return whether the branch {@code xid} of the given resource has written
+     * anything, {@code true} for resources that can't tell.
+     */
+    boolean hasWritten( XAResource resource, Xid xid ) throws XAException
+    {
+        return !(resource instanceof XaResourceHelpImpl) || !((XaResourceHelpImpl) resource).isReadOnly( xid );
+    }
+
+    /**
+     * @return the logical logs of the given resources, or {@code null} if
+     * the log of any of them couldn't be found.
+     */
+    List<XaLogicalLog> getLogicalLogs( List<XAResource> resources )
+    {
+        List<XaLogicalLog> logs = new ArrayList<XaLogicalLog>( resources.size() );
+        for ( XAResource resource : resources )
+        {
+            XaDataSource dataSource = xaDataSourceManager.getXaDataSource( getBranchId( resource ) );
+            if ( dataSource == null )
+            {
+                return null;
+            }
+            try
+            {
+                logs.add( dataSource.getXaContainer().getLogicalLog() );
+            }
+            catch ( UnsupportedOperationException e )
+            {
+                return null;
+            }
+        }
+        return logs;
+    }
+
+    /**
+     * Forces the given logs concurrently, returning when all of them have
+     * been forced.
+     */
+    void forceLogs( List<XaLogicalLog> logs ) throws SystemException
+    {
+        List<Future<Void>> forces = new ArrayList<Future<Void>>( logs.size() - 1 );
+        try
+        {
+            for ( final XaLogicalLog logicalLog : logs.subList( 1, logs.size() ) )
+            {
+                forces.add( logForceExecutor.submit( new Callable<Void>()
+                {
+                    @Override
+                    public Void call() throws IOException
+                    {
+                        logicalLog.forceCommitted();
+                        return null;
+                    }
+                } ) );
+            }
+            logs.get( 0 ).forceCommitted();
+            for ( Future<Void> force : forces )
+            {
+                force.get();
+            }
+        }
+        catch ( Exception e )
+        {
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            log.log( Level.SEVERE, "Error forcing logical log", cause );
+            setTmNotOk( cause );
+            throw logAndReturn( "TM error tx commit", Exceptions.withCause( new SystemException(
+                    "TM encountered a problem, error forcing logical log" ), cause ) );
+        }
+    }
+
     byte[] getBranchId( XAResource xaRes )
     {
         if ( xaRes instanceof XaResource )
@@ -827,4 +930,31 @@ public class TxManager extends AbstractTransactionManager
     {
         return peakConcurrentTransactions;
     }
+
+    /**
+     * @return the number of two phase transactions where only one resource
+     * had written anything, which were committed without a tx log record.
+     */
+    public int getOnePhaseOptimizedTxCount()
+    {
+        return onePhaseOptimizedTxCount.get();
+    }
+
+    /**
+     * @return the number of forces of the tx log and the logical logs asked
+     * for by committing transactions. Forces shared through group commit
+     * are counted once per transaction.
+     */
+    public long getCommitLogForceCount()
+    {
+        return commitLogForceCount.get();
+    }
+
+    /**
+     * @return the total time spent committing transactions, in nanoseconds.
+     */
+    public long getCommitTimeNanos()
+    {
+        return commitTimeNanos.get();
+    }
 }
@@ -120,6 +120,15 @@ public class XaDataSourceManager
         return dataSources.get( name );
     }
 
+    /**
+     * @return the data source with the given branch id, or <CODE>null</CODE>
+     * if no such data source is registered.
+     */
+    synchronized XaDataSource getXaDataSource( byte branchId[] )
+    {
+        return branchIdMapping.get( UTF8.decode( branchId ) );
+    }
+
     public NeoStoreXaDataSource getNeoStoreDataSource()
     {
         return (NeoStoreXaDataSource) getXaDataSource( Config.DEFAULT_DATA_SOURCE_NAME );
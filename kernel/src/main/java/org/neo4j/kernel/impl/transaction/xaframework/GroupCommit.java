@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.xaframework;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets transactions committing against the same {@link XaLogicalLog} share
+ * one force of the log. Every commit record written to the log gets a ticket
+ * (a sequence number). A committing thread waits in {@link #awaitForced(long)}
+ * until its ticket has been forced. The first thread that finds no force in
+ * progress becomes the leader, optionally waits for more committers to show
+ * up, and then forces the log once on behalf of every commit record written
+ * so far. Threads arriving while a force is in progress are picked up by the
+ * next force.
+ */
+class GroupCommit
+{
+    private final XaLogicalLog log;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+
+    // Guarded by this
+    private long forcedTicket;
+    private boolean forceInProgress;
+    private int waiting;
+
+    GroupCommit( XaLogicalLog log, int maxBatchSize, long maxWaitMillis )
+    {
+        if ( maxBatchSize < 1 )
+        {
+            throw new IllegalArgumentException( "Max batch size must be at least 1, was " + maxBatchSize );
+        }
+        this.log = log;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos( maxWaitMillis );
+    }
+
+    /**
+     * Blocks until the commit record with the given ticket has been forced
+     * to disk, either by this thread or by another committer.
+     *
+     * @param ticket the ticket of the commit record to wait for.
+     * @throws IOException if the force failed.
+     */
+    void awaitForced( long ticket ) throws IOException
+    {
+        synchronized ( this )
+        {
+            boolean leader = false;
+            waiting++;
+            try
+            {
+                while ( forcedTicket < ticket && !leader )
+                {
+                    if ( !forceInProgress )
+                    {
+                        forceInProgress = true;
+                        leader = true;
+                        gatherBatch();
+                    }
+                    else
+                    {
+                        if ( waiting >= maxBatchSize )
+                        {
+                            notifyAll();
+                        }
+                        waitUninterruptibly( 0 );
+                    }
+                }
+            }
+            finally
+            {
+                waiting--;
+            }
+            if ( !leader )
+            {
+                return;
+            }
+        }
+
+        // This thread is the leader, force outside of the monitor so that
+        // others can queue up for the next force in the mean time.
+        boolean success = false;
+        long forced = -1;
+        try
+        {
+            forced = log.forceCommitRecords();
+            success = true;
+        }
+        finally
+        {
+            synchronized ( this )
+            {
+                if ( success )
+                {
+                    forcedTicket = Math.max( forcedTicket, forced );
+                }
+                forceInProgress = false;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Called by the log when it has forced everything up to and including
+     * the given ticket for reasons of its own, f.ex. a rotation.
+     */
+    synchronized void forced( long ticket )
+    {
+        if ( ticket > forcedTicket )
+        {
+            forcedTicket = ticket;
+            notifyAll();
+        }
+    }
+
+    private void gatherBatch()
+    {
+        if ( maxWaitNanos <= 0 )
+        {
+            return;
+        }
+        long deadline = System.nanoTime() + maxWaitNanos;
+        long remaining = maxWaitNanos;
+        while ( waiting < maxBatchSize && remaining > 0 )
+        {
+            waitUninterruptibly( remaining );
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    private void waitUninterruptibly( long nanos )
+    {
+        try
+        {
+            if ( nanos == 0 )
+            {
+                wait();
+            }
+            else
+            {
+                TimeUnit.NANOSECONDS.timedWait( this, nanos );
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            // Keep waiting, the commit record must be forced before we return
+        }
+    }
+}
@@ -38,6 +38,9 @@ public class XaFactory
     public static abstract class Configuration
     {
         public static final GraphDatabaseSetting.BooleanSetting intercept_deserialized_transactions = GraphDatabaseSettings.intercept_deserialized_transactions;
+        public static final GraphDatabaseSetting.BooleanSetting group_commit = GraphDatabaseSettings.group_commit;
+        public static final GraphDatabaseSetting.IntegerSetting group_commit_max_batch_size = GraphDatabaseSettings.group_commit_max_batch_size;
+        public static final GraphDatabaseSetting.TimeSpanSetting group_commit_max_wait = GraphDatabaseSettings.group_commit_max_wait;
     }
     
     private Config config;
@@ -85,6 +88,12 @@ public class XaFactory
             log = new XaLogicalLog( logicalLog, rm, cf, tf, logBufferFactory, fileSystemAbstraction, stringLogger );
         }
 
+        if ( config.get( Configuration.group_commit ) )
+        {
+            log.setGroupCommit( config.get( Configuration.group_commit_max_batch_size ),
+                    config.get( Configuration.group_commit_max_wait ) );
+        }
+
         // TODO These setters should be removed somehow
         rm.setLogicalLog( log );
         tf.setLogicalLog( log );
@@ -28,6 +28,7 @@ import static org.neo4j.kernel.impl.transaction.xaframework.XaLogicalLogTokens.L
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.util.HashMap;
@@ -112,6 +113,9 @@ public class XaLogicalLog implements LogLoader
 
     private final XaLogicalLogFiles logFiles;
 
+    private volatile GroupCommit groupCommit;
+    private long appendedCommitTicket;
+
     public XaLogicalLog( String fileName, XaResourceManager xaRm, XaCommandFactory cf,
             XaTransactionFactory xaTf, LogBufferFactory logBufferFactory, FileSystemAbstraction fileSystem, StringLogger stringLogger )
     {
@@ -321,7 +325,12 @@ public class XaLogicalLog implements LogLoader
         {
             cacheTxStartPosition( txId, startEntry );
             LogIoUtils.writeCommit( false, writeBuffer, identifier, txId, System.currentTimeMillis() );
+            appendedCommitTicket++;
             forceMode.force( writeBuffer );
+            if ( forceMode == ForceMode.forced && groupCommit != null )
+            {
+                groupCommit.forced( appendedCommitTicket );
+            }
         }
         catch ( IOException e )
         {
@@ -396,7 +405,12 @@ public class XaLogicalLog implements LogLoader
         {
             cacheTxStartPosition( txId, startEntry );
             LogIoUtils.writeCommit( true, writeBuffer, identifier, txId, System.currentTimeMillis() );
+            appendedCommitTicket++;
             forceMode.force( writeBuffer );
+            if ( forceMode == ForceMode.forced && groupCommit != null )
+            {
+                groupCommit.forced( appendedCommitTicket );
+            }
         }
         catch ( IOException e )
         {
@@ -404,6 +418,85 @@ public class XaLogicalLog implements LogLoader
         }
     }
 
+    /**
+     * Blocks until every commit record written to this log so far has been
+     * forced to disk. Used together with group commit, where transactions
+     * write their commit record with {@link ForceMode#unforced} and then
+     * share one force with other transactions committing at the same time.
+     *
+     * @throws IOException if the log couldn't be forced.
+     */
+    public void awaitGroupCommit() throws IOException
+    {
+        long ticket;
+        synchronized ( this )
+        {
+            ticket = appendedCommitTicket;
+        }
+        groupCommit.awaitForced( ticket );
+    }
+
+    /**
+     * Makes sure every commit record written to this log so far is forced to
+     * disk, sharing the force with other committers if group commit is
+     * enabled. Used for transactions that wrote their commit record with
+     * {@link ForceMode#unforced} to force several logs concurrently.
+     *
+     * @throws IOException if the log couldn't be forced.
+     */
+    public void forceCommitted() throws IOException
+    {
+        if ( groupCommit != null )
+        {
+            awaitGroupCommit();
+        }
+        else
+        {
+            forceCommitRecords();
+        }
+    }
+
+    /**
+     * Forces every commit record written to this log so far. The buffered
+     * records are written out to the channel while holding the monitor of
+     * this log, but the force itself happens outside of it, so that other
+     * transactions can write their commit records in the mean time and be
+     * picked up by the next force.
+     *
+     * @return the ticket of the last commit record that has been forced.
+     */
+    long forceCommitRecords() throws IOException
+    {
+        long ticket;
+        FileChannel channel;
+        synchronized ( this )
+        {
+            ticket = appendedCommitTicket;
+            if ( fileChannel == null || writeBuffer == null )
+            {
+                return ticket;
+            }
+            writeBuffer.writeOut();
+            channel = writeBuffer.getFileChannel();
+        }
+        try
+        {
+            channel.force( false );
+        }
+        catch ( ClosedChannelException e )
+        {
+            synchronized ( this )
+            {
+                // Rotating and closing the log both force it before closing the channel
+                if ( fileChannel != null && writeBuffer != null && writeBuffer.getFileChannel() == channel )
+                {
+                    throw e;
+                }
+            }
+        }
+        return ticket;
+    }
+
     // [COMMAND][identifier][COMMAND_DATA]
     public synchronized void writeCommand( XaCommand command, int identifier )
         throws IOException
@@ -1409,6 +1502,10 @@ public class XaLogicalLog implements LogLoader
                 writeBuffer.getFileChannelPosition(), true );
         long endPosition = writeBuffer.getFileChannelPosition();
         writeBuffer.force();
+        if ( groupCommit != null )
+        {
+            groupCommit.forced( appendedCommitTicket );
+        }
         FileChannel newLog = fileSystem.open( newLogFile, "rw" );
         long lastTx = xaTf.getLastCommittedTx();
         LogIoUtils.writeLogHeader( sharedBuffer, (currentVersion + 1), lastTx );
@@ -1612,6 +1709,26 @@ public class XaLogicalLog implements LogLoader
         return this.autoRotate;
     }
 
+    /**
+     * Makes transactions committing against this log share forces of the log
+     * with each other, see {@link #awaitGroupCommit()}.
+     *
+     * @param maxBatchSize the number of waiting transactions that makes a
+     * force happen right away, without waiting for {@code maxWaitMillis}.
+     * @param maxWaitMillis how long the force may be held back waiting for
+     * more transactions to join it. 0 means forcing right away, batching
+     * only the transactions that queue up while a force is in progress.
+     */
+    public void setGroupCommit( int maxBatchSize, long maxWaitMillis )
+    {
+        this.groupCommit = new GroupCommit( this, maxBatchSize, maxWaitMillis );
+    }
+
+    public boolean isGroupCommitEnabled()
+    {
+        return groupCommit != null;
+    }
+
     public void setLogicalLogTargetSize( long size )
     {
         this.rotateAtSize = size;
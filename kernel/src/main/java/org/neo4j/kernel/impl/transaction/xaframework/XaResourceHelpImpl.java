@@ -96,6 +96,15 @@ public abstract class XaResourceHelpImpl implements XaResource
         return true;
     }
 
+    /**
+     * @return {@code true} if the transaction branch of {@code xid} hasn't
+     * written anything so far.
+     */
+    public boolean isReadOnly( Xid xid ) throws XAException
+    {
+        return xaRm.isReadOnly( xid );
+    }
+
     public int prepare( Xid xid ) throws XAException
     {
         return xaRm.prepare( xid );
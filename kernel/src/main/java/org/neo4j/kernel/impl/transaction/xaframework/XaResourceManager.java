@@ -37,6 +37,7 @@ import javax.transaction.xa.XAException;
 import javax.transaction.xa.XAResource;
 import javax.transaction.xa.Xid;
 
+import org.neo4j.helpers.Exceptions;
 import org.neo4j.kernel.impl.transaction.AbstractTransactionManager;
 import org.neo4j.kernel.impl.transaction.xaframework.LogEntry.Start;
 import org.neo4j.kernel.impl.util.ArrayMap;
@@ -308,6 +309,16 @@ public class XaResourceManager
         }
     }
 
+    synchronized boolean isReadOnly( Xid xid ) throws XAException
+    {
+        XidStatus status = xidMap.get( xid );
+        if ( status == null )
+        {
+            throw new XAException( "Unknown xid[" + xid + "]" );
+        }
+        return status.getTransactionStatus().getTransaction().isReadOnly();
+    }
+
     synchronized int prepare( Xid xid ) throws XAException
     {
         XidStatus status = xidMap.get( xid );
@@ -414,7 +425,40 @@ public class XaResourceManager
         return xaTransaction;
     }
 
-    synchronized XaTransaction commit( Xid xid, boolean onePhase )
+    XaTransaction commit( Xid xid, boolean onePhase ) throws XAException
+    {
+        ForceMode forceMode = getForceMode();
+        if ( forceMode != ForceMode.forced || !log.isGroupCommitEnabled() )
+        {
+            return commit( xid, onePhase, forceMode );
+        }
+
+        /*
+         * Group commit: write the commit record without forcing, apply the
+         * transaction and then, outside of this monitor so that other
+         * transactions can write their commit records meanwhile, wait for
+         * a force shared with them. Whoever called commit won't see it
+         * return until the commit record is on disk.
+         */
+        XaTransaction xaTransaction = commit( xid, onePhase, ForceMode.unforced );
+        // A committed transaction has cleared its state and looks read only,
+        // whether a commit record was written is told by the commit tx id
+        if ( xaTransaction.getCommitTxId() != -1 && !xaTransaction.isRecovered() )
+        {
+            try
+            {
+                log.awaitGroupCommit();
+            }
+            catch ( IOException e )
+            {
+                throw Exceptions.withCause( new XAException( "Logical log unable to force commit of ["
+                        + xaTransaction.getIdentifier() + "] " ), e );
+            }
+        }
+        return xaTransaction;
+    }
+
+    private synchronized XaTransaction commit( Xid xid, boolean onePhase, ForceMode forceMode )
         throws XAException
     {
         XidStatus status = xidMap.get( xid );
@@ -438,7 +482,7 @@ public class XaResourceManager
                             xaTransaction.getIdentifier() );
                     xaTransaction.setCommitTxId( txId );
                     log.commitOnePhase( xaTransaction.getIdentifier(),
-                            xaTransaction.getCommitTxId(), getForceMode() );
+                            xaTransaction.getCommitTxId(), forceMode );
                 }
             }
         }
@@ -457,7 +501,7 @@ public class XaResourceManager
                             xaTransaction.getIdentifier() );
                     xaTransaction.setCommitTxId( txId );
                     log.commitTwoPhase( xaTransaction.getIdentifier(),
-                            xaTransaction.getCommitTxId(), getForceMode() );
+                            xaTransaction.getCommitTxId(), forceMode );
                 }
             }
             txStatus.markCommitStarted();
@@ -0,0 +1,292 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.util;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A map from primitive longs to objects, an open addressing hash table with
+ * linear probing. Compared to a {@link java.util.HashMap} it doesn't box the
+ * keys and has no entry objects, so each mapping costs a long and a
+ * reference in two arrays. {@code null} values aren't allowed. Not thread
+ * safe.
+ */
+public class PrimitiveLongMap<V>
+{
+    private static final int DEFAULT_CAPACITY = 16; // must be a power of two
+
+    private long[] keys;
+    private Object[] values; // null means a free slot
+    private int size;
+
+    public PrimitiveLongMap()
+    {
+        this( DEFAULT_CAPACITY );
+    }
+
+    /**
+     * @param expectedSize the number of mappings to make room for up front.
+     */
+    public PrimitiveLongMap( int expectedSize )
+    {
+        allocate( PrimitiveLongSet.capacityFor( expectedSize ) );
+    }
+
+    private void allocate( int capacity )
+    {
+        keys = new long[capacity];
+        values = new Object[capacity];
+    }
+
+    private int slotFor( long key )
+    {
+        return PrimitiveLongSet.hash( key, keys.length - 1 );
+    }
+
+    private int find( long key )
+    {
+        int mask = keys.length - 1;
+        for ( int slot = slotFor( key ); values[slot] != null; slot = (slot + 1) & mask )
+        {
+            if ( keys[slot] == key )
+            {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public V get( long key )
+    {
+        int slot = find( key );
+        return slot == -1 ? null : (V) values[slot];
+    }
+
+    public boolean containsKey( long key )
+    {
+        return find( key ) != -1;
+    }
+
+    /**
+     * @return the value previously mapped to {@code key}, or {@code null}.
+     */
+    @SuppressWarnings( "unchecked" )
+    public V put( long key, V value )
+    {
+        if ( value == null )
+        {
+            throw new IllegalArgumentException( "Null value for " + key );
+        }
+        int mask = keys.length - 1;
+        int slot = slotFor( key );
+        for ( ; values[slot] != null; slot = (slot + 1) & mask )
+        {
+            if ( keys[slot] == key )
+            {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if ( ++size > PrimitiveLongSet.maxSizeFor( keys.length ) )
+        {
+            resize( keys.length * 2 );
+        }
+        return null;
+    }
+
+    /**
+     * @return the value that was mapped to {@code key}, or {@code null}.
+     */
+    @SuppressWarnings( "unchecked" )
+    public V remove( long key )
+    {
+        int slot = find( key );
+        if ( slot == -1 )
+        {
+            return null;
+        }
+        V previous = (V) values[slot];
+        // shift back following entries of the probe sequence into the hole
+        int mask = keys.length - 1;
+        int hole = slot;
+        for ( int next = (hole + 1) & mask; values[next] != null; next = (next + 1) & mask )
+        {
+            int home = slotFor( keys[next] );
+            if ( ((next - home) & mask) >= ((next - hole) & mask) )
+            {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        values[hole] = null;
+        size--;
+        return previous;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public void clear()
+    {
+        if ( size > 0 )
+        {
+            allocate( DEFAULT_CAPACITY );
+            size = 0;
+        }
+    }
+
+    /**
+     * @return the keys of this map, in no particular order.
+     */
+    public PrimitiveLongIterator keys()
+    {
+        return new PrimitiveLongIterator()
+        {
+            private final SlotCursor cursor = new SlotCursor();
+
+            @Override
+            public boolean hasNext()
+            {
+                return cursor.hasNext();
+            }
+
+            @Override
+            public long next()
+            {
+                return keys[cursor.next()];
+            }
+        };
+    }
+
+    /**
+     * @return the values of this map, in no particular order.
+     */
+    public Iterable<V> values()
+    {
+        return new Iterable<V>()
+        {
+            @Override
+            public Iterator<V> iterator()
+            {
+                return new Iterator<V>()
+                {
+                    private final SlotCursor cursor = new SlotCursor();
+
+                    @Override
+                    public boolean hasNext()
+                    {
+                        return cursor.hasNext();
+                    }
+
+                    @Override
+                    @SuppressWarnings( "unchecked" )
+                    public V next()
+                    {
+                        return (V) values[cursor.next()];
+                    }
+
+                    @Override
+                    public void remove()
+                    {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    private void resize( int capacity )
+    {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate( capacity );
+        int mask = capacity - 1;
+        for ( int i = 0; i < oldKeys.length; i++ )
+        {
+            if ( oldValues[i] != null )
+            {
+                int slot = slotFor( oldKeys[i] );
+                while ( values[slot] != null )
+                {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder result = new StringBuilder( "{" );
+        String separator = "";
+        for ( int i = 0; i < keys.length; i++ )
+        {
+            if ( values[i] != null )
+            {
+                result.append( separator ).append( keys[i] ).append( '=' ).append( values[i] );
+                separator = ", ";
+            }
+        }
+        return result.append( '}' ).toString();
+    }
+
+    private class SlotCursor
+    {
+        private int slot = -1;
+        private int nextSlot = -1;
+
+        boolean hasNext()
+        {
+            if ( nextSlot == -1 )
+            {
+                for ( nextSlot = slot + 1; nextSlot < values.length && values[nextSlot] == null; nextSlot++ )
+                {
+                }
+            }
+            return nextSlot < values.length;
+        }
+
+        int next()
+        {
+            if ( !hasNext() )
+            {
+                throw new NoSuchElementException();
+            }
+            slot = nextSlot;
+            nextSlot = -1;
+            return slot;
+        }
+    }
+}
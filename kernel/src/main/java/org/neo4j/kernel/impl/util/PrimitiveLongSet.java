@@ -0,0 +1,261 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.util;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A set of primitive longs, an open addressing hash table with linear
+ * probing. Compared to a {@link java.util.HashSet} it doesn't box the values
+ * and has no entry objects, so each value costs a long in an array. Not
+ * thread safe.
+ */
+public class PrimitiveLongSet
+{
+    private static final int DEFAULT_CAPACITY = 16; // must be a power of two
+    private static final long FREE = 0; // a set containing 0 tracks that separately
+
+    private long[] values;
+    private int size; // not counting containsFree
+    private boolean containsFree;
+
+    public PrimitiveLongSet()
+    {
+        this( DEFAULT_CAPACITY );
+    }
+
+    /**
+     * @param expectedSize the number of values to make room for up front.
+     */
+    public PrimitiveLongSet( int expectedSize )
+    {
+        allocate( capacityFor( expectedSize ) );
+    }
+
+    static int capacityFor( int expectedSize )
+    {
+        int capacity = DEFAULT_CAPACITY;
+        while ( maxSizeFor( capacity ) < expectedSize )
+        {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    static int maxSizeFor( int capacity )
+    {
+        return capacity / 4 * 3;
+    }
+
+    /**
+     * Like {@link java.util.HashMap}, folds the high bits into the low ones
+     * and otherwise keeps the value as is. Ids in a transaction tend to be
+     * clustered, so they end up in neighbouring slots without colliding and
+     * iterating goes roughly in id order, which the stores like.
+     */
+    static int hash( long value, int mask )
+    {
+        int hash = (int) (value ^ (value >>> 32));
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private void allocate( int capacity )
+    {
+        values = new long[capacity];
+    }
+
+    private int find( long value )
+    {
+        int mask = values.length - 1;
+        for ( int slot = hash( value, mask ); values[slot] != FREE; slot = (slot + 1) & mask )
+        {
+            if ( values[slot] == value )
+            {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    public boolean contains( long value )
+    {
+        return value == FREE ? containsFree : find( value ) != -1;
+    }
+
+    /**
+     * @return whether or not the value was added, i.e. wasn't already in the
+     * set.
+     */
+    public boolean add( long value )
+    {
+        if ( value == FREE )
+        {
+            boolean added = !containsFree;
+            containsFree = true;
+            return added;
+        }
+        int mask = values.length - 1;
+        int slot = hash( value, mask );
+        for ( ; values[slot] != FREE; slot = (slot + 1) & mask )
+        {
+            if ( values[slot] == value )
+            {
+                return false;
+            }
+        }
+        values[slot] = value;
+        if ( ++size > maxSizeFor( values.length ) )
+        {
+            resize( values.length * 2 );
+        }
+        return true;
+    }
+
+    /**
+     * @return whether or not the value was removed, i.e. was in the set.
+     */
+    public boolean remove( long value )
+    {
+        if ( value == FREE )
+        {
+            boolean removed = containsFree;
+            containsFree = false;
+            return removed;
+        }
+        int slot = find( value );
+        if ( slot == -1 )
+        {
+            return false;
+        }
+        // shift back following values of the probe sequence into the hole
+        int mask = values.length - 1;
+        int hole = slot;
+        for ( int next = (hole + 1) & mask; values[next] != FREE; next = (next + 1) & mask )
+        {
+            int home = hash( values[next], mask );
+            if ( ((next - home) & mask) >= ((next - hole) & mask) )
+            {
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        values[hole] = FREE;
+        size--;
+        return true;
+    }
+
+    public int size()
+    {
+        return size + (containsFree ? 1 : 0);
+    }
+
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    public void clear()
+    {
+        if ( size > 0 )
+        {
+            allocate( DEFAULT_CAPACITY );
+            size = 0;
+        }
+        containsFree = false;
+    }
+
+    /**
+     * @return the values of this set, in no particular order.
+     */
+    public PrimitiveLongIterator iterator()
+    {
+        return new PrimitiveLongIterator()
+        {
+            private boolean freeReturned = !containsFree;
+            private int slot = -1;
+            private int nextSlot = -1;
+
+            @Override
+            public boolean hasNext()
+            {
+                if ( !freeReturned )
+                {
+                    return true;
+                }
+                if ( nextSlot == -1 )
+                {
+                    for ( nextSlot = slot + 1; nextSlot < values.length && values[nextSlot] == FREE; nextSlot++ )
+                    {
+                    }
+                }
+                return nextSlot < values.length;
+            }
+
+            @Override
+            public long next()
+            {
+                if ( !hasNext() )
+                {
+                    throw new NoSuchElementException();
+                }
+                if ( !freeReturned )
+                {
+                    freeReturned = true;
+                    return FREE;
+                }
+                slot = nextSlot;
+                nextSlot = -1;
+                return values[slot];
+            }
+        };
+    }
+
+    private void resize( int capacity )
+    {
+        long[] oldValues = values;
+        allocate( capacity );
+        int mask = capacity - 1;
+        for ( long value : oldValues )
+        {
+            if ( value != FREE )
+            {
+                int slot = hash( value, mask );
+                while ( values[slot] != FREE )
+                {
+                    slot = (slot + 1) & mask;
+                }
+                values[slot] = value;
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder result = new StringBuilder( "[" );
+        String separator = "";
+        for ( PrimitiveLongIterator iterator = iterator(); iterator.hasNext(); )
+        {
+            result.append( separator ).append( iterator.next() );
+            separator = ", ";
+        }
+        return result.append( ']' ).toString();
+    }
+}
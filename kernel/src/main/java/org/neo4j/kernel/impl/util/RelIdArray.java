@@ -24,10 +24,11 @@ import static org.neo4j.kernel.impl.cache.SizeOfs.withArrayOverhead;
 import static org.neo4j.kernel.impl.cache.SizeOfs.withObjectOverhead;
 import static org.neo4j.kernel.impl.cache.SizeOfs.withReference;
 
-import java.util.Collection;
+import java.nio.ByteBuffer;
 import java.util.NoSuchElementException;
 
 import org.neo4j.graphdb.Direction;
+import org.neo4j.helpers.UTF8;
 import org.neo4j.kernel.impl.cache.SizeOf;
 import org.neo4j.kernel.impl.cache.SizeOfs;
 
@@ -275,6 +276,74 @@ public class RelIdArray implements SizeOf
         return new RelIdArray( type );
     }
     
+    /**
+     * Writes the type and ids of this array to {@code buffer}, so that an
+     * equivalent array can be read back with {@link #readFrom(ByteBuffer)}.
+     */
+    public void writeTo( ByteBuffer buffer )
+    {
+        byte[] typeBytes = UTF8.encode( type );
+        buffer.putInt( typeBytes.length ).put( typeBytes );
+        buffer.put( (byte) (getLastLoopBlock() != null ? 1 : 0) );
+        writeBlocks( lastOutBlock, buffer );
+        writeBlocks( lastInBlock, buffer );
+        writeBlocks( getLastLoopBlock(), buffer );
+    }
+    
+    private static void writeBlocks( IdBlock lastBlock, ByteBuffer buffer )
+    {
+        int count = 0;
+        for ( IdBlock block = lastBlock; block != null; block = block.getPrev() )
+        {
+            count++;
+        }
+        buffer.putInt( count );
+        // oldest block first, so that reading back gives the same block order
+        IdBlock[] blocks = new IdBlock[count];
+        for ( IdBlock block = lastBlock; block != null; block = block.getPrev() )
+        {
+            blocks[--count] = block;
+        }
+        for ( IdBlock block : blocks )
+        {
+            int length = block.length();
+            buffer.putInt( (int) (block.getHighBits() >>> 32) ).putInt( length );
+            for ( int i = 0; i < length; i++ )
+            {
+                buffer.putInt( block.ids[i+1] );
+            }
+        }
+    }
+    
+    /**
+     * Reads an array written with {@link #writeTo(ByteBuffer)}.
+     */
+    public static RelIdArray readFrom( ByteBuffer buffer )
+    {
+        byte[] typeBytes = new byte[buffer.getInt()];
+        buffer.get( typeBytes );
+        String type = UTF8.decode( typeBytes );
+        RelIdArray ids = buffer.get() != 0 ? new RelIdArrayWithLoops( type ) : new RelIdArray( type );
+        readBlocks( ids, DirectionWrapper.OUTGOING, buffer );
+        readBlocks( ids, DirectionWrapper.INCOMING, buffer );
+        readBlocks( ids, DirectionWrapper.BOTH, buffer );
+        return ids;
+    }
+    
+    private static void readBlocks( RelIdArray ids, DirectionWrapper direction, ByteBuffer buffer )
+    {
+        int count = buffer.getInt();
+        for ( int i = 0; i < count; i++ )
+        {
+            long highBits = ((long) buffer.getInt()) << 32;
+            int length = buffer.getInt();
+            for ( int j = 0; j < length; j++ )
+            {
+                ids.add( highBits | (buffer.getInt()&0xFFFFFFFFL), direction );
+            }
+        }
+    }
+    
     public static final IdBlock EMPTY_BLOCK = new LowIdBlock();
     
     public static enum DirectionWrapper
@@ -802,7 +871,7 @@ public class RelIdArray implements SizeOf
         }
     }
     
-    public static RelIdArray from( RelIdArray src, RelIdArray add, Collection<Long> remove )
+    public static RelIdArray from( RelIdArray src, RelIdArray add, PrimitiveLongSet remove )
     {
         if ( remove == null )
         {
@@ -850,7 +919,7 @@ public class RelIdArray implements SizeOf
         }
     }
 
-    private static void evictExcluded( RelIdArray ids, Collection<Long> excluded )
+    private static void evictExcluded( RelIdArray ids, PrimitiveLongSet excluded )
     {
         for ( RelIdIteratorImpl iterator = (RelIdIteratorImpl) DirectionWrapper.BOTH.iterator( ids ); iterator.hasNext(); )
         {
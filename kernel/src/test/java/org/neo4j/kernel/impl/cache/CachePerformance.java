@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.cache;
+
+import static java.lang.System.currentTimeMillis;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Measures lookup throughput of {@link ClockCache} compared to
+ * {@link LruCache}, {@link SoftLruCache} and {@link WeakLruCache} with 1 to
+ * 32 reader threads doing random lookups in a populated cache, putting the
+ * element back on a miss. Not a test, run it manually.
+ */
+public class CachePerformance
+{
+    private static final int[] READERS = { 1, 2, 4, 8, 16, 32 };
+    private static final int ELEMENTS = 100000;
+    private static final int TOTAL_LOOKUPS = 16000000;
+
+    private static final Entity[] entities = new Entity[ELEMENTS];
+
+    public static void main( String[] args ) throws Exception
+    {
+        for ( int i = 0; i < ELEMENTS; i++ )
+        {
+            entities[i] = new Entity( i );
+        }
+        // warm up, so that the first cache measured doesn't pay for the JIT
+        for ( int i = 0; i < 2; i++ )
+        {
+            run( 1, cache( new ClockCache<Entity>( "clock", ELEMENTS ) ) );
+            run( 1, lruCache( new LruCache<Long,Entity>( "lru", ELEMENTS ) ) );
+            run( 1, cache( new SoftLruCache<Entity>( "soft" ) ) );
+            run( 1, cache( new WeakLruCache<Entity>( "weak" ) ) );
+        }
+        for ( int readers : READERS )
+        {
+            report( "clock", readers, run( readers, cache( new ClockCache<Entity>( "clock", ELEMENTS ) ) ) );
+            report( "lru", readers, run( readers, lruCache( new LruCache<Long,Entity>( "lru", ELEMENTS ) ) ) );
+            report( "soft", readers, run( readers, cache( new SoftLruCache<Entity>( "soft" ) ) ) );
+            report( "weak", readers, run( readers, cache( new WeakLruCache<Entity>( "weak" ) ) ) );
+        }
+    }
+
+    private static void report( String name, int readers, long time )
+    {
+        System.out.println( name + ", " + readers + " readers: " + TOTAL_LOOKUPS + " lookups in " + time + "ms, " +
+                (TOTAL_LOOKUPS * 1000L / Math.max( 1, time )) + " lookups/s" );
+    }
+
+    private static long run( int readers, final Lookup cache ) throws Exception
+    {
+        for ( Entity entity : entities )
+        {
+            cache.put( entity );
+        }
+        final int lookupsPerReader = TOTAL_LOOKUPS / readers;
+        final CountDownLatch start = new CountDownLatch( 1 );
+        Thread[] threads = new Thread[readers];
+        for ( int i = 0; i < readers; i++ )
+        {
+            final int seed = i;
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    Random random = new Random( seed );
+                    awaitStart( start );
+                    for ( int j = 0; j < lookupsPerReader; j++ )
+                    {
+                        int id = random.nextInt( ELEMENTS );
+                        if ( cache.get( id ) == null )
+                        {
+                            cache.put( entities[id] );
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        long startTime = currentTimeMillis();
+        start.countDown();
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+        return currentTimeMillis() - startTime;
+    }
+
+    private static void awaitStart( CountDownLatch start )
+    {
+        try
+        {
+            start.await();
+        }
+        catch ( InterruptedException e )
+        {
+            throw new RuntimeException( e );
+        }
+    }
+
+    private interface Lookup
+    {
+        Entity get( long id );
+
+        void put( Entity entity );
+    }
+
+    private static Lookup cache( final Cache<Entity> cache )
+    {
+        return new Lookup()
+        {
+            @Override
+            public Entity get( long id )
+            {
+                return cache.get( id );
+            }
+
+            @Override
+            public void put( Entity entity )
+            {
+                cache.put( entity );
+            }
+        };
+    }
+
+    private static Lookup lruCache( final LruCache<Long,Entity> cache )
+    {
+        return new Lookup()
+        {
+            @Override
+            public Entity get( long id )
+            {
+                return cache.get( id );
+            }
+
+            @Override
+            public void put( Entity entity )
+            {
+                cache.put( entity.getId(), entity );
+            }
+        };
+    }
+
+    private static class Entity implements EntityWithSize
+    {
+        private final long id;
+        private int registeredSize;
+
+        Entity( long id )
+        {
+            this.id = id;
+        }
+
+        @Override
+        public int size()
+        {
+            return 16;
+        }
+
+        @Override
+        public long getId()
+        {
+            return id;
+        }
+
+        @Override
+        public void setRegisteredSize( int size )
+        {
+            this.registeredSize = size;
+        }
+
+        @Override
+        public int getRegisteredSize()
+        {
+            return registeredSize;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.cache;
+
+import static java.lang.System.currentTimeMillis;
+
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.DynamicRelationshipType;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.kernel.impl.util.FileUtils;
+
+/**
+ * Measures traversal throughput and time spent in GC with the
+ * {@link OffHeapCache} compared to the strong and soft caches. A graph of
+ * {@link #NODES} nodes, each with a few properties and relationships to
+ * random other nodes, is traversed a number of times after the cache has
+ * been warmed up. Run it with a heap that is tight for the graph, f.ex.
+ * -Xmx256m -XX:MaxDirectMemorySize=1g, to see the difference. Not a test, run
+ * it manually.
+ */
+public class OffHeapCachePerformance
+{
+    private static final int NODES = 500000;
+    private static final int RELATIONSHIPS_PER_NODE = 4;
+    private static final int ROUNDS = 5;
+    private static final RelationshipType KNOWS = DynamicRelationshipType.withName( "KNOWS" );
+    private static final String[] CACHES = { StrongCacheProvider.NAME, SoftCacheProvider.NAME,
+            OffHeapCacheProvider.NAME };
+
+    public static void main( String[] args ) throws Exception
+    {
+        File storeDir = new File( "target/var/offheap-performance" );
+        FileUtils.deleteRecursively( storeDir );
+        createGraph( storeDir.getPath() );
+        for ( String cache : CACHES )
+        {
+            try
+            {
+                run( storeDir.getPath(), cache );
+            }
+            catch ( OutOfMemoryError e )
+            {
+                System.out.println( cache + ": ran out of heap" );
+            }
+        }
+    }
+
+    private static void createGraph( String storeDir )
+    {
+        GraphDatabaseService db = new GraphDatabaseFactory().newEmbeddedDatabase( storeDir );
+        try
+        {
+            long[] ids = new long[NODES];
+            Transaction tx = db.beginTx();
+            for ( int i = 0; i < NODES; i++ )
+            {
+                Node node = db.createNode();
+                node.setProperty( "name", "node " + i );
+                node.setProperty( "number", i );
+                ids[i] = node.getId();
+                if ( i % 10000 == 9999 )
+                {
+                    tx.success();
+                    tx.finish();
+                    tx = db.beginTx();
+                }
+            }
+            long seed = 0;
+            for ( int i = 0; i < NODES; i++ )
+            {
+                Node node = db.getNodeById( ids[i] );
+                for ( int j = 0; j < RELATIONSHIPS_PER_NODE; j++ )
+                {
+                    seed = (seed * 0x5DEECE66DL + 0xBL) & ((1L << 48) - 1);
+                    Node other = db.getNodeById( ids[(int) ((seed >>> 17) % NODES)] );
+                    node.createRelationshipTo( other, KNOWS ).setProperty( "since", i );
+                }
+                if ( i % 10000 == 9999 )
+                {
+                    tx.success();
+                    tx.finish();
+                    tx = db.beginTx();
+                }
+            }
+            tx.success();
+            tx.finish();
+        }
+        finally
+        {
+            db.shutdown();
+        }
+    }
+
+    private static void run( String storeDir, String cache )
+    {
+        GraphDatabaseService db = new GraphDatabaseFactory().newEmbeddedDatabaseBuilder( storeDir )
+                .setConfig( GraphDatabaseSettings.cache_type.name(), cache )
+                .setConfig( GraphDatabaseSettings.node_cache_max_entries, String.valueOf( NODES / 10 ) )
+                .setConfig( GraphDatabaseSettings.relationship_cache_max_entries,
+                        String.valueOf( NODES * RELATIONSHIPS_PER_NODE / 10 ) )
+                .setConfig( GraphDatabaseSettings.node_cache_off_heap_size, "256M" )
+                .setConfig( GraphDatabaseSettings.relationship_cache_off_heap_size, "256M" )
+                .newGraphDatabase();
+        try
+        {
+            traverse( db ); // warm up the cache
+            System.gc();
+            long gcTimeBefore = gcTime();
+            long start = currentTimeMillis();
+            long steps = 0;
+            for ( int i = 0; i < ROUNDS; i++ )
+            {
+                steps += traverse( db );
+            }
+            long time = currentTimeMillis() - start;
+            long gcTime = gcTime() - gcTimeBefore;
+            System.out.println( cache + ": " + steps + " steps in " + time + "ms, " +
+                    (steps * 1000L / Math.max( 1, time )) + " steps/s, " + gcTime + "ms in GC" );
+        }
+        finally
+        {
+            db.shutdown();
+        }
+    }
+
+    private static long traverse( GraphDatabaseService db )
+    {
+        long steps = 0;
+        for ( Node node : db.getAllNodes() )
+        {
+            for ( Relationship relationship : node.getRelationships( KNOWS, Direction.OUTGOING ) )
+            {
+                Node other = relationship.getEndNode();
+                if ( other.hasProperty( "number" ) )
+                {
+                    other.getProperty( "name" );
+                    relationship.getProperty( "since" );
+                    steps++;
+                }
+            }
+        }
+        return steps;
+    }
+
+    private static long gcTime()
+    {
+        long time = 0;
+        for ( GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans() )
+        {
+            time += Math.max( 0, gc.getCollectionTime() );
+        }
+        return time;
+    }
+}
@@ -86,6 +86,30 @@ public class TestCacheTypes extends AbstractNeo4jTestCase
         db.shutdown();
     }
     
+    @Test
+    public void testClockCache()
+    {
+        GraphDatabaseAPI db = newDb( ClockCacheProvider.NAME );
+        assertEquals( ClockCacheProvider.NAME, db.getNodeManager().getCacheType().getName() );
+        db.shutdown();
+    }
+
+    @Test
+    public void testMemoryBudgetCache()
+    {
+        GraphDatabaseAPI db = newDb( MemoryBudgetCacheProvider.NAME );
+        assertEquals( MemoryBudgetCacheProvider.NAME, db.getNodeManager().getCacheType().getName() );
+        db.shutdown();
+    }
+
+    @Test
+    public void testOffHeapCache()
+    {
+        GraphDatabaseAPI db = newDb( OffHeapCacheProvider.NAME );
+        assertEquals( OffHeapCacheProvider.NAME, db.getNodeManager().getCacheType().getName() );
+        db.shutdown();
+    }
+
     @Test
     public void testInvalidCache()
     {
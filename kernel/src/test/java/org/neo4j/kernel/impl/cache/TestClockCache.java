@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class TestClockCache
+{
+    @Test
+    public void testCreate()
+    {
+        try
+        {
+            new ClockCache<Entity>( "TestCache", 0 );
+            fail( "Illegal maxSize should throw exception" );
+        }
+        catch ( IllegalArgumentException e )
+        { // good
+        }
+        try
+        {
+            new ClockCache<Entity>( null, 10 );
+            fail( "Null name should throw exception" );
+        }
+        catch ( IllegalArgumentException e )
+        { // good
+        }
+        ClockCache<Entity> cache = new ClockCache<Entity>( "TestCache", 70 );
+        assertEquals( "TestCache", cache.getName() );
+        assertEquals( 70, cache.maxSize() );
+    }
+
+    @Test
+    public void smallCacheShouldRespectItsMaxSize()
+    {
+        for ( int maxSize = 1; maxSize <= 20; maxSize++ )
+        {
+            ClockCache<Entity> cache = new ClockCache<Entity>( "TestCache", maxSize );
+            for ( int i = 0; i < 100; i++ )
+            {
+                cache.put( new Entity( i ) );
+                assertTrue( "size " + cache.size() + " over max size " + maxSize, cache.size() <= maxSize );
+            }
+            assertEquals( maxSize, cache.maxSize() );
+        }
+    }
+
+    @Test
+    public void testPutGetRemove()
+    {
+        ClockCache<Entity> cache = new ClockCache<Entity>( "TestCache", 100 );
+        Entity e1 = new Entity( 1 );
+        Entity e2 = new Entity( 2 );
+        cache.put( e1 );
+        cache.put( e2 );
+        assertSame( e1, cache.get( 1 ) );
+        assertSame( e2, cache.get( 2 ) );
+        assertNull( cache.get( 3 ) );
+        assertEquals( 2, cache.size() );
+        assertEquals( 2, cache.hitCount() );
+        assertEquals( 1, cache.missCount() );
+
+        Entity e1Again = new Entity( 1 );
+        cache.put( e1Again );
+        assertSame( e1Again, cache.get( 1 ) );
+        assertEquals( 2, cache.size() );
+
+        assertSame( e1Again, cache.remove( 1 ) );
+        assertNull( cache.remove( 1 ) );
+        assertNull( cache.get( 1 ) );
+        assertEquals( 1, cache.size() );
+
+        cache.clear();
+        assertEquals( 0, cache.size() );
+        assertNull( cache.get( 2 ) );
+    }
+
+    @Test
+    public void testNeverGrowsBeyondMaxSize()
+    {
+        ClockCache<Entity> cache = new ClockCache<Entity>( "TestCache", 160 );
+        for ( int i = 0; i < 10000; i++ )
+        {
+            cache.put( new Entity( i ) );
+            assertTrue( cache.size() <= 160 );
+        }
+        // every slot is reused after removal
+        for ( int i = 0; i < 10000; i++ )
+        {
+            cache.remove( i );
+        }
+        assertEquals( 0, cache.size() );
+        for ( int i = 0; i < 160; i++ )
+        {
+            cache.put( new Entity( i * 16 ) );
+        }
+        for ( int i = 0; i < 160; i++ )
+        {
+            assertNotNull( cache.get( i * 16 ) );
+        }
+    }
+
+    @Test
+    public void testReferencedElementsSurviveEviction()
+    {
+        ClockCache<Entity> cache = new ClockCache<Entity>( "TestCache", 128 );
+        Entity hot = new Entity( 0 );
+        cache.put( hot );
+        for ( int i = 1; i < 1000; i++ )
+        {
+            assertSame( hot, cache.get( 0 ) );
+            cache.put( new Entity( i ) );
+        }
+        assertSame( hot, cache.get( 0 ) );
+    }
+
+    private static class Entity implements EntityWithSize
+    {
+        private final long id;
+        private int registeredSize;
+
+        Entity( long id )
+        {
+            this.id = id;
+        }
+
+        @Override
+        public int size()
+        {
+            return 16;
+        }
+
+        @Override
+        public long getId()
+        {
+            return id;
+        }
+
+        @Override
+        public void setRegisteredSize( int size )
+        {
+            this.registeredSize = size;
+        }
+
+        @Override
+        public int getRegisteredSize()
+        {
+            return registeredSize;
+        }
+    }
+}
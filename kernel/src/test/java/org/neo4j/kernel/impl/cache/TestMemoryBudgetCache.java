@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TestMemoryBudgetCache
+{
+    @Test
+    public void testBytesUsedFollowsPutsRemovesAndSizeUpdates()
+    {
+        MemoryBudgetCache<Entity> cache = new MemoryBudgetCache<Entity>( "TestCache", 1024 * 1024 );
+        Entity e1 = new Entity( 1, 100 );
+        Entity e2 = new Entity( 2, 200 );
+        cache.put( e1 );
+        cache.put( e2 );
+        assertEquals( 300, cache.bytesUsed() );
+        assertEquals( 100, e1.getRegisteredSize() );
+
+        e1.size = 150;
+        cache.updateSize( e1, e1.size() );
+        assertEquals( 350, cache.bytesUsed() );
+        assertEquals( 150, e1.getRegisteredSize() );
+
+        // an entity not in the cache doesn't count
+        cache.updateSize( new Entity( 3, 1000 ), 1000 );
+        assertEquals( 350, cache.bytesUsed() );
+
+        cache.put( new Entity( 2, 50 ) );
+        assertEquals( 200, cache.bytesUsed() );
+
+        assertSame( e1, cache.remove( 1 ) );
+        assertEquals( 50, cache.bytesUsed() );
+
+        cache.clear();
+        assertEquals( 0, cache.bytesUsed() );
+        assertEquals( 0, cache.size() );
+    }
+
+    @Test
+    public void testNeverGrowsBeyondBudget()
+    {
+        MemoryBudgetCache<Entity> cache = new MemoryBudgetCache<Entity>( "TestCache", 16 * 1000 );
+        assertEquals( 16 * 1000, cache.maxBytes() );
+        for ( int i = 0; i < 10000; i++ )
+        {
+            cache.put( new Entity( i, 10 + i % 90 ) );
+            assertTrue( cache.bytesUsed() <= cache.maxBytes() );
+        }
+        assertTrue( cache.size() > 0 );
+    }
+
+    @Test
+    public void testGrowingEntityEvictsOthers()
+    {
+        MemoryBudgetCache<Entity> cache = new MemoryBudgetCache<Entity>( "TestCache", 16 * 1000 );
+        Entity growing = new Entity( 0, 100 );
+        cache.put( growing );
+        for ( int i = 1; i < 1000; i++ )
+        {
+            assertSame( growing, cache.get( 0 ) );
+            cache.put( new Entity( i, 100 ) );
+        }
+        long sizeBefore = cache.size();
+        growing.size = 900;
+        cache.updateSize( growing, growing.size() );
+        assertTrue( cache.bytesUsed() <= cache.maxBytes() );
+        assertTrue( cache.size() < sizeBefore );
+        assertSame( growing, cache.get( 0 ) );
+    }
+
+    @Test
+    public void testEntityBiggerThanBudgetStillCached()
+    {
+        MemoryBudgetCache<Entity> cache = new MemoryBudgetCache<Entity>( "TestCache", 16 * 10 );
+        Entity big = new Entity( 0, 1000 );
+        cache.put( big );
+        assertSame( big, cache.get( 0 ) );
+        cache.remove( 0 );
+        assertNull( cache.get( 0 ) );
+        assertEquals( 0, cache.bytesUsed() );
+    }
+
+    private static class Entity implements EntityWithSize
+    {
+        private final long id;
+        private int size;
+        private int registeredSize;
+
+        Entity( long id, int size )
+        {
+            this.id = id;
+            this.size = size;
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+
+        @Override
+        public long getId()
+        {
+            return id;
+        }
+
+        @Override
+        public void setRegisteredSize( int size )
+        {
+            this.registeredSize = size;
+        }
+
+        @Override
+        public int getRegisteredSize()
+        {
+            return registeredSize;
+        }
+    }
+}
@@ -0,0 +1,354 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class TestOffHeapCache
+{
+    private static final long MEGA = 1024 * 1024;
+
+    @Test
+    public void testEvictedElementsAreRestoredFromOffHeap()
+    {
+        OffHeapCache<Entity> cache = new OffHeapCache<Entity>( "TestCache", CODEC, 16, MEGA );
+        for ( int i = 0; i < 1000; i++ )
+        {
+            cache.put( new Entity( i, "value" + i ) );
+        }
+        assertTrue( cache.heapSize() <= 16 );
+        assertEquals( 1000, cache.size() );
+        for ( int i = 0; i < 1000; i++ )
+        {
+            Entity entity = cache.get( i );
+            assertNotNull( entity );
+            assertEquals( i, entity.getId() );
+            assertEquals( "value" + i, entity.value );
+        }
+        assertEquals( 1000, cache.hitCount() );
+        assertEquals( 1000, cache.size() );
+    }
+
+    @Test
+    public void testRestoredElementStaysOnHeap()
+    {
+        OffHeapCache<Entity> cache = new OffHeapCache<Entity>( "TestCache", CODEC, 128, MEGA );
+        Entity original = new Entity( 0, "zero" );
+        cache.put( original );
+        for ( int i = 1; i < 1000; i++ )
+        {
+            cache.put( new Entity( i, "value" + i ) );
+        }
+        Entity restored = cache.get( 0 );
+        assertNotSame( original, restored );
+        assertEquals( "zero", restored.value );
+        assertSame( restored, cache.get( 0 ) );
+    }
+
+    @Test
+    public void testRemoveAndClearAffectBothTiers()
+    {
+        OffHeapCache<Entity> cache = new OffHeapCache<Entity>( "TestCache", CODEC, 16, MEGA );
+        for ( int i = 0; i < 100; i++ )
+        {
+            cache.put( new Entity( i, "value" + i ) );
+        }
+        for ( int i = 0; i < 100; i += 2 )
+        {
+            cache.remove( i );
+        }
+        for ( int i = 0; i < 100; i++ )
+        {
+            if ( i % 2 == 0 )
+            {
+                assertNull( cache.get( i ) );
+            }
+            else
+            {
+                assertEquals( "value" + i, cache.get( i ).value );
+            }
+        }
+        cache.clear();
+        assertEquals( 0, cache.size() );
+        assertNull( cache.get( 1 ) );
+    }
+
+    @Test
+    public void testChangedAfterEvictionDropsSerializedForm()
+    {
+        OffHeapCache<Entity> cache = new OffHeapCache<Entity>( "TestCache", CODEC, 16, MEGA );
+        Entity entity = new Entity( 0, "before" );
+        cache.put( entity );
+        for ( int i = 1; i < 100; i++ )
+        {
+            cache.put( new Entity( i, "value" + i ) );
+        }
+        assertTrue( cache.offHeapSize() > 0 );
+
+        // a stale instance, no longer in the heap tier, gets changed
+        entity.value = "after";
+        cache.updateSize( entity, entity.size() );
+        Entity restored = cache.get( 0 );
+        assertTrue( restored == null || restored == entity );
+
+        // whereas changes to one in the heap tier are kept
+        Entity onHeap = new Entity( 0, "before" );
+        cache.put( onHeap );
+        onHeap.value = "after";
+        cache.updateSize( onHeap, onHeap.size() );
+        assertSame( onHeap, cache.get( 0 ) );
+    }
+
+    @Test
+    public void testChangedAfterEvictionDropsRestoredInstance()
+    {
+        OffHeapCache<Entity> cache = new OffHeapCache<Entity>( "TestCache", CODEC, 16, MEGA );
+        Entity entity = new Entity( 0, "before" );
+        cache.put( entity );
+        for ( int i = 1; i < 100; i++ )
+        {
+            cache.put( new Entity( i, "value" + i ) );
+        }
+        Entity restored = cache.get( 0 );
+        assertNotSame( entity, restored );
+
+        // the restored instance doesn't have the change made to the stale one
+        entity.value = "after";
+        cache.updateSize( entity, entity.size() );
+        assertNull( cache.get( 0 ) );
+    }
+
+    @Test
+    public void testCachedElementsAreAlwaysFoundWhileMovingBetweenTiers() throws Exception
+    {
+        final int count = 2000;
+        final OffHeapCache<Entity> cache = new OffHeapCache<Entity>( "TestCache", CODEC, 64, 16 * MEGA );
+        for ( int i = 0; i < count; i++ )
+        {
+            cache.put( new Entity( i, "value" + i ) );
+        }
+        assertEquals( count, cache.size() );
+
+        ExecutorService executor = Executors.newFixedThreadPool( 4 );
+        try
+        {
+            List<Future<Integer>> misses = new ArrayList<Future<Integer>>();
+            for ( int t = 0; t < 4; t++ )
+            {
+                final Random random = new Random( t );
+                misses.add( executor.submit( new Callable<Integer>()
+                {
+                    @Override
+                    public Integer call()
+                    {
+                        int missed = 0;
+                        for ( int i = 0; i < 200000; i++ )
+                        {
+                            if ( cache.get( random.nextInt( count ) ) == null )
+                            {
+                                missed++;
+                            }
+                        }
+                        return missed;
+                    }
+                } ) );
+            }
+            for ( Future<Integer> missed : misses )
+            {
+                assertEquals( 0, missed.get().intValue() );
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        assertEquals( count, cache.size() );
+    }
+
+    @Test
+    public void testClearGivesBackTheOffHeapMemory()
+    {
+        OffHeapCache<Entity> cache = new OffHeapCache<Entity>( "TestCache", CODEC, 16, MEGA );
+        for ( int i = 0; i < 1000; i++ )
+        {
+            cache.put( new Entity( i, "value" + i ) );
+        }
+        assertTrue( cache.offHeapBytesReserved() > 0 );
+
+        cache.clear();
+        assertEquals( 0, cache.offHeapBytesReserved() );
+
+        for ( int i = 0; i < 1000; i++ )
+        {
+            cache.put( new Entity( i, "again" + i ) );
+        }
+        assertEquals( "again0", cache.get( 0 ).value );
+    }
+
+    @Test
+    public void testOffHeapTierStaysWithinItsSize()
+    {
+        long maxBytes = 256 * 1024;
+        OffHeapCache<Entity> cache = new OffHeapCache<Entity>( "TestCache", CODEC, 16, maxBytes );
+        StringBuilder value = new StringBuilder();
+        for ( int i = 0; i < 10000; i++ )
+        {
+            value.append( (char) ('a' + i % 26) );
+            cache.put( new Entity( i, value.substring( 0, i % 500 ) ) );
+            assertTrue( cache.offHeapBytesReserved() <= maxBytes );
+        }
+        assertTrue( cache.offHeapSize() > 0 );
+        assertTrue( cache.size() < 10000 );
+        Entity last = cache.get( 9999 );
+        assertEquals( value.substring( 0, 9999 % 500 ), last.value );
+    }
+
+    @Test
+    public void testTooBigElementsAreNotKeptOffHeap()
+    {
+        OffHeapCache<Entity> cache = new OffHeapCache<Entity>( "TestCache", CODEC, 16, MEGA );
+        cache.put( new Entity( 0, new String( new char[OffHeapStore.maxRecordSize()] ) ) );
+        for ( int i = 1; i < 100; i++ )
+        {
+            cache.put( new Entity( i, "value" + i ) );
+        }
+        assertNull( cache.get( 0 ) );
+        assertEquals( "value1", cache.get( 1 ).value );
+    }
+
+    @Test
+    public void testStoreAgreesWithMapOverRandomOperations()
+    {
+        OffHeapStore store = new OffHeapStore( 64 * MEGA );
+        Map<Long,Long> expected = new HashMap<Long,Long>();
+        Random random = new Random( 42 );
+        for ( int i = 0; i < 200000; i++ )
+        {
+            long id = random.nextInt( 20000 ) * 7919L;
+            switch ( random.nextInt( 3 ) )
+            {
+            case 0:
+                long value = random.nextLong();
+                ByteBuffer record = ByteBuffer.allocate( 8 + random.nextInt( 200 ) );
+                record.putLong( value ).clear();
+                assertTrue( store.put( id, record ) );
+                expected.put( id, value );
+                break;
+            case 1:
+                store.remove( id );
+                expected.remove( id );
+                break;
+            default:
+                ByteBuffer copy = store.get( id );
+                Long expectedValue = expected.get( id );
+                if ( expectedValue == null )
+                {
+                    assertNull( copy );
+                }
+                else
+                {
+                    assertEquals( expectedValue.longValue(), copy.getLong() );
+                }
+            }
+        }
+        assertEquals( expected.size(), store.size() );
+        store.clear();
+        assertEquals( 0, store.size() );
+    }
+
+    private static final EntityCodec<Entity> CODEC = new EntityCodec<Entity>()
+    {
+        @Override
+        public void write( Entity entity, ByteBuffer buffer )
+        {
+            buffer.putInt( entity.value.length() );
+            for ( int i = 0; i < entity.value.length(); i++ )
+            {
+                buffer.putChar( entity.value.charAt( i ) );
+            }
+        }
+
+        @Override
+        public Entity read( long id, ByteBuffer buffer )
+        {
+            char[] chars = new char[buffer.getInt()];
+            for ( int i = 0; i < chars.length; i++ )
+            {
+                chars[i] = buffer.getChar();
+            }
+            return new Entity( id, new String( chars ) );
+        }
+    };
+
+    private static class Entity implements EntityWithSize
+    {
+        private final long id;
+        private String value;
+        private int registeredSize;
+
+        Entity( long id, String value )
+        {
+            this.id = id;
+            this.value = value;
+        }
+
+        @Override
+        public int size()
+        {
+            return value.length() * 2;
+        }
+
+        @Override
+        public long getId()
+        {
+            return id;
+        }
+
+        @Override
+        public void setRegisteredSize( int size )
+        {
+            this.registeredSize = size;
+        }
+
+        @Override
+        public int getRegisteredSize()
+        {
+            return registeredSize;
+        }
+    }
+}
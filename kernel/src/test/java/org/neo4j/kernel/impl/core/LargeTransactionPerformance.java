@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.core;
+
+import static java.lang.System.currentTimeMillis;
+
+import java.io.File;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.neo4j.kernel.impl.MyRelTypes;
+import org.neo4j.kernel.impl.util.FileUtils;
+
+/**
+ * Measures the heap used by the state of a transaction creating
+ * {@link #NODES} nodes, each with a property and a relationship to the
+ * previous one, and how long committing it takes. Run it with a big enough
+ * heap, f.ex. -Xmx3g. Not a test, run it manually.
+ */
+public class LargeTransactionPerformance
+{
+    private static final int NODES = 1000000;
+
+    public static void main( String[] args ) throws Exception
+    {
+        File storeDir = new File( "target/var/large-transaction-performance" );
+        FileUtils.deleteRecursively( storeDir );
+        GraphDatabaseService db = new GraphDatabaseFactory().newEmbeddedDatabase( storeDir.getPath() );
+        try
+        {
+            long heapBefore = usedHeap();
+            Transaction tx = db.beginTx();
+            long start = currentTimeMillis();
+            Node previous = db.createNode();
+            for ( int i = 1; i < NODES; i++ )
+            {
+                Node node = db.createNode();
+                node.setProperty( "number", i );
+                previous.createRelationshipTo( node, MyRelTypes.TEST );
+                previous = node;
+            }
+            long buildTime = currentTimeMillis() - start;
+            long heapUsed = usedHeap() - heapBefore;
+            tx.success();
+            start = currentTimeMillis();
+            tx.finish();
+            long commitTime = currentTimeMillis() - start;
+            System.out.println( NODES + " nodes: transaction state " + heapUsed / (1024 * 1024) + "MB, built in " +
+                    buildTime + "ms, committed in " + commitTime + "ms" );
+        }
+        finally
+        {
+            db.shutdown();
+        }
+    }
+
+    private static long usedHeap()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        for ( int i = 0; i < 3; i++ )
+        {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
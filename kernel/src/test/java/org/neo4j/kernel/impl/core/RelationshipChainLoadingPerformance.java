@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.core;
+
+import static java.lang.System.currentTimeMillis;
+
+import java.io.File;
+
+import org.neo4j.graphdb.DynamicRelationshipType;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.kernel.GraphDatabaseAPI;
+import org.neo4j.kernel.impl.util.FileUtils;
+
+/**
+ * Iterates over all relationships of a number of dense nodes with a fixed
+ * relationship grab size, with a growing one and with a growing one plus
+ * prefetching of the next chunk. The node and relationship caches are cleared
+ * before each iteration so that every relationship chain is loaded from the
+ * store. Not a test, run it manually.
+ */
+public class RelationshipChainLoadingPerformance
+{
+    private static final int DENSE_NODES = 20;
+    private static final int RELATIONSHIPS_PER_NODE = 50000;
+    private static final int ROUNDS = 10;
+    private static final RelationshipType TYPE = DynamicRelationshipType.withName( "TYPE" );
+
+    public static void main( String[] args ) throws Exception
+    {
+        File storeDir = new File( "target/var/relationship-chain-performance" );
+        FileUtils.deleteRecursively( storeDir );
+        createGraph( storeDir.getPath() );
+        for ( int round = 0; round < 2; round++ )
+        {
+            run( storeDir.getPath(), "fixed", "100", false );
+            run( storeDir.getPath(), "growing", "10000", false );
+            run( storeDir.getPath(), "growing+prefetch", "10000", true );
+        }
+    }
+
+    private static void createGraph( String storeDir )
+    {
+        GraphDatabaseAPI db = (GraphDatabaseAPI) new GraphDatabaseFactory().newEmbeddedDatabase( storeDir );
+        try
+        {
+            for ( int i = 0; i < DENSE_NODES; i++ )
+            {
+                Transaction tx = db.beginTx();
+                Node node = db.createNode();
+                for ( int j = 0; j < RELATIONSHIPS_PER_NODE; j++ )
+                {
+                    node.createRelationshipTo( db.createNode(), TYPE );
+                }
+                tx.success();
+                tx.finish();
+            }
+        }
+        finally
+        {
+            db.shutdown();
+        }
+    }
+
+    private static void run( String storeDir, String name, String maxGrabSize, boolean prefetch )
+    {
+        GraphDatabaseAPI db = (GraphDatabaseAPI) new GraphDatabaseFactory().newEmbeddedDatabaseBuilder( storeDir )
+                .setConfig( GraphDatabaseSettings.relationship_max_grab_size, maxGrabSize )
+                .setConfig( GraphDatabaseSettings.relationship_prefetch, String.valueOf( prefetch ) )
+                .newGraphDatabase();
+        try
+        {
+            iterate( db ); // warm up
+            long start = currentTimeMillis();
+            long count = 0;
+            for ( int i = 0; i < ROUNDS; i++ )
+            {
+                count += iterate( db );
+            }
+            long time = currentTimeMillis() - start;
+            RelationshipChainLoader loader = db.getNodeManager().getRelationshipChainLoader();
+            System.out.println( name + ": " + count + " relationships in " + time + "ms, "
+                    + (count * 1000L / Math.max( 1, time )) + "/s, " + loader.getDenseChunksLoaded()
+                    + " dense chunks, " + loader.getPrefetchesUsed() + " prefetched" );
+        }
+        finally
+        {
+            db.shutdown();
+        }
+    }
+
+    private static long iterate( GraphDatabaseAPI db )
+    {
+        long count = 0;
+        for ( int i = 0; i < DENSE_NODES; i++ )
+        {
+            db.getNodeManager().clearCache();
+            Node node = db.getNodeById( 1 + i * (RELATIONSHIPS_PER_NODE + 1) );
+            for ( Relationship relationship : node.getRelationships() )
+            {
+                relationship.getOtherNode( node );
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.impl.MyRelTypes;
+import org.neo4j.test.ImpermanentGraphDatabase;
+
+public class TestAccessCounting
+{
+    private ImpermanentGraphDatabase graphdb;
+    private NodeManager nodeManager;
+    private long nodeId;
+
+    @Before
+    public void createNode()
+    {
+        graphdb = new ImpermanentGraphDatabase();
+        nodeManager = graphdb.getNodeManager();
+        Transaction tx = graphdb.beginTx();
+        Node node = graphdb.createNode();
+        node.setProperty( "name", "value" );
+        node.createRelationshipTo( graphdb.createNode(), MyRelTypes.TEST );
+        nodeId = node.getId();
+        tx.success();
+        tx.finish();
+    }
+
+    @After
+    public void shutdown()
+    {
+        graphdb.shutdown();
+    }
+
+    @Test
+    public void shouldNotCountWhenNotAsked()
+    {
+        graphdb.getNodeById( nodeId ).getProperty( "name" );
+        assertEquals( 0, nodeManager.getAccessCount() );
+        assertEquals( 0, nodeManager.stopCountingAccesses() );
+    }
+
+    @Test
+    public void shouldCountLookupsAndPropertyReads()
+    {
+        assertTrue( nodeManager.startCountingAccesses() );
+        Node node = graphdb.getNodeById( nodeId );
+        assertEquals( 1, nodeManager.getAccessCount() );
+        node.getProperty( "name" );
+        assertEquals( 2, nodeManager.getAccessCount() );
+        assertFalse( nodeManager.startCountingAccesses() );
+        assertEquals( 2, nodeManager.getAccessCount() );
+        node.getSingleRelationship( MyRelTypes.TEST, Direction.OUTGOING ).getEndNode();
+        assertTrue( nodeManager.getAccessCount() > 2 );
+        assertTrue( nodeManager.stopCountingAccesses() > 2 );
+        assertEquals( 0, nodeManager.getAccessCount() );
+
+        node.getProperty( "name" );
+        assertEquals( 0, nodeManager.getAccessCount() );
+    }
+
+    @Test
+    public void shouldOnlyCountAccessesOfTheCallingThread() throws Exception
+    {
+        nodeManager.startCountingAccesses();
+        final AtomicLong otherCount = new AtomicLong( -1 );
+        Thread other = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                graphdb.getNodeById( nodeId ).getProperty( "name" );
+                otherCount.set( nodeManager.getAccessCount() );
+            }
+        };
+        other.start();
+        other.join();
+        assertEquals( 0, otherCount.get() );
+        assertEquals( 0, nodeManager.stopCountingAccesses() );
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.impl.MyRelTypes;
+import org.neo4j.test.ImpermanentGraphDatabase;
+
+public class TestGetAllInIdRange
+{
+    private ImpermanentGraphDatabase graphdb;
+    private NodeManager nodeManager;
+
+    @Before
+    public void createGraph()
+    {
+        graphdb = new ImpermanentGraphDatabase();
+        nodeManager = graphdb.getNodeManager();
+        Transaction tx = graphdb.beginTx();
+        Node previous = graphdb.getReferenceNode();
+        for ( int i = 0; i < 10; i++ )
+        {
+            Node node = graphdb.createNode();
+            previous.createRelationshipTo( node, MyRelTypes.TEST );
+            previous = node;
+        }
+        Node deleted = graphdb.getNodeById( 5 );
+        for ( Relationship relationship : deleted.getRelationships() )
+        {
+            relationship.delete();
+        }
+        deleted.delete();
+        tx.success();
+        tx.finish();
+    }
+
+    @After
+    public void shutdown()
+    {
+        graphdb.shutdown();
+    }
+
+    @Test
+    public void shouldOnlyReturnNodesInRange()
+    {
+        assertEquals( ids( 2, 3, 4, 6 ), nodeIds( nodeManager.getAllNodes( 2, 7 ) ) );
+    }
+
+    @Test
+    public void rangesShouldAddUpToAllNodes()
+    {
+        List<Long> all = nodeIds( nodeManager.getAllNodes() );
+        List<Long> ranges = nodeIds( nodeManager.getAllNodes( 0, 4 ) );
+        ranges.addAll( nodeIds( nodeManager.getAllNodes( 4, 100 ) ) );
+        assertEquals( all, ranges );
+        assertEquals( 10, all.size() );
+    }
+
+    @Test
+    public void shouldOnlyReturnRelationshipsInRange()
+    {
+        Iterator<Relationship> relationships = nodeManager.getAllRelationships( 1, 3 );
+        assertEquals( 1, relationships.next().getId() );
+        assertEquals( 2, relationships.next().getId() );
+        assertFalse( relationships.hasNext() );
+    }
+
+    private List<Long> ids( long... ids )
+    {
+        List<Long> result = new ArrayList<Long>();
+        for ( long id : ids )
+        {
+            result.add( id );
+        }
+        return result;
+    }
+
+    private List<Long> nodeIds( Iterator<Node> nodes )
+    {
+        List<Long> result = new ArrayList<Long>();
+        while ( nodes.hasNext() )
+        {
+            result.add( nodes.next().getId() );
+        }
+        return result;
+    }
+}
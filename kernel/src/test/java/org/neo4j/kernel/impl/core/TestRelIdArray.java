@@ -26,6 +26,7 @@ import static org.neo4j.kernel.impl.util.RelIdArray.DirectionWrapper.BOTH;
 import static org.neo4j.kernel.impl.util.RelIdArray.DirectionWrapper.INCOMING;
 import static org.neo4j.kernel.impl.util.RelIdArray.DirectionWrapper.OUTGOING;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -34,8 +35,10 @@ import java.util.HashSet;
 import java.util.List;
 
 import org.junit.Test;
+import org.neo4j.kernel.impl.util.PrimitiveLongSet;
 import org.neo4j.kernel.impl.util.RelIdArray;
 import org.neo4j.kernel.impl.util.RelIdArray.DirectionWrapper;
+import org.neo4j.kernel.impl.util.RelIdArrayWithLoops;
 import org.neo4j.kernel.impl.util.RelIdIterator;
 
 // TODO Add some tests for loops, i.e. add with direction BOTH.
@@ -90,7 +93,7 @@ public class TestRelIdArray
         add.add( 5, OUTGOING );
         add.add( 6, OUTGOING );
         add.add( 7, OUTGOING );
-        Collection<Long> remove = new HashSet<Long>();
+        PrimitiveLongSet remove = new PrimitiveLongSet();
         remove.add( 2L );
         remove.add( 6L );
         List<Long> allIds = asList( RelIdArray.from( source, add, remove ) );
@@ -143,10 +146,39 @@ public class TestRelIdArray
                 0L, 1L, justOverIntMax, justOverIntMax+1 ) ), new HashSet<Long>( asList( all ) ) );
     }
     
+    @Test
+    public void testWriteToAndReadFrom() throws Exception
+    {
+        RelIdArray array = new RelIdArrayWithLoops( "KNOWS" );
+        long justOverIntMax = (long) Math.pow( 2, 32 )+3;
+        array.add( 1, OUTGOING );
+        array.add( justOverIntMax, OUTGOING );
+        array.add( 2, OUTGOING );
+        array.add( 3, INCOMING );
+        array.add( 4, BOTH );
+        
+        ByteBuffer buffer = ByteBuffer.allocate( 1000 );
+        array.writeTo( buffer );
+        buffer.flip();
+        RelIdArray read = RelIdArray.readFrom( buffer );
+        
+        assertFalse( buffer.hasRemaining() );
+        assertEquals( "KNOWS", read.getType() );
+        assertEquals( asList( array, OUTGOING ), asList( read, OUTGOING ) );
+        assertEquals( asList( array, INCOMING ), asList( read, INCOMING ) );
+        assertEquals( asList( array, BOTH ), asList( read, BOTH ) );
+        assertTrue( asList( read, BOTH ).contains( 4L ) );
+    }
+    
     private List<Long> asList( RelIdArray ids )
+    {
+        return asList( ids, DirectionWrapper.BOTH );
+    }
+    
+    private List<Long> asList( RelIdArray ids, DirectionWrapper direction )
     {
         List<Long> result = new ArrayList<Long>();
-        for ( RelIdIterator iterator = ids.iterator( DirectionWrapper.BOTH ); iterator.hasNext(); )
+        for ( RelIdIterator iterator = ids.iterator( direction ); iterator.hasNext(); )
         {
             result.add( iterator.next() );
         }
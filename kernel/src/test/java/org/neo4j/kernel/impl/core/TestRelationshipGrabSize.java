@@ -21,6 +21,7 @@ package org.neo4j.kernel.impl.core;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.neo4j.helpers.collection.IteratorUtil.addToCollection;
 import static org.neo4j.helpers.collection.IteratorUtil.count;
 import static org.neo4j.helpers.collection.MapUtil.stringMap;
@@ -28,6 +29,7 @@ import static org.neo4j.kernel.impl.MyRelTypes.TEST;
 
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -217,6 +219,66 @@ public class TestRelationshipGrabSize
         clearCacheAndCreateDeleteCount( db, node1, node2, type2, type2, count );
     }
 
+    @Test
+    public void grabSizeGrowsForDenseNodes()
+    {
+        beginTx();
+        Node node1 = db.createNode();
+        Node node2 = db.createNode();
+        for ( int i = 0; i < 1000; i++ )
+        {
+            node1.createRelationshipTo( node2, TEST );
+        }
+        finishTx( true );
+        clearCache();
+
+        RelationshipChainLoader loader = db.getNodeManager().getRelationshipChainLoader();
+        long firstChunks = loader.getFirstChunksLoaded();
+        long denseChunks = loader.getDenseChunksLoaded();
+        long denseRelationships = loader.getDenseChunkRelationshipsLoaded();
+        long prefetchesUsed = loader.getPrefetchesUsed();
+
+        assertEquals( 1000, count( node1.getRelationships() ) );
+        // 10 first, then 20, 40, 80, 160, 320 and the remaining 370
+        assertEquals( firstChunks + 1, loader.getFirstChunksLoaded() );
+        assertEquals( denseChunks + 6, loader.getDenseChunksLoaded() );
+        assertEquals( denseRelationships + 990, loader.getDenseChunkRelationshipsLoaded() );
+        // All but the second chunk are loaded in the background
+        assertEquals( prefetchesUsed + 5, loader.getPrefetchesUsed() );
+    }
+
+    @Test
+    public void prefetchedRelationshipsAreDiscardedWhenRelationshipsAreRemoved()
+    {
+        beginTx();
+        Node node1 = db.createNode();
+        Node node2 = db.createNode();
+        // The last relationship in the chain
+        Relationship last = node1.createRelationshipTo( node2, TEST );
+        for ( int i = 0; i < 99; i++ )
+        {
+            node1.createRelationshipTo( node2, TEST );
+        }
+        finishTx( true );
+        clearCache();
+
+        RelationshipChainLoader loader = db.getNodeManager().getRelationshipChainLoader();
+        long prefetchesDiscarded = loader.getPrefetchesDiscarded();
+
+        // Load the first and second chunk, which schedules a prefetch of the third
+        Iterator<Relationship> relationships = node1.getRelationships().iterator();
+        for ( int i = 0; i < GRAB_SIZE + 1; i++ )
+        {
+            relationships.next();
+        }
+        beginTx();
+        last.delete();
+        finishTx( true );
+
+        assertEquals( 99, count( node1.getRelationships() ) );
+        assertTrue( loader.getPrefetchesDiscarded() > prefetchesDiscarded );
+    }
+
     private void clearCacheAndCreateDeleteCount( EmbeddedGraphDatabase db, Node node1, Node node2,
             RelationshipType createType, RelationshipType deleteType, int expectedCount )
     {
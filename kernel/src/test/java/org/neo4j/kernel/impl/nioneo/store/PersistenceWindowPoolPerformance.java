@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.nioneo.store;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+/**
+ * Measures random read and random write throughput of a
+ * {@link PersistenceWindowPool} over a store file {@link #STORE_SIZE ten times}
+ * larger than the memory available for mapping, followed by a phase where
+ * the store keeps growing by appending records at the end of it. Most requests
+ * go to a hot tenth of the store, which is what the pool should end up
+ * mapping. Not a test, run it manually.
+ */
+public class PersistenceWindowPoolPerformance
+{
+    private static final int RECORD_SIZE = 33;
+    private static final long MAPPED_MEMORY = 32 * 1024 * 1024;
+    private static final long STORE_SIZE = 10 * MAPPED_MEMORY;
+    private static final float HOT_RATIO = 0.8f;
+    private static final long PHASE_MILLIS = 10000;
+
+    public static void main( String[] args ) throws Exception
+    {
+        int threads = args.length > 0 ? Integer.parseInt( args[0] ) : 4;
+        File file = new File( "target/var/window-pool-performance" );
+        file.getParentFile().mkdirs();
+        file.delete();
+        FileChannel channel = new RandomAccessFile( file, "rw" ).getChannel();
+        try
+        {
+            channel.write( ByteBuffer.wrap( new byte[1] ), STORE_SIZE - 1 );
+            PersistenceWindowPool pool = new PersistenceWindowPool( "performance", RECORD_SIZE,
+                    channel, MAPPED_MEMORY, true, false );
+            long records = STORE_SIZE / RECORD_SIZE;
+            run( "random read", pool, threads, OperationType.READ, records, false );
+            run( "random write", pool, threads, OperationType.WRITE, records, false );
+            run( "append", pool, threads, OperationType.WRITE, records, true );
+            pool.close();
+        }
+        finally
+        {
+            channel.close();
+            file.delete();
+        }
+    }
+
+    private static void run( String phase, PersistenceWindowPool pool, int threadCount,
+            OperationType type, long records, boolean append ) throws Exception
+    {
+        Worker[] workers = new Worker[threadCount];
+        Appender appender = new Appender( records );
+        long endTime = System.currentTimeMillis() + PHASE_MILLIS;
+        for ( int i = 0; i < workers.length; i++ )
+        {
+            workers[i] = new Worker( pool, type, records, append ? appender : null, endTime );
+            workers[i].start();
+        }
+        long operations = 0;
+        for ( Worker worker : workers )
+        {
+            worker.join();
+            operations += worker.operations;
+        }
+        System.out.println( phase + ": " + (operations * 1000 / PHASE_MILLIS) + " ops/s, " + pool.getStats() );
+    }
+
+    private static class Appender
+    {
+        private long next;
+
+        Appender( long next )
+        {
+            this.next = next;
+        }
+
+        synchronized long next()
+        {
+            return next++;
+        }
+    }
+
+    private static class Worker extends Thread
+    {
+        private final PersistenceWindowPool pool;
+        private final OperationType type;
+        private final long records;
+        private final Appender appender;
+        private final long endTime;
+        private final Random random = new Random();
+        private long operations;
+
+        Worker( PersistenceWindowPool pool, OperationType type, long records, Appender appender, long endTime )
+        {
+            this.pool = pool;
+            this.type = type;
+            this.records = records;
+            this.appender = appender;
+            this.endTime = endTime;
+        }
+
+        @Override
+        public void run()
+        {
+            while ( (operations & 0xFF) != 0 || System.currentTimeMillis() < endTime )
+            {
+                long id = appender != null && random.nextBoolean() ? appender.next() : randomId();
+                PersistenceWindow window = pool.acquire( id, type );
+                try
+                {
+                    Buffer buffer = window.getOffsettedBuffer( id );
+                    if ( type == OperationType.WRITE )
+                    {
+                        buffer.putLong( id );
+                    }
+                    else
+                    {
+                        buffer.getLong();
+                    }
+                }
+                finally
+                {
+                    pool.release( window );
+                }
+                operations++;
+            }
+        }
+
+        private long randomId()
+        {
+            long hotRecords = records / 10;
+            if ( random.nextFloat() < HOT_RATIO )
+            {
+                return records / 2 + (long) (random.nextDouble() * hotRecords);
+            }
+            return (long) (random.nextDouble() * records);
+        }
+    }
+}
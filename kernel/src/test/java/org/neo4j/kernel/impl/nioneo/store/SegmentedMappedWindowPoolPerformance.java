@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.nioneo.store;
+
+import static java.lang.System.currentTimeMillis;
+
+import java.io.File;
+import java.util.Random;
+
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.DynamicRelationshipType;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.kernel.impl.util.FileUtils;
+
+/**
+ * Compares the {@link PersistenceWindowPool} with the
+ * {@link SegmentedMappedWindowPool} (map_whole_store_files) for random point
+ * reads of nodes and their properties, and for walks of the relationship
+ * chains of random nodes. Caching is turned off so that every read goes to
+ * the store files, and the mapped memory is set lower than the size of the
+ * stores. Not a test, run it manually.
+ */
+public class SegmentedMappedWindowPoolPerformance
+{
+    private static final int NODES = 200000;
+    private static final int RELATIONSHIPS_PER_NODE = 10;
+    private static final int OPERATIONS = 200000;
+    private static final String MAPPED_MEMORY = "10M";
+    private static final RelationshipType KNOWS = DynamicRelationshipType.withName( "KNOWS" );
+
+    public static void main( String[] args ) throws Exception
+    {
+        File storeDir = new File( "target/var/segmented-mapping-performance" );
+        FileUtils.deleteRecursively( storeDir );
+        createGraph( storeDir.getPath() );
+        for ( int round = 0; round < 2; round++ )
+        {
+            run( storeDir.getPath(), false );
+            run( storeDir.getPath(), true );
+        }
+    }
+
+    private static void createGraph( String storeDir )
+    {
+        GraphDatabaseService db = new GraphDatabaseFactory().newEmbeddedDatabase( storeDir );
+        try
+        {
+            Transaction tx = db.beginTx();
+            for ( int i = 0; i < NODES; i++ )
+            {
+                Node node = db.createNode();
+                node.setProperty( "name", "node " + i );
+                node.setProperty( "number", i );
+                if ( i % 10000 == 9999 )
+                {
+                    tx.success();
+                    tx.finish();
+                    tx = db.beginTx();
+                }
+            }
+            Random random = new Random( 0 );
+            for ( int i = 0; i < NODES; i++ )
+            {
+                Node node = db.getNodeById( i + 1 );
+                for ( int j = 0; j < RELATIONSHIPS_PER_NODE; j++ )
+                {
+                    node.createRelationshipTo( db.getNodeById( 1 + random.nextInt( NODES ) ), KNOWS );
+                }
+                if ( i % 10000 == 9999 )
+                {
+                    tx.success();
+                    tx.finish();
+                    tx = db.beginTx();
+                }
+            }
+            tx.success();
+            tx.finish();
+        }
+        finally
+        {
+            db.shutdown();
+        }
+    }
+
+    private static void run( String storeDir, boolean mapWholeFiles )
+    {
+        GraphDatabaseService db = new GraphDatabaseFactory().newEmbeddedDatabaseBuilder( storeDir )
+                .setConfig( GraphDatabaseSettings.cache_type.name(), "none" )
+                .setConfig( GraphDatabaseSettings.map_whole_store_files, String.valueOf( mapWholeFiles ) )
+                .setConfig( GraphDatabaseSettings.use_memory_mapped_buffers, "true" )
+                .setConfig( GraphDatabaseSettings.nodestore_mapped_memory, MAPPED_MEMORY )
+                .setConfig( GraphDatabaseSettings.relationshipstore_mapped_memory, MAPPED_MEMORY )
+                .setConfig( GraphDatabaseSettings.nodestore_propertystore_mapped_memory, MAPPED_MEMORY )
+                .newGraphDatabase();
+        try
+        {
+            String name = mapWholeFiles ? "segments" : "bricks";
+            Random random = new Random( 1 );
+            pointReads( db, random ); // warm up
+            long start = currentTimeMillis();
+            pointReads( db, random );
+            report( name + " point reads", OPERATIONS, currentTimeMillis() - start );
+
+            chainWalks( db, random ); // warm up
+            start = currentTimeMillis();
+            long steps = chainWalks( db, random );
+            report( name + " chain walks", steps, currentTimeMillis() - start );
+        }
+        finally
+        {
+            db.shutdown();
+        }
+    }
+
+    private static void pointReads( GraphDatabaseService db, Random random )
+    {
+        for ( int i = 0; i < OPERATIONS; i++ )
+        {
+            db.getNodeById( 1 + random.nextInt( NODES ) ).getProperty( "number" );
+        }
+    }
+
+    private static long chainWalks( GraphDatabaseService db, Random random )
+    {
+        long steps = 0;
+        for ( int i = 0; i < OPERATIONS / RELATIONSHIPS_PER_NODE; i++ )
+        {
+            Node node = db.getNodeById( 1 + random.nextInt( NODES ) );
+            for ( Relationship relationship : node.getRelationships( KNOWS, Direction.BOTH ) )
+            {
+                relationship.getOtherNode( node );
+                steps++;
+            }
+        }
+        return steps;
+    }
+
+    private static void report( String what, long operations, long time )
+    {
+        System.out.println( what + ": " + operations + " in " + time + "ms, "
+                + (operations * 1000L / Math.max( 1, time )) + "/s" );
+    }
+}
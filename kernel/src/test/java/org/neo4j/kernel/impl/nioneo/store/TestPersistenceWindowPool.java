@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.nioneo.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestPersistenceWindowPool
+{
+    private static final int RECORD_SIZE = 10;
+
+    private File file;
+    private FileChannel channel;
+    private PersistenceWindowPool pool;
+
+    @Before
+    public void createFile() throws Exception
+    {
+        file = new File( "target/test-data/window-pool" );
+        file.getParentFile().mkdirs();
+        file.delete();
+        channel = new RandomAccessFile( file, "rw" ).getChannel();
+    }
+
+    @After
+    public void closeFile() throws Exception
+    {
+        if ( pool != null )
+        {
+            pool.close();
+        }
+        channel.close();
+        file.delete();
+    }
+
+    @Test
+    public void refreshShouldMapTheMostRequestedBricks() throws Exception
+    {
+        // A store ten times larger than the memory available for mapping
+        channel.write( ByteBuffer.wrap( new byte[1] ), 1000000 - 1 );
+        pool = new PersistenceWindowPool( "test", RECORD_SIZE, channel, 100000, true, false );
+        assertEquals( 0, pool.getStats().getMemUsed() );
+
+        for ( int i = 0; i < 100; i++ )
+        {
+            assertTrue( acquireAndRelease( 50000 + i % 10 ) instanceof PersistenceRow );
+        }
+        pool.refreshBricks();
+
+        assertTrue( acquireAndRelease( 50005 ) instanceof MappedPersistenceWindow );
+        assertTrue( acquireAndRelease( 10 ) instanceof PersistenceRow );
+        WindowPoolStats stats = pool.getStats();
+        assertEquals( stats.getWindowSize(), stats.getMemUsed() );
+        assertEquals( 1, stats.getRefreshCount() );
+    }
+
+    @Test
+    public void shouldMapBricksAndChangeBrickSizeAsTheStoreGrows() throws Exception
+    {
+        pool = new PersistenceWindowPool( "test", RECORD_SIZE, channel, 100000, true, false );
+        int initialBrickSize = pool.getStats().getWindowSize();
+        assertEquals( 1000, initialBrickSize );
+
+        // Grow the store to ten times the memory available for mapping
+        for ( int id = 0; id < 100000; id += 7 )
+        {
+            write( id, id );
+        }
+        WindowPoolStats stats = pool.getStats();
+        assertTrue( stats.getMemUsed() <= 100000 );
+        assertTrue( stats.getHitCount() > 0 );
+
+        pool.refreshBricks();
+        stats = pool.getStats();
+        assertEquals( 100, stats.getWindowSize() );
+        assertEquals( 1, stats.getWindowSizeChangeCount() );
+        assertTrue( stats.getMemUsed() <= 100000 );
+        for ( int id = 0; id < 100000; id += 7 )
+        {
+            assertEquals( id, read( id ) );
+        }
+    }
+
+    @Test
+    public void closeShouldStopTheRefresherThreadOfThePool() throws Exception
+    {
+        pool = new PersistenceWindowPool( "refresher-test", RECORD_SIZE, channel, 100000, true, false );
+        // Growing the store past the memory available for mapping schedules refreshes
+        for ( int id = 0; id < 100000; id += 7 )
+        {
+            write( id, id );
+        }
+        Thread refresher = findThread( "Persistence window pool refresh [refresher-test]" );
+        assertTrue( "no refresher thread started", refresher != null );
+
+        pool.close();
+        pool = null;
+        refresher.join( 10000 );
+        assertFalse( "refresher thread still alive after close", refresher.isAlive() );
+    }
+
+    private static Thread findThread( String namePrefix )
+    {
+        for ( Thread thread : Thread.getAllStackTraces().keySet() )
+        {
+            if ( thread.getName().startsWith( namePrefix ) )
+            {
+                return thread;
+            }
+        }
+        return null;
+    }
+
+    private PersistenceWindow acquireAndRelease( long id )
+    {
+        PersistenceWindow window = pool.acquire( id, OperationType.READ );
+        pool.release( window );
+        return window;
+    }
+
+    private void write( long id, int value )
+    {
+        PersistenceWindow window = pool.acquire( id, OperationType.WRITE );
+        try
+        {
+            window.getOffsettedBuffer( id ).putInt( value );
+        }
+        finally
+        {
+            pool.release( window );
+        }
+    }
+
+    private int read( long id )
+    {
+        PersistenceWindow window = pool.acquire( id, OperationType.READ );
+        try
+        {
+            return window.getOffsettedBuffer( id ).getInt();
+        }
+        finally
+        {
+            pool.release( window );
+        }
+    }
+}
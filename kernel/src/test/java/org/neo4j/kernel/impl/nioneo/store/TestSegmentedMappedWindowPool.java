@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.nioneo.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestSegmentedMappedWindowPool
+{
+    private static final int RECORD_SIZE = 10;
+    private static final int SEGMENT_SIZE = 4 * 1024 * 1024;
+
+    private File file;
+    private FileChannel channel;
+
+    @Before
+    public void createFile() throws Exception
+    {
+        file = new File( "target/test-data/segmented-window-pool" );
+        file.getParentFile().mkdirs();
+        file.delete();
+        channel = new RandomAccessFile( file, "rw" ).getChannel();
+    }
+
+    @After
+    public void closeFile() throws Exception
+    {
+        channel.close();
+        file.delete();
+    }
+
+    @Test
+    public void shouldMapTheWholeExistingFile() throws Exception
+    {
+        channel.write( ByteBuffer.wrap( new byte[1] ), 2 * SEGMENT_SIZE + 100 );
+        SegmentedMappedWindowPool pool = new SegmentedMappedWindowPool( "test", RECORD_SIZE, channel, SEGMENT_SIZE );
+        WindowPoolStats stats = pool.getStats();
+        assertEquals( 3, stats.getWindowCount() );
+        assertTrue( stats.getMemUsed() >= channel.size() );
+        pool.close();
+    }
+
+    @Test
+    public void shouldGrowMappingsAsTheFileGrows() throws Exception
+    {
+        SegmentedMappedWindowPool pool = new SegmentedMappedWindowPool( "test", RECORD_SIZE, channel, SEGMENT_SIZE );
+        assertEquals( 0, pool.getStats().getWindowCount() );
+
+        long[] ids = { 0, 1, 150000, 419429, 419430, 1000000 };
+        for ( long id : ids )
+        {
+            write( pool, id, (int) id + 1 );
+        }
+        WindowPoolStats stats = pool.getStats();
+        assertEquals( 3, stats.getWindowCount() );
+        assertTrue( stats.getMemUsed() < 3L * SEGMENT_SIZE );
+        for ( long id : ids )
+        {
+            assertEquals( id + 1, read( pool, id ) );
+        }
+        pool.close();
+
+        // The records should be there for the brick based pool to read as well
+        PersistenceWindowPool bricks = new PersistenceWindowPool( "test", RECORD_SIZE, channel, 0, false, false );
+        for ( long id : ids )
+        {
+            assertEquals( id + 1, read( bricks, id ) );
+        }
+        bricks.close();
+    }
+
+    @Test
+    public void openingShouldNotGrowTheFile() throws Exception
+    {
+        channel.write( ByteBuffer.wrap( new byte[RECORD_SIZE] ), 99 * RECORD_SIZE );
+        SegmentedMappedWindowPool pool = new SegmentedMappedWindowPool( "test", RECORD_SIZE, channel, SEGMENT_SIZE );
+        assertEquals( 100 * RECORD_SIZE, channel.size() );
+        assertEquals( 0, read( pool, 99 ) );
+        pool.close();
+        assertEquals( 100 * RECORD_SIZE, channel.size() );
+    }
+
+    @Test
+    public void closeShouldTruncateTheRoomMappedToGrowInto() throws Exception
+    {
+        channel.write( ByteBuffer.wrap( new byte[RECORD_SIZE] ), 99 * RECORD_SIZE );
+        SegmentedMappedWindowPool pool = new SegmentedMappedWindowPool( "test", RECORD_SIZE, channel, SEGMENT_SIZE );
+        write( pool, 149, 149 );
+        assertTrue( channel.size() > 150 * RECORD_SIZE );
+        read( pool, 1000 );
+        pool.close();
+
+        // Only as far as the last record written, no reads past it
+        assertEquals( 150 * RECORD_SIZE, channel.size() );
+    }
+
+    @Test
+    public void windowsShouldKeepTheirOwnOffsets() throws Exception
+    {
+        SegmentedMappedWindowPool pool = new SegmentedMappedWindowPool( "test", RECORD_SIZE, channel, SEGMENT_SIZE );
+        write( pool, 10, 10 );
+        write( pool, 20, 20 );
+        PersistenceWindow first = pool.acquire( 10, OperationType.READ );
+        PersistenceWindow second = pool.acquire( 20, OperationType.READ );
+        try
+        {
+            Buffer firstBuffer = first.getOffsettedBuffer( 10 );
+            Buffer secondBuffer = second.getOffsettedBuffer( 20 );
+            assertEquals( 10, firstBuffer.getInt() );
+            assertEquals( 20, secondBuffer.getInt() );
+        }
+        finally
+        {
+            pool.release( second );
+            pool.release( first );
+        }
+        pool.close();
+    }
+
+    private void write( WindowPool pool, long id, int value )
+    {
+        PersistenceWindow window = pool.acquire( id, OperationType.WRITE );
+        try
+        {
+            window.getOffsettedBuffer( id ).putInt( value );
+        }
+        finally
+        {
+            pool.release( window );
+        }
+    }
+
+    private int read( WindowPool pool, long id )
+    {
+        PersistenceWindow window = pool.acquire( id, OperationType.READ );
+        try
+        {
+            return window.getOffsettedBuffer( id ).getInt();
+        }
+        finally
+        {
+            pool.release( window );
+        }
+    }
+}
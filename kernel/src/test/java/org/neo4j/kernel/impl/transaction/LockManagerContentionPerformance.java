@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction;
+
+import static java.lang.System.currentTimeMillis;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Measures lock throughput of the {@link LockManager} with a growing number
+ * of threads, each one repeatedly taking and releasing a write lock on a
+ * node, either on nodes of its own (disjoint) or on a handful of nodes
+ * shared by all threads (hot spot). Not a test, run it manually.
+ */
+public class LockManagerContentionPerformance
+{
+    private static final int[] THREADS = { 1, 4, 16, 64 };
+    private static final int LOCKS_PER_THREAD = 200000;
+    private static final int NODES_PER_THREAD = 1000;
+    private static final int HOT_NODES = 4;
+
+    public static void main( String[] args ) throws Exception
+    {
+        for ( int threads : THREADS )
+        {
+            for ( boolean hotSpot : new boolean[] { false, true } )
+            {
+                long time = run( threads, hotSpot );
+                long locks = (long) threads * LOCKS_PER_THREAD;
+                System.out.println( threads + " threads, " + (hotSpot ? "hot spot" : "disjoint") + ": " + locks +
+                        " locks in " + time + "ms, " + (locks * 1000L / Math.max( 1, time )) + " locks/s" );
+            }
+        }
+    }
+
+    private static long run( int threadCount, final boolean hotSpot ) throws Exception
+    {
+        final LockManager lockManager = new LockManager( new RagManager( new PlaceboTm() ) );
+        final CountDownLatch start = new CountDownLatch( 1 );
+        Thread[] threads = new Thread[threadCount];
+        for ( int i = 0; i < threadCount; i++ )
+        {
+            final long firstNode = (long) i * NODES_PER_THREAD;
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    Random random = new Random( firstNode );
+                    awaitStart( start );
+                    for ( int j = 0; j < LOCKS_PER_THREAD; j++ )
+                    {
+                        Long node = hotSpot ? Long.valueOf( random.nextInt( HOT_NODES ) ) :
+                                Long.valueOf( firstNode + random.nextInt( NODES_PER_THREAD ) );
+                        lockManager.getWriteLock( node );
+                        lockManager.releaseWriteLock( node, null );
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        long startTime = currentTimeMillis();
+        start.countDown();
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+        return currentTimeMillis() - startTime;
+    }
+
+    private static void awaitStart( CountDownLatch start )
+    {
+        try
+        {
+            start.await();
+        }
+        catch ( InterruptedException e )
+        {
+            throw new RuntimeException( e );
+        }
+    }
+}
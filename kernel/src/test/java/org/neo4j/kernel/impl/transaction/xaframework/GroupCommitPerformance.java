@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.xaframework;
+
+import static java.lang.System.currentTimeMillis;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.kernel.impl.util.FileUtils;
+
+/**
+ * Measures commit throughput of small write transactions with 1, 8 and 64
+ * concurrent writers, with and without group commit. Not a test, run it
+ * manually.
+ */
+public class GroupCommitPerformance
+{
+    private static final int[] WRITERS = { 1, 8, 64 };
+    private static final int TOTAL_TX = 6400;
+
+    public static void main( String[] args ) throws Exception
+    {
+        for ( int writers : WRITERS )
+        {
+            for ( boolean groupCommit : new boolean[] { false, true } )
+            {
+                long time = run( writers, groupCommit );
+                System.out.println( writers + " writers, group commit " + (groupCommit ? "on " : "off") + ": " +
+                        TOTAL_TX + " tx in " + time + "ms, " + (TOTAL_TX * 1000L / Math.max( 1, time )) + " tx/s" );
+            }
+        }
+    }
+
+    private static long run( int writers, boolean groupCommit ) throws Exception
+    {
+        File storeDir = new File( "target/test-data/group-commit-performance" );
+        FileUtils.deleteRecursively( storeDir );
+        final GraphDatabaseService db = new GraphDatabaseFactory().newEmbeddedDatabaseBuilder( storeDir.getAbsolutePath() ).
+                setConfig( GraphDatabaseSettings.group_commit, String.valueOf( groupCommit ) ).newGraphDatabase();
+        try
+        {
+            final int txPerWriter = TOTAL_TX / writers;
+            final CountDownLatch start = new CountDownLatch( 1 );
+            Thread[] threads = new Thread[writers];
+            for ( int i = 0; i < writers; i++ )
+            {
+                threads[i] = new Thread()
+                {
+                    @Override
+                    public void run()
+                    {
+                        awaitStart( start );
+                        for ( int j = 0; j < txPerWriter; j++ )
+                        {
+                            Transaction tx = db.beginTx();
+                            try
+                            {
+                                db.createNode().setProperty( "value", j );
+                                tx.success();
+                            }
+                            finally
+                            {
+                                tx.finish();
+                            }
+                        }
+                    }
+                };
+                threads[i].start();
+            }
+            long startTime = currentTimeMillis();
+            start.countDown();
+            for ( Thread thread : threads )
+            {
+                thread.join();
+            }
+            return currentTimeMillis() - startTime;
+        }
+        finally
+        {
+            db.shutdown();
+            FileUtils.deleteRecursively( storeDir );
+        }
+    }
+
+    private static void awaitStart( CountDownLatch start )
+    {
+        try
+        {
+            start.await();
+        }
+        catch ( InterruptedException e )
+        {
+            throw new RuntimeException( e );
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.xaframework;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.neo4j.graphdb.factory.GraphDatabaseSetting;
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.kernel.GraphDatabaseAPI;
+import org.neo4j.kernel.impl.nioneo.xa.NeoStoreXaDataSource;
+import org.neo4j.kernel.impl.util.FileUtils;
+import org.neo4j.tooling.GlobalGraphOperations;
+
+public class TestGroupCommit
+{
+    private static final int THREADS = 8;
+    private static final int TX_PER_THREAD = 50;
+
+    private GraphDatabaseAPI db;
+
+    @Before
+    public void doBefore() throws Exception
+    {
+        File storeDir = new File( "target/test-data/group-commit" );
+        FileUtils.deleteRecursively( storeDir );
+        db = (GraphDatabaseAPI) new GraphDatabaseFactory().newEmbeddedDatabaseBuilder( storeDir.getAbsolutePath() ).
+            setConfig( GraphDatabaseSettings.group_commit, GraphDatabaseSetting.TRUE ).
+            setConfig( GraphDatabaseSettings.group_commit_max_batch_size, "4" ).
+            setConfig( GraphDatabaseSettings.group_commit_max_wait, "5ms" ).newGraphDatabase();
+    }
+
+    @After
+    public void doAfter() throws Exception
+    {
+        db.shutdown();
+    }
+
+    @Test
+    public void concurrentCommitsShouldAllMakeItToTheStoreAndTheLog() throws Exception
+    {
+        NeoStoreXaDataSource dataSource = db.getXaDataSourceManager().getNeoStoreDataSource();
+        assertTrue( dataSource.getXaContainer().getLogicalLog().isGroupCommitEnabled() );
+        long lastTxBefore = dataSource.getLastCommittedTxId();
+
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for ( int i = 0; i < THREADS; i++ )
+        {
+            threads.add( new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for ( int j = 0; j < TX_PER_THREAD; j++ )
+                        {
+                            Transaction tx = db.beginTx();
+                            try
+                            {
+                                Node node = db.createNode();
+                                node.setProperty( "thread", getName() );
+                                tx.success();
+                            }
+                            finally
+                            {
+                                tx.finish();
+                            }
+                        }
+                    }
+                    catch ( Throwable t )
+                    {
+                        failure.set( t );
+                    }
+                }
+            } );
+        }
+        for ( Thread thread : threads )
+        {
+            thread.start();
+        }
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+        if ( failure.get() != null )
+        {
+            throw new AssertionError( failure.get() );
+        }
+
+        assertEquals( lastTxBefore + THREADS * TX_PER_THREAD, dataSource.getLastCommittedTxId() );
+        int nodes = 0;
+        for ( Node node : GlobalGraphOperations.at( db ).getAllNodes() )
+        {
+            if ( node.hasProperty( "thread" ) )
+            {
+                nodes++;
+            }
+        }
+        assertEquals( THREADS * TX_PER_THREAD, nodes );
+    }
+}
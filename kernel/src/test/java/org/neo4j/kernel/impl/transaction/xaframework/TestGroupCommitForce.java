@@ -0,0 +1,271 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.xaframework;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.neo4j.helpers.collection.MapUtil.stringMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseSetting;
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.kernel.DefaultFileSystemAbstraction;
+import org.neo4j.kernel.EmbeddedGraphDatabase;
+import org.neo4j.kernel.impl.nioneo.store.FileSystemAbstraction;
+import org.neo4j.kernel.impl.nioneo.xa.NeoStoreXaDataSource;
+import org.neo4j.kernel.impl.util.FileUtils;
+
+public class TestGroupCommitForce
+{
+    private static volatile boolean blockForces;
+    private static final CountDownLatch forceStarted = new CountDownLatch( 1 );
+    private static final CountDownLatch releaseForce = new CountDownLatch( 1 );
+
+    private EmbeddedGraphDatabase db;
+
+    @Before
+    public void doBefore() throws Exception
+    {
+        File storeDir = new File( "target/test-data/group-commit-force" );
+        FileUtils.deleteRecursively( storeDir );
+        db = new ForceBlockingDatabase( storeDir.getAbsolutePath(), stringMap(
+                GraphDatabaseSettings.group_commit.name(), GraphDatabaseSetting.TRUE ) );
+    }
+
+    @After
+    public void doAfter() throws Exception
+    {
+        blockForces = false;
+        releaseForce.countDown();
+        db.shutdown();
+    }
+
+    @Test
+    public void transactionsShouldCommitWhileTheLogIsBeingForced() throws Exception
+    {
+        NeoStoreXaDataSource dataSource = db.getXaDataSourceManager().getNeoStoreDataSource();
+        blockForces = true;
+        Thread first = commitInThread();
+        assertTrue( forceStarted.await( 10, SECONDS ) );
+        long lastTxWhileForcing = dataSource.getLastCommittedTxId();
+
+        // The first transaction is now stuck in the force of its group
+        Thread second = commitInThread();
+        long deadline = System.currentTimeMillis() + SECONDS.toMillis( 10 );
+        while ( dataSource.getLastCommittedTxId() == lastTxWhileForcing && System.currentTimeMillis() < deadline )
+        {
+            Thread.sleep( 10 );
+        }
+        assertEquals( lastTxWhileForcing + 1, dataSource.getLastCommittedTxId() );
+        assertTrue( first.isAlive() );
+
+        blockForces = false;
+        releaseForce.countDown();
+        first.join();
+        second.join();
+    }
+
+    private Thread commitInThread()
+    {
+        Thread thread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                Transaction tx = db.beginTx();
+                try
+                {
+                    db.createNode();
+                    tx.success();
+                }
+                finally
+                {
+                    tx.finish();
+                }
+            }
+        };
+        thread.start();
+        return thread;
+    }
+
+    private static class ForceBlockingDatabase extends EmbeddedGraphDatabase
+    {
+        ForceBlockingDatabase( String storeDir, Map<String, String> params )
+        {
+            super( storeDir, params );
+        }
+
+        @Override
+        protected FileSystemAbstraction createFileSystemAbstraction()
+        {
+            return new DefaultFileSystemAbstraction()
+            {
+                @Override
+                public FileChannel open( String fileName, String mode ) throws IOException
+                {
+                    FileChannel channel = super.open( fileName, mode );
+                    return fileName.contains( "nioneo_logical.log" ) ? new ForceBlockingFileChannel( channel )
+                            : channel;
+                }
+            };
+        }
+    }
+
+    private static class ForceBlockingFileChannel extends FileChannel
+    {
+        private final FileChannel actual;
+
+        ForceBlockingFileChannel( FileChannel actual )
+        {
+            this.actual = actual;
+        }
+
+        @Override
+        public void force( boolean metaData ) throws IOException
+        {
+            if ( blockForces )
+            {
+                forceStarted.countDown();
+                try
+                {
+                    releaseForce.await();
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            actual.force( metaData );
+        }
+
+        @Override
+        public int read( ByteBuffer dst ) throws IOException
+        {
+            return actual.read( dst );
+        }
+
+        @Override
+        public long read( ByteBuffer[] dsts, int offset, int length ) throws IOException
+        {
+            return actual.read( dsts, offset, length );
+        }
+
+        @Override
+        public int write( ByteBuffer src ) throws IOException
+        {
+            return actual.write( src );
+        }
+
+        @Override
+        public long write( ByteBuffer[] srcs, int offset, int length ) throws IOException
+        {
+            return actual.write( srcs, offset, length );
+        }
+
+        @Override
+        public long position() throws IOException
+        {
+            return actual.position();
+        }
+
+        @Override
+        public FileChannel position( long newPosition ) throws IOException
+        {
+            actual.position( newPosition );
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException
+        {
+            return actual.size();
+        }
+
+        @Override
+        public FileChannel truncate( long size ) throws IOException
+        {
+            actual.truncate( size );
+            return this;
+        }
+
+        @Override
+        public long transferTo( long position, long count, WritableByteChannel target ) throws IOException
+        {
+            return actual.transferTo( position, count, target );
+        }
+
+        @Override
+        public long transferFrom( ReadableByteChannel src, long position, long count ) throws IOException
+        {
+            return actual.transferFrom( src, position, count );
+        }
+
+        @Override
+        public int read( ByteBuffer dst, long position ) throws IOException
+        {
+            return actual.read( dst, position );
+        }
+
+        @Override
+        public int write( ByteBuffer src, long position ) throws IOException
+        {
+            return actual.write( src, position );
+        }
+
+        @Override
+        public MappedByteBuffer map( MapMode mode, long position, long size ) throws IOException
+        {
+            return actual.map( mode, position, size );
+        }
+
+        @Override
+        public FileLock lock( long position, long size, boolean shared ) throws IOException
+        {
+            return actual.lock( position, size, shared );
+        }
+
+        @Override
+        public FileLock tryLock( long position, long size, boolean shared ) throws IOException
+        {
+            return actual.tryLock( position, size, shared );
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException
+        {
+            actual.close();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class TestPrimitiveLongMap
+{
+    @Test
+    public void testPutGetRemove()
+    {
+        PrimitiveLongMap<String> map = new PrimitiveLongMap<String>();
+        assertTrue( map.isEmpty() );
+        assertNull( map.put( 1, "one" ) );
+        assertNull( map.put( -1, "minus one" ) );
+        assertNull( map.put( 0, "zero" ) );
+        assertEquals( "one", map.put( 1, "uno" ) );
+        assertEquals( 3, map.size() );
+        assertEquals( "uno", map.get( 1 ) );
+        assertEquals( "minus one", map.get( -1 ) );
+        assertEquals( "zero", map.get( 0 ) );
+        assertNull( map.get( 2 ) );
+        assertTrue( map.containsKey( 0 ) );
+
+        assertEquals( "zero", map.remove( 0 ) );
+        assertNull( map.remove( 0 ) );
+        assertFalse( map.containsKey( 0 ) );
+        assertEquals( 2, map.size() );
+
+        map.clear();
+        assertTrue( map.isEmpty() );
+        assertNull( map.get( 1 ) );
+    }
+
+    @Test
+    public void testNullValuesNotAllowed()
+    {
+        try
+        {
+            new PrimitiveLongMap<String>().put( 1, null );
+            fail( "Should not allow null values" );
+        }
+        catch ( IllegalArgumentException e )
+        {   // good
+        }
+    }
+
+    @Test
+    public void testAgreesWithHashMapOverRandomOperations()
+    {
+        PrimitiveLongMap<Long> map = new PrimitiveLongMap<Long>();
+        Map<Long,Long> expected = new HashMap<Long,Long>();
+        Random random = new Random( 42 );
+        for ( int i = 0; i < 100000; i++ )
+        {
+            long key = random.nextInt( 5000 );
+            if ( random.nextBoolean() )
+            {
+                Long value = random.nextLong();
+                assertEquals( expected.put( key, value ), map.put( key, value ) );
+            }
+            else
+            {
+                assertEquals( expected.remove( key ), map.remove( key ) );
+            }
+            assertEquals( expected.size(), map.size() );
+        }
+        for ( long key = 0; key < 5000; key++ )
+        {
+            assertEquals( expected.get( key ), map.get( key ) );
+        }
+
+        Set<Long> keys = new HashSet<Long>();
+        for ( PrimitiveLongIterator iterator = map.keys(); iterator.hasNext(); )
+        {
+            assertTrue( keys.add( iterator.next() ) );
+        }
+        assertEquals( expected.keySet(), keys );
+        Set<Long> values = new HashSet<Long>();
+        for ( Long value : map.values() )
+        {
+            values.add( value );
+        }
+        assertEquals( new HashSet<Long>( expected.values() ), values );
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class TestPrimitiveLongSet
+{
+    @Test
+    public void testAddContainsRemove()
+    {
+        PrimitiveLongSet set = new PrimitiveLongSet();
+        assertTrue( set.isEmpty() );
+        assertTrue( set.add( 5 ) );
+        assertTrue( set.add( 0 ) );
+        assertTrue( set.add( Long.MAX_VALUE ) );
+        assertFalse( set.add( 5 ) );
+        assertFalse( set.add( 0 ) );
+        assertEquals( 3, set.size() );
+        assertTrue( set.contains( 0 ) );
+        assertTrue( set.contains( 5 ) );
+        assertTrue( set.contains( Long.MAX_VALUE ) );
+        assertFalse( set.contains( 6 ) );
+
+        assertTrue( set.remove( 0 ) );
+        assertFalse( set.remove( 0 ) );
+        assertFalse( set.contains( 0 ) );
+        assertTrue( set.remove( 5 ) );
+        assertEquals( 1, set.size() );
+
+        set.clear();
+        assertTrue( set.isEmpty() );
+        assertFalse( set.contains( Long.MAX_VALUE ) );
+    }
+
+    @Test
+    public void testAgreesWithHashSetOverRandomOperations()
+    {
+        PrimitiveLongSet set = new PrimitiveLongSet();
+        Set<Long> expected = new HashSet<Long>();
+        Random random = new Random( 42 );
+        for ( int i = 0; i < 100000; i++ )
+        {
+            long value = random.nextInt( 5000 ) - 10;
+            if ( random.nextBoolean() )
+            {
+                assertEquals( expected.add( value ), set.add( value ) );
+            }
+            else
+            {
+                assertEquals( expected.remove( value ), set.remove( value ) );
+            }
+            assertEquals( expected.size(), set.size() );
+        }
+        for ( long value = -10; value < 5000; value++ )
+        {
+            assertEquals( expected.contains( value ), set.contains( value ) );
+        }
+        Set<Long> iterated = new HashSet<Long>();
+        for ( PrimitiveLongIterator iterator = set.iterator(); iterator.hasNext(); )
+        {
+            assertTrue( iterated.add( iterator.next() ) );
+        }
+        assertEquals( expected, iterated );
+    }
+}
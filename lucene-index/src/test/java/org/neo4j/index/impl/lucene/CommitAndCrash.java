@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.index.impl.lucene;
+
+import javax.transaction.Synchronization;
+
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.neo4j.graphdb.index.Index;
+import org.neo4j.kernel.GraphDatabaseAPI;
+
+/**
+ * Commits a transaction creating a node and indexing it, and dies right after
+ * the commit records have been written, before the transaction is marked as
+ * done in the tx log. Without index values the index takes part in the
+ * transaction without writing anything.
+ */
+public class CommitAndCrash
+{
+    public static void main( String[] args ) throws Exception
+    {
+        String path = args[0];
+        GraphDatabaseAPI db = (GraphDatabaseAPI) new GraphDatabaseFactory().newEmbeddedDatabase( path );
+        Index<Node> index = db.index().forNodes( "index" );
+        Transaction tx = db.beginTx();
+        Node node = db.createNode();
+        node.setProperty( "name", "crash" );
+        String[] values = new String[args.length - 1];
+        System.arraycopy( args, 1, values, 0, values.length );
+        index.add( node, "key", values );
+        db.getTxManager().getTransaction().registerSynchronization( new Synchronization()
+        {
+            @Override
+            public void beforeCompletion()
+            {
+            }
+
+            @Override
+            public void afterCompletion( int status )
+            {
+                Runtime.getRuntime().halt( 0 );
+            }
+        } );
+        tx.success();
+        tx.finish();
+    }
+}
@@ -21,6 +21,9 @@
 package org.neo4j.index.impl.lucene;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.Test;
 import org.neo4j.graphdb.DynamicRelationshipType;
@@ -28,17 +31,20 @@ import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.Transaction;
 import org.neo4j.graphdb.factory.GraphDatabaseFactory;
 import org.neo4j.graphdb.factory.GraphDatabaseSettings;
 import org.neo4j.graphdb.index.Index;
 import org.neo4j.helpers.collection.MapUtil;
 import org.neo4j.index.Neo4jTestCase;
 import org.neo4j.kernel.DefaultFileSystemAbstraction;
+import org.neo4j.kernel.GraphDatabaseAPI;
 import org.neo4j.kernel.configuration.Config;
 import org.neo4j.kernel.configuration.ConfigurationDefaults;
 import org.neo4j.kernel.impl.index.IndexStore;
 import org.neo4j.kernel.impl.nioneo.store.FileSystemAbstraction;
 import org.neo4j.kernel.impl.transaction.PlaceboTm;
+import org.neo4j.kernel.impl.transaction.TxManager;
 import org.neo4j.kernel.impl.transaction.xaframework.DefaultLogBufferFactory;
 import org.neo4j.kernel.impl.transaction.xaframework.RecoveryVerifier;
 import org.neo4j.kernel.impl.transaction.xaframework.TxIdGenerator;
@@ -144,4 +150,85 @@ public class TestRecovery
                                                    new XaFactory( config, TxIdGenerator.DEFAULT, new PlaceboTm(), new DefaultLogBufferFactory(), fileSystemAbstraction, StringLogger.DEV_NULL, RecoveryVerifier.ALWAYS_VALID));
         ds.close();
     }
+
+    @Test
+    public void shouldCommitInOnePhaseWhereOnlyOneResourceWrote() throws Exception
+    {
+        Neo4jTestCase.deleteFileOrDirectory( new File( getDbPath() ) );
+        GraphDatabaseAPI db = (GraphDatabaseAPI) new GraphDatabaseFactory().newEmbeddedDatabase( getDbPath() );
+        try
+        {
+            Index<Node> index = db.index().forNodes( "index" );
+            TxManager txManager = (TxManager) db.getTxManager();
+            int optimizedBefore = txManager.getOnePhaseOptimizedTxCount();
+
+            // The index takes part in the transaction, but doesn't write anything
+            Transaction tx = db.beginTx();
+            index.add( db.createNode(), "key", new String[0] );
+            tx.success();
+            tx.finish();
+            assertEquals( optimizedBefore + 1, txManager.getOnePhaseOptimizedTxCount() );
+
+            tx = db.beginTx();
+            index.add( db.createNode(), "key", "value" );
+            tx.success();
+            tx.finish();
+            assertEquals( optimizedBefore + 1, txManager.getOnePhaseOptimizedTxCount() );
+        }
+        finally
+        {
+            db.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldRecoverOnePhaseCommitWhereOnlyOneResourceWrote() throws Exception
+    {
+        // The index takes part in the transaction, but doesn't write anything
+        commitAndCrash();
+
+        assertRecovered( null );
+    }
+
+    @Test
+    public void shouldRecoverTwoPhaseCommitWhereSeveralResourcesWrote() throws Exception
+    {
+        commitAndCrash( "value" );
+
+        assertRecovered( "value" );
+    }
+
+    private void commitAndCrash( String... indexValues ) throws Exception
+    {
+        Neo4jTestCase.deleteFileOrDirectory( new File( getDbPath() ) );
+        List<String> command = new ArrayList<String>( Arrays.asList( "java", "-cp",
+                System.getProperty( "java.class.path" ), CommitAndCrash.class.getName(), getDbPath() ) );
+        command.addAll( Arrays.asList( indexValues ) );
+        Process process = Runtime.getRuntime().exec( command.toArray( new String[command.size()] ) );
+        assertEquals( 0, new ProcessStreamHandler( process, true ).waitForResult() );
+    }
+
+    private void assertRecovered( String indexValue )
+    {
+        GraphDatabaseService db = new GraphDatabaseFactory().newEmbeddedDatabase( getDbPath() );
+        try
+        {
+            Node node = db.getNodeById( 1 );
+            assertEquals( "crash", node.getProperty( "name" ) );
+            if ( indexValue != null )
+            {
+                assertEquals( node, db.index().forNodes( "index" ).get( "key", indexValue ).getSingle() );
+            }
+
+            // Recovery must have left the transaction manager usable
+            Transaction tx = db.beginTx();
+            db.createNode();
+            tx.success();
+            tx.finish();
+        }
+        finally
+        {
+            db.shutdown();
+        }
+    }
 }
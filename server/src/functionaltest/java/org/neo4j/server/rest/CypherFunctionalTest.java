@@ -243,6 +243,37 @@ public class CypherFunctionalTest extends AbstractRestFunctionalTestBase {
         assertThat( response, containsString( "message" ) );
     }
 
+    /**
+     * Adding `profile=true` to the URI profiles the query. Next to the
+     * result, the response then holds the execution plan, with the number of
+     * rows, the database accesses and the time spent in every step of it.
+     */
+    @Test
+    @Documented
+    @Title( "Profile a query" )
+    @Graph( "I know you" )
+    @SuppressWarnings( "unchecked" )
+    public void profile_a_query() throws Exception {
+        String script = "start x  = node(%I%) match x-[r]->n return n.name";
+        String response = doCypherRestCall( cypherUri() + "?profile=true", script, Status.OK );
+
+        Map<String, Object> result = JsonHelper.jsonToMap( response );
+        assertThat( response, containsString( "you" ) );
+        Map<String, Object> plan = (Map<String, Object>) result.get( "plan" );
+        assertEquals( 1, ( (Number) plan.get( "rows" ) ).intValue() );
+        assertTrue( plan.containsKey( "dbHits" ) );
+        assertTrue( plan.containsKey( "timeMillis" ) );
+        assertTrue( plan.containsKey( "children" ) );
+    }
+
+    @Test
+    @Graph( "I know you" )
+    public void plan_is_only_returned_when_profiling() throws Exception {
+        String response = cypherRestCall( "start x  = node(%I%) return x", Status.OK );
+
+        assertThat( response, not( containsString( "\"plan\"" ) ) );
+    }
+
     private String cypherRestCall( String script, Status status, Pair<String, String> ...params )
     {
         return super.doCypherRestCall( cypherUri(), script, status, params );
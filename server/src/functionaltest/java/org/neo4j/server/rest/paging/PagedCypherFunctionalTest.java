@@ -0,0 +1,185 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.server.rest.paging;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+
+import javax.ws.rs.core.MediaType;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.helpers.collection.MapUtil;
+import org.neo4j.server.CommunityNeoServer;
+import org.neo4j.server.database.Database;
+import org.neo4j.server.helpers.FunctionalTestHelper;
+import org.neo4j.server.helpers.ServerBuilder;
+import org.neo4j.server.helpers.ServerHelper;
+import org.neo4j.server.rest.JaxRsResponse;
+import org.neo4j.server.rest.RestRequest;
+import org.neo4j.server.rest.domain.JsonHelper;
+import org.neo4j.server.rest.domain.JsonParseException;
+import org.neo4j.test.server.ExclusiveServerTestBase;
+
+public class PagedCypherFunctionalTest extends ExclusiveServerTestBase
+{
+    private static final MediaType STREAMING_JSON = new MediaType( "application", "json",
+            MapUtil.stringMap( "stream", "true" ) );
+    private static final String QUERY = "{\"query\":\"start n=node(*) where has(n.name) return n.name\"}";
+    private static final int ROWS = 33;
+
+    private static CommunityNeoServer server;
+    private static FunctionalTestHelper functionalTestHelper;
+
+    @BeforeClass
+    public static void setupServer() throws IOException
+    {
+        server = ServerBuilder.server()
+        .withFakeClock()
+        .build();
+        server.start();
+        functionalTestHelper = new FunctionalTestHelper( server );
+    }
+
+    @Before
+    public void setupTheDatabase() throws Exception
+    {
+        ServerHelper.cleanTheDatabase( server );
+        createNamedNodes( ROWS, server.getDatabase() );
+    }
+
+    @AfterClass
+    public static void stopServer()
+    {
+        server.stop();
+    }
+
+    @Test
+    public void shouldRespondWithTheFirstPageAndTheLocationOfTheCursor() throws Exception
+    {
+        JaxRsResponse response = createCursor( "?pageSize=10" );
+
+        assertEquals( 201, response.getStatus() );
+        assertThat( response.getLocation().toString(), containsString( "/db/data/cypher/cursor/" ) );
+        assertEquals( "application/json", response.getType().toString().toLowerCase() );
+        assertEquals( 10, rowsOf( response ) );
+    }
+
+    @Test
+    public void shouldReadAllThePagesAndThenLetGoOfTheCursor() throws Exception
+    {
+        JaxRsResponse response = createCursor( "?pageSize=10" );
+        URI cursor = response.getLocation();
+        int rows = rowsOf( response );
+
+        for ( int page = 0; page < 3; page++ )
+        {
+            response = new RestRequest( cursor ).get();
+            assertEquals( 200, response.getStatus() );
+            rows += rowsOf( response );
+        }
+
+        assertEquals( ROWS, rows );
+        assertEquals( 404, new RestRequest( cursor ).get().getStatus() );
+    }
+
+    @Test
+    public void shouldNotCreateACursorWhenAllRowsFitOnTheFirstPage() throws Exception
+    {
+        JaxRsResponse response = createCursor( "?pageSize=" + ROWS );
+
+        assertEquals( 200, response.getStatus() );
+        assertNull( response.getLocation() );
+        assertEquals( ROWS, rowsOf( response ) );
+    }
+
+    @Test
+    public void shouldRespondWith200OnFirstDeletionOfCursorAnd404Afterwards()
+    {
+        URI cursor = createCursor( "?pageSize=10" ).getLocation();
+
+        final RestRequest request = RestRequest.req();
+        assertEquals( 200, request.delete( cursor ).getStatus() );
+        assertEquals( 404, request.delete( cursor ).getStatus() );
+        assertEquals( 404, new RestRequest( cursor ).get().getStatus() );
+    }
+
+    @Test
+    public void shouldExpireTheCursorAfterItsLeaseTime()
+    {
+        URI cursor = createCursor( "?pageSize=10&leaseTime=60" ).getLocation();
+
+        ( (FakeClock) LeaseManagerProvider.getClock() ).forwardMinutes( 2 );
+
+        assertEquals( 404, new RestRequest( cursor ).get().getStatus() );
+    }
+
+    @Test
+    public void shouldStreamTheFirstPageWhenAskedTo() throws Exception
+    {
+        JaxRsResponse response = RestRequest.req().accept( STREAMING_JSON ).post(
+                functionalTestHelper.dataUri() + "cypher/cursor?pageSize=10", QUERY );
+
+        assertEquals( 201, response.getStatus() );
+        assertEquals( 10, rowsOf( response ) );
+    }
+
+    @Test
+    public void shouldRespondWith400OnNonPositivePageSize()
+    {
+        assertEquals( 400, createCursor( "?pageSize=0" ).getStatus() );
+    }
+
+    private JaxRsResponse createCursor( String parameters )
+    {
+        return RestRequest.req().post( functionalTestHelper.dataUri() + "cypher/cursor" + parameters, QUERY );
+    }
+
+    private static int rowsOf( JaxRsResponse response ) throws JsonParseException
+    {
+        return ( (List<?>) JsonHelper.jsonToMap( response.getEntity() ).get( "data" ) ).size();
+    }
+
+    private void createNamedNodes( int count, Database db )
+    {
+        Transaction tx = db.graph.beginTx();
+        try
+        {
+            for ( int i = 0; i < count; i++ )
+            {
+                db.graph.createNode().setProperty( "name", String.valueOf( i ) );
+            }
+            tx.success();
+        }
+        finally
+        {
+            tx.finish();
+        }
+    }
+}
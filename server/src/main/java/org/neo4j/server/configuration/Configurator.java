@@ -83,6 +83,15 @@ public interface Configurator
     String HTTP_LOGGING = "org.neo4j.server.http.log.enabled";
     String HTTP_LOG_CONFIG_LOCATION = "org.neo4j.server.http.log.config";
     String WADL_ENABLED = "unsupported_wadl_generation_enabled";
+    // Batch operations that the server recognizes run without going through the web server,
+    // which also means without going through security rules for their individual paths
+    String BATCH_DIRECT_DISPATCH_ENABLED = "org.neo4j.server.batch.direct_dispatch.enabled";
+    Boolean DEFAULT_BATCH_DIRECT_DISPATCH_ENABLED = true;
+
+    String BULK_IMPORT_CHUNK_SIZE = "org.neo4j.server.bulk.chunk_size";
+
+    String CYPHER_CURSOR_MAX_OPEN = "org.neo4j.server.cypher.cursor.max_open";
+    int DEFAULT_CYPHER_CURSOR_MAX_OPEN = 100;
 
     Configuration configuration();
 
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.server.database;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.neo4j.cypher.internal.QueryCacheStatistics;
+import org.neo4j.cypher.javacompat.ExecutionEngine;
+import org.neo4j.kernel.GraphDatabaseAPI;
+
+/**
+ * Holds the one Cypher {@link ExecutionEngine} of a {@link Database}, so that
+ * the plans it has cached survive from one request to the next. The size of
+ * the plan cache is set with the <code>query_cache_size</code> database
+ * tuning property.
+ * <p>
+ * The engine is created on first use and created again if the database has
+ * been restarted since.
+ */
+public class CypherExecutor
+{
+    private final Database database;
+    private GraphDatabaseAPI engineGraph;
+    private ExecutionEngine executionEngine;
+
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong executionTime = new AtomicLong();
+
+    public CypherExecutor( Database database )
+    {
+        this.database = database;
+    }
+
+    public synchronized ExecutionEngine getExecutionEngine()
+    {
+        GraphDatabaseAPI graph = database.getGraph();
+        if ( executionEngine == null || engineGraph != graph )
+        {
+            executionEngine = new ExecutionEngine( graph );
+            engineGraph = graph;
+        }
+        return executionEngine;
+    }
+
+    /**
+     * Records one query run through the engine.
+     *
+     * @param nanos the time it took to run the query and read its result,
+     *            including any time spent parsing it.
+     */
+    public void executed( long nanos )
+    {
+        queries.incrementAndGet();
+        executionTime.addAndGet( nanos );
+    }
+
+    public long getQueryCount()
+    {
+        return queries.get();
+    }
+
+    public long getExecutionTimeMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis( executionTime.get() );
+    }
+
+    /**
+     * @return the time spent parsing queries that were not found in the plan
+     *         cache. This is part of the execution time.
+     */
+    public long getParseTimeMillis()
+    {
+        GraphDatabaseAPI graph = database.getGraph();
+        return graph == null ? 0 : QueryCacheStatistics.forDatabase( graph ).getParseTimeMillis();
+    }
+}
@@ -55,6 +55,7 @@ public class Database implements Lifecycle
     private String databaseStoreDirectory;
     private RrdDb rrdDb;
     private final StatisticCollector statisticCollector = new StatisticCollector();
+    private final CypherExecutor cypherExecutor = new CypherExecutor( this );
 
     /**
      * This constructor should not be used, 
@@ -199,6 +200,15 @@ public class Database implements Lifecycle
         return statisticCollector;
     }
 
+    /**
+     * The Cypher execution engine shared by everything in the server that
+     * runs queries against this database.
+     */
+    public CypherExecutor getCypherExecutor()
+    {
+        return cypherExecutor;
+    }
+
 	@Override
 	public void init() throws Throwable 
 	{
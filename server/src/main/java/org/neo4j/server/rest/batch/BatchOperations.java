@@ -28,6 +28,7 @@ import java.util.Map;
 
 import javax.servlet.ServletException;
 import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
 import org.codehaus.jackson.JsonFactory;
@@ -49,10 +50,22 @@ public abstract class BatchOperations
     protected static final JsonFactory jsonFactory = new JsonFactory();
     protected final WebServer webServer;
     protected final ObjectMapper mapper;
+    private final DirectBatchDispatcher directDispatcher;
 
     public BatchOperations( WebServer webServer )
+    {
+        this( webServer, null );
+    }
+
+    /**
+     * @param directDispatcher runs the operations it recognizes without going
+     *            through the web server, or <code>null</code> to send all of
+     *            them through the web server.
+     */
+    public BatchOperations( WebServer webServer, DirectBatchDispatcher directDispatcher )
     {
         this.webServer = webServer;
+        this.directDispatcher = directDispatcher;
         mapper = new ObjectMapper();
     }
 
@@ -102,13 +115,51 @@ public abstract class BatchOperations
                                                   Map<Integer, String> locations )
     {
         if (!str.contains( "{" )) return str;
-        // TODO: Potential memory-hog on big requests, write smarter
-        // implementation.
-        for (Integer jobId : locations.keySet())
+        // Look up each placeholder in the string rather than trying every
+        // location on every operation, big batches have a lot of them
+        StringBuilder result = null;
+        int copied = 0;
+        for ( int start = str.indexOf( '{' ); start != -1; start = str.indexOf( '{', start + 1 ) )
+        {
+            int end = str.indexOf( '}', start );
+            if ( end == -1 )
+            {
+                break;
+            }
+            String location = locationFor( str.substring( start + 1, end ), locations );
+            if ( location != null )
+            {
+                if ( result == null )
+                {
+                    result = new StringBuilder( str.length() + location.length() );
+                }
+                result.append( str, copied, start ).append( location );
+                copied = end + 1;
+                start = end;
+            }
+        }
+        if ( result == null ) return str;
+        return result.append( str, copied, str.length() ).toString();
+    }
+
+    private String locationFor( String placeholder, Map<Integer, String> locations )
+    {
+        if ( placeholder.equals( "null" ) )
+        {
+            return locations.get( null );
+        }
+        if ( placeholder.length() == 0 || placeholder.length() > 11 )
+        {
+            return null;
+        }
+        try
+        {
+            return locations.get( Integer.valueOf( placeholder ) );
+        }
+        catch ( NumberFormatException e )
         {
-            str = str.replace("{" + jobId + "}", locations.get(jobId));
+            return null;
         }
-        return str;
     }
 
     protected boolean is2XXStatusCode( int statusCode )
@@ -170,6 +221,16 @@ public abstract class BatchOperations
         body = replaceLocationPlaceholders(body, locations);
         URI targetUri = calculateTargetUri(uriInfo, path);
 
+        if ( directDispatcher != null )
+        {
+            Response response = directDispatcher.dispatch( method, targetUri, body );
+            if ( response != null )
+            {
+                invoke( method, path, body, id, response );
+                return;
+            }
+        }
+
         InternalJettyServletRequest req = new InternalJettyServletRequest( method, targetUri.toString(), body);
         addHeaders( req, httpHeaders );
 
@@ -179,4 +240,10 @@ public abstract class BatchOperations
     }
 
     protected abstract void invoke( String method, String path, String body, Integer id, URI targetUri, InternalJettyServletRequest req, InternalJettyServletResponse res ) throws IOException, ServletException;
+
+    /**
+     * Handles the response of an operation that was run without going through
+     * the web server.
+     */
+    protected abstract void invoke( String method, String path, String body, Integer id, Response response ) throws IOException;
 }
@@ -0,0 +1,229 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.server.rest.batch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriInfo;
+
+import org.apache.commons.configuration.Configuration;
+import org.neo4j.server.database.Database;
+import org.neo4j.server.rest.paging.LeaseManager;
+import org.neo4j.server.rest.repr.BadInputException;
+import org.neo4j.server.rest.repr.ExtensionInjector;
+import org.neo4j.server.rest.repr.OutputFormat;
+import org.neo4j.server.rest.repr.RepresentationFormat;
+import org.neo4j.server.rest.repr.formats.JsonFormat;
+import org.neo4j.server.rest.web.CypherService;
+import org.neo4j.server.rest.web.RestfulGraphDatabase;
+
+/**
+ * Runs the most common batch operations by calling the REST resources
+ * directly, instead of sending an internal request through the web server.
+ * This saves resolving the request, copying headers and running it through
+ * the servlet and Jersey machinery for every single operation. The
+ * operations run on the calling thread, inside the batch transaction, and
+ * give the same responses as they would over HTTP.
+ * <p>
+ * Operations that aren't recognized, or that carry query parameters other
+ * than the ones understood here, are left to the web server.
+ */
+public class DirectBatchDispatcher
+{
+    private static final String UTF8 = "UTF-8";
+    private static final String TRANSACTION_HEADER = "Transaction";
+
+    private static final Pattern NODES = Pattern.compile( "node" );
+    private static final Pattern NODE_RELATIONSHIPS = Pattern.compile( "node/(\\d{1,18})/relationships" );
+    private static final Pattern NODE_PROPERTIES = Pattern.compile( "node/(\\d{1,18})/properties" );
+    private static final Pattern NODE_PROPERTY = Pattern.compile( "node/(\\d{1,18})/properties/([^/]+)" );
+    private static final Pattern RELATIONSHIP_PROPERTIES = Pattern.compile( "relationship/(\\d{1,18})/properties" );
+    private static final Pattern RELATIONSHIP_PROPERTY = Pattern.compile( "relationship/(\\d{1,18})/properties/([^/]+)" );
+    private static final Pattern NODE_INDEX = Pattern.compile( "index/node/([^/]+)" );
+    private static final Pattern RELATIONSHIP_INDEX = Pattern.compile( "index/relationship/([^/]+)" );
+    private static final Pattern CYPHER = Pattern.compile( "cypher" );
+    private static final Pattern UNIQUE_QUERY = Pattern.compile( "unique(?:=([^&]*))?" );
+
+    private final String basePath;
+    private final OutputFormat output;
+    private final RestfulGraphDatabase restfulGraphDatabase;
+    private final CypherService cypherService;
+
+    public DirectBatchDispatcher( UriInfo uriInfo, Database database, LeaseManager leaseManager,
+            Configuration config, ExtensionInjector extensions )
+    {
+        this( uriInfo, database, leaseManager, config, extensions, new JsonFormat() );
+    }
+
+    /**
+     * @param format the format the operations are answered in, which should
+     *            be the one they'd get when sent through the web server, e.g.
+     *            streamed JSON for a streamed batch.
+     */
+    public DirectBatchDispatcher( UriInfo uriInfo, Database database, LeaseManager leaseManager,
+            Configuration config, ExtensionInjector extensions, RepresentationFormat format )
+    {
+        this.output = new OutputFormat( format, uriInfo.getBaseUri(), extensions );
+        this.basePath = uriInfo.getBaseUri().getPath();
+        this.restfulGraphDatabase = new RestfulGraphDatabase( uriInfo, database, format, output, leaseManager );
+        this.cypherService = new CypherService( database.getCypherExecutor(), leaseManager, config, format, output );
+    }
+
+    /**
+     * Operations can only be dispatched directly if the batch request doesn't
+     * carry headers that would change how they are run.
+     */
+    public static boolean canDispatch( HttpHeaders httpHeaders )
+    {
+        return httpHeaders.getRequestHeaders().getFirst( TRANSACTION_HEADER ) == null;
+    }
+
+    /**
+     * @return the response to the operation, or <code>null</code> if it has to
+     *         be sent through the web server.
+     */
+    public Response dispatch( String method, URI targetUri, String body )
+    {
+        String path = targetUri.getPath();
+        if ( path == null || !path.startsWith( basePath ) )
+        {
+            return null;
+        }
+        path = path.substring( basePath.length() );
+        String query = targetUri.getRawQuery();
+
+        if ( method.equals( "POST" ) )
+        {
+            Matcher matcher;
+            if ( query == null && NODES.matcher( path ).matches() )
+            {
+                return restfulGraphDatabase.createNode( null, body );
+            }
+            if ( query == null && ( matcher = NODE_RELATIONSHIPS.matcher( path ) ).matches() )
+            {
+                return restfulGraphDatabase.createRelationship( null, id( matcher ), body );
+            }
+            if ( query == null && CYPHER.matcher( path ).matches() )
+            {
+                return cypher( body );
+            }
+            if ( ( matcher = NODE_INDEX.matcher( path ) ).matches() && isUniqueQuery( query ) )
+            {
+                return restfulGraphDatabase.addToNodeIndex( null, matcher.group( 1 ), unique( query ), body );
+            }
+            if ( ( matcher = RELATIONSHIP_INDEX.matcher( path ) ).matches() && isUniqueQuery( query ) )
+            {
+                return restfulGraphDatabase.addToRelationshipIndex( null, matcher.group( 1 ), unique( query ), body );
+            }
+        }
+        else if ( method.equals( "PUT" ) && query == null )
+        {
+            Matcher matcher;
+            if ( ( matcher = NODE_PROPERTIES.matcher( path ) ).matches() )
+            {
+                return restfulGraphDatabase.setAllNodeProperties( null, id( matcher ), body );
+            }
+            if ( ( matcher = NODE_PROPERTY.matcher( path ) ).matches() )
+            {
+                return restfulGraphDatabase.setNodeProperty( null, id( matcher ), matcher.group( 2 ), body );
+            }
+            if ( ( matcher = RELATIONSHIP_PROPERTIES.matcher( path ) ).matches() )
+            {
+                return restfulGraphDatabase.setAllRelationshipProperties( null, id( matcher ), body );
+            }
+            if ( ( matcher = RELATIONSHIP_PROPERTY.matcher( path ) ).matches() )
+            {
+                return restfulGraphDatabase.setRelationshipProperty( null, id( matcher ), matcher.group( 2 ), body );
+            }
+        }
+        return null;
+    }
+
+    private Response cypher( String body )
+    {
+        try
+        {
+            return cypherService.cypher( body, false );
+        }
+        catch ( BadInputException e )
+        {
+            return output.badRequest( e );
+        }
+    }
+
+    private static long id( Matcher matcher )
+    {
+        return Long.parseLong( matcher.group( 1 ) );
+    }
+
+    private static boolean isUniqueQuery( String query )
+    {
+        return query == null || UNIQUE_QUERY.matcher( query ).matches();
+    }
+
+    private static String unique( String query )
+    {
+        if ( query == null )
+        {
+            return null;
+        }
+        Matcher matcher = UNIQUE_QUERY.matcher( query );
+        matcher.matches();
+        return matcher.group( 1 ) == null ? "" : matcher.group( 1 );
+    }
+
+    public static String location( Response response )
+    {
+        Object location = response.getMetadata().getFirst( "Location" );
+        return location == null ? null : location.toString();
+    }
+
+    public static void writeEntity( Response response, OutputStream output ) throws IOException
+    {
+        Object entity = response.getEntity();
+        if ( entity instanceof byte[] )
+        {
+            output.write( (byte[]) entity );
+        }
+        else if ( entity instanceof StreamingOutput )
+        {
+            ( (StreamingOutput) entity ).write( output );
+        }
+        else if ( entity != null )
+        {
+            output.write( entity.toString().getBytes( UTF8 ) );
+        }
+    }
+
+    public static String entityAsString( Response response ) throws IOException
+    {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writeEntity( response, output );
+        return output.toString( UTF8 );
+    }
+}
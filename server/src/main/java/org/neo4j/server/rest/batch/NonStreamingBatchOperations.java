@@ -25,6 +25,7 @@ import java.net.URI;
 
 import javax.servlet.ServletException;
 import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
 import org.neo4j.server.rest.domain.BatchOperationFailedException;
@@ -42,6 +43,11 @@ public class NonStreamingBatchOperations extends BatchOperations
         super( webServer );
     }
 
+    public NonStreamingBatchOperations( WebServer webServer, DirectBatchDispatcher directDispatcher )
+    {
+        super( webServer, directDispatcher );
+    }
+
     public BatchOperationResults performBatchJobs( UriInfo uriInfo, HttpHeaders httpHeaders, InputStream body ) throws IOException, ServletException
     {
         results = new BatchOperationResults();
@@ -55,12 +61,24 @@ public class NonStreamingBatchOperations extends BatchOperations
         webServer.invokeDirectly(targetUri.getPath(), req, res);
 
         String resultBody = res.getOutputStream().toString();
-        if (is2XXStatusCode(res.getStatus()))
+        addResult( path, id, res.getStatus(), resultBody, res.getHeader( "Location" ) );
+    }
+
+    @Override
+    protected void invoke( String method, String path, String body, Integer id, Response response ) throws IOException
+    {
+        String resultBody = DirectBatchDispatcher.entityAsString( response );
+        addResult( path, id, response.getStatus(), resultBody, DirectBatchDispatcher.location( response ) );
+    }
+
+    private void addResult( String path, Integer id, int status, String resultBody, String location )
+    {
+        if (is2XXStatusCode(status))
         {
-            results.addOperationResult(path, id, resultBody, res.getHeader("Location"));
+            results.addOperationResult(path, id, resultBody, location);
         } else
         {
-            throw new BatchOperationFailedException(res.getStatus(), resultBody, null );
+            throw new BatchOperationFailedException(status, resultBody, null );
         }
     }
 
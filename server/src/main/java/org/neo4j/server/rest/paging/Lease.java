@@ -24,12 +24,12 @@ import java.util.UUID;
 public class Lease
 {
     private long startTime;
-    public final PagedTraverser leasedTraverser;
+    private final Leasable leasedItem;
     private final String id;
     private long leasePeriod;
     private final Clock clock;
 
-    Lease( PagedTraverser leasedTraverser, long leasePeriodInSeconds, Clock clock ) throws LeaseAlreadyExpiredException
+    Lease( Leasable leasedItem, long leasePeriodInSeconds, Clock clock ) throws LeaseAlreadyExpiredException
     {
         if ( leasePeriodInSeconds < 0 )
         {
@@ -38,7 +38,7 @@ public class Lease
         }
 
         this.clock = clock;
-        this.leasedTraverser = leasedTraverser;
+        this.leasedItem = leasedItem;
         this.startTime = clock.currentTimeInMilliseconds();
         this.leasePeriod = leasePeriodInSeconds * 1000;
         this.id = toHexOnly( UUID.randomUUID() );
@@ -55,10 +55,15 @@ public class Lease
                 .replaceAll( "-", "" );
     }
 
-    public PagedTraverser getLeasedItemAndRenewLease()
+    public Leasable getLeasedItemAndRenewLease()
     {
         renew();
-        return leasedTraverser;
+        return leasedItem;
+    }
+
+    Leasable getLeasedItem()
+    {
+        return leasedItem;
     }
 
     public void renew()
@@ -19,6 +19,8 @@
  */
 package org.neo4j.server.rest.paging;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -32,19 +34,45 @@ public class LeaseManager
         this.clock = clock;
     }
 
-    public Lease createLease( long seconds, PagedTraverser leasedTraverser ) throws LeaseAlreadyExpiredException
+    public Lease createLease( long seconds, Leasable leasedItem ) throws LeaseAlreadyExpiredException
     {
         if ( seconds < 1 )
         {
             return null;
         }
 
-        Lease lease = new Lease( leasedTraverser, seconds, clock );
+        Lease lease = new Lease( leasedItem, seconds, clock );
         leases.put( lease.getId(), lease );
 
         return lease;
     }
 
+    /**
+     * Like {@link #createLease(long, Leasable)}, but refuses to hold more than
+     * the given number of leases on items of the same class at a time, so
+     * that items that hold on to a lot of memory can't pile up. Expired
+     * leases are let go of first.
+     */
+    public synchronized Lease createLease( long seconds, Leasable leasedItem, int maxLeasesOfSameKind )
+            throws LeaseAlreadyExpiredException, LeaseLimitReachedException
+    {
+        pruneOldLeasesByNaivelyIteratingThroughAllOfThem();
+        int leased = 0;
+        for ( Lease lease : leases.values() )
+        {
+            if ( lease.getLeasedItem().getClass() == leasedItem.getClass() )
+            {
+                leased++;
+            }
+        }
+        if ( leased >= maxLeasesOfSameKind )
+        {
+            throw new LeaseLimitReachedException( String.format(
+                    "There are already %d leases of that kind, try again later", leased ) );
+        }
+        return createLease( seconds, leasedItem );
+    }
+
     public Lease getLeaseById( String id )
     {
         pruneOldLeasesByNaivelyIteratingThroughAllOfThem();
@@ -88,11 +116,23 @@ public class LeaseManager
         this.clock = clock;
     }
 
+    /**
+     * Lets go of a lease, and closes the leased item if it holds on to
+     * something that needs closing.
+     */
     public void remove( String key )
     {
-        if ( leases.containsKey( key ) )
+        Lease lease = leases.remove( key );
+        if ( lease != null && lease.getLeasedItem() instanceof Closeable )
         {
-            leases.remove( key );
+            try
+            {
+                ( (Closeable) lease.getLeasedItem() ).close();
+            }
+            catch ( IOException e )
+            {
+                // The item is let go of anyway
+            }
         }
     }
 }
@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.server.rest.paging;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The rows of a Cypher result, read a page at a time as they are asked for.
+ * Only the rows of the page being read are held in memory, the rest are left
+ * to the lazy result. Closing it closes the result, which the
+ * {@link LeaseManager} does when the lease on it is let go of.
+ */
+public class PagedCypherResult implements Iterator<List<Map<String, Object>>>, Leasable, Closeable
+{
+    private final List<String> columns;
+    private final Iterator<Map<String, Object>> rows;
+    private final int pageSize;
+    private final Closeable result;
+
+    public PagedCypherResult( List<String> columns, Iterator<Map<String, Object>> rows, int pageSize )
+    {
+        this( columns, rows, pageSize, null );
+    }
+
+    public PagedCypherResult( List<String> columns, Iterator<Map<String, Object>> rows, int pageSize,
+            Closeable result )
+    {
+        this.columns = columns;
+        this.rows = rows;
+        this.pageSize = pageSize;
+        this.result = result;
+    }
+
+    public List<String> columns()
+    {
+        return columns;
+    }
+
+    /**
+     * @return the next page of rows, or <code>null</code> if all of them have
+     *         been read.
+     */
+    @Override
+    public synchronized List<Map<String, Object>> next()
+    {
+        if ( !rows.hasNext() )
+        {
+            return null;
+        }
+
+        List<Map<String, Object>> page = new ArrayList<Map<String, Object>>();
+        while ( page.size() < pageSize && rows.hasNext() )
+        {
+            page.add( rows.next() );
+        }
+        return page;
+    }
+
+    @Override
+    public synchronized boolean hasNext()
+    {
+        return rows.hasNext();
+    }
+
+    @Override
+    public void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if ( result != null )
+        {
+            result.close();
+        }
+    }
+}
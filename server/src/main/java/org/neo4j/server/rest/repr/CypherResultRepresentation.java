@@ -19,7 +19,11 @@
  */
 package org.neo4j.server.rest.repr;
 
+import static org.neo4j.helpers.collection.IteratorUtil.loop;
+
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -28,31 +32,68 @@ import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Path;
 import org.neo4j.graphdb.Relationship;
 import org.neo4j.helpers.collection.IterableWrapper;
+import org.neo4j.helpers.collection.Iterables;
 import org.neo4j.server.webadmin.rest.representations.JmxAttributeRepresentationDispatcher;
 
 public class CypherResultRepresentation extends MappingRepresentation
 {
     private final ListRepresentation resultRepresentation;
     private final ListRepresentation columns;
+    private final ExecutionResult profiledResult;
+    private final ExecutionResult result;
 
 
     public CypherResultRepresentation( ExecutionResult result )
+    {
+        this( result, false );
+    }
+
+    public CypherResultRepresentation( ExecutionResult result, boolean profiled )
     {
         super( RepresentationType.STRING );
-        resultRepresentation = createResultRepresentation(result);
+        resultRepresentation = createResultRepresentation( result.columns(), rows( result, profiled ) );
         columns = ListRepresentation.string( result.columns() );
+        profiledResult = profiled ? result : null;
+        this.result = result;
+    }
+
+    /**
+     * A page of rows from a result that is read a page at a time.
+     */
+    public CypherResultRepresentation( List<String> columns, Iterable<Map<String, Object>> rows )
+    {
+        super( RepresentationType.STRING );
+        resultRepresentation = createResultRepresentation( columns, rows );
+        this.columns = ListRepresentation.string( columns );
+        profiledResult = null;
+        result = null;
     }
 
     @Override
     protected void serialize( MappingSerializer serializer )
     {
-        serializer.putList( "columns", columns );
-        serializer.putList( "data", resultRepresentation );
+        try
+        {
+            serializer.putList( "columns", columns );
+            serializer.putList( "data", resultRepresentation );
+            if ( profiledResult != null )
+            {
+                // The plan is only complete once all the data has been read
+                serializer.putMapping( "plan", new PlanDescriptionRepresentation( profiledResult.executionPlanDescription() ) );
+            }
+        }
+        finally
+        {
+            // Also when the client went away half way through a streamed response
+            if ( result != null )
+            {
+                result.close();
+            }
+        }
     }
 
-    private ListRepresentation createResultRepresentation(ExecutionResult executionResult) {
-        final List<String> columns = executionResult.columns();
-        final Iterable<Map<String, Object>> inner = new RepresentationExceptionHandlingIterable<Map<String,Object>>(executionResult);
+    private ListRepresentation createResultRepresentation(final List<String> columns, Iterable<Map<String, Object>> rows) {
+        final Iterable<Map<String, Object>> inner = new RepresentationExceptionHandlingIterable<Map<String,Object>>(rows);
         return new ListRepresentation( "data", new IterableWrapper<Representation,Map<String,Object>>(inner) {
 
             @Override
@@ -69,6 +110,23 @@ public class CypherResultRepresentation extends MappingRepresentation
         });
     }
 
+    private Iterable<Map<String, Object>> rows( ExecutionResult executionResult, boolean profiled )
+    {
+        if ( profiled )
+        {
+            // A profiled result has to keep its rows around until the plan is described
+            return executionResult;
+        }
+        Iterator<Map<String, Object>> rows = executionResult.streamingIterator();
+        if ( !rows.hasNext() )
+        {
+            return Collections.emptyList();
+        }
+        // Fail here rather than half way through a streamed response if not even the first row can be read
+        Map<String, Object> first = rows.next();
+        return Iterables.prepend( first, loop( rows ) );
+    }
+
     Representation getRepresentation( Object r )
     {
         if( r == null )
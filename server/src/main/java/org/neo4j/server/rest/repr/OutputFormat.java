@@ -32,9 +32,12 @@ import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.StreamingOutput;
 
+import org.neo4j.server.rest.repr.formats.StreamingJsonFormat;
+
 public class OutputFormat
 {
     private static final String UTF8 = "UTF-8";
+    private static final StreamingJsonFormat STREAMING_JSON = new StreamingJsonFormat();
     private final RepresentationFormat format;
     private final ExtensionInjector extensions;
     private final URI baseUri;
@@ -52,12 +55,48 @@ public class OutputFormat
         return response( Response.ok(), representation );
     }
 
+    /**
+     * Like {@link #ok(Representation)}, but a representation to be sent as
+     * JSON is written straight to the response as it is serialized, also when
+     * the client didn't ask for a streamed response. For big results that are
+     * produced as they are read, so that they don't have to be held in memory.
+     * The JSON is indented the same way as a response that isn't streamed.
+     */
+    public final Response okStreamed( final Representation representation )
+    {
+        if ( representation.isEmpty() ) return noContent();
+        if ( format instanceof StreamingFormat || !MediaType.APPLICATION_JSON_TYPE.equals( format.mediaType ) )
+        {
+            return ok( representation );
+        }
+        return Response.ok()
+                .entity( new StreamingOutput()
+                {
+                    public void write( OutputStream output ) throws IOException, WebApplicationException
+                    {
+                        representation.serialize( STREAMING_JSON.writeTo( output ).usePrettyPrinter(), baseUri, extensions );
+                    }
+                } )
+                .header( HttpHeaders.CONTENT_ENCODING, UTF8 )
+                .type( getMediaType() )
+                .build();
+    }
+
     public final <REPR extends Representation & EntityRepresentation> Response created( REPR representation )
             throws BadInputException
     {
         return response( Response.created( uri( representation ) ), representation );
     }
 
+    /**
+     * Like {@link #created(Representation)}, for a representation of
+     * something that is found at another location than its own.
+     */
+    public final Response created( Representation representation, URI location )
+    {
+        return response( Response.created( location ), representation );
+    }
+
     public final Response response( Status status, Representation representation ) throws BadInputException
     {
         return response( Response.status( status ), representation );
@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.server.rest.repr;
+
+import org.neo4j.cypher.PlanDescription;
+import org.neo4j.helpers.collection.IterableWrapper;
+
+public class PlanDescriptionRepresentation extends MappingRepresentation
+{
+    private final PlanDescription plan;
+
+    public PlanDescriptionRepresentation( PlanDescription plan )
+    {
+        super( "plan" );
+        this.plan = plan;
+    }
+
+    @Override
+    protected void serialize( MappingSerializer serializer )
+    {
+        serializer.putString( "name", plan.name() );
+        serializer.putNumber( "rowsIn", plan.rowsIn() );
+        serializer.putNumber( "rows", plan.rows() );
+        serializer.putNumber( "dbHits", plan.dbHits() );
+        serializer.putNumber( "timeMillis", plan.timeMillis() );
+        serializer.putList( "children", new ListRepresentation( "plan",
+                new IterableWrapper<Representation, PlanDescription>( plan.javaChildren() )
+                {
+                    @Override
+                    protected Representation underlyingObjectToObject( PlanDescription child )
+                    {
+                        return new PlanDescriptionRepresentation( child );
+                    }
+                } ) );
+    }
+}
@@ -35,13 +35,21 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
+import org.apache.commons.configuration.Configuration;
 import org.mortbay.log.Log;
 import org.neo4j.graphdb.Transaction;
+import org.neo4j.server.NeoServer;
+import org.neo4j.server.configuration.Configurator;
 import org.neo4j.server.database.Database;
 import org.neo4j.server.rest.batch.BatchOperationResults;
+import org.neo4j.server.rest.batch.DirectBatchDispatcher;
 import org.neo4j.server.rest.batch.NonStreamingBatchOperations;
+import org.neo4j.server.rest.paging.LeaseManager;
 import org.neo4j.server.rest.repr.BadInputException;
 import org.neo4j.server.rest.repr.OutputFormat;
+import org.neo4j.server.rest.repr.RepresentationFormat;
+import org.neo4j.server.rest.repr.formats.JsonFormat;
+import org.neo4j.server.rest.repr.formats.StreamingJsonFormat;
 import org.neo4j.server.web.WebServer;
 
 @Path("/batch")
@@ -50,13 +58,18 @@ public class BatchOperationService {
     private final OutputFormat output;
     private final WebServer webServer;
     private final Database database;
+    private final NeoServer server;
+    private final LeaseManager leaseManager;
 
     public BatchOperationService(@Context Database database,
-            @Context WebServer webServer, @Context OutputFormat output)
+            @Context WebServer webServer, @Context OutputFormat output,
+            @Context NeoServer server, @Context LeaseManager leaseManager)
     {
         this.output = output;
         this.webServer = webServer;
         this.database = database;
+        this.server = server;
+        this.leaseManager = leaseManager;
     }
 
     @POST
@@ -85,7 +98,7 @@ public class BatchOperationService {
                                 output.write(i);
                             }
                         };
-                        new StreamingBatchOperations(webServer).readAndExecuteOperations( uriInfo, httpHeaders, body, servletOutputStream );
+                        new StreamingBatchOperations(webServer, directDispatcher( uriInfo, httpHeaders, new StreamingJsonFormat() )).readAndExecuteOperations( uriInfo, httpHeaders, body, servletOutputStream );
                         tx.success();
                     } catch (Exception e) {
                         Log.warn( "Error executing batch request ", e );
@@ -112,7 +125,7 @@ public class BatchOperationService {
         Transaction tx = database.graph.beginTx();
         try
         {
-            NonStreamingBatchOperations batchOperations = new NonStreamingBatchOperations( webServer );
+            NonStreamingBatchOperations batchOperations = new NonStreamingBatchOperations( webServer, directDispatcher( uriInfo, httpHeaders, new JsonFormat() ) );
             BatchOperationResults results = batchOperations.performBatchJobs( uriInfo, httpHeaders, body );
 
             Response res = Response.ok().entity(results.toJSON())
@@ -131,6 +144,24 @@ public class BatchOperationService {
         }
     }
 
+    /*
+     * The operations are answered in the format they'd be sent when run
+     * through the web server, which is streamed JSON for a streamed batch.
+     */
+    private DirectBatchDispatcher directDispatcher( UriInfo uriInfo, HttpHeaders httpHeaders, RepresentationFormat format )
+    {
+        Configuration config = server.getConfiguration();
+        boolean enabled = config.getBoolean( Configurator.BATCH_DIRECT_DISPATCH_ENABLED,
+                Configurator.DEFAULT_BATCH_DIRECT_DISPATCH_ENABLED );
+        // Security rules may be set up for the paths of individual operations
+        if ( !enabled || config.getStringArray( Configurator.SECURITY_RULES_KEY ).length > 0
+                || !DirectBatchDispatcher.canDispatch( httpHeaders ) )
+        {
+            return null;
+        }
+        return new DirectBatchDispatcher( uriInfo, database, leaseManager, config, server.getExtensionManager(), format );
+    }
+
     private boolean isStreaming( HttpHeaders httpHeaders )
     {
         for ( MediaType mediaType : httpHeaders.getAcceptableMediaTypes() )
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.server.rest.web;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Response;
+
+import org.apache.commons.configuration.Configuration;
+import org.neo4j.server.configuration.Configurator;
+import org.neo4j.server.database.Database;
+import org.neo4j.server.rest.repr.BadInputException;
+import org.neo4j.server.rest.repr.MapRepresentation;
+import org.neo4j.server.rest.repr.OutputFormat;
+
+/**
+ * Creates many nodes or relationships from one request, see
+ * {@link BulkImporter} for the format of the request body. Responds with the
+ * number of created entities and their ids, as ranges.
+ */
+@Path( "/bulk" )
+public class BulkImportService
+{
+    private final Database database;
+    private final Configuration config;
+    private final OutputFormat output;
+
+    public BulkImportService( @Context Database database, @Context Configuration config,
+            @Context OutputFormat output )
+    {
+        this.database = database;
+        this.config = config;
+        this.output = output;
+    }
+
+    @POST
+    @Path( "node" )
+    public Response importNodes( @QueryParam( "chunk_size" ) Integer chunkSize, InputStream body )
+    {
+        try
+        {
+            return created( importer( chunkSize ).importNodes( body ) );
+        }
+        catch ( BadInputException e )
+        {
+            return output.badRequest( e );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            return output.badRequest( e );
+        }
+        catch ( IOException e )
+        {
+            return output.serverError( e );
+        }
+    }
+
+    @POST
+    @Path( "relationship" )
+    public Response importRelationships( @QueryParam( "chunk_size" ) Integer chunkSize, InputStream body )
+    {
+        try
+        {
+            return created( importer( chunkSize ).importRelationships( body ) );
+        }
+        catch ( BadInputException e )
+        {
+            return output.badRequest( e );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            return output.badRequest( e );
+        }
+        catch ( IOException e )
+        {
+            return output.serverError( e );
+        }
+    }
+
+    private BulkImporter importer( Integer chunkSize )
+    {
+        if ( chunkSize == null )
+        {
+            chunkSize = config.getInt( Configurator.BULK_IMPORT_CHUNK_SIZE, BulkImporter.DEFAULT_CHUNK_SIZE );
+        }
+        return new BulkImporter( database.graph, chunkSize );
+    }
+
+    private Response created( BulkImporter.IdRanges ids )
+    {
+        return output.ok( new MapRepresentation( ids.toMap() ) );
+    }
+}
@@ -0,0 +1,533 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.server.rest.web;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonProcessingException;
+import org.codehaus.jackson.JsonToken;
+import org.neo4j.graphdb.DynamicRelationshipType;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.PropertyContainer;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.server.rest.repr.BadInputException;
+
+/**
+ * Creates nodes or relationships from a stream of JSON values, one value per
+ * entity, reading it a token at a time rather than building a map for every
+ * entity. Nodes are given either as one object of properties each:
+ *
+ * <pre>
+ * {"name":"Alice","age":31}
+ * {"name":"Bob"}
+ * </pre>
+ *
+ * or as an array of property keys followed by one array of values each, where
+ * <code>null</code> leaves the property out:
+ *
+ * <pre>
+ * ["name","age"]
+ * ["Alice",31]
+ * ["Bob",null]
+ * </pre>
+ *
+ * Relationships are given as <code>[start, end, type]</code> arrays, with the
+ * ids of their nodes, optionally followed by an object of properties or, if
+ * the stream starts with an array of property keys, by the values for those.
+ * They can also be given as objects like
+ * <code>{"start":1,"end":2,"type":"KNOWS","data":{"since":2001}}</code>.
+ * <p>
+ * The entities are committed a chunk at a time. If the input turns out to be
+ * broken, the chunks committed up to that point stay in the database.
+ */
+public class BulkImporter
+{
+    public static final int DEFAULT_CHUNK_SIZE = 10000;
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    private final GraphDatabaseService graphDb;
+    private final int chunkSize;
+    private final Map<String, RelationshipType> types = new HashMap<String, RelationshipType>();
+
+    private Transaction tx;
+    private int inChunk;
+    private long rows;
+    private long committedRows;
+
+    public BulkImporter( GraphDatabaseService graphDb, int chunkSize )
+    {
+        if ( chunkSize < 1 )
+        {
+            throw new IllegalArgumentException( "Chunk size must be at least 1, was " + chunkSize );
+        }
+        this.graphDb = graphDb;
+        this.chunkSize = chunkSize;
+    }
+
+    public IdRanges importNodes( InputStream input ) throws IOException, BadInputException
+    {
+        IdRanges created = new IdRanges();
+        JsonParser jp = jsonFactory.createJsonParser( input );
+        tx = graphDb.beginTx();
+        try
+        {
+            JsonToken token = jp.nextToken();
+            String[] columns = null;
+            if ( token == JsonToken.START_ARRAY )
+            {
+                columns = readColumns( jp );
+                token = jp.nextToken();
+            }
+            for ( ; token != null; token = jp.nextToken() )
+            {
+                rows++;
+                Node node = graphDb.createNode();
+                if ( columns == null )
+                {
+                    expect( token, JsonToken.START_OBJECT, "an object of properties" );
+                    setProperties( node, readProperties( jp ) );
+                }
+                else
+                {
+                    expect( token, JsonToken.START_ARRAY, "an array of property values" );
+                    setValues( node, columns, jp );
+                }
+                created.add( node.getId() );
+                created();
+            }
+            tx.success();
+            committedRows = rows;
+        }
+        catch ( JsonProcessingException e )
+        {
+            throw failed( new BadInputException( e ) );
+        }
+        catch ( BadInputException e )
+        {
+            throw failed( e );
+        }
+        finally
+        {
+            tx.finish();
+            jp.close();
+        }
+        return created;
+    }
+
+    public IdRanges importRelationships( InputStream input ) throws IOException, BadInputException
+    {
+        IdRanges created = new IdRanges();
+        JsonParser jp = jsonFactory.createJsonParser( input );
+        tx = graphDb.beginTx();
+        try
+        {
+            JsonToken token = jp.nextToken();
+            String[] columns = new String[0];
+            boolean inRow = false;
+            if ( token == JsonToken.START_ARRAY )
+            {
+                token = jp.nextToken();
+                if ( token == JsonToken.VALUE_STRING || token == JsonToken.END_ARRAY )
+                {
+                    columns = readColumnsFrom( token, jp );
+                    token = jp.nextToken();
+                }
+                else
+                {
+                    inRow = true;
+                }
+            }
+            for ( ; token != null; token = jp.nextToken() )
+            {
+                rows++;
+                long id;
+                if ( inRow || token == JsonToken.START_ARRAY )
+                {
+                    id = relationshipFromRow( columns, inRow, jp );
+                    inRow = false;
+                }
+                else
+                {
+                    expect( token, JsonToken.START_OBJECT, "a relationship" );
+                    id = relationshipFromObject( jp );
+                }
+                created.add( id );
+                created();
+            }
+            tx.success();
+            committedRows = rows;
+        }
+        catch ( JsonProcessingException e )
+        {
+            throw failed( new BadInputException( e ) );
+        }
+        catch ( BadInputException e )
+        {
+            throw failed( e );
+        }
+        finally
+        {
+            tx.finish();
+            jp.close();
+        }
+        return created;
+    }
+
+    private long relationshipFromRow( String[] columns, boolean atFirstValue, JsonParser jp ) throws IOException,
+            BadInputException
+    {
+        if ( !atFirstValue )
+        {
+            jp.nextToken();
+        }
+        Node start = node( readId( jp, "start" ) );
+        jp.nextToken();
+        Node end = node( readId( jp, "end" ) );
+        jp.nextToken();
+        Relationship relationship = start.createRelationshipTo( end, type( readType( jp ) ) );
+        setValues( relationship, columns, jp );
+        return relationship.getId();
+    }
+
+    private long relationshipFromObject( JsonParser jp ) throws IOException, BadInputException
+    {
+        Long start = null, end = null;
+        String type = null;
+        Map<String, Object> properties = null;
+        while ( jp.nextToken() != JsonToken.END_OBJECT )
+        {
+            String field = jp.getCurrentName();
+            JsonToken token = jp.nextToken();
+            if ( field.equals( "start" ) )
+            {
+                start = readId( jp, "start" );
+            }
+            else if ( field.equals( "end" ) )
+            {
+                end = readId( jp, "end" );
+            }
+            else if ( field.equals( "type" ) )
+            {
+                type = readType( jp );
+            }
+            else if ( field.equals( "data" ) )
+            {
+                expect( token, JsonToken.START_OBJECT, "an object of properties" );
+                properties = readProperties( jp );
+            }
+            else
+            {
+                throw new BadInputException( "Unknown field \"" + field + "\" in relationship" );
+            }
+        }
+        if ( start == null || end == null || type == null )
+        {
+            throw new BadInputException( "A relationship needs a start, an end and a type" );
+        }
+        Relationship relationship = node( start ).createRelationshipTo( node( end ), type( type ) );
+        if ( properties != null )
+        {
+            setProperties( relationship, properties );
+        }
+        return relationship.getId();
+    }
+
+    /**
+     * Sets the values of the array the parser is in to the properties named by
+     * the columns, or the properties of an object if there are no columns.
+     * Leaves the parser at the end of the array.
+     */
+    private void setValues( PropertyContainer entity, String[] columns, JsonParser jp ) throws IOException,
+            BadInputException
+    {
+        int column = 0;
+        JsonToken token;
+        while ( ( token = jp.nextToken() ) != JsonToken.END_ARRAY )
+        {
+            if ( token == null )
+            {
+                throw new BadInputException( "Unexpected end of input" );
+            }
+            if ( columns.length == 0 && column == 0 && token == JsonToken.START_OBJECT )
+            {
+                setProperties( entity, readProperties( jp ) );
+            }
+            else if ( column >= columns.length )
+            {
+                throw new BadInputException( "More values than property keys" );
+            }
+            else
+            {
+                setProperty( entity, columns[column], readValue( jp ) );
+            }
+            column++;
+        }
+    }
+
+    private void created()
+    {
+        if ( ++inChunk == chunkSize )
+        {
+            tx.success();
+            tx.finish();
+            committedRows = rows;
+            tx = graphDb.beginTx();
+            inChunk = 0;
+        }
+    }
+
+    private BadInputException failed( BadInputException cause )
+    {
+        tx.failure();
+        return new BadInputException( "Failed on row " + rows + ": " + cause.getMessage() + ". The first "
+                                      + committedRows + " rows have been imported.", cause );
+    }
+
+    private String[] readColumns( JsonParser jp ) throws IOException, BadInputException
+    {
+        return readColumnsFrom( jp.nextToken(), jp );
+    }
+
+    private String[] readColumnsFrom( JsonToken token, JsonParser jp ) throws IOException, BadInputException
+    {
+        List<String> columns = new ArrayList<String>();
+        for ( ; token != JsonToken.END_ARRAY; token = jp.nextToken() )
+        {
+            expect( token, JsonToken.VALUE_STRING, "a property key" );
+            columns.add( jp.getText() );
+        }
+        return columns.toArray( new String[columns.size()] );
+    }
+
+    private Map<String, Object> readProperties( JsonParser jp ) throws IOException, BadInputException
+    {
+        Map<String, Object> properties = new LinkedHashMap<String, Object>();
+        while ( jp.nextToken() != JsonToken.END_OBJECT )
+        {
+            String key = jp.getCurrentName();
+            jp.nextToken();
+            properties.put( key, readValue( jp ) );
+        }
+        return properties;
+    }
+
+    private Object readValue( JsonParser jp ) throws IOException, BadInputException
+    {
+        JsonToken token = jp.getCurrentToken();
+        if ( token == null )
+        {
+            throw new BadInputException( "Unexpected end of input" );
+        }
+        switch ( token )
+        {
+        case VALUE_STRING:
+            return jp.getText();
+        case VALUE_NUMBER_INT:
+            switch ( jp.getNumberType() )
+            {
+            case INT:
+                return jp.getIntValue();
+            case LONG:
+                return jp.getLongValue();
+            default:
+                throw new BadInputException( "Number out of range: " + jp.getText() );
+            }
+        case VALUE_NUMBER_FLOAT:
+            return jp.getDoubleValue();
+        case VALUE_TRUE:
+            return Boolean.TRUE;
+        case VALUE_FALSE:
+            return Boolean.FALSE;
+        case VALUE_NULL:
+            return null;
+        case START_ARRAY:
+            return readArray( jp );
+        default:
+            throw new BadInputException( "Unsupported property value: " + jp.getText() );
+        }
+    }
+
+    private Object readArray( JsonParser jp ) throws IOException, BadInputException
+    {
+        List<Object> values = new ArrayList<Object>();
+        while ( jp.nextToken() != JsonToken.END_ARRAY )
+        {
+            Object value = readValue( jp );
+            if ( value == null || value.getClass().isArray() )
+            {
+                throw new BadInputException( "Arrays can only hold strings, numbers and booleans" );
+            }
+            values.add( value );
+        }
+        if ( values.isEmpty() )
+        {
+            throw new BadInputException( "Empty arrays can't be stored as properties" );
+        }
+        // Same as how DatabaseActions turns lists into property values
+        Object[] array = (Object[]) Array.newInstance( values.get( 0 ).getClass(), values.size() );
+        try
+        {
+            return values.toArray( array );
+        }
+        catch ( ArrayStoreException e )
+        {
+            throw new BadInputException( "All values in an array must be of the same type" );
+        }
+    }
+
+    private void setProperties( PropertyContainer entity, Map<String, Object> properties )
+            throws PropertyValueException
+    {
+        for ( Map.Entry<String, Object> property : properties.entrySet() )
+        {
+            setProperty( entity, property.getKey(), property.getValue() );
+        }
+    }
+
+    private void setProperty( PropertyContainer entity, String key, Object value ) throws PropertyValueException
+    {
+        if ( value == null )
+        {
+            return;
+        }
+        try
+        {
+            entity.setProperty( key, value );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            throw new PropertyValueException( key, value );
+        }
+    }
+
+    private long readId( JsonParser jp, String what ) throws IOException, BadInputException
+    {
+        if ( jp.getCurrentToken() != JsonToken.VALUE_NUMBER_INT )
+        {
+            throw new BadInputException( "Expected the id of the " + what + " node, got " + jp.getText() );
+        }
+        return jp.getLongValue();
+    }
+
+    private String readType( JsonParser jp ) throws IOException, BadInputException
+    {
+        expect( jp.getCurrentToken(), JsonToken.VALUE_STRING, "a relationship type" );
+        return jp.getText();
+    }
+
+    private Node node( long id ) throws BadInputException
+    {
+        try
+        {
+            return graphDb.getNodeById( id );
+        }
+        catch ( NotFoundException e )
+        {
+            throw new BadInputException( "Node " + id + " not found" );
+        }
+    }
+
+    private RelationshipType type( String name )
+    {
+        RelationshipType type = types.get( name );
+        if ( type == null )
+        {
+            type = DynamicRelationshipType.withName( name );
+            types.put( name, type );
+        }
+        return type;
+    }
+
+    private static void expect( JsonToken token, JsonToken expected, String what ) throws BadInputException
+    {
+        if ( token != expected )
+        {
+            throw new BadInputException( "Expected " + what + ", got " + token );
+        }
+    }
+
+    /**
+     * The ids of created entities, as ranges of consecutive ids.
+     */
+    public static class IdRanges
+    {
+        private final List<long[]> ranges = new ArrayList<long[]>();
+        private long count;
+
+        void add( long id )
+        {
+            count++;
+            if ( !ranges.isEmpty() )
+            {
+                long[] last = ranges.get( ranges.size() - 1 );
+                if ( last[1] + 1 == id )
+                {
+                    last[1] = id;
+                    return;
+                }
+            }
+            ranges.add( new long[] { id, id } );
+        }
+
+        public long count()
+        {
+            return count;
+        }
+
+        public List<long[]> ranges()
+        {
+            return ranges;
+        }
+
+        /**
+         * @return the number of created entities under "created" and the
+         *         ranges as [first, last] pairs under "ids".
+         */
+        public Map<String, Object> toMap()
+        {
+            List<List<Long>> ids = new ArrayList<List<Long>>( ranges.size() );
+            for ( long[] range : ranges )
+            {
+                List<Long> pair = new ArrayList<Long>( 2 );
+                pair.add( range[0] );
+                pair.add( range[1] );
+                ids.add( pair );
+            }
+            Map<String, Object> result = new LinkedHashMap<String, Object>();
+            result.put( "created", count );
+            result.put( "ids", ids );
+            return result;
+        }
+    }
+}
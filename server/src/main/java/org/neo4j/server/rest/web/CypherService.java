@@ -19,20 +19,39 @@
  */
 package org.neo4j.server.rest.web;
 
+import java.net.URI;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.UriInfo;
 
+import org.apache.commons.configuration.Configuration;
 import org.neo4j.cypher.javacompat.ExecutionEngine;
 import org.neo4j.cypher.javacompat.ExecutionResult;
-import org.neo4j.server.database.Database;
+import org.neo4j.server.configuration.Configurator;
+import org.neo4j.server.database.CypherExecutor;
+import org.neo4j.server.rest.paging.Leasable;
+import org.neo4j.server.rest.paging.Lease;
+import org.neo4j.server.rest.paging.LeaseLimitReachedException;
+import org.neo4j.server.rest.paging.LeaseManager;
+import org.neo4j.server.rest.paging.PagedCypherResult;
 import org.neo4j.server.rest.repr.BadInputException;
 import org.neo4j.server.rest.repr.CypherResultRepresentation;
+import org.neo4j.server.rest.repr.ExceptionRepresentation;
 import org.neo4j.server.rest.repr.InputFormat;
+import org.neo4j.server.rest.repr.MappingSerializer;
 import org.neo4j.server.rest.repr.OutputFormat;
 
 @Path( "/cypher" )
@@ -40,21 +59,29 @@ public class CypherService {
 
     private static final String PARAMS_KEY = "params";
     private static final String QUERY_KEY = "query";
+    private static final String PROFILE_PARAM = "profile";
+    private static final String CURSOR_PATH = "cursor";
+    private static final String PATH_TO_CURSOR = CURSOR_PATH + "/{cursorId}";
+    private static final String SIXTY_SECONDS = "60";
+    private static final String FIFTY = "50";
 
-    private ExecutionEngine executionEngine;
+    private CypherExecutor cypherExecutor;
+    private LeaseManager leaseManager;
+    private Configuration config;
     private OutputFormat output;
     private InputFormat input;
 
-    public CypherService(@Context Database database, @Context InputFormat input,
-            @Context OutputFormat output) {
-        this.executionEngine = new ExecutionEngine(database.graph);
+    public CypherService(@Context CypherExecutor cypherExecutor, @Context LeaseManager leaseManager,
+            @Context Configuration config, @Context InputFormat input, @Context OutputFormat output) {
+        this.cypherExecutor = cypherExecutor;
+        this.leaseManager = leaseManager;
+        this.config = config;
         this.input = input;
         this.output = output;
     }
     
     @POST
-    @SuppressWarnings({ "unchecked" })
-    public Response cypher(String body) throws BadInputException {
+    public Response cypher(String body, @QueryParam( PROFILE_PARAM ) boolean profile) throws BadInputException {
         Map<String,Object> command = input.readMap( body );
         
         if( !command.containsKey(QUERY_KEY) ) {
@@ -62,12 +89,148 @@ public class CypherService {
         }
         
         String query =  (String) command.get(QUERY_KEY);
-        Map<String,Object> params = (Map<String, Object>) (command.containsKey(PARAMS_KEY) ? command.get(PARAMS_KEY) : new HashMap<String, Object>());
+        Map<String,Object> params = params( command );
+        ExecutionEngine executionEngine = cypherExecutor.getExecutionEngine();
+        long start = System.nanoTime();
+        CypherResultRepresentation representation = null;
         try {
-            ExecutionResult result = executionEngine.execute(  query, params );
-            return output.ok(new CypherResultRepresentation( result ));
+            if ( profile ) {
+                ExecutionResult result = executionEngine.profile( query, params );
+                representation = timed( result, true, start );
+            } else {
+                ExecutionResult result = executionEngine.execute(  query, params );
+                representation = timed( result, false, start );
+            }
+            return output.okStreamed( representation );
         } catch(Exception e) {
+            if ( representation == null ) {
+                cypherExecutor.executed( System.nanoTime() - start );
+            }
             return output.badRequest(e);
         }
     }
+
+    /**
+     * Runs a query and responds with the first page of its rows. If there are
+     * more rows, the rest of the result is kept on the server under a lease,
+     * and the response points to where the next page can be read from. This
+     * saves running the query again with SKIP and LIMIT for every page.
+     */
+    @POST
+    @Path( CURSOR_PATH )
+    public Response createCursor(String body, @Context UriInfo uriInfo,
+            @QueryParam( "pageSize" ) @DefaultValue( FIFTY ) int pageSize,
+            @QueryParam( "leaseTime" ) @DefaultValue( SIXTY_SECONDS ) int leaseTimeInSeconds) throws BadInputException {
+        Map<String,Object> command = input.readMap( body );
+
+        if( !command.containsKey(QUERY_KEY) ) {
+            return output.badRequest(new BadInputException( "You have to provide the 'query' parameter." ));
+        }
+        if ( pageSize < 1 ) {
+            return output.badRequest(new BadInputException( "Page size less than 1 is not permitted" ));
+        }
+        if ( leaseTimeInSeconds < 1 ) {
+            return output.badRequest(new BadInputException( "Lease time less than 1 second is not supported" ));
+        }
+
+        String query = (String) command.get(QUERY_KEY);
+        long start = System.nanoTime();
+        Lease lease = null;
+        ExecutionResult result = null;
+        try {
+            result = cypherExecutor.getExecutionEngine().execute( query, params( command ) );
+            PagedCypherResult cursor = new PagedCypherResult( result.columns(), result.streamingIterator(), pageSize, result );
+            lease = leaseManager.createLease( leaseTimeInSeconds, cursor, config.getInt(
+                    Configurator.CYPHER_CURSOR_MAX_OPEN, Configurator.DEFAULT_CYPHER_CURSOR_MAX_OPEN ) );
+
+            CypherResultRepresentation page = nextPage( cursor, lease.getId() );
+            if ( !cursor.hasNext() ) {
+                return output.ok( page );
+            }
+            URI location = URI.create( uriInfo.getBaseUri() + "cypher/" + CURSOR_PATH + "/" + lease.getId() );
+            return output.created( page, location.normalize() );
+        } catch(LeaseLimitReachedException e) {
+            result.close();
+            return output.response( Status.SERVICE_UNAVAILABLE, new ExceptionRepresentation( e ) );
+        } catch(Exception e) {
+            if ( lease != null ) {
+                leaseManager.remove( lease.getId() );
+            } else if ( result != null ) {
+                result.close();
+            }
+            return output.badRequest(e);
+        } finally {
+            cypherExecutor.executed( System.nanoTime() - start );
+        }
+    }
+
+    /**
+     * Reads the next page of rows from a cursor. The cursor is let go of once
+     * its last row has been read.
+     */
+    @GET
+    @Path( PATH_TO_CURSOR )
+    public Response readCursor(@PathParam( "cursorId" ) String cursorId) {
+        PagedCypherResult cursor = cursor( cursorId );
+        if ( cursor == null ) {
+            return output.notFound();
+        }
+        try {
+            return output.ok( nextPage( cursor, cursorId ) );
+        } catch(Exception e) {
+            leaseManager.remove( cursorId );
+            return output.badRequest(e);
+        }
+    }
+
+    @DELETE
+    @Path( PATH_TO_CURSOR )
+    public Response removeCursor(@PathParam( "cursorId" ) String cursorId) {
+        if ( cursor( cursorId ) == null ) {
+            return output.notFound();
+        }
+        leaseManager.remove( cursorId );
+        return Response.ok().build();
+    }
+
+    private PagedCypherResult cursor( String cursorId ) {
+        Lease lease = leaseManager.getLeaseById( cursorId );
+        Leasable leased = lease == null ? null : lease.getLeasedItemAndRenewLease();
+        return leased instanceof PagedCypherResult ? (PagedCypherResult) leased : null;
+    }
+
+    /*
+     * Reads the rows of the page up front, so that the rest of the result can
+     * be read by the next request no matter when this response is written.
+     */
+    private CypherResultRepresentation nextPage( PagedCypherResult cursor, String cursorId ) {
+        List<Map<String,Object>> rows = cursor.next();
+        if ( !cursor.hasNext() ) {
+            leaseManager.remove( cursorId );
+        }
+        return new CypherResultRepresentation( cursor.columns(),
+                rows == null ? Collections.<Map<String,Object>>emptyList() : rows );
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String,Object> params( Map<String,Object> command ) {
+        return (Map<String, Object>) (command.containsKey(PARAMS_KEY) ? command.get(PARAMS_KEY) : new HashMap<String, Object>());
+    }
+
+    /*
+     * The rows are read as the response is written, which may be after this
+     * service has returned, so the query is done once its result is serialized.
+     */
+    private CypherResultRepresentation timed( ExecutionResult result, boolean profile, final long start ) {
+        return new CypherResultRepresentation( result, profile ) {
+            @Override
+            protected void serialize( MappingSerializer serializer ) {
+                try {
+                    super.serialize( serializer );
+                } finally {
+                    cypherExecutor.executed( System.nanoTime() - start );
+                }
+            }
+        };
+    }
 }
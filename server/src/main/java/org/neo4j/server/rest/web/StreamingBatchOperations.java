@@ -28,10 +28,12 @@ import java.util.Map;
 import javax.servlet.ServletException;
 import javax.servlet.ServletOutputStream;
 import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
 import org.mortbay.log.Log;
 import org.neo4j.server.rest.batch.BatchOperations;
+import org.neo4j.server.rest.batch.DirectBatchDispatcher;
 import org.neo4j.server.rest.batch.StreamingBatchOperationResults;
 import org.neo4j.server.rest.domain.BatchOperationFailedException;
 import org.neo4j.server.web.WebServer;
@@ -46,6 +48,11 @@ public class StreamingBatchOperations extends BatchOperations
         super( webServer );
     }
 
+    public StreamingBatchOperations( WebServer webServer, DirectBatchDispatcher directDispatcher )
+    {
+        super( webServer, directDispatcher );
+    }
+
     public void readAndExecuteOperations( UriInfo uriInfo, HttpHeaders httpHeaders, InputStream body, ServletOutputStream output ) throws IOException, ServletException {
         results = new StreamingBatchOperationResults(jsonFactory.createJsonGenerator(output),output);
         Map<Integer, String> locations = results.getLocations();
@@ -68,10 +75,28 @@ public class StreamingBatchOperations extends BatchOperations
             throw new BatchOperationFailedException(500, e.getMessage(),e );
 
         }
-        final int status = res.getStatus();
+        addResult( method, path, body, id, res.getStatus(), res.getHeader( "Location" ) );
+    }
+
+    @Override
+    protected void invoke( String method, String path, String body, Integer id, Response response ) throws IOException
+    {
+        results.startOperation(path,id);
+        try {
+            DirectBatchDispatcher.writeEntity( response, results.getServletOutputStream() );
+        } catch(Exception e) {
+            Log.warn( e );
+            results.writeError( 500, e.getMessage() );
+            throw new BatchOperationFailedException(500, e.getMessage(),e );
+        }
+        addResult( method, path, body, id, response.getStatus(), DirectBatchDispatcher.location( response ) );
+    }
+
+    private void addResult( String method, String path, String body, Integer id, int status, String location ) throws IOException
+    {
         if (is2XXStatusCode(status))
         {
-            results.addOperationResult(status,id,res.getHeader("Location"));
+            results.addOperationResult(status,id,location);
         }
         else
         {
@@ -40,6 +40,8 @@ import org.apache.commons.configuration.Configuration;
 import org.neo4j.kernel.GraphDatabaseAPI;
 import org.neo4j.server.database.Database;
 import org.neo4j.server.logging.Logger;
+import org.neo4j.server.rrd.sampler.CypherExecutionTimeSampleable;
+import org.neo4j.server.rrd.sampler.CypherParseTimeSampleable;
 import org.neo4j.server.rrd.sampler.NodeIdsInUseSampleable;
 import org.neo4j.server.rrd.sampler.PropertyCountSampleable;
 import org.neo4j.server.rrd.sampler.RelationshipCountSampleable;
@@ -69,7 +71,9 @@ public class RrdFactory
 //                new MemoryUsedSampleable(),
                 new NodeIdsInUseSampleable( (GraphDatabaseAPI) db.graph ),
                 new PropertyCountSampleable( (GraphDatabaseAPI) db.graph ),
-                new RelationshipCountSampleable( (GraphDatabaseAPI) db.graph )
+                new RelationshipCountSampleable( (GraphDatabaseAPI) db.graph ),
+                new CypherParseTimeSampleable( db ),
+                new CypherExecutionTimeSampleable( db )
         };
 
         Sampleable[] usage = {
@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.server.rrd.sampler;
+
+import org.neo4j.server.database.Database;
+import org.neo4j.server.rrd.Sampleable;
+import org.rrd4j.DsType;
+
+/**
+ * Milliseconds per second spent running Cypher queries over REST.
+ */
+public class CypherExecutionTimeSampleable implements Sampleable
+{
+    private final Database db;
+
+    public CypherExecutionTimeSampleable( Database db )
+    {
+        this.db = db;
+    }
+
+    @Override
+    public String getName()
+    {
+        return "cypher_exec_time";
+    }
+
+    @Override
+    public double getValue()
+    {
+        return db.getCypherExecutor().getExecutionTimeMillis();
+    }
+
+    @Override
+    public DsType getType()
+    {
+        return DsType.COUNTER;
+    }
+}
@@ -52,7 +52,12 @@ public class CypherSession implements ScriptSession
 
     public CypherSession( GraphDatabaseService graph )
     {
-        engine = new ExecutionEngine( graph );
+        this( new ExecutionEngine( graph ) );
+    }
+
+    public CypherSession( ExecutionEngine engine )
+    {
+        this.engine = engine;
     }
 
     @Override
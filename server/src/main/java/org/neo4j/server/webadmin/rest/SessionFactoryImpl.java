@@ -75,7 +75,7 @@ public class SessionFactoryImpl implements SessionFactory
             @Override
             ScriptSession newSession( Database database )
             {
-                return new CypherSession( database.graph );
+                return new CypherSession( database.getCypherExecutor().getExecutionEngine() );
             }
         },
         SHELL
@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.server.database;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.junit.After;
+import org.junit.Test;
+import org.neo4j.cypher.javacompat.ExecutionEngine;
+import org.neo4j.test.ImpermanentGraphDatabase;
+
+public class CypherExecutorTest
+{
+    private ImpermanentGraphDatabase graph = new ImpermanentGraphDatabase();
+    private Database database = new WrappingDatabase( graph );
+
+    @After
+    public void shutdown()
+    {
+        database.getGraph().shutdown();
+    }
+
+    @Test
+    public void shouldShareOneEngineBetweenCallers()
+    {
+        CypherExecutor executor = database.getCypherExecutor();
+
+        assertThat( executor.getExecutionEngine(), sameInstance( executor.getExecutionEngine() ) );
+    }
+
+    @Test
+    @SuppressWarnings( "deprecation" )
+    public void shouldCreateANewEngineWhenTheDatabaseIsReplaced()
+    {
+        CypherExecutor executor = database.getCypherExecutor();
+        ExecutionEngine before = executor.getExecutionEngine();
+
+        graph.shutdown();
+        database.graph = new ImpermanentGraphDatabase();
+
+        assertThat( executor.getExecutionEngine(), not( sameInstance( before ) ) );
+    }
+
+    @Test
+    public void shouldKeepTrackOfExecutedQueries()
+    {
+        CypherExecutor executor = database.getCypherExecutor();
+        executor.getExecutionEngine().execute( "start n=node(0) return n" ).toString();
+
+        executor.executed( 2000000 );
+        executor.executed( 3000000 );
+
+        assertThat( executor.getQueryCount(), is( 2L ) );
+        assertThat( executor.getExecutionTimeMillis(), is( 5L ) );
+        assertThat( executor.getParseTimeMillis(), greaterThanOrEqualTo( 0L ) );
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.server.rest.batch;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+
+import org.apache.commons.configuration.MapConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Node;
+import org.neo4j.server.database.Database;
+import org.neo4j.server.database.WrappingDatabase;
+import org.neo4j.server.rest.paging.FakeClock;
+import org.neo4j.server.rest.paging.LeaseManager;
+import org.neo4j.test.ImpermanentGraphDatabase;
+
+public class DirectBatchDispatcherTest
+{
+    private static final String BASE_URI = "http://localhost:7474/db/data/";
+
+    private Database database;
+    private DirectBatchDispatcher dispatcher;
+
+    @Before
+    public void startDatabase()
+    {
+        database = new WrappingDatabase( new ImpermanentGraphDatabase() );
+        UriInfo uriInfo = mock( UriInfo.class );
+        when( uriInfo.getBaseUri() ).thenReturn( URI.create( BASE_URI ) );
+        dispatcher = new DirectBatchDispatcher( uriInfo, database, new LeaseManager( new FakeClock() ),
+                new MapConfiguration( new HashMap<Object, Object>() ), null );
+    }
+
+    @After
+    public void shutdownDatabase()
+    {
+        database.getGraph().shutdown();
+    }
+
+    @Test
+    public void shouldCreateNodesDirectly() throws Exception
+    {
+        Response response = dispatcher.dispatch( "POST", URI.create( BASE_URI + "node" ), "{\"name\":\"a\"}" );
+
+        assertThat( response.getStatus(), is( 201 ) );
+        assertThat( DirectBatchDispatcher.location( response ), is( BASE_URI + "node/1" ) );
+        assertThat( DirectBatchDispatcher.entityAsString( response ), containsString( "\"name\" : \"a\"" ) );
+    }
+
+    @Test
+    public void shouldSetPropertiesWithKeysFromThePath() throws Exception
+    {
+        Response created = dispatcher.dispatch( "POST", URI.create( BASE_URI + "node" ), "{}" );
+        String node = DirectBatchDispatcher.location( created );
+
+        Response response = dispatcher.dispatch( "PUT", URI.create( node + "/properties/a%20key" ), "\"value\"" );
+
+        assertThat( response.getStatus(), is( 204 ) );
+        Node stored = database.getGraph().getNodeById( 1 );
+        assertThat( (String) stored.getProperty( "a key" ), is( "value" ) );
+    }
+
+    @Test
+    public void shouldReportFailuresLikeTheRestApi() throws Exception
+    {
+        Response response = dispatcher.dispatch( "PUT", URI.create( BASE_URI + "node/1000/properties" ), "{}" );
+
+        assertThat( response.getStatus(), is( 404 ) );
+    }
+
+    @Test
+    public void shouldAddToIndexesWithUniqueParameter() throws Exception
+    {
+        dispatcher.dispatch( "POST", URI.create( BASE_URI + "node" ), "{}" );
+        String body = "{\"key\":\"name\",\"value\":\"a\",\"uri\":\"" + BASE_URI + "node/1\"}";
+
+        assertThat( dispatcher.dispatch( "POST", URI.create( BASE_URI + "index/node/people?unique" ), body ).getStatus(), is( 201 ) );
+        assertThat( dispatcher.dispatch( "POST", URI.create( BASE_URI + "index/node/people?unique" ), body ).getStatus(), is( 200 ) );
+    }
+
+    @Test
+    public void shouldLeaveOtherOperationsToTheWebServer() throws Exception
+    {
+        assertThat( dispatcher.dispatch( "GET", URI.create( BASE_URI + "node/0" ), "" ), nullValue() );
+        assertThat( dispatcher.dispatch( "POST", URI.create( BASE_URI + "node/0/paths" ), "{}" ), nullValue() );
+        assertThat( dispatcher.dispatch( "POST", URI.create( BASE_URI + "cypher?profile=true" ), "{}" ), nullValue() );
+        assertThat( dispatcher.dispatch( "POST", URI.create( "http://localhost:7474/db/manage/node" ), "{}" ), nullValue() );
+        assertThat( dispatcher.dispatch( "POST", URI.create( BASE_URI + "cypher" ), "{\"query\":\"start n=node(0) return n\"}" ), notNullValue() );
+    }
+
+    @Test
+    public void shouldReplaceOnlyKnownLocationPlaceholders()
+    {
+        Map<Integer, String> locations = new HashMap<Integer, String>();
+        locations.put( 0, BASE_URI + "node/1" );
+        locations.put( 12, BASE_URI + "node/2" );
+        BatchOperations operations = new NonStreamingBatchOperations( null );
+
+        assertThat( operations.replaceLocationPlaceholders( "{\"to\":\"{12}\",\"from\":\"{0}\",\"at\":\"{3}\"}", locations ),
+                is( "{\"to\":\"" + BASE_URI + "node/2\",\"from\":\"" + BASE_URI + "node/1\",\"at\":\"{3}\"}" ) );
+        assertThat( operations.replaceLocationPlaceholders( "{0}/relationships", locations ),
+                is( BASE_URI + "node/1/relationships" ) );
+        assertThat( operations.replaceLocationPlaceholders( "{no placeholder}", locations ), is( "{no placeholder}" ) );
+    }
+}
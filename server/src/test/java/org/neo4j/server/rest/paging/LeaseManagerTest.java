@@ -21,7 +21,13 @@ package org.neo4j.server.rest.paging;
 
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.Map;
 
 import org.junit.Test;
 
@@ -103,4 +109,49 @@ public class LeaseManagerTest
 
         assertNull( manager.getLeaseById( lease.getId() ) );
     }
+
+    @Test
+    public void shouldCloseTheResultOfAnExpiredCursor() throws Exception
+    {
+        FakeClock fakeClock = new FakeClock();
+        LeaseManager manager = new LeaseManager( fakeClock );
+        Closeable result = mock( Closeable.class );
+        Lease lease = manager.createLease( SIXTY_SECONDS, new PagedCypherResult( Collections.<String>emptyList(),
+                Collections.<Map<String, Object>>emptyList().iterator(), 10, result ) );
+
+        fakeClock.forwardMinutes( 2 );
+
+        assertNull( manager.getLeaseById( lease.getId() ) );
+        verify( result ).close();
+    }
+
+    @Test
+    public void shouldNotHoldMoreLeasesOfAKindThanAllowed() throws Exception
+    {
+        FakeClock fakeClock = new FakeClock();
+        LeaseManager manager = new LeaseManager( fakeClock );
+        manager.createLease( SIXTY_SECONDS, cypherResult(), 2 );
+        manager.createLease( SIXTY_SECONDS, cypherResult(), 2 );
+        manager.createLease( SIXTY_SECONDS, mock( PagedTraverser.class ) );
+
+        try
+        {
+            manager.createLease( SIXTY_SECONDS, cypherResult(), 2 );
+            fail( "Should not have leased a third result" );
+        }
+        catch ( LeaseLimitReachedException e )
+        {
+            // ok
+        }
+
+        fakeClock.forwardMinutes( 2 );
+
+        assertNotNull( manager.createLease( SIXTY_SECONDS, cypherResult(), 2 ) );
+    }
+
+    private static PagedCypherResult cypherResult()
+    {
+        return new PagedCypherResult( Collections.<String>emptyList(),
+                Collections.<Map<String, Object>>emptyList().iterator(), 10 );
+    }
 }
@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.server.rest.paging;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class PagedCypherResultTest
+{
+    @Test
+    public void shouldReadRowsAPageAtATime()
+    {
+        PagedCypherResult result = new PagedCypherResult( asList( "n" ), rows( 5 ), 2 );
+
+        assertEquals( 2, result.next().size() );
+        assertEquals( 2, result.next().size() );
+        List<Map<String, Object>> last = result.next();
+        assertEquals( 1, last.size() );
+        assertEquals( 4, last.get( 0 ).get( "n" ) );
+        assertFalse( result.hasNext() );
+        assertNull( result.next() );
+    }
+
+    @Test
+    public void shouldNotReadAheadOfThePageBeingRead()
+    {
+        CountingIterator rows = new CountingIterator( rows( 100 ) );
+        PagedCypherResult result = new PagedCypherResult( asList( "n" ), rows, 10 );
+
+        result.next();
+
+        assertEquals( 10, rows.read );
+        assertTrue( result.hasNext() );
+    }
+
+    private static Iterator<Map<String, Object>> rows( int count )
+    {
+        List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+        for ( int i = 0; i < count; i++ )
+        {
+            rows.add( Collections.<String, Object>singletonMap( "n", i ) );
+        }
+        return rows.iterator();
+    }
+
+    private static class CountingIterator implements Iterator<Map<String, Object>>
+    {
+        private final Iterator<Map<String, Object>> rows;
+        int read;
+
+        CountingIterator( Iterator<Map<String, Object>> rows )
+        {
+            this.rows = rows;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return rows.hasNext();
+        }
+
+        @Override
+        public Map<String, Object> next()
+        {
+            read++;
+            return rows.next();
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
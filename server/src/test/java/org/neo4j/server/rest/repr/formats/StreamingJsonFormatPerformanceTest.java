@@ -69,7 +69,17 @@ public class StreamingJsonFormatPerformanceTest {
         measureQueryTime(query);
     }
 
+    @Test
+    public void testCypherResultsAreStreamedForPlainJson() throws Exception {
+        final String query = "{\"query\":\"" + QUERY + "\"}";
+        measureQueryTime(query, "application/json");
+    }
+
     private long measureQueryTime(String query) throws IOException {
+        return measureQueryTime(query, "application/json; stream=true");
+    }
+
+    private long measureQueryTime(String query, String accept) throws IOException {
         final URI baseUri = server.baseUri();
         final URL url = new URL(baseUri.toURL(), "db/data/cypher");
         HttpURLConnection connection = (HttpURLConnection) url.openConnection();
@@ -78,19 +88,27 @@ public class StreamingJsonFormatPerformanceTest {
         connection.setInstanceFollowRedirects(false);
         connection.setRequestMethod("POST");
         connection.setRequestProperty("Content-Type", "application/json");
-        connection.setRequestProperty("Accept", "application/json; stream=true");
+        connection.setRequestProperty("Accept", accept);
 
+        System.gc();
+        final Runtime runtime = Runtime.getRuntime();
+        final long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        long time=System.currentTimeMillis();
         OutputStream os = connection.getOutputStream();
         os.write(query.getBytes());
         os.close();
         final InputStream input = new BufferedInputStream(connection.getInputStream());
-        long time=System.currentTimeMillis();
+        input.read();
+        final long firstByte = System.currentTimeMillis() - time;
+        long peakHeap = 0;
         //final CountingInputStream counter = new CountingInputStream(input);
-        while (input.read()!=-1);
+        for (int i = 0; input.read() != -1; i++) {
+            if (i % 100000 == 0) peakHeap = Math.max(peakHeap, runtime.totalMemory() - runtime.freeMemory() - heapBefore);
+        }
         input.close();
         final long delta = System.currentTimeMillis() - time;
         //System.out.println("result.length() = " + counter.getCount()+" took "+ delta +" ms.");
-        System.out.println(" took "+ delta +" ms.");
+        System.out.println(accept + ": first byte after " + firstByte + " ms, took "+ delta +" ms, heap grew by up to " + peakHeap / 1024 + " kB.");
         return delta;
     }
 
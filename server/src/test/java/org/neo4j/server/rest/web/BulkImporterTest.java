@@ -0,0 +1,208 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.server.rest.web;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Test;
+import org.neo4j.graphdb.DynamicRelationshipType;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.server.rest.repr.BadInputException;
+import org.neo4j.test.ImpermanentGraphDatabase;
+import org.neo4j.tooling.GlobalGraphOperations;
+
+public class BulkImporterTest
+{
+    private final ImpermanentGraphDatabase graph = new ImpermanentGraphDatabase();
+
+    @After
+    public void shutdown()
+    {
+        graph.shutdown();
+    }
+
+    @Test
+    public void shouldCreateNodesFromPropertyObjects() throws Exception
+    {
+        BulkImporter.IdRanges ids = new BulkImporter( graph, 10 ).importNodes(
+                json( "{\"name\":\"Alice\",\"tags\":[\"a\",\"b\"]}\n{\"name\":\"Bob\",\"age\":31}" ) );
+
+        assertThat( ids.count(), is( 2L ) );
+        assertThat( graph.getNodeById( 1 ).getProperty( "name" ), is( (Object) "Alice" ) );
+        assertArrayEquals( new String[] { "a", "b" }, (String[]) graph.getNodeById( 1 ).getProperty( "tags" ) );
+        assertThat( graph.getNodeById( 2 ).getProperty( "age" ), is( (Object) 31 ) );
+    }
+
+    @Test
+    public void shouldCreateNodesFromRowsOfValues() throws Exception
+    {
+        BulkImporter.IdRanges ids = new BulkImporter( graph, 2 ).importNodes(
+                json( "[\"name\",\"age\"]\n[\"Alice\",31]\n[\"Bob\",null]\n[\"Carol\",3000000000]" ) );
+
+        assertThat( ids.count(), is( 3L ) );
+        assertThat( ids.toMap().get( "ids" ).toString(), is( "[[1, 3]]" ) );
+        assertFalse( graph.getNodeById( 2 ).hasProperty( "age" ) );
+        assertThat( graph.getNodeById( 3 ).getProperty( "age" ), is( (Object) 3000000000L ) );
+    }
+
+    @Test
+    public void shouldCreateRelationshipsFromRowsAndObjects() throws Exception
+    {
+        createNodes( 3 );
+
+        BulkImporter.IdRanges ids = new BulkImporter( graph, 10 ).importRelationships( json(
+                "[1,2,\"KNOWS\"]\n[2,3,\"KNOWS\",{\"since\":2001}]\n"
+                        + "{\"start\":3,\"end\":1,\"type\":\"LIKES\",\"data\":{\"really\":true}}" ) );
+
+        assertThat( ids.toMap().get( "ids" ).toString(), is( "[[0, 2]]" ) );
+        Relationship knows = graph.getRelationshipById( 1 );
+        assertThat( knows.getStartNode().getId(), is( 2L ) );
+        assertThat( knows.getType().name(), is( "KNOWS" ) );
+        assertThat( knows.getProperty( "since" ), is( (Object) 2001 ) );
+        assertThat( graph.getRelationshipById( 2 ).getProperty( "really" ), is( (Object) true ) );
+    }
+
+    @Test
+    public void shouldCreateRelationshipsWithValuesForPropertyKeys() throws Exception
+    {
+        createNodes( 2 );
+
+        new BulkImporter( graph, 10 ).importRelationships( json( "[\"since\"]\n[1,2,\"KNOWS\",1999]" ) );
+
+        assertThat( graph.getRelationshipById( 0 ).getProperty( "since" ), is( (Object) 1999 ) );
+    }
+
+    @Test
+    public void shouldKeepCommittedChunksWhenFailing() throws Exception
+    {
+        try
+        {
+            new BulkImporter( graph, 2 ).importNodes( json( "{\"a\":1}\n{\"a\":2}\n{\"a\":3}\n{\"a\":[1,\"x\"]}" ) );
+            fail( "Mixed arrays should not be accepted" );
+        }
+        catch ( BadInputException e )
+        {
+            assertThat( e.getMessage(), containsString( "row 4" ) );
+            assertThat( e.getMessage(), containsString( "first 2 rows have been imported" ) );
+        }
+
+        // The reference node and the first chunk
+        assertThat( count( GlobalGraphOperations.at( graph ).getAllNodes() ), is( 3 ) );
+    }
+
+    @Test
+    public void shouldRollBackTheChunkOfRelationshipsBeingImportedWhenFailing() throws Exception
+    {
+        createNodes( 2 );
+
+        try
+        {
+            new BulkImporter( graph, 2 ).importRelationships(
+                    json( "[1,2,\"KNOWS\"]\n[2,1,\"KNOWS\"]\n[1,2,\"LIKES\"]\n[1,999,\"LIKES\"]" ) );
+            fail( "Relationships to missing nodes should not be accepted" );
+        }
+        catch ( BadInputException e )
+        {
+            assertThat( e.getMessage(), containsString( "row 4" ) );
+            assertThat( e.getMessage(), containsString( "first 2 rows have been imported" ) );
+        }
+
+        assertThat( count( GlobalGraphOperations.at( graph ).getAllRelationships() ), is( 2 ) );
+        assertFalse( graph.getNodeById( 1 ).hasRelationship( DynamicRelationshipType.withName( "LIKES" ) ) );
+    }
+
+    @Test
+    public void shouldImportNothingWhenFailingInTheFirstChunk() throws Exception
+    {
+        try
+        {
+            new BulkImporter( graph, 10 ).importNodes( json( "{\"a\":1}\n{\"a\":2}\n{\"a\":" ) );
+            fail( "Broken JSON should not be accepted" );
+        }
+        catch ( BadInputException e )
+        {
+            assertThat( e.getMessage(), containsString( "first 0 rows have been imported" ) );
+        }
+
+        // Only the reference node
+        assertThat( count( GlobalGraphOperations.at( graph ).getAllNodes() ), is( 1 ) );
+    }
+
+    @Test( expected = BadInputException.class )
+    public void shouldNotAcceptRelationshipsToMissingNodes() throws Exception
+    {
+        new BulkImporter( graph, 10 ).importRelationships( json( "[0,999,\"KNOWS\"]" ) );
+    }
+
+    @Test( expected = BadInputException.class )
+    public void shouldNotAcceptMoreValuesThanPropertyKeys() throws Exception
+    {
+        new BulkImporter( graph, 10 ).importNodes( json( "[\"a\"]\n[1,2]" ) );
+    }
+
+    @Test
+    public void shouldMergeConsecutiveIdsIntoRanges()
+    {
+        BulkImporter.IdRanges ids = new BulkImporter.IdRanges();
+        for ( long id : new long[] { 4, 5, 6, 9, 10, 3 } )
+        {
+            ids.add( id );
+        }
+
+        assertThat( ids.count(), is( 6L ) );
+        assertThat( ids.toMap().get( "ids" ), is( (Object) Arrays.asList( Arrays.asList( 4L, 6L ),
+                Arrays.asList( 9L, 10L ), Arrays.asList( 3L, 3L ) ) ) );
+    }
+
+    private void createNodes( int count ) throws Exception
+    {
+        StringBuilder rows = new StringBuilder();
+        for ( int i = 0; i < count; i++ )
+        {
+            rows.append( "{}\n" );
+        }
+        new BulkImporter( graph, 10 ).importNodes( json( rows.toString() ) );
+    }
+
+    private static int count( Iterable<?> entities )
+    {
+        int count = 0;
+        for ( @SuppressWarnings( "unused" ) Object entity : entities )
+        {
+            count++;
+        }
+        return count;
+    }
+
+    private static InputStream json( String input ) throws Exception
+    {
+        return new ByteArrayInputStream( input.getBytes( "UTF-8" ) );
+    }
+}
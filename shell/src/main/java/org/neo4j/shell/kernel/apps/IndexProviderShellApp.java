@@ -389,7 +389,7 @@ public class IndexProviderShellApp extends GraphDatabaseApp
         {
             value = parser.argumentWithDefault( 2, null );
         }
-        Index theIndex = getIndex( index, current.isNode() ? Node.class : Relationship.class, out );
+        Index theIndex = getIndex( index, (Class) (current.isNode() ? Node.class : Relationship.class), out );
         if ( theIndex != null )
         {
             if ( key != null && value != null )